@@ -0,0 +1,126 @@
+#!/usr/bin/env python3
+"""Compares JMH results with the committed baseline.
+
+Usage: scripts/compare-benchmarks.py [results.json] [baseline.json] [--threshold PERCENT] [--update]
+
+Reports, for each benchmark and parameter set, how much worse (positive) or better the score and
+the bytes allocated per operation (gc profiler) got, and exits with status 1 when one of them
+regressed by more than the threshold (default 10%) with confidence intervals (score +/- error)
+that do not overlap, so that noisy benchmarks are not reported. Refresh the baseline with
+--update when a change is expected: it writes the results without their raw samples nor the
+paths of the machine that ran them.
+"""
+import argparse
+import json
+import math
+import sys
+
+ALLOCATION = "gc.alloc.rate.norm"
+
+
+def load(path):
+    with open(path, encoding="utf-8") as file:
+        results = {}
+        for result in json.load(file):
+            params = ",".join(f"{k}={v}" for k, v in sorted(result.get("params", {}).items()))
+            name = result["benchmark"].rsplit(".", 2)
+            key = ".".join(name[-2:]) + (f" [{params}]" if params else "")
+            results[key] = result
+        return results
+
+
+def error(metric):
+    """Returns the 99.9% confidence half-width of a metric, 0 when JMH could not compute it."""
+    value = metric.get("scoreError", 0.0)
+    return 0.0 if value is None or math.isnan(value) else value
+
+
+def significant(before, after, higher_is_better):
+    """Tells whether the confidence intervals of two metrics do not overlap."""
+    if higher_is_better:
+        return after["score"] + error(after) < before["score"] - error(before)
+    return after["score"] - error(after) > before["score"] + error(before)
+
+
+def strip(result):
+    """Drops the raw samples and the JVM path of a result, keeping its scores and errors."""
+    result = dict(result)
+    result.pop("jvm", None)
+    metrics = [result["primaryMetric"], *result.get("secondaryMetrics", {}).values()]
+    for metric in metrics:
+        metric.pop("rawData", None)
+        metric.pop("rawDataHistogram", None)
+    return result
+
+
+def update(results_path, baseline_path):
+    with open(results_path, encoding="utf-8") as file:
+        results = [strip(result) for result in json.load(file)]
+    with open(baseline_path, "w", encoding="utf-8") as file:
+        json.dump(results, file, indent=4)
+        file.write("\n")
+    print(f"✅ Baseline {baseline_path} updated from {results_path}")
+    return 0
+
+
+def change(before, after, higher_is_better):
+    if not before:
+        return 0.0
+    delta = (after - before) / before * 100
+    return -delta if higher_is_better else delta
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__.splitlines()[0])
+    parser.add_argument("results", nargs="?", default="target/jmh-results.json")
+    parser.add_argument("baseline", nargs="?", default="src/jmh/baseline.json")
+    parser.add_argument("--threshold", type=float, default=10.0)
+    parser.add_argument("--update", action="store_true", help="write the results as baseline")
+    args = parser.parse_args()
+    if args.update:
+        return update(args.results, args.baseline)
+
+    baseline = load(args.baseline)
+    results = load(args.results)
+    regressions = 0
+    print(f"{'Benchmark':70} {'score':>12} {'change':>8} {'B/op':>14} {'change':>8}")
+    for key, result in results.items():
+        primary = result["primaryMetric"]
+        allocation_metric = result.get("secondaryMetrics", {}).get(ALLOCATION)
+        allocation = allocation_metric["score"] if allocation_metric else None
+        previous = baseline.get(key)
+        if previous is None:
+            print(f"{key:70} {primary['score']:12.3f} {'new':>8}")
+            continue
+        # Lower is better for times, higher for throughputs (ops/time)
+        higher_is_better = primary["scoreUnit"].startswith("ops/")
+        previous_primary = previous["primaryMetric"]
+        score_change = change(previous_primary["score"], primary["score"], higher_is_better)
+        previous_allocation_metric = previous.get("secondaryMetrics", {}).get(ALLOCATION)
+        allocation_change = (
+            change(previous_allocation_metric["score"], allocation, False)
+            if allocation_metric and previous_allocation_metric
+            else 0.0
+        )
+        regressed = (
+            score_change > args.threshold
+            and significant(previous_primary, primary, higher_is_better)
+        ) or (
+            allocation_change > args.threshold
+            and significant(previous_allocation_metric, allocation_metric, False)
+        )
+        regressions += regressed
+        print(
+            f"{key:70} {primary['score']:12.3f} {score_change:+7.1f}%"
+            f" {allocation or 0:14.0f} {allocation_change:+7.1f}%{'  ❌' if regressed else ''}"
+        )
+    print()
+    if regressions:
+        print(f"❌ {regressions} benchmarks regressed by more than {args.threshold}% beyond their error")
+        return 1
+    print(f"✅ No regression above {args.threshold}%")
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
@@ -0,0 +1,57 @@
+package arnaudroubinet.structurizr.confluence.benchmark;
+
+import arnaudroubinet.structurizr.confluence.processor.AsciiDocConverter;
+import arnaudroubinet.structurizr.confluence.processor.AsciiDocToAdfConverter;
+import arnaudroubinet.structurizr.confluence.processor.HtmlToAdfConverter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares the AsciiDoc to ADF paths: html5 rendering followed by Jsoup parsing, and the direct
+ * walk of the Asciidoctor document tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AsciiDocConversionBenchmark {
+
+  @Param({"1", "10"})
+  public int sections;
+
+  private String asciiDoc;
+  private AsciiDocConverter asciiDocConverter;
+  private HtmlToAdfConverter htmlToAdfConverter;
+  private AsciiDocToAdfConverter asciiDocToAdfConverter;
+
+  @Setup
+  public void setup() {
+    asciiDoc = BenchmarkFixtures.asciiDocDocument(sections);
+    asciiDocConverter = new AsciiDocConverter();
+    htmlToAdfConverter = new HtmlToAdfConverter();
+    asciiDocToAdfConverter = new AsciiDocToAdfConverter(asciiDocConverter);
+  }
+
+  @TearDown
+  public void tearDown() {
+    asciiDocConverter.close();
+  }
+
+  @Benchmark
+  public String viaHtml() {
+    String html = asciiDocConverter.convertToHtml(asciiDoc, "Benchmark", null, null);
+    return htmlToAdfConverter.convertToAdfJson(html, "Benchmark");
+  }
+
+  @Benchmark
+  public String direct() {
+    return asciiDocToAdfConverter.convertToAdfJson(asciiDoc, "Benchmark", null, null);
+  }
+}
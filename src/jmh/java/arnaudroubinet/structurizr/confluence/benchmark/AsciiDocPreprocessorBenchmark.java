@@ -0,0 +1,45 @@
+package arnaudroubinet.structurizr.confluence.benchmark;
+
+import arnaudroubinet.structurizr.confluence.processor.AsciiDocPreprocessor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the former chained {@code replaceAll} preprocessing with the single-scan {@link
+ * AsciiDocPreprocessor}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AsciiDocPreprocessorBenchmark {
+
+  @Param({"1", "10", "100"})
+  public int sections;
+
+  private String asciiDoc;
+
+  @Setup
+  public void setup() {
+    asciiDoc = BenchmarkFixtures.asciiDocDocument(sections);
+  }
+
+  @Benchmark
+  public String replaceAll() {
+    return asciiDoc
+        .replaceAll("image::embed:([a-zA-Z0-9_-]+)\\[\\]", "image::local:diagram:$1[]")
+        .replaceAll("include::([^\\[]+)\\[\\]", "[INCLUDE: $1]")
+        .replaceAll("ifndef::([^\\[]+)\\[([^\\]]+)\\]", "");
+  }
+
+  @Benchmark
+  public String singleScan() {
+    return AsciiDocPreprocessor.process(asciiDoc, key -> "local:diagram:" + key);
+  }
+}
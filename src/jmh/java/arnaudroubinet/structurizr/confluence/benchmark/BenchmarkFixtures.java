@@ -0,0 +1,134 @@
+package arnaudroubinet.structurizr.confluence.benchmark;
+
+import arnaudroubinet.structurizr.confluence.workspace.SyntheticWorkspaceGenerator;
+import com.structurizr.Workspace;
+import com.structurizr.util.WorkspaceUtils;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Deterministic documentation inputs shared by the benchmarks. */
+final class BenchmarkFixtures {
+
+  /** Demo workspace, relative to the project directory the benchmarks run from. */
+  static final String DEMO_WORKSPACE = "demo/itms-workspace.json";
+
+  private BenchmarkFixtures() {}
+
+  /** Loads the demo workspace, or the one named by the {@code benchmark.workspace} property. */
+  static Workspace demoWorkspace() throws Exception {
+    Path file = Path.of(System.getProperty("benchmark.workspace", DEMO_WORKSPACE));
+    return WorkspaceUtils.fromJson(Files.readString(file));
+  }
+
+  /**
+   * Builds a synthetic workspace of the given size: as many documentation sections embedding
+   * diagrams, decisions and views, see {@link SyntheticWorkspaceGenerator}.
+   */
+  static Workspace syntheticWorkspace(int size) {
+    SyntheticWorkspaceGenerator generator = new SyntheticWorkspaceGenerator();
+    generator.setWorkspaceId(size);
+    generator.setSections(size);
+    generator.setDecisions(size);
+    generator.setViews(size);
+    return generator.generate();
+  }
+
+  /** Builds a Markdown table with the given number of rows and formatted cells. */
+  static String largeMarkdownTable(int rows) {
+    StringBuilder md = new StringBuilder("## Interfaces\n\n");
+    md.append("| Interface | Protocol | Description | Owner |\n");
+    md.append("|-----------|----------|-------------|-------|\n");
+    for (int row = 1; row <= rows; row++) {
+      md.append("| `api-")
+          .append(row)
+          .append("` | HTTPS | Exposes **resource ")
+          .append(row)
+          .append("** to [clients](https://example.com/")
+          .append(row)
+          .append(") | Team ")
+          .append(row % 7)
+          .append(" |\n");
+    }
+    return md.toString();
+  }
+
+  /** Builds an AsciiDoc table with the given number of rows and formatted cells. */
+  static String largeAsciiDocTable(int rows) {
+    StringBuilder adoc = new StringBuilder("== Interfaces\n\n");
+    adoc.append("[options=\"header\"]\n|===\n| Interface | Protocol | Description | Owner\n");
+    for (int row = 1; row <= rows; row++) {
+      adoc.append("| `api-")
+          .append(row)
+          .append("` | HTTPS | Exposes *resource ")
+          .append(row)
+          .append("* to https://example.com/")
+          .append(row)
+          .append("[clients] | Team ")
+          .append(row % 7)
+          .append("\n");
+    }
+    return adoc.append("|===\n").toString();
+  }
+
+  /** Builds a Markdown document with the given number of arc42-like sections. */
+  static String markdownDocument(int sections) {
+    StringBuilder md = new StringBuilder("# Architecture Documentation\n\n");
+    for (int i = 1; i <= sections; i++) {
+      md.append("## ").append(i).append(". Section ").append(i).append("\n\n");
+      md.append("This section describes **component ")
+          .append(i)
+          .append("** and its *responsibilities*, with a ")
+          .append("[reference](https://example.com/docs/")
+          .append(i)
+          .append(") and some `inline code`.\n\n");
+      md.append("| Quality goal | Scenario | Priority |\n");
+      md.append("|--------------|----------|----------|\n");
+      for (int row = 1; row <= 5; row++) {
+        md.append("| Goal ")
+            .append(row)
+            .append(" | The system ~~must~~ should respond in ")
+            .append(row * 100)
+            .append(" ms | ")
+            .append(row)
+            .append(" |\n");
+      }
+      md.append("\n- First constraint\n- Second constraint\n  1. Nested item\n\n");
+      md.append("- [x] Reviewed\n- [ ] Approved\n\n");
+      md.append("> Decisions are recorded as ADRs.\n\n");
+      md.append("```java\nclass Component").append(i).append(" {}\n```\n\n");
+      md.append("![Context](embed:SystemContext)\n\n");
+    }
+    return md.toString();
+  }
+
+  /** Builds an arc42-like AsciiDoc document with the given number of sections. */
+  static String asciiDocDocument(int sections) {
+    StringBuilder adoc = new StringBuilder();
+    for (int i = 1; i <= sections; i++) {
+      adoc.append("[[section-").append(i).append("]]\n");
+      adoc.append("== Section ").append(i).append("\n\n");
+      adoc.append("This section describes *component ")
+          .append(i)
+          .append("* and its _responsibilities_, with a ")
+          .append("https://example.com/docs/")
+          .append(i)
+          .append("[reference] and some `inline code`.\n\n");
+      adoc.append("[cols=\"e,e,7e\",options=\"header\"]\n|===\n| Goal | Priority | Scenario\n");
+      for (int row = 1; row <= 5; row++) {
+        adoc.append("| Goal ")
+            .append(row)
+            .append(" | ")
+            .append(row)
+            .append(" | The system should respond in ")
+            .append(row * 100)
+            .append(" ms\n");
+      }
+      adoc.append("|===\n\n");
+      adoc.append("* First constraint\n* Second constraint\n** Nested item\n\n");
+      adoc.append("NOTE: Decisions are recorded as ADRs.\n\n");
+      adoc.append("[source,java]\n----\nclass Component").append(i).append(" {}\n----\n\n");
+      adoc.append("image::embed:SystemContext[]\n\n");
+    }
+    return adoc.toString();
+  }
+}
@@ -0,0 +1,127 @@
+package arnaudroubinet.structurizr.confluence.benchmark;
+
+import arnaudroubinet.structurizr.confluence.processor.AdfAlignmentPostProcessor;
+import arnaudroubinet.structurizr.confluence.processor.AdfTablePostProcessor;
+import arnaudroubinet.structurizr.confluence.processor.AsciiDocConverter;
+import arnaudroubinet.structurizr.confluence.processor.HtmlToAdfConverter;
+import arnaudroubinet.structurizr.confluence.processor.MarkdownConverter;
+import arnaudroubinet.structurizr.confluence.processor.RawAdf;
+import com.structurizr.Workspace;
+import com.structurizr.documentation.Decision;
+import com.structurizr.documentation.Format;
+import com.structurizr.documentation.Section;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of each stage of the page conversion, over the documentation of the demo workspace or
+ * over synthetic large documents and tables. Each invocation converts the whole corpus. Run with
+ * the gc profiler (the default {@code jmh.args} of the benchmark profile) to get allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConversionHotPathBenchmark {
+
+  @Param({"demo", "synthetic"})
+  public String corpus;
+
+  private final List<String> asciiDocs = new ArrayList<>();
+  private final List<String> markdowns = new ArrayList<>();
+  private final List<String> htmls = new ArrayList<>();
+  private final List<String> rawAdfs = new ArrayList<>();
+  private AsciiDocConverter asciiDocConverter;
+  private MarkdownConverter markdownConverter;
+  private HtmlToAdfConverter htmlToAdfConverter;
+
+  @Setup
+  public void setup() throws Exception {
+    if (corpus.equals("demo")) {
+      Workspace workspace = BenchmarkFixtures.demoWorkspace();
+      for (Section section : workspace.getDocumentation().getSections()) {
+        add(section.getFormat(), section.getContent());
+      }
+      for (Decision decision : workspace.getDocumentation().getDecisions()) {
+        add(decision.getFormat(), decision.getContent());
+      }
+    } else {
+      asciiDocs.add(BenchmarkFixtures.asciiDocDocument(50));
+      asciiDocs.add(BenchmarkFixtures.largeAsciiDocTable(500));
+      markdowns.add(BenchmarkFixtures.markdownDocument(50));
+      markdowns.add(BenchmarkFixtures.largeMarkdownTable(500));
+    }
+
+    asciiDocConverter = new AsciiDocConverter();
+    markdownConverter = new MarkdownConverter();
+    htmlToAdfConverter = new HtmlToAdfConverter();
+    for (String asciiDoc : asciiDocs) {
+      htmls.add(asciiDocConverter.convertToHtml(asciiDoc, "Benchmark"));
+    }
+    for (String markdown : markdowns) {
+      htmls.add(markdownConverter.toHtml(markdown));
+    }
+    // The post-processors run on the ADF holding the table and node markers
+    for (String html : htmls) {
+      rawAdfs.add(RawAdf.of(htmlToAdfConverter, html, "Benchmark"));
+    }
+  }
+
+  private void add(Format format, String content) {
+    if (format == Format.Markdown) {
+      markdowns.add(content);
+    } else {
+      asciiDocs.add(content);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    asciiDocConverter.close();
+  }
+
+  @Benchmark
+  public void asciiDocToHtml(Blackhole blackhole) {
+    for (String asciiDoc : asciiDocs) {
+      blackhole.consume(asciiDocConverter.convertToHtml(asciiDoc, "Benchmark"));
+    }
+  }
+
+  @Benchmark
+  public void markdownToHtml(Blackhole blackhole) {
+    for (String markdown : markdowns) {
+      blackhole.consume(markdownConverter.toHtml(markdown));
+    }
+  }
+
+  @Benchmark
+  public void htmlToAdf(Blackhole blackhole) {
+    for (String html : htmls) {
+      blackhole.consume(htmlToAdfConverter.convertToAdfJson(html, "Benchmark"));
+    }
+  }
+
+  @Benchmark
+  public void postProcessTables(Blackhole blackhole) {
+    for (String adf : rawAdfs) {
+      blackhole.consume(AdfTablePostProcessor.postProcessTables(adf));
+    }
+  }
+
+  @Benchmark
+  public void centerAlignAll(Blackhole blackhole) {
+    for (String adf : rawAdfs) {
+      blackhole.consume(AdfAlignmentPostProcessor.centerAlignAll(adf));
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package arnaudroubinet.structurizr.confluence.benchmark;
+
+import arnaudroubinet.structurizr.confluence.ConfluenceExporter;
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import arnaudroubinet.structurizr.confluence.client.ConfluenceConfig;
+import arnaudroubinet.structurizr.confluence.client.FakeConfluenceServer;
+import arnaudroubinet.structurizr.confluence.manifest.ExportJournal;
+import arnaudroubinet.structurizr.confluence.processor.AsciidoctorPool;
+import arnaudroubinet.structurizr.confluence.processor.PrerenderedDiagramExporter;
+import arnaudroubinet.structurizr.confluence.scheduler.ExecutionReport;
+import arnaudroubinet.structurizr.confluence.scheduler.ExportTask;
+import arnaudroubinet.structurizr.confluence.scheduler.TaskType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.structurizr.Workspace;
+import io.quarkus.test.junit.QuarkusTest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * End-to-end throughput of {@link ConfluenceExporter#export(Workspace, String, String)} against
+ * the in-process {@link FakeConfluenceServer}, for synthetic workspaces of increasing size.
+ * Diagrams are pre-rendered, so the run needs neither Structurizr nor a browser nor network access.
+ * Reports pages/s and attachments/s, latency percentiles per export phase (task type) and request
+ * counts and latency percentiles per Confluence endpoint, on the console and in {@code
+ * target/export-benchmark.json}.
+ *
+ * <p>Runs as a Quarkus test, which the REST client needs:
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dtest=ExportThroughputBenchmark -Dbenchmark.sizes=5,20,80 \
+ *     -Dbenchmark.latency=20 -Dbenchmark.jitter=10 -Dbenchmark.throttle=0 -Dbenchmark.bandwidth=0
+ * </pre>
+ *
+ * <p>Latency and jitter are in milliseconds, the throttle rate is the share of requests answered
+ * with 429 and the bandwidth is in bytes per second (0 for no limit).
+ */
+@QuarkusTest
+class ExportThroughputBenchmark {
+
+  private static final Path RESULTS = Path.of("target", "export-benchmark.json");
+
+  @Test
+  void run() throws Exception {
+    List<Map<String, Object>> results = new ArrayList<>();
+    for (String size : System.getProperty("benchmark.sizes", "5,20,80").split(",")) {
+      results.add(export(Integer.parseInt(size.trim())));
+    }
+    Files.createDirectories(RESULTS.getParent());
+    new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(RESULTS.toFile(), results);
+    System.out.println("Results written to " + RESULTS);
+  }
+
+  private Map<String, Object> export(int size) throws Exception {
+    Workspace workspace = BenchmarkFixtures.syntheticWorkspace(size);
+    Path diagrams = Files.createTempDirectory("export-benchmark");
+    try (FakeConfluenceServer server = new FakeConfluenceServer()) {
+      server.setLatency(Duration.ofMillis(Long.getLong("benchmark.latency", 20)));
+      server.setJitter(Duration.ofMillis(Long.getLong("benchmark.jitter", 10)));
+      server.setThrottleRate(Double.parseDouble(System.getProperty("benchmark.throttle", "0")));
+      server.setBandwidth(Long.getLong("benchmark.bandwidth", 0));
+      String parentId = server.addPage("Benchmark", null);
+      ConfluenceClient client =
+          new ConfluenceClient(new ConfluenceConfig(server.getBaseUrl(), "user", "token", "BENCH"));
+
+      long start = System.nanoTime();
+      ExecutionReport report;
+      String error = null;
+      try (AsciidoctorPool asciidoctorPool = new AsciidoctorPool(1);
+          ConfluenceExporter exporter =
+              new ConfluenceExporter(client, null, asciidoctorPool, null)) {
+        exporter.setJournal(new ExportJournal(diagrams.resolve("journal.jsonl"), false));
+        exporter.setDiagramDirectory(diagrams);
+        exporter.setDiagramExporterFactory(
+            workspaceId -> new PrerenderedDiagramExporter(workspaceId, diagrams));
+        try {
+          exporter.export(workspace, parentId, "main");
+        } catch (Exception e) {
+          // Typically throttling: the client does not retry, so the failure is part of the result
+          error = e.getMessage();
+        }
+        report = exporter.getLastExecutionReport();
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+
+      Map<String, Object> result = new LinkedHashMap<>();
+      result.put("size", size);
+      result.put("seconds", round(seconds));
+      result.put("pages", server.getPageCount() - 1);
+      result.put("attachments", server.getAttachmentCount());
+      result.put("pagesPerSecond", round((server.getPageCount() - 1) / seconds));
+      result.put("attachmentsPerSecond", round(server.getAttachmentCount() / seconds));
+      result.put("requests", server.getRequestCount());
+      if (error != null) {
+        result.put("error", error);
+      }
+      result.put("phases", phases(report));
+      Map<String, Object> endpoints = new LinkedHashMap<>();
+      server
+          .getStats()
+          .forEach(
+              (endpoint, stats) ->
+                  endpoints.put(
+                      endpoint,
+                      Map.of(
+                          "count", stats.getCount(),
+                          "throttled", stats.getThrottled(),
+                          "p50Ms", round(stats.percentileMillis(50)),
+                          "p95Ms", round(stats.percentileMillis(95)),
+                          "p99Ms", round(stats.percentileMillis(99)))));
+      result.put("endpoints", endpoints);
+      print(result);
+      return result;
+    }
+  }
+
+  /** Task count and duration percentiles per task type. */
+  private static Map<TaskType, Object> phases(ExecutionReport report) {
+    Map<TaskType, Object> phases = new EnumMap<>(TaskType.class);
+    if (report == null) {
+      return phases;
+    }
+    Map<TaskType, List<Long>> durations = new EnumMap<>(TaskType.class);
+    for (ExportTask task : report.getTasks()) {
+      durations
+          .computeIfAbsent(task.getType(), type -> new ArrayList<>())
+          .add(task.getDurationNanos());
+    }
+    durations.forEach(
+        (type, nanos) -> {
+          long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+          phases.put(
+              type,
+              Map.of(
+                  "count", sorted.length,
+                  "p50Ms", round(percentile(sorted, 50) / 1e6),
+                  "p95Ms", round(percentile(sorted, 95) / 1e6),
+                  "maxMs", round(sorted[sorted.length - 1] / 1e6)));
+        });
+    return phases;
+  }
+
+  private static long percentile(long[] sorted, int percentile) {
+    int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, index)];
+  }
+
+  private static double round(double value) {
+    return Math.round(value * 100) / 100.0;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void print(Map<String, Object> result) {
+    System.out.printf(
+        "%n=== Workspace size %s: %s pages (%s/s), %s attachments (%s/s), %s requests in %s s%s%n",
+        result.get("size"),
+        result.get("pages"),
+        result.get("pagesPerSecond"),
+        result.get("attachments"),
+        result.get("attachmentsPerSecond"),
+        result.get("requests"),
+        result.get("seconds"),
+        result.containsKey("error") ? " (failed: " + result.get("error") + ")" : "");
+    ((Map<TaskType, Map<String, Object>>) result.get("phases"))
+        .forEach(
+            (phase, stats) ->
+                System.out.printf(
+                    "  %-18s %5s tasks  p50 %8s ms  p95 %8s ms  max %8s ms%n",
+                    phase,
+                    stats.get("count"),
+                    stats.get("p50Ms"),
+                    stats.get("p95Ms"),
+                    stats.get("maxMs")));
+    ((Map<String, Map<String, Object>>) result.get("endpoints"))
+        .forEach(
+            (endpoint, stats) ->
+                System.out.printf(
+                    "  %-55s %5s req  %3s 429  p50 %7s ms  p95 %7s ms  p99 %7s ms%n",
+                    endpoint,
+                    stats.get("count"),
+                    stats.get("throttled"),
+                    stats.get("p50Ms"),
+                    stats.get("p95Ms"),
+                    stats.get("p99Ms")));
+  }
+}
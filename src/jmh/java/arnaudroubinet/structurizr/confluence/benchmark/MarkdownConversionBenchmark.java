@@ -0,0 +1,50 @@
+package arnaudroubinet.structurizr.confluence.benchmark;
+
+import arnaudroubinet.structurizr.confluence.processor.HtmlToAdfConverter;
+import arnaudroubinet.structurizr.confluence.processor.MarkdownConverter;
+import arnaudroubinet.structurizr.confluence.processor.MarkdownToAdfConverter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the Markdown to ADF paths: the historical Markdown → HTML → Jsoup → ADF round trip and
+ * the direct Markdown AST → ADF conversion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MarkdownConversionBenchmark {
+
+  @Param({"1", "20"})
+  public int sections;
+
+  private String markdown;
+  private MarkdownConverter markdownConverter;
+  private HtmlToAdfConverter htmlToAdfConverter;
+  private MarkdownToAdfConverter markdownToAdfConverter;
+
+  @Setup
+  public void setup() {
+    markdown = BenchmarkFixtures.markdownDocument(sections);
+    markdownConverter = new MarkdownConverter();
+    htmlToAdfConverter = new HtmlToAdfConverter();
+    markdownToAdfConverter = new MarkdownToAdfConverter(markdownConverter);
+  }
+
+  @Benchmark
+  public String viaHtml() {
+    return htmlToAdfConverter.convertToAdfJson(markdownConverter.toHtml(markdown), "Benchmark");
+  }
+
+  @Benchmark
+  public String direct() {
+    return markdownToAdfConverter.convertToAdfJson(markdown, "Benchmark");
+  }
+}
@@ -0,0 +1,19 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** Gives the benchmarks the ADF JSON that the post-processors receive during a conversion. */
+public final class RawAdf {
+
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  private RawAdf() {}
+
+  /** Converts HTML to pretty-printed ADF JSON, before table and alignment post-processing. */
+  public static String of(HtmlToAdfConverter converter, String html, String title)
+      throws Exception {
+    return objectMapper
+        .writerWithDefaultPrettyPrinter()
+        .writeValueAsString(converter.convertToAdfWithoutPostProcessing(html, title));
+  }
+}
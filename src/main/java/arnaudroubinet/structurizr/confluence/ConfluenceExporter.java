@@ -8,11 +8,34 @@ import arnaudroubinet.structurizr.confluence.exporter.AdrExporter;
 import arnaudroubinet.structurizr.confluence.exporter.DocumentationSectionExporter;
 import arnaudroubinet.structurizr.confluence.exporter.ViewExporter;
 import arnaudroubinet.structurizr.confluence.generator.DocumentGenerator;
+import arnaudroubinet.structurizr.confluence.jfr.AdfConversionEvent;
+import arnaudroubinet.structurizr.confluence.manifest.ExportJournal;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifestStore;
+import arnaudroubinet.structurizr.confluence.manifest.PagePublisher;
+import arnaudroubinet.structurizr.confluence.manifest.SourceHashes;
+import arnaudroubinet.structurizr.confluence.metrics.ExportMetrics;
+import arnaudroubinet.structurizr.confluence.processor.AdfConverters;
 import arnaudroubinet.structurizr.confluence.processor.AsciiDocConverter;
+import arnaudroubinet.structurizr.confluence.processor.AsciiDocToAdfConverter;
+import arnaudroubinet.structurizr.confluence.processor.AsciidoctorPool;
+import arnaudroubinet.structurizr.confluence.processor.BrowserPool;
 import arnaudroubinet.structurizr.confluence.processor.DiagramExporter;
 import arnaudroubinet.structurizr.confluence.processor.HtmlToAdfConverter;
 import arnaudroubinet.structurizr.confluence.processor.ImageUploadManager;
 import arnaudroubinet.structurizr.confluence.processor.MarkdownConverter;
+import arnaudroubinet.structurizr.confluence.processor.MarkdownToAdfConverter;
+import arnaudroubinet.structurizr.confluence.progress.ExportProgress;
+import arnaudroubinet.structurizr.confluence.report.RunReport;
+import arnaudroubinet.structurizr.confluence.scheduler.ExecutionReport;
+import arnaudroubinet.structurizr.confluence.scheduler.ExportTask;
+import arnaudroubinet.structurizr.confluence.scheduler.StartupOrchestrator;
+import arnaudroubinet.structurizr.confluence.scheduler.TaskGraph;
+import arnaudroubinet.structurizr.confluence.scheduler.TaskType;
+import arnaudroubinet.structurizr.confluence.tracing.ExportTracing;
+import arnaudroubinet.structurizr.confluence.workspace.DocumentationContents;
+import arnaudroubinet.structurizr.confluence.workspace.LazyWorkspace;
+import arnaudroubinet.structurizr.confluence.workspace.StreamingWorkspaceLoader;
 import com.atlassian.adf.Document;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -23,7 +46,12 @@ import com.structurizr.api.StructurizrClientException;
 import com.structurizr.model.*;
 import com.structurizr.view.*;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,10 +61,16 @@ import org.slf4j.LoggerFactory;
  * Format (ADF). Can load workspaces from Structurizr on-premise instances or work with provided
  * workspace objects.
  */
-public class ConfluenceExporter {
+public class ConfluenceExporter implements AutoCloseable {
 
   private static final Logger logger = LoggerFactory.getLogger(ConfluenceExporter.class);
 
+  /** Manifest key of the branch (or main) page. */
+  static final String BRANCH_PAGE_KEY = "branch";
+
+  /** Manifest key of the Documentation page. */
+  static final String DOCUMENTATION_PAGE_KEY = "documentation";
+
   // Documentation format constants
   private static final String FORMAT_ASCIIDOC = "AsciiDoc";
   private static final String FORMAT_ASCIIDOC_LOWER = "asciidoc";
@@ -48,56 +82,112 @@ public class ConfluenceExporter {
   private final StructurizrWorkspaceLoader workspaceLoader;
   private final HtmlToAdfConverter htmlToAdfConverter;
   private final AsciiDocConverter asciiDocConverter;
-  private final MarkdownConverter markdownConverter;
+  private final AsciiDocToAdfConverter asciiDocToAdfConverter;
+  private final MarkdownToAdfConverter markdownToAdfConverter;
   private final DocumentGenerator documentGenerator;
   private final AdrExporter adrExporter;
   private final DocumentationSectionExporter documentationSectionExporter;
   private final ViewExporter viewExporter;
-  private List<File> exportedDiagrams;
+  private final BrowserPool browserPool;
+  private final MarkdownConverter markdownConverter = new MarkdownConverter();
+  private volatile Function<String, File> diagramResolver;
+  private volatile List<File> exportedDiagrams;
+  private String renderedDiagramInputsHash;
+  private List<File> renderedDiagrams;
+  private ExportManifestStore manifestStore;
+  private ExportJournal journal;
+  private int parallelism = TaskGraph.defaultParallelism();
+  private Path diagramDirectory;
+  private Function<String, DiagramExporter> diagramExporterFactory =
+      DiagramExporter::fromEnvironment;
+  private ExecutionReport lastExecutionReport;
+  private ExportMetrics metrics = ExportMetrics.disabled();
+  private RunReport report; // optional, pages, attachments and critical path of each export
+  private boolean skipUnchanged;
+  private volatile boolean lastExportSkipped;
+  private volatile DocumentationContents documentationContents = DocumentationContents.INLINE;
 
   /** Creates an exporter that loads workspaces from a Structurizr on-premise instance. */
   public ConfluenceExporter(ConfluenceConfig confluenceConfig, StructurizrConfig structurizrConfig)
       throws StructurizrClientException {
-    this.confluenceClient = new ConfluenceClient(confluenceConfig);
-    this.objectMapper = new ObjectMapper();
-    this.workspaceLoader = new StructurizrWorkspaceLoader(structurizrConfig);
-    this.htmlToAdfConverter = new HtmlToAdfConverter();
-    this.asciiDocConverter = new AsciiDocConverter();
-    this.markdownConverter = new MarkdownConverter();
-    this.documentGenerator = new DocumentGenerator();
-    this.adrExporter =
-        new AdrExporter(
-            confluenceClient,
-            objectMapper,
-            htmlToAdfConverter,
-            asciiDocConverter,
-            markdownConverter);
-    this.documentationSectionExporter =
-        new DocumentationSectionExporter(
-            confluenceClient, htmlToAdfConverter, asciiDocConverter, markdownConverter);
-    this.viewExporter = new ViewExporter(confluenceClient, objectMapper, htmlToAdfConverter);
+    this(
+        new ConfluenceClient(confluenceConfig),
+        new StructurizrWorkspaceLoader(structurizrConfig),
+        new AsciiDocConverter(),
+        null);
   }
 
   /** Creates an exporter for use with provided workspace objects (original behavior). */
   public ConfluenceExporter(ConfluenceConfig confluenceConfig) {
-    this.confluenceClient = new ConfluenceClient(confluenceConfig);
+    this(new ConfluenceClient(confluenceConfig), null, new AsciiDocConverter(), null);
+  }
+
+  /**
+   * Creates an exporter publishing through the given client, such as an offline bundle.
+   *
+   * @param confluenceClient the client the pages and attachments are published through
+   * @param structurizrConfig where to load the workspace from, or null to export provided
+   *     workspaces
+   * @throws StructurizrClientException if the Structurizr client cannot be created
+   */
+  public ConfluenceExporter(ConfluenceClient confluenceClient, StructurizrConfig structurizrConfig)
+      throws StructurizrClientException {
+    this(
+        confluenceClient,
+        structurizrConfig != null ? new StructurizrWorkspaceLoader(structurizrConfig) : null,
+        new AsciiDocConverter(),
+        null);
+  }
+
+  /**
+   * Creates an exporter sharing the Confluence client (and its connection pool), the Asciidoctor
+   * instances and the browsers of other exporters running in the same process.
+   *
+   * @param confluenceClient the shared Confluence client
+   * @param structurizrConfig where to load the workspace from, or null to export provided
+   *     workspaces
+   * @param asciidoctorPool the shared Asciidoctor instances
+   * @param browserPool the shared browsers
+   * @throws StructurizrClientException if the Structurizr client cannot be created
+   */
+  public ConfluenceExporter(
+      ConfluenceClient confluenceClient,
+      StructurizrConfig structurizrConfig,
+      AsciidoctorPool asciidoctorPool,
+      BrowserPool browserPool)
+      throws StructurizrClientException {
+    this(
+        confluenceClient,
+        structurizrConfig != null ? new StructurizrWorkspaceLoader(structurizrConfig) : null,
+        new AsciiDocConverter(asciidoctorPool),
+        browserPool);
+  }
+
+  private ConfluenceExporter(
+      ConfluenceClient confluenceClient,
+      StructurizrWorkspaceLoader workspaceLoader,
+      AsciiDocConverter asciiDocConverter,
+      BrowserPool browserPool) {
+    this.confluenceClient = confluenceClient;
     this.objectMapper = new ObjectMapper();
-    this.workspaceLoader = null;
+    this.workspaceLoader = workspaceLoader;
     this.htmlToAdfConverter = new HtmlToAdfConverter();
-    this.asciiDocConverter = new AsciiDocConverter();
-    this.markdownConverter = new MarkdownConverter();
+    this.asciiDocConverter = asciiDocConverter;
+    this.asciiDocToAdfConverter = new AsciiDocToAdfConverter(asciiDocConverter);
+    this.markdownToAdfConverter = new MarkdownToAdfConverter(markdownConverter);
     this.documentGenerator = new DocumentGenerator();
     this.adrExporter =
         new AdrExporter(
             confluenceClient,
             objectMapper,
             htmlToAdfConverter,
-            asciiDocConverter,
-            markdownConverter);
+            asciiDocToAdfConverter,
+            markdownToAdfConverter);
     this.documentationSectionExporter =
         new DocumentationSectionExporter(
-            confluenceClient, htmlToAdfConverter, asciiDocConverter, markdownConverter);
+            confluenceClient, htmlToAdfConverter, asciiDocToAdfConverter, markdownToAdfConverter);
     this.viewExporter = new ViewExporter(confluenceClient, objectMapper, htmlToAdfConverter);
+    this.browserPool = browserPool;
   }
 
   /**
@@ -106,13 +196,7 @@ public class ConfluenceExporter {
    * @throws Exception if export fails
    */
   public void exportFromStructurizr() throws Exception {
-    if (workspaceLoader == null) {
-      throw new IllegalStateException(
-          "No Structurizr configuration provided. Use the constructor with StructurizrConfig or call export(Workspace) directly.");
-    }
-
-    Workspace workspace = workspaceLoader.loadWorkspace();
-    export(workspace);
+    loadAndExport(null, null);
   }
 
   /**
@@ -123,13 +207,86 @@ public class ConfluenceExporter {
    * @throws Exception if export fails
    */
   public void exportFromStructurizr(String parentPageId, String branchName) throws Exception {
+    loadAndExport(parentPageId, branchName);
+  }
+
+  /** Startup steps run while the workspace is being fetched, joined where first needed. */
+  private record Prefetched(
+      DiagramExporter diagramExporter,
+      String diagramWorkspaceId,
+      StartupOrchestrator.Step<Boolean> parentExists,
+      StartupOrchestrator.Step<ExportManifest> manifest) {}
+
+  /**
+   * Loads the workspace and exports it. The workspace fetch, the browser launch and sign-in, the
+   * Asciidoctor boot, the Confluence space lookup and the manifest load are independent, so they
+   * run at the same time instead of one after the other.
+   */
+  private void loadAndExport(String parentPageId, String branchName) throws Exception {
     if (workspaceLoader == null) {
       throw new IllegalStateException(
           "No Structurizr configuration provided. Use the constructor with StructurizrConfig or call export(Workspace) directly.");
     }
 
-    Workspace workspace = workspaceLoader.loadWorkspace();
-    export(workspace, parentPageId, branchName);
+    DiagramExporter diagramExporter = null;
+    try (StartupOrchestrator startup = new StartupOrchestrator()) {
+      StartupOrchestrator.Step<Workspace> workspaceStep =
+          startup.start(
+              "workspace fetch", () -> metrics.timePhase("load", workspaceLoader::loadWorkspace));
+      workspaceStep.whenDone(this::warmUpAsciiDocIfNeeded);
+
+      String diagramWorkspaceId = String.valueOf(workspaceLoader.getWorkspaceId());
+      diagramExporter = createDiagramExporter(diagramWorkspaceId);
+      // Not speculatively when the export is likely to be skipped or resumed without rendering
+      if (diagramExporter != null
+          && !isSkipCheckEnabled()
+          && (journal == null || !journal.isResumeRequested())) {
+        startup.track("browser launch", diagramExporter.startSession());
+      }
+      StartupOrchestrator.Step<Boolean> parentExists =
+          startup.start("confluence discovery", () -> discoverConfluence(parentPageId));
+      StartupOrchestrator.Step<ExportManifest> manifest =
+          manifestStore != null && branchName != null
+              ? startup.start("manifest load", () -> manifestStore.load(branchName, parentPageId))
+              : null;
+
+      Workspace workspace = workspaceStep.join();
+      Prefetched prefetched =
+          new Prefetched(diagramExporter, diagramWorkspaceId, parentExists, manifest);
+      if (parentPageId == null) {
+        export(workspace, workspace.getName(), prefetched);
+      } else {
+        export(workspace, parentPageId, branchName, prefetched);
+      }
+      startup.logSummary();
+    } finally {
+      if (diagramExporter != null) {
+        diagramExporter.close();
+      }
+    }
+  }
+
+  /** Creates the diagram exporter from the environment, using the shared browsers if any. */
+  private DiagramExporter createDiagramExporter(String workspaceId) {
+    DiagramExporter diagramExporter = diagramExporterFactory.apply(workspaceId);
+    if (diagramExporter != null) {
+      diagramExporter.setBrowserPool(browserPool);
+      diagramExporter.setMetrics(metrics);
+      if (diagramDirectory != null) {
+        diagramExporter.setOutputDirectory(diagramDirectory);
+      }
+    }
+    return diagramExporter;
+  }
+
+  /**
+   * Looks up the space ID, cached for page creations, and checks whether the parent page exists.
+   *
+   * @return whether the parent page exists, or null without parent page
+   */
+  private Boolean discoverConfluence(String parentPageId) throws IOException {
+    confluenceClient.getSpaceId();
+    return parentPageId != null ? confluenceClient.pageExists(parentPageId) : null;
   }
 
   /**
@@ -139,58 +296,338 @@ public class ConfluenceExporter {
    * @throws Exception if export fails
    */
   public void export(Workspace workspace, String branchName) throws Exception {
+    export(workspace, branchName, (Prefetched) null);
+  }
+
+  private void export(Workspace workspace, String branchName, Prefetched prefetched)
+      throws Exception {
     logger.info(
         "Starting export of workspace '{}' (branch '{}') to Confluence",
         workspace.getName(),
         branchName);
 
+    traceExport(
+        workspace,
+        branchName,
+        () -> {
+          warmUpAsciiDocIfNeeded(workspace);
+          runExport(workspace, null, branchName, "Documentation", "Views", prefetched);
+          return null;
+        });
+  }
+
+  /** Runs an export in the root span of its trace. */
+  private void traceExport(Workspace workspace, String branchName, Callable<Void> export)
+      throws Exception {
+    ExportTracing.trace(
+        "export",
+        span -> {
+          span.setAttribute("workspace.id", getWorkspaceId(workspace));
+          span.setAttribute("workspace.name", String.valueOf(workspace.getName()));
+          span.setAttribute("export.branch", String.valueOf(branchName));
+          span.setAttribute("export.parallelism", parallelism);
+          export.call();
+          span.setAttribute("export.skipped", lastExportSkipped);
+          return null;
+        });
+  }
+
+  /** Page IDs and intermediate results shared between the tasks of an export. */
+  private static final class ExportState {
+    volatile String branchPageId;
+    volatile String documentationPageId;
+    volatile boolean documentationUnchanged;
+    volatile String documentationSourceHash;
+    volatile ImageUploadManager documentationImageUploadManager;
+    volatile ViewExporter.ViewsPage viewsPage;
+    volatile String adrIndexPageId;
+  }
+
+  /**
+   * Runs an export as a graph of tasks. Diagram rendering, page creation, content conversion,
+   * uploads and publishing run in parallel on up to {@link #setParallelism} workers, constrained
+   * only by parent pages being created before their children, content embedding diagrams being
+   * converted after rendering, and attachments being uploaded before the page body referencing them
+   * is published. Conversions share the converters and run one at a time.
+   *
+   * @param workspace the workspace to export
+   * @param parentPageId parent of the branch page (null for a top-level page)
+   * @param branchName the branch name, title of the branch page
+   * @param documentationPageTitle title of the Documentation page
+   * @param viewsPageTitle title of the Views page
+   * @param prefetched startup steps already running, or null
+   * @throws Exception if a task fails
+   */
+  private void runExport(
+      Workspace workspace,
+      String parentPageId,
+      String branchName,
+      String documentationPageTitle,
+      String viewsPageTitle,
+      Prefetched prefetched)
+      throws Exception {
+    lastExportSkipped = false;
+    ExportManifest loaded =
+        prefetched != null && prefetched.manifest() != null ? prefetched.manifest().join() : null;
+    if (isSkipCheckEnabled()) {
+      if (loaded == null) {
+        loaded = manifestStore.load(branchName, parentPageId);
+      }
+      if (isUnchanged(workspace, loaded)) {
+        lastExportSkipped = true;
+        return;
+      }
+    }
+
     String workspaceId = getWorkspaceId(workspace);
-    DiagramExporter diagramExporter = DiagramExporter.fromEnvironment(workspaceId);
-    List<File> exportedDiagrams = null;
+    DiagramExporter diagramExporter;
+    if (prefetched != null && workspaceId.equals(prefetched.diagramWorkspaceId())) {
+      diagramExporter = prefetched.diagramExporter();
+    } else {
+      if (prefetched != null && prefetched.diagramExporter() != null) {
+        prefetched.diagramExporter().close();
+      }
+      diagramExporter = createDiagramExporter(workspaceId);
+    }
 
     if (diagramExporter == null) {
       throw new IllegalStateException(
           "Diagram export via Puppeteer is required but environment variables are not configured. Please define STRUCTURIZR_URL, STRUCTURIZR_USERNAME and STRUCTURIZR_PASSWORD.");
     }
 
-    try {
-      logger.info("Exporting diagrams using Playwright...");
-      exportedDiagrams = diagramExporter.exportDiagrams(workspace);
-      logger.info("Successfully exported {} diagrams", exportedDiagrams.size());
-    } catch (Exception e) {
-      logger.warn("Diagram export failed, continuing without diagrams: {}", e.getMessage());
-      // Don't fail the entire process if diagram export fails
-      // throw new IllegalStateException("Diagram export via Playwright failed. Stopping process.",
-      // e);
+    openJournal(workspace, branchName, parentPageId);
+    diagramExporter.setJournal(journal);
+
+    this.exportedDiagrams = null;
+    PagePublisher publisher = createPagePublisher(branchName, parentPageId, loaded);
+    ExportState state = new ExportState();
+    TaskGraph graph = new TaskGraph();
+    // The branch and Views pages; the other pages are announced with their tasks
+    ExportProgress.expect(ExportProgress.Kind.PAGE, 2);
+
+    ExportTask render =
+        graph.add(
+            "render diagrams",
+            TaskType.RENDER_VIEW,
+            () -> renderDiagrams(diagramExporter, workspace, publisher));
+
+    ExportTask branchPage =
+        graph.add(
+            "create page " + branchName,
+            TaskType.CREATE_PAGE,
+            () -> {
+              Document branchDoc =
+                  documentGenerator.generateWorkspaceDocumentation(workspace, branchName);
+              state.branchPageId =
+                  publishGeneratedPage(
+                      publisher,
+                      BRANCH_PAGE_KEY,
+                      branchName,
+                      parentPageId,
+                      convertDocumentToJson(branchDoc));
+              logger.info(
+                  "Branch page created/updated with ID: {} under parent: {}",
+                  state.branchPageId,
+                  parentPageId);
+            });
+
+    ExportTask documentationPage =
+        addDocumentationTasks(
+            graph,
+            render,
+            branchPage,
+            publisher,
+            state,
+            workspace,
+            documentationPageTitle,
+            branchName);
+    addViewsTasks(graph, render, branchPage, publisher, state, workspace, viewsPageTitle);
+    addDecisionTasks(
+        graph, render, branchPage, documentationPage, publisher, state, workspace, branchName);
+
+    ExecutionReport report = graph.execute(parallelism);
+    report.log(logger);
+    this.lastExecutionReport = report;
+    metrics.recordTasks(report);
+    if (this.report != null) {
+      this.report.recordExport(workspace.getName(), branchName, report);
+    }
+
+    completeExport(publisher, state.branchPageId, workspace);
+    logger.info("Workspace export completed successfully");
+  }
+
+  /**
+   * Returns the diagrams rendered by the previous export of this exporter when the model and views
+   * did not change since, so that repeated exports (watch mode) do not render them again.
+   */
+  private List<File> reusableDiagrams(String diagramInputsHash) {
+    if (diagramInputsHash == null
+        || !diagramInputsHash.equals(renderedDiagramInputsHash)
+        || renderedDiagrams == null
+        || !renderedDiagrams.stream().allMatch(File::isFile)) {
+      return null;
+    }
+    return renderedDiagrams;
+  }
+
+  /** Renders the diagrams and points the converters and the Views page to the rendered files. */
+  private void renderDiagrams(
+      DiagramExporter diagramExporter, Workspace workspace, PagePublisher publisher) {
+    String diagramInputsHash = SourceHashes.diagramInputs(workspace);
+    List<File> diagrams = reusableDiagrams(diagramInputsHash);
+    if (diagrams != null) {
+      logger.info(
+          "Model and views unchanged since the previous export, reusing {} diagrams",
+          diagrams.size());
+      diagramExporter.close();
+    } else {
+      try {
+        logger.info("Exporting diagrams using Playwright...");
+        diagrams = diagramExporter.exportDiagrams(workspace);
+        logger.info("Successfully exported {} diagrams", diagrams.size());
+        renderedDiagramInputsHash = diagramInputsHash;
+        renderedDiagrams = diagrams;
+      } catch (Exception e) {
+        // Don't fail the entire process if diagram export fails
+        logger.warn("Diagram export failed, continuing without diagrams: {}", e.getMessage());
+        renderedDiagramInputsHash = null;
+        renderedDiagrams = null;
+      }
     }
 
-    this.exportedDiagrams = exportedDiagrams;
-    viewExporter.setExportedDiagrams(exportedDiagrams);
+    this.exportedDiagrams = diagrams;
+    viewExporter.setExportedDiagrams(diagrams);
+    publisher.setDiagramsHash(SourceHashes.diagrams(diagrams));
 
-    if (exportedDiagrams != null) {
+    if (diagrams != null) {
       Function<String, File> diagramResolver = this::getDiagramFile;
       asciiDocConverter.setDiagramResolver(diagramResolver);
       htmlToAdfConverter.setDiagramResolver(diagramResolver);
-      logger.info("Configured converters to use {} local diagram files", exportedDiagrams.size());
+      markdownToAdfConverter.setDiagramResolver(diagramResolver);
+      asciiDocToAdfConverter.setDiagramResolver(diagramResolver);
+      this.diagramResolver = diagramResolver;
+      logger.info("Configured converters to use {} local diagram files", diagrams.size());
+    }
+  }
+
+  /**
+   * Adds the Documentation page tasks: the page is created (or found unchanged) first, each section
+   * is converted separately, and the page body with all sections inlined is published last.
+   *
+   * @return the task creating the page, which decisions depend on as their image upload target
+   */
+  private ExportTask addDocumentationTasks(
+      TaskGraph graph,
+      ExportTask render,
+      ExportTask branchPage,
+      PagePublisher publisher,
+      ExportState state,
+      Workspace workspace,
+      String documentationPageTitle,
+      String branchName) {
+    List<com.structurizr.documentation.Section> sections =
+        workspace.getDocumentation() != null
+            ? new ArrayList<>(workspace.getDocumentation().getSections())
+            : List.of();
+    // Read each section once here; its tasks read it again only when they run
+    boolean[] sectionEmbedsDiagrams = new boolean[sections.size()];
+    boolean embedsDiagrams = false;
+    for (int i = 0; i < sections.size(); i++) {
+      sectionEmbedsDiagrams[i] =
+          SourceHashes.embedsDiagrams(documentationContents.of(sections.get(i)));
+      embedsDiagrams |= sectionEmbedsDiagrams[i];
     }
 
-    String mainPageTitle = branchName;
-    Document mainDoc = documentGenerator.generateWorkspaceDocumentation(workspace, branchName);
-    String mainPageId =
-        confluenceClient.createOrUpdatePage(mainPageTitle, convertDocumentToJson(mainDoc));
+    ExportTask documentationPage =
+        graph
+            .add(
+                "create page " + documentationPageTitle,
+                TaskType.CREATE_PAGE,
+                () -> prepareDocumentationPage(publisher, state, sections, documentationPageTitle))
+            .after(branchPage)
+            // The source hash covers the diagrams when a section embeds them
+            .after(embedsDiagrams ? render : null);
+
+    ObjectNode[] sectionNodes = new ObjectNode[sections.size()];
+    ExportProgress.expect(ExportProgress.Kind.SECTION, sections.size());
+    // The Documentation page
+    ExportProgress.expect(ExportProgress.Kind.PAGE, 1);
+    List<ExportTask> conversions = new ArrayList<>();
+    for (int i = 0; i < sections.size(); i++) {
+      int index = i;
+      com.structurizr.documentation.Section section = sections.get(i);
+      conversions.add(
+          graph
+              .add(
+                  "convert section " + section.getFilename(),
+                  TaskType.CONVERT_SECTION,
+                  () -> {
+                    if (!state.documentationUnchanged) {
+                      sectionNodes[index] =
+                          convertSectionToAdf(
+                              section,
+                              workspace,
+                              branchName,
+                              converters(
+                                  state.documentationImageUploadManager,
+                                  state.documentationPageId));
+                    }
+                    ExportProgress.completed(ExportProgress.Kind.SECTION);
+                  })
+              .after(documentationPage)
+              .after(sectionEmbedsDiagrams[index] ? render : null));
+    }
 
-    logger.info("Main page created/updated with ID: {}", mainPageId);
+    graph
+        .add(
+            "publish " + documentationPageTitle,
+            TaskType.PUBLISH_BODY,
+            () -> publishDocumentationPage(publisher, state, sectionNodes, documentationPageTitle))
+        .after(documentationPage)
+        .after(conversions);
+    return documentationPage;
+  }
 
-    String documentationPageTitle = "Documentation";
+  /**
+   * Finds the Documentation page unchanged since the previous export, or makes sure it exists so
+   * that images can be uploaded to it. Decisions upload their images there too.
+   */
+  private void prepareDocumentationPage(
+      PagePublisher publisher,
+      ExportState state,
+      List<com.structurizr.documentation.Section> sections,
+      String documentationPageTitle)
+      throws Exception {
+    String parentPageId = state.branchPageId;
+    String sourceHash =
+        SourceHashes.sections(
+            documentationPageTitle, sections, documentationContents, publisher.getDiagramsHash());
+    boolean unchanged = publisher.reuseIfUnchanged(DOCUMENTATION_PAGE_KEY, sourceHash);
     String documentationPageId =
-        confluenceClient.createOrUpdatePage(
-            documentationPageTitle, "{\"version\":1,\"type\":\"doc\",\"content\":[]}", mainPageId);
+        unchanged
+            ? publisher.pageId(DOCUMENTATION_PAGE_KEY)
+            : publisher.ensurePage(DOCUMENTATION_PAGE_KEY, documentationPageTitle, parentPageId);
     logger.info("Documentation page created/updated with ID: {}", documentationPageId);
 
-    // Configurer l’upload d’images pour la page Documentation
     ImageUploadManager docImageUploadManager = new ImageUploadManager(confluenceClient);
-    htmlToAdfConverter.setImageUploadManager(docImageUploadManager);
-    htmlToAdfConverter.setCurrentPageId(documentationPageId);
+    docImageUploadManager.setPagePublisher(publisher);
+    state.documentationSourceHash = sourceHash;
+    state.documentationUnchanged = unchanged;
+    state.documentationImageUploadManager = docImageUploadManager;
+    state.documentationPageId = documentationPageId;
+  }
+
+  /** Publishes the Documentation page with all converted sections inlined after a TOC macro. */
+  private void publishDocumentationPage(
+      PagePublisher publisher,
+      ExportState state,
+      ObjectNode[] sectionNodes,
+      String documentationPageTitle)
+      throws Exception {
+    if (state.documentationUnchanged) {
+      return;
+    }
 
     Document documentationDoc = Document.create();
 
@@ -216,38 +653,11 @@ public class ConfluenceExporter {
     tocNode.set("attrs", extAttrs);
     docContent.add(tocNode);
 
-    if (workspace.getDocumentation() != null
-        && !workspace.getDocumentation().getSections().isEmpty()) {
-      for (com.structurizr.documentation.Section section :
-          workspace.getDocumentation().getSections()) {
-        String filenameFallback = section.getFilename();
-        String content = section.getContent();
-
-        String htmlContent;
-        String formatName = section.getFormat() != null ? section.getFormat().name() : "";
-        if (isAsciiDocFormat(formatName)) {
-          String workspaceId2 = getWorkspaceId(workspace);
-          htmlContent =
-              asciiDocConverter.convertToHtml(content, filenameFallback, workspaceId2, branchName);
-        } else if (isMarkdownFormat(formatName)) {
-          htmlContent = markdownConverter.toHtml(content);
-        } else {
-          htmlContent = content;
-        }
-
-        htmlToAdfConverter.extractPageTitleOnly(htmlContent);
-
-        // Convert section HTML to ADF JSON (avec post-traitements)
-        String sectionAdfJson = htmlToAdfConverter.convertToAdfJson(htmlContent, filenameFallback);
-        ObjectNode sectionDocNode =
-            objectMapper.readTree(sectionAdfJson) instanceof ObjectNode
-                ? (ObjectNode) objectMapper.readTree(sectionAdfJson)
-                : objectMapper.createObjectNode();
-        JsonNode sectionContent = sectionDocNode.get("content");
-        if (sectionContent != null && sectionContent.isArray()) {
-          for (JsonNode child : sectionContent) {
-            docContent.add(child);
-          }
+    for (ObjectNode sectionDocNode : sectionNodes) {
+      JsonNode sectionContent = sectionDocNode != null ? sectionDocNode.get("content") : null;
+      if (sectionContent != null && sectionContent.isArray()) {
+        for (JsonNode child : sectionContent) {
+          docContent.add(child);
         }
       }
     }
@@ -255,25 +665,358 @@ public class ConfluenceExporter {
     String finalDocumentationJson = objectMapper.writeValueAsString(documentationNode);
 
     // Update Documentation page with complete content (images uploadées sur cette page)
-    confluenceClient.updatePageById(
-        documentationPageId, documentationPageTitle, finalDocumentationJson);
-    logger.info("Documentation page content updated (ID: {})", documentationPageId);
-    // No longer create sub-pages for sections: content already inlined above
+    publisher.publish(
+        DOCUMENTATION_PAGE_KEY,
+        documentationPageTitle,
+        state.branchPageId,
+        state.documentationSourceHash,
+        finalDocumentationJson);
+    logger.info("Documentation page content updated (ID: {})", state.documentationPageId);
+  }
 
-    // Générer une seule page avec toutes les vues (toutes les images de diagrammes)
-    viewExporter.exportAllViewsSinglePage(workspace, mainPageId);
+  /**
+   * Adds the Views page tasks: the page is created once the diagrams are rendered, each diagram of
+   * the workspace views is uploaded in its own task, and the page body is published last.
+   */
+  private void addViewsTasks(
+      TaskGraph graph,
+      ExportTask render,
+      ExportTask branchPage,
+      PagePublisher publisher,
+      ExportState state,
+      Workspace workspace,
+      String viewsPageTitle) {
+    ExportTask viewsPage =
+        graph
+            .add(
+                "create page " + viewsPageTitle,
+                TaskType.CREATE_PAGE,
+                () ->
+                    state.viewsPage =
+                        viewExporter.prepareViewsPage(
+                            viewsPageTitle, state.branchPageId, publisher))
+            .after(branchPage, render);
+
+    // Diagrams of views missing from the workspace model are uploaded while publishing
+    List<ExportTask> uploads = new ArrayList<>();
+    if (workspace.getViews() != null) {
+      for (com.structurizr.view.View view : workspace.getViews().getViews()) {
+        String viewKey = view.getKey();
+        uploads.add(
+            graph
+                .add(
+                    "upload diagram " + viewKey,
+                    TaskType.UPLOAD_ATTACHMENT,
+                    () -> uploadViewDiagram(state.viewsPage, viewKey))
+                .after(viewsPage));
+      }
+    }
 
-    // Générer les ADRs
-    adrExporter.exportDecisions(workspace, mainPageId, branchName);
+    graph
+        .add(
+            "publish " + viewsPageTitle,
+            TaskType.PUBLISH_BODY,
+            () -> {
+              if (state.viewsPage != null) {
+                viewExporter.publishViewsPage(
+                    state.viewsPage,
+                    publisher,
+                    converters(state.viewsPage.imageUploadManager(), state.viewsPage.pageId())
+                        .html());
+              }
+            })
+        .after(viewsPage)
+        .after(uploads);
+  }
 
-    logger.info("Workspace export completed successfully");
+  /** Uploads the rendered diagram of a view to the Views page, if the page needs publishing. */
+  private void uploadViewDiagram(ViewExporter.ViewsPage viewsPage, String viewKey)
+      throws Exception {
+    if (viewsPage == null) {
+      return;
+    }
+    for (File diagramFile : viewExporter.getViewDiagramFiles()) {
+      if (viewKey.equals(extractViewKeyFromFile(diagramFile.getName()))) {
+        viewsPage.imageUploadManager().uploadLocalFile(diagramFile, viewsPage.pageId());
+        return;
+      }
+    }
+  }
+
+  /**
+   * Adds the decision tasks: the ADR index page, then for each decision a conversion (images go to
+   * the Documentation page) and the publication under the index page.
+   */
+  private void addDecisionTasks(
+      TaskGraph graph,
+      ExportTask render,
+      ExportTask branchPage,
+      ExportTask documentationPage,
+      PagePublisher publisher,
+      ExportState state,
+      Workspace workspace,
+      String branchName) {
+    if (workspace.getDocumentation() == null
+        || workspace.getDocumentation().getDecisions().isEmpty()) {
+      logger.info("No architecture decision records found in workspace");
+      return;
+    }
+    List<com.structurizr.documentation.Decision> decisions =
+        new ArrayList<>(workspace.getDocumentation().getDecisions());
+    logger.info("Exporting {} architecture decision records", decisions.size());
+    ExportProgress.expect(ExportProgress.Kind.SECTION, decisions.size());
+    // The index page and a page per decision
+    ExportProgress.expect(ExportProgress.Kind.PAGE, decisions.size() + 1L);
+
+    ExportTask indexPage =
+        graph
+            .add(
+                "create page ADR index",
+                TaskType.CREATE_PAGE,
+                () ->
+                    state.adrIndexPageId =
+                        adrExporter.exportIndex(state.branchPageId, branchName, publisher))
+            .after(branchPage);
+
+    for (com.structurizr.documentation.Decision decision : decisions) {
+      String pageKey = AdrExporter.ADR_PAGE_KEY_PREFIX + decision.getId();
+      AtomicReference<AdrExporter.DecisionPage> converted = new AtomicReference<>();
+      ExportTask conversion =
+          graph
+              .add(
+                  "convert " + pageKey,
+                  TaskType.CONVERT_SECTION,
+                  () -> {
+                    converted.set(
+                        adrExporter.convertDecision(
+                            decision,
+                            workspace,
+                            branchName,
+                            publisher,
+                            converters(
+                                state.documentationImageUploadManager, state.documentationPageId)));
+                    ExportProgress.completed(ExportProgress.Kind.SECTION);
+                  })
+              .after(documentationPage)
+              .after(
+                  SourceHashes.embedsDiagrams(documentationContents.of(decision)) ? render : null);
+      graph
+          .add(
+              "publish " + pageKey,
+              TaskType.PUBLISH_BODY,
+              () -> {
+                if (converted.get() != null) {
+                  adrExporter.publishDecision(converted.get(), state.adrIndexPageId, publisher);
+                }
+              })
+          .after(conversion, indexPage);
+    }
+  }
+
+  /** Creates the converters of one conversion task, attaching their images to the given page. */
+  private AdfConverters converters(ImageUploadManager imageUploadManager, String pageId) {
+    return AdfConverters.forPage(
+        markdownConverter, asciiDocConverter, imageUploadManager, pageId, diagramResolver);
+  }
+
+  /** Publishes a page whose content is fully generated up front, such as the branch page. */
+  private String publishGeneratedPage(
+      PagePublisher publisher, String key, String title, String parentPageId, String adfJson)
+      throws Exception {
+    String sourceHash = SourceHashes.content(title, adfJson);
+    if (publisher.reuseIfUnchanged(key, sourceHash)) {
+      return publisher.pageId(key);
+    }
+    return publisher.publish(key, title, parentPageId, sourceHash, adfJson);
+  }
+
+  /**
+   * Loads the manifest of the previous export to this target when a manifest store is set, and
+   * returns the publisher for this export.
+   *
+   * @param loaded the manifest already loaded during startup, or null to load it now
+   */
+  private PagePublisher createPagePublisher(
+      String branchName, String parentPageId, ExportManifest loaded) {
+    ExportManifest previous;
+    if (loaded != null) {
+      previous = loaded;
+    } else if (manifestStore != null) {
+      previous = manifestStore.load(branchName, parentPageId);
+    } else {
+      previous = new ExportManifest(branchName, parentPageId);
+    }
+    if (journal != null) {
+      journal.applyTo(previous);
+    }
+    PagePublisher publisher = new PagePublisher(confluenceClient, previous);
+    publisher.setJournal(journal);
+    publisher.setReport(report);
+    return publisher;
+  }
+
+  private boolean isSkipCheckEnabled() {
+    return skipUnchanged && manifestStore != null;
+  }
+
+  /**
+   * Returns true if the workspace is identical to the one recorded by the last successful export,
+   * and no export was interrupted since, leaving pages partly updated.
+   */
+  private boolean isUnchanged(Workspace workspace, ExportManifest previous) {
+    String revision = SourceHashes.revision(workspace);
+    if (journal != null && journal.hasInterruptedExport()) {
+      logger.info("Workspace ({}) exported again: the last export was interrupted", revision);
+      return false;
+    }
+    String hash = SourceHashes.workspace(workspace, documentationContents);
+    if (hash == null || previous == null || !hash.equals(previous.getWorkspaceHash())) {
+      logger.info(
+          "Workspace changed since the last export ({} -> {})",
+          previous != null ? previous.getWorkspaceRevision() : null,
+          revision);
+      return false;
+    }
+    logger.info("Workspace unchanged since the last export ({}), skipping the export", revision);
+    return true;
+  }
+
+  /** Opens the export journal, if any, before the first step of the export. */
+  private void openJournal(Workspace workspace, String branchName, String parentPageId)
+      throws Exception {
+    if (journal != null) {
+      journal.open(branchName, parentPageId, SourceHashes.diagramInputs(workspace));
+    }
+  }
+
+  /**
+   * Deletes pages whose source disappeared and saves the manifest of this export. Only called once
+   * every page was published, so a failed export never deletes pages or records partial state.
+   */
+  private void completeExport(PagePublisher publisher, String branchPageId, Workspace workspace)
+      throws Exception {
+    publisher.deleteOrphans();
+    publisher.logSummary();
+    if (exportedDiagrams != null) {
+      // Without its diagrams, the export must not be skipped the next time
+      publisher
+          .current()
+          .setWorkspaceHash(SourceHashes.workspace(workspace, documentationContents));
+      publisher.current().setWorkspaceRevision(SourceHashes.revision(workspace));
+    }
+    if (manifestStore != null) {
+      manifestStore.save(publisher.current(), branchPageId);
+    }
+    if (journal != null) {
+      journal.complete();
+    }
+  }
+
+  /**
+   * Enables incremental export: the manifest of the previous export is loaded from this store, only
+   * changed pages and attachments are published, pages whose source disappeared are deleted, and
+   * the new manifest is saved back at the end.
+   *
+   * @param manifestStore the manifest store, or null for a full export
+   */
+  public void setManifestStore(ExportManifestStore manifestStore) {
+    this.manifestStore = manifestStore;
+  }
+
+  /**
+   * Journals each completed step of the export (rendered view, uploaded attachment, published
+   * page). With a resuming journal, an export interrupted by a failure restarts where it stopped:
+   * steps already done are skipped as long as their inputs did not change.
+   *
+   * @param journal the export journal, or null to disable journaling
+   */
+  public void setJournal(ExportJournal journal) {
+    this.journal = journal;
+  }
+
+  /**
+   * Renders diagrams into the given directory instead of {@code target/diagrams}. Exports running
+   * in the same process need distinct directories.
+   *
+   * @param diagramDirectory the diagram directory
+   */
+  public void setDiagramDirectory(Path diagramDirectory) {
+    this.diagramDirectory = diagramDirectory;
+  }
+
+  /**
+   * Sets how the diagram exporter of a workspace is created, by default from the Structurizr
+   * environment variables. Benchmarks use it to publish pre-rendered diagrams offline.
+   *
+   * @param diagramExporterFactory creates the diagram exporter from the workspace ID, or returns
+   *     null when diagrams cannot be exported
+   */
+  public void setDiagramExporterFactory(Function<String, DiagramExporter> diagramExporterFactory) {
+    this.diagramExporterFactory = diagramExporterFactory;
+  }
+
+  /**
+   * Records the time spent per phase, the Confluence requests, the diagram renders and the image
+   * uploads of the exports in the given metrics.
+   *
+   * @param metrics the metrics, shared by the exports of the process
+   */
+  public void setMetrics(ExportMetrics metrics) {
+    this.metrics = metrics != null ? metrics : ExportMetrics.disabled();
+    confluenceClient.setMetrics(this.metrics);
+  }
+
+  /**
+   * Records the pages and attachments touched and the critical path of the exports in the given run
+   * report.
+   *
+   * @param report the report, shared by the exports of the run, or null for none
+   */
+  public void setReport(RunReport report) {
+    this.report = report;
+  }
+
+  /**
+   * Sets the maximum number of export tasks running at the same time.
+   *
+   * @param parallelism number of workers, at least 1
+   */
+  public void setParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Skips exports of a workspace identical to the one of the last successful export, as recorded in
+   * the manifest. Has no effect without a manifest store.
+   *
+   * @param skipUnchanged whether unchanged workspaces are skipped
+   */
+  public void setSkipUnchanged(boolean skipUnchanged) {
+    this.skipUnchanged = skipUnchanged;
+  }
+
+  /** Returns true if the last export was skipped because the workspace did not change. */
+  public boolean isLastExportSkipped() {
+    return lastExportSkipped;
+  }
+
+  /** Returns the task timings and critical path of the last export, or null before any export. */
+  public ExecutionReport getLastExecutionReport() {
+    return lastExecutionReport;
   }
 
   /** Closes resources used by the exporter. */
+  @Override
   public void close() {
     if (asciiDocConverter != null) {
       asciiDocConverter.close();
     }
+    if (journal != null) {
+      journal.close();
+    }
   }
 
   /** Returns the ConfluenceClient for direct access to Confluence operations. */
@@ -285,6 +1028,31 @@ public class ConfluenceExporter {
     export(workspace, workspace.getName());
   }
 
+  /**
+   * Exports a workspace whose documentation content stays in its file, reading each section and
+   * decision only when it is hashed or converted.
+   *
+   * @param workspace the workspace loaded by {@link StreamingWorkspaceLoader}
+   * @param parentPageId the parent page ID where a branch subpage will be created
+   * @param branchName the branch name
+   * @throws Exception if export fails
+   */
+  public void export(LazyWorkspace workspace, String parentPageId, String branchName)
+      throws Exception {
+    useDocumentationContents(workspace);
+    try {
+      export(workspace.getWorkspace(), parentPageId, branchName, null);
+    } finally {
+      useDocumentationContents(DocumentationContents.INLINE);
+    }
+  }
+
+  private void useDocumentationContents(DocumentationContents contents) {
+    this.documentationContents = contents;
+    adrExporter.setDocumentationContents(contents);
+    documentationSectionExporter.setDocumentationContents(contents);
+  }
+
   /**
    * Exports the given workspace to Confluence Cloud with a specific parent page.
    *
@@ -294,14 +1062,38 @@ public class ConfluenceExporter {
    * @throws Exception if export fails
    */
   public void export(Workspace workspace, String parentPageId, String branchName) throws Exception {
+    export(workspace, parentPageId, branchName, null);
+  }
+
+  private void export(
+      Workspace workspace, String parentPageId, String branchName, Prefetched prefetched)
+      throws Exception {
+    traceExport(
+        workspace,
+        branchName,
+        () -> {
+          exportUnderParent(workspace, parentPageId, branchName, prefetched);
+          return null;
+        });
+  }
+
+  private void exportUnderParent(
+      Workspace workspace, String parentPageId, String branchName, Prefetched prefetched)
+      throws Exception {
     logger.info(
         "Starting export of workspace '{}' to parent page ID '{}' with branch '{}'",
         workspace.getName(),
         parentPageId,
         branchName);
 
+    warmUpAsciiDocIfNeeded(workspace);
+
     // Check if parent page exists
-    if (!confluenceClient.pageExists(parentPageId)) {
+    boolean parentExists =
+        prefetched != null
+            ? prefetched.parentExists().join()
+            : confluenceClient.pageExists(parentPageId);
+    if (!parentExists) {
       logger.info("Parent page with ID '{}' does not exist, creating it...", parentPageId);
       // Create the parent page with minimal content
       Document parentDoc =
@@ -316,124 +1108,13 @@ public class ConfluenceExporter {
           "Parent page with ID '{}' exists, will create branch subpage under it", parentPageId);
     }
 
-    String workspaceId = getWorkspaceId(workspace);
-    DiagramExporter diagramExporter = DiagramExporter.fromEnvironment(workspaceId);
-    List<File> exportedDiagrams = null;
-
-    if (diagramExporter == null) {
-      throw new IllegalStateException(
-          "Diagram export via Puppeteer is required but environment variables are not configured. Please define STRUCTURIZR_URL, STRUCTURIZR_USERNAME and STRUCTURIZR_PASSWORD.");
-    }
-
-    try {
-      logger.info("Exporting diagrams using Playwright...");
-      exportedDiagrams = diagramExporter.exportDiagrams(workspace);
-      logger.info("Successfully exported {} diagrams", exportedDiagrams.size());
-    } catch (Exception e) {
-      logger.warn("Diagram export failed, continuing without diagrams: {}", e.getMessage());
-    }
-
-    this.exportedDiagrams = exportedDiagrams;
-    viewExporter.setExportedDiagrams(exportedDiagrams);
-
-    if (exportedDiagrams != null) {
-      Function<String, File> diagramResolver = this::getDiagramFile;
-      asciiDocConverter.setDiagramResolver(diagramResolver);
-      htmlToAdfConverter.setDiagramResolver(diagramResolver);
-      logger.info("Configured converters to use {} local diagram files", exportedDiagrams.size());
-    }
-
-    // Create branch subpage under parent page
-    String branchPageTitle = branchName;
-    Document branchDoc = documentGenerator.generateWorkspaceDocumentation(workspace, branchName);
-    String branchPageId =
-        confluenceClient.createOrUpdatePage(
-            branchPageTitle, convertDocumentToJson(branchDoc), parentPageId);
-    logger.info(
-        "Branch page created/updated with ID: {} under parent: {}", branchPageId, parentPageId);
-
-    // Create Documentation page under branch page with branch suffix
-    String documentationPageTitle = "Documentation - " + branchName;
-    String documentationPageId =
-        confluenceClient.createOrUpdatePage(
-            documentationPageTitle,
-            "{\"version\":1,\"type\":\"doc\",\"content\":[]}",
-            branchPageId);
-    logger.info("Documentation page created/updated with ID: {}", documentationPageId);
-
-    // Configure image upload for Documentation page
-    ImageUploadManager docImageUploadManager = new ImageUploadManager(confluenceClient);
-    htmlToAdfConverter.setImageUploadManager(docImageUploadManager);
-    htmlToAdfConverter.setCurrentPageId(documentationPageId);
-
-    Document documentationDoc = Document.create();
-
-    String documentationJson = convertDocumentToJson(documentationDoc);
-    ObjectNode documentationNode =
-        objectMapper.readTree(documentationJson) instanceof ObjectNode
-            ? (ObjectNode) objectMapper.readTree(documentationJson)
-            : objectMapper.createObjectNode();
-    ArrayNode docContent =
-        documentationNode.has("content") && documentationNode.get("content").isArray()
-            ? (ArrayNode) documentationNode.get("content")
-            : documentationNode.putArray("content");
-
-    // Add TOC macro
-    ObjectNode tocNode = objectMapper.createObjectNode();
-    tocNode.put("type", "extension");
-    ObjectNode extAttrs = objectMapper.createObjectNode();
-    extAttrs.put("extensionType", "com.atlassian.confluence.macro.core");
-    extAttrs.put("extensionKey", "toc");
-    tocNode.set("attrs", extAttrs);
-    docContent.add(tocNode);
-
-    if (workspace.getDocumentation() != null
-        && !workspace.getDocumentation().getSections().isEmpty()) {
-      for (com.structurizr.documentation.Section section :
-          workspace.getDocumentation().getSections()) {
-        String filenameFallback = section.getFilename();
-        String content = section.getContent();
-
-        String htmlContent;
-        String formatName = section.getFormat() != null ? section.getFormat().name() : "";
-        if (isAsciiDocFormat(formatName)) {
-          String workspaceId2 = getWorkspaceId(workspace);
-          htmlContent =
-              asciiDocConverter.convertToHtml(content, filenameFallback, workspaceId2, branchName);
-        } else if (isMarkdownFormat(formatName)) {
-          htmlContent = markdownConverter.toHtml(content);
-        } else {
-          htmlContent = content;
-        }
-
-        htmlToAdfConverter.extractPageTitleOnly(htmlContent);
-
-        String sectionAdfJson = htmlToAdfConverter.convertToAdfJson(htmlContent, filenameFallback);
-        ObjectNode sectionDocNode =
-            objectMapper.readTree(sectionAdfJson) instanceof ObjectNode
-                ? (ObjectNode) objectMapper.readTree(sectionAdfJson)
-                : objectMapper.createObjectNode();
-        JsonNode sectionContent = sectionDocNode.get("content");
-        if (sectionContent != null && sectionContent.isArray()) {
-          for (JsonNode child : sectionContent) {
-            docContent.add(child);
-          }
-        }
-      }
-    }
-
-    String finalDocumentationJson = objectMapper.writeValueAsString(documentationNode);
-    confluenceClient.updatePageById(
-        documentationPageId, documentationPageTitle, finalDocumentationJson);
-    logger.info("Documentation page content updated (ID: {})", documentationPageId);
-
-    // Create Views page under branch page with branch suffix
-    viewExporter.exportAllViewsSinglePage(workspace, branchPageId, branchName);
-
-    // Create ADRs under branch page with branch suffix
-    adrExporter.exportDecisions(workspace, branchPageId, branchName);
-
-    logger.info("Workspace export completed successfully");
+    runExport(
+        workspace,
+        parentPageId,
+        branchName,
+        "Documentation - " + branchName,
+        "Views - " + branchName,
+        prefetched);
   }
 
   /**
@@ -554,6 +1235,98 @@ public class ConfluenceExporter {
     return String.valueOf(workspaceId);
   }
 
+  /**
+   * Converts a documentation section to an ADF document. Markdown and AsciiDoc are converted
+   * directly from their AST; other content is treated as HTML.
+   */
+  private ObjectNode convertSectionToAdf(
+      com.structurizr.documentation.Section section,
+      Workspace workspace,
+      String branchName,
+      AdfConverters converters)
+      throws Exception {
+    String filenameFallback = section.getFilename();
+    String content = documentationContents.of(section);
+    String formatName = section.getFormat() != null ? section.getFormat().name() : "";
+    return ExportTracing.trace(
+        "convert section",
+        span -> {
+          span.setAttribute("section.filename", String.valueOf(filenameFallback));
+          span.setAttribute("section.format", formatName);
+          span.setAttribute("section.content.length", content != null ? content.length() : 0);
+          return convertSectionContent(
+              content, formatName, filenameFallback, workspace, branchName, converters);
+        });
+  }
+
+  private ObjectNode convertSectionContent(
+      String content,
+      String formatName,
+      String filenameFallback,
+      Workspace workspace,
+      String branchName,
+      AdfConverters converters)
+      throws Exception {
+    // HTML conversions record their own event
+    AdfConversionEvent event = new AdfConversionEvent();
+    event.begin();
+    ObjectNode document;
+    if (isMarkdownFormat(formatName)) {
+      document = converters.markdown().convertToAdfNode(content, filenameFallback);
+    } else if (isAsciiDocFormat(formatName)) {
+      document =
+          converters
+              .asciiDoc()
+              .convertToAdfNode(content, filenameFallback, getWorkspaceId(workspace), branchName);
+    } else {
+      return convertHtmlSection(content, filenameFallback, converters.html());
+    }
+    event.end();
+    if (event.shouldCommit()) {
+      event.section = filenameFallback;
+      event.format = formatName;
+      event.inputChars = content != null ? content.length() : 0;
+      event.outputNodes = AdfConversionEvent.countNodes(document);
+      event.commit();
+    }
+    return document;
+  }
+
+  private ObjectNode convertHtmlSection(
+      String content, String filenameFallback, HtmlToAdfConverter htmlToAdfConverter)
+      throws Exception {
+    // Convert section HTML to ADF JSON (with post-processing)
+    String sectionAdfJson = htmlToAdfConverter.convertToAdfJson(content, filenameFallback);
+    JsonNode sectionDocNode = objectMapper.readTree(sectionAdfJson);
+    return sectionDocNode instanceof ObjectNode objectNode
+        ? objectNode
+        : objectMapper.createObjectNode();
+  }
+
+  /**
+   * Starts the Asciidoctor runtime in the background when the workspace contains AsciiDoc sections
+   * or decisions, so the JRuby boot overlaps with diagram rendering and page creation.
+   */
+  private void warmUpAsciiDocIfNeeded(Workspace workspace) {
+    if (workspace.getDocumentation() == null) {
+      return;
+    }
+    boolean hasAsciiDoc =
+        workspace.getDocumentation().getSections().stream()
+                .anyMatch(
+                    section ->
+                        section.getFormat() != null && isAsciiDocFormat(section.getFormat().name()))
+            || workspace.getDocumentation().getDecisions().stream()
+                .anyMatch(
+                    decision ->
+                        decision.getFormat() != null
+                            && isAsciiDocFormat(decision.getFormat().name()));
+    if (hasAsciiDoc) {
+      logger.info("AsciiDoc content detected, warming up Asciidoctor in the background");
+      asciiDocConverter.warmUp();
+    }
+  }
+
   /**
    * Checks if the format is AsciiDoc.
    *
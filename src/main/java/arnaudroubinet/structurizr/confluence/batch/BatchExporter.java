@@ -0,0 +1,285 @@
+package arnaudroubinet.structurizr.confluence.batch;
+
+import arnaudroubinet.structurizr.confluence.ConfluenceExporter;
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import arnaudroubinet.structurizr.confluence.client.ConfluenceConfig;
+import arnaudroubinet.structurizr.confluence.client.StructurizrConfig;
+import arnaudroubinet.structurizr.confluence.manifest.ExportJournal;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifestStore;
+import arnaudroubinet.structurizr.confluence.metrics.ExportMetrics;
+import arnaudroubinet.structurizr.confluence.processor.AsciidoctorPool;
+import arnaudroubinet.structurizr.confluence.processor.BrowserPool;
+import arnaudroubinet.structurizr.confluence.processor.DiagramExporter;
+import arnaudroubinet.structurizr.confluence.report.RunReport;
+import arnaudroubinet.structurizr.confluence.workspace.LazyWorkspace;
+import arnaudroubinet.structurizr.confluence.workspace.StreamingWorkspaceLoader;
+import com.structurizr.Workspace;
+import com.structurizr.util.WorkspaceUtils;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the jobs of a batch in one process. The jobs share the Confluence client and its connection
+ * pool, the Asciidoctor instances and a pool of browsers, so the JVM, JRuby and Chromium start once
+ * per batch instead of once per export. At most {@code concurrency} jobs run at the same time.
+ *
+ * <p>Each job has its own exporter, journal, manifest and diagram directory; a failing job is
+ * reported and does not stop the others.
+ */
+public final class BatchExporter implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(BatchExporter.class);
+
+  /** Exports one job. */
+  @FunctionalInterface
+  interface JobAction {
+    void export(BatchJob job) throws Exception;
+  }
+
+  /** Outcome of a job. */
+  public record JobResult(BatchJob job, long durationNanos, Exception failure) {
+    public boolean succeeded() {
+      return failure == null;
+    }
+  }
+
+  private final StructurizrConfig structurizrConfig;
+  private final int concurrency;
+  private final ConfluenceClient confluenceClient;
+  private final AsciidoctorPool asciidoctorPool;
+  private final BrowserPool browserPool;
+  private Path journalDirectory = Paths.get("target");
+  private Path manifestDirectory;
+  private boolean resume;
+  private boolean manifestOnPage;
+  private boolean skipUnchanged;
+  private Integer parallelism;
+  private ExportMetrics metrics;
+  private RunReport report;
+  private Function<String, DiagramExporter> diagramExporterFactory;
+
+  /**
+   * Creates a batch exporter.
+   *
+   * @param confluenceConfig the Confluence instance all jobs export to
+   * @param structurizrConfig the Structurizr instance jobs with a workspace ID load from (its
+   *     workspace ID is ignored), or null if all jobs use workspace files
+   * @param concurrency maximum number of jobs running at the same time
+   */
+  public BatchExporter(
+      ConfluenceConfig confluenceConfig, StructurizrConfig structurizrConfig, int concurrency) {
+    this(new ConfluenceClient(confluenceConfig), structurizrConfig, concurrency);
+  }
+
+  BatchExporter(
+      ConfluenceClient confluenceClient, StructurizrConfig structurizrConfig, int concurrency) {
+    this.structurizrConfig = structurizrConfig;
+    this.concurrency = Math.max(1, concurrency);
+    this.confluenceClient = confluenceClient;
+    this.asciidoctorPool = new AsciidoctorPool(AsciidoctorPool.configuredSize());
+    this.browserPool = new BrowserPool(this.concurrency);
+  }
+
+  /** Directory of the per-job export journals (default {@code target}). */
+  public void setJournalDirectory(Path journalDirectory) {
+    this.journalDirectory = journalDirectory;
+  }
+
+  /**
+   * Keeps the manifest of jobs that do not name one in this directory, so that every job after the
+   * first is incremental.
+   */
+  public void setManifestDirectory(Path manifestDirectory) {
+    this.manifestDirectory = manifestDirectory;
+  }
+
+  /** Resumes each job from its journal, if an interrupted run left one. */
+  public void setResume(boolean resume) {
+    this.resume = resume;
+  }
+
+  /** Also stores each job manifest as a content property of its branch page. */
+  public void setManifestOnPage(boolean manifestOnPage) {
+    this.manifestOnPage = manifestOnPage;
+  }
+
+  /** Skips jobs whose workspace did not change since their last successful export. */
+  public void setSkipUnchanged(boolean skipUnchanged) {
+    this.skipUnchanged = skipUnchanged;
+  }
+
+  /** Maximum number of tasks running at the same time within each job, or null for the default. */
+  public void setParallelism(Integer parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  /** Records the metrics of all jobs in the given metrics, or none if null. */
+  public void setMetrics(ExportMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /** Records the pages, attachments and critical paths of all jobs in the given report. */
+  public void setReport(RunReport report) {
+    this.report = report;
+  }
+
+  /**
+   * Sets how the diagram exporter of each job is created, by default from the Structurizr
+   * environment variables.
+   *
+   * @see ConfluenceExporter#setDiagramExporterFactory(Function)
+   */
+  public void setDiagramExporterFactory(Function<String, DiagramExporter> diagramExporterFactory) {
+    this.diagramExporterFactory = diagramExporterFactory;
+  }
+
+  /**
+   * Runs all jobs and waits for them.
+   *
+   * @param jobs the jobs to run
+   * @return the outcome of each job, in job order
+   */
+  public List<JobResult> run(List<BatchJob> jobs) throws InterruptedException {
+    return run(jobs, this::export);
+  }
+
+  List<JobResult> run(List<BatchJob> jobs, JobAction action) throws InterruptedException {
+    logger.info("Running {} export jobs, {} at a time", jobs.size(), concurrency);
+    long start = System.nanoTime();
+    AtomicInteger counter = new AtomicInteger();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            concurrency,
+            runnable -> {
+              Thread thread = new Thread(runnable, "batch-job-" + counter.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    List<Future<JobResult>> futures = new ArrayList<>();
+    try {
+      for (BatchJob job : jobs) {
+        futures.add(executor.submit(() -> runJob(job, action)));
+      }
+      List<JobResult> results = new ArrayList<>();
+      for (Future<JobResult> future : futures) {
+        try {
+          results.add(future.get());
+        } catch (ExecutionException e) {
+          // runJob catches exceptions, so only errors get here
+          throw new IllegalStateException("Batch job crashed", e.getCause());
+        }
+      }
+      long failed = results.stream().filter(result -> !result.succeeded()).count();
+      logger.info(
+          "Batch completed in {} ms: {} succeeded, {} failed",
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+          results.size() - failed,
+          failed);
+      for (JobResult result : results) {
+        if (!result.succeeded()) {
+          logger.error("  {}: {}", result.job().name(), result.failure().getMessage());
+        }
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private JobResult runJob(BatchJob job, JobAction action) {
+    long start = System.nanoTime();
+    logger.info("Starting job {}", job.name());
+    try {
+      action.export(job);
+      long duration = System.nanoTime() - start;
+      logger.info("Job {} completed in {} ms", job.name(), TimeUnit.NANOSECONDS.toMillis(duration));
+      return new JobResult(job, duration, null);
+    } catch (Exception e) {
+      logger.error("Job {} failed: {}", job.name(), e.getMessage(), e);
+      return new JobResult(job, System.nanoTime() - start, e);
+    }
+  }
+
+  /**
+   * Exports one job with the shared resources.
+   *
+   * @param job the job
+   * @throws Exception if the export fails
+   */
+  public void export(BatchJob job) throws Exception {
+    StructurizrConfig jobStructurizrConfig = null;
+    if (job.workspaceId() != null) {
+      if (structurizrConfig == null) {
+        throw new IllegalStateException(
+            "Job "
+                + job.name()
+                + " loads a workspace ID but no Structurizr instance is configured");
+      }
+      jobStructurizrConfig =
+          new StructurizrConfig(
+              structurizrConfig.getApiUrl(),
+              structurizrConfig.getApiKey(),
+              structurizrConfig.getApiSecret(),
+              job.workspaceId(),
+              structurizrConfig.isDebugMode());
+    }
+
+    try (ConfluenceExporter exporter =
+        new ConfluenceExporter(
+            confluenceClient, jobStructurizrConfig, asciidoctorPool, browserPool)) {
+      exporter.setDiagramDirectory(Paths.get("target", "diagrams", job.key()));
+      exporter.setJournal(
+          new ExportJournal(
+              journalDirectory.resolve("export-journal-" + job.key() + ".jsonl"), resume));
+      Path manifest = job.manifest();
+      if (manifest == null && manifestDirectory != null) {
+        manifest = manifestDirectory.resolve("export-manifest-" + job.key() + ".json");
+      }
+      if (manifest != null || manifestOnPage) {
+        exporter.setManifestStore(
+            new ExportManifestStore(manifest, confluenceClient, manifestOnPage));
+      }
+      if (parallelism != null) {
+        exporter.setParallelism(parallelism);
+      }
+      exporter.setSkipUnchanged(skipUnchanged);
+      if (metrics != null) {
+        exporter.setMetrics(metrics);
+      }
+      exporter.setReport(report);
+      if (diagramExporterFactory != null) {
+        exporter.setDiagramExporterFactory(diagramExporterFactory);
+      }
+
+      if (job.workspaceFile() != null
+          && StreamingWorkspaceLoader.shouldStream(job.workspaceFile())) {
+        try (LazyWorkspace workspace = StreamingWorkspaceLoader.load(job.workspaceFile())) {
+          exporter.export(workspace, job.pageId(), job.branch());
+        }
+      } else if (job.workspaceFile() != null) {
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(job.workspaceFile().toFile());
+        exporter.export(workspace, job.pageId(), job.branch());
+      } else {
+        exporter.exportFromStructurizr(job.pageId(), job.branch());
+      }
+    }
+  }
+
+  /** Closes the shared browsers and Asciidoctor instances. */
+  @Override
+  public void close() {
+    browserPool.close();
+    asciidoctorPool.close();
+  }
+}
@@ -0,0 +1,33 @@
+package arnaudroubinet.structurizr.confluence.batch;
+
+import java.nio.file.Path;
+
+/**
+ * One export of a batch: a workspace, loaded from a JSON file or from the Structurizr instance,
+ * exported as a branch page under a parent page.
+ *
+ * @param workspaceFile the workspace JSON file, or null to load {@code workspaceId}
+ * @param workspaceId the Structurizr workspace ID, or null when loading {@code workspaceFile}
+ * @param pageId the parent page ID
+ * @param branch the branch name, title of the branch page
+ * @param manifest the export manifest file enabling incremental export, or null
+ */
+public record BatchJob(
+    Path workspaceFile, Long workspaceId, String pageId, String branch, Path manifest) {
+
+  /** Human readable name of the job, used in logs. */
+  public String name() {
+    String source =
+        workspaceFile != null ? workspaceFile.getFileName().toString() : "workspace " + workspaceId;
+    return source + " / " + branch + " (page " + pageId + ")";
+  }
+
+  /** Identifier of the job usable in file names, unique within a batch. */
+  public String key() {
+    String source =
+        workspaceFile != null
+            ? workspaceFile.getFileName().toString().replaceFirst("\\.json$", "")
+            : String.valueOf(workspaceId);
+    return (source + "-" + pageId + "-" + branch).replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+}
@@ -0,0 +1,120 @@
+package arnaudroubinet.structurizr.confluence.batch;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the job file of a batch export. The file is a JSON object with a {@code jobs} array (or the
+ * array alone); each job names one workspace source, the parent page and one or more branches:
+ *
+ * <pre>
+ * {"jobs": [
+ *   {"workspaceId": 42, "pageId": "123456", "branches": ["main", "develop"]},
+ *   {"workspaceFile": "docs/workspace.json", "pageId": "654321", "branch": "main",
+ *    "manifest": "target/manifest-docs.json"}
+ * ]}
+ * </pre>
+ *
+ * <p>A job with several branches is expanded into one job per branch. Relative paths are resolved
+ * against the directory of the job file. A single job object is also accepted.
+ */
+public final class BatchJobFile {
+
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  private BatchJobFile() {}
+
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  private record JobSpec(
+      String workspaceFile,
+      Long workspaceId,
+      String pageId,
+      String branch,
+      List<String> branches,
+      String manifest) {}
+
+  /**
+   * Loads and validates the jobs of a job file.
+   *
+   * @param file the job file
+   * @return the jobs, in file order
+   * @throws IOException if the file cannot be read or a job is invalid
+   */
+  public static List<BatchJob> load(Path file) throws IOException {
+    return parse(objectMapper.readTree(file.toFile()), file.toAbsolutePath().getParent(), file);
+  }
+
+  /**
+   * Validates the jobs of a parsed job file, or of a single job object.
+   *
+   * @param root the {@code jobs} object, the array of jobs or one job
+   * @param baseDirectory directory against which relative paths are resolved
+   * @param source where the jobs come from, used in error messages
+   * @return the jobs, in order
+   * @throws IOException if a job is invalid
+   */
+  public static List<BatchJob> parse(JsonNode root, Path baseDirectory, Object source)
+      throws IOException {
+    JsonNode jobsNode = root;
+    if (root != null && root.isObject()) {
+      jobsNode = root.has("jobs") ? root.get("jobs") : objectMapper.createArrayNode().add(root);
+    }
+    if (jobsNode == null || !jobsNode.isArray()) {
+      throw new IOException(source + " must contain a job or a \"jobs\" array");
+    }
+
+    List<BatchJob> jobs = new ArrayList<>();
+    Set<String> keys = new HashSet<>();
+    int index = 0;
+    for (JsonNode node : jobsNode) {
+      index++;
+      JobSpec spec = objectMapper.treeToValue(node, JobSpec.class);
+      String where = "Job " + index + " of " + source;
+      if ((spec.workspaceFile() == null) == (spec.workspaceId() == null)) {
+        throw new IOException(where + " must set exactly one of workspaceFile and workspaceId");
+      }
+      if (spec.pageId() == null || spec.pageId().isBlank()) {
+        throw new IOException(where + " has no pageId");
+      }
+      List<String> branches = new ArrayList<>();
+      if (spec.branch() != null) {
+        branches.add(spec.branch());
+      }
+      if (spec.branches() != null) {
+        branches.addAll(spec.branches());
+      }
+      if (branches.isEmpty() || branches.stream().anyMatch(b -> b == null || b.isBlank())) {
+        throw new IOException(where + " must set branch or branches");
+      }
+      if (spec.manifest() != null && branches.size() > 1) {
+        throw new IOException(where + " cannot share one manifest between several branches");
+      }
+
+      for (String branch : branches) {
+        BatchJob job =
+            new BatchJob(
+                resolve(baseDirectory, spec.workspaceFile()),
+                spec.workspaceId(),
+                spec.pageId(),
+                branch,
+                resolve(baseDirectory, spec.manifest()));
+        if (!keys.add(job.key())) {
+          throw new IOException(where + " duplicates the export of " + job.name());
+        }
+        jobs.add(job);
+      }
+    }
+    return jobs;
+  }
+
+  private static Path resolve(Path baseDirectory, String path) {
+    return path != null ? baseDirectory.resolve(path).normalize() : null;
+  }
+}
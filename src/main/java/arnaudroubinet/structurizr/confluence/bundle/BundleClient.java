@@ -0,0 +1,250 @@
+package arnaudroubinet.structurizr.confluence.bundle;
+
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Confluence client writing pages and attachments to a {@link PageBundle} instead of publishing
+ * them, so that an export renders and converts everything without Confluence access. Pages,
+ * attachments and media files get placeholder identifiers, which {@link BundlePublisher} replaces
+ * with the identifiers Confluence gives them. Pages outside the bundle, such as the parent page of
+ * the export, are assumed to exist.
+ */
+public final class BundleClient extends ConfluenceClient implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(BundleClient.class);
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  /** Prefix of the collection of the media files of a page, followed by the page ID. */
+  static final String COLLECTION_PREFIX = "contentId-";
+
+  private final PageBundle bundle;
+  private final Map<String, PageState> pages = new LinkedHashMap<>();
+  private final AtomicInteger ids = new AtomicInteger();
+
+  /** A page as last written by the export. */
+  private static final class PageState {
+    final String id;
+    String title;
+    final String parentId;
+    int version = 1;
+    final Map<String, PageBundle.Attachment> attachments = new LinkedHashMap<>();
+    final Map<String, JsonNode> properties = new LinkedHashMap<>();
+
+    PageState(String id, String title, String parentId) {
+      this.id = id;
+      this.title = title;
+      this.parentId = parentId;
+    }
+  }
+
+  /**
+   * Creates a client writing to the given bundle; the bundle is closed with the client.
+   *
+   * @param bundle a bundle created with {@link PageBundle#create}
+   */
+  public BundleClient(PageBundle bundle) {
+    this.bundle = bundle;
+  }
+
+  public PageBundle getBundle() {
+    return bundle;
+  }
+
+  /** Returns the number of pages in the bundle. */
+  public synchronized int getPageCount() {
+    return pages.size();
+  }
+
+  /** Returns the number of attachments in the bundle. */
+  public synchronized int getAttachmentCount() {
+    return pages.values().stream().mapToInt(page -> page.attachments.size()).sum();
+  }
+
+  @Override
+  public String getSpaceId() {
+    return "bundle";
+  }
+
+  @Override
+  public boolean pageExists(String pageId) {
+    return true;
+  }
+
+  @Override
+  public synchronized PublishedPage createOrUpdatePageVersioned(
+      String title, String adfContent, String parentId) throws IOException {
+    String existingId = findPageIdByTitle(title);
+    if (existingId != null) {
+      return updatePageByIdVersioned(existingId, title, adfContent);
+    }
+    PageState page = new PageState(nextId("page"), title, parentId);
+    pages.put(page.id, page);
+    bundle.write(pageFile(page.id), adfContent.getBytes(StandardCharsets.UTF_8));
+    logger.debug("Page '{}' added to the bundle as {}", title, page.id);
+    return new PublishedPage(page.id, page.version);
+  }
+
+  @Override
+  public synchronized PublishedPage updatePageByIdVersioned(
+      String pageId, String title, String adfContent) throws IOException {
+    PageState page = page(pageId);
+    page.title = title;
+    page.version++;
+    bundle.write(pageFile(page.id), adfContent.getBytes(StandardCharsets.UTF_8));
+    return new PublishedPage(page.id, page.version);
+  }
+
+  @Override
+  public String updatePageById(String pageId, String title, String adfContent) throws IOException {
+    return updatePageByIdVersioned(pageId, title, adfContent).id();
+  }
+
+  @Override
+  public synchronized String findPageIdByTitle(String title) {
+    for (PageState page : pages.values()) {
+      if (page.title.equals(title)) {
+        return page.id;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public synchronized String getPageContent(String pageId) throws IOException {
+    PageState page = page(pageId);
+    return bundle.readString(pageFile(page.id));
+  }
+
+  @Override
+  public synchronized String getPageInfo(String pageId) throws IOException {
+    PageState page = page(pageId);
+    return OBJECT_MAPPER.createObjectNode().put("id", page.id).put("title", page.title).toString();
+  }
+
+  @Override
+  public synchronized void deletePage(String pageId) throws IOException {
+    PageState page = pages.remove(pageId);
+    if (page != null) {
+      bundle.delete(pageFile(pageId));
+      for (PageBundle.Attachment attachment : page.attachments.values()) {
+        bundle.delete(attachment.file());
+      }
+    }
+  }
+
+  @Override
+  public String uploadAttachment(
+      String pageId, String fileName, byte[] fileContent, String mimeType) throws IOException {
+    return uploadAttachmentDetailed(pageId, fileName, fileContent, mimeType).attachmentId();
+  }
+
+  @Override
+  public synchronized AttachmentDetails uploadAttachmentDetailed(
+      String pageId, String fileName, byte[] fileContent, String mimeType) throws IOException {
+    PageState page = page(pageId);
+    PageBundle.Attachment attachment = page.attachments.get(fileName);
+    if (attachment == null) {
+      attachment =
+          new PageBundle.Attachment(
+              nextId("attachment"),
+              fileName,
+              mimeType,
+              nextId("file"),
+              "attachments/" + page.id + "/" + page.attachments.size() + "-" + safeName(fileName));
+      page.attachments.put(fileName, attachment);
+    }
+    bundle.write(attachment.file(), fileContent);
+    return new AttachmentDetails(
+        attachment.id(), fileName, attachment.fileId(), COLLECTION_PREFIX + page.id);
+  }
+
+  @Override
+  public synchronized JsonNode getPageProperty(String pageId, String key) {
+    PageState page = pages.get(pageId);
+    return page != null ? page.properties.get(key) : null;
+  }
+
+  @Override
+  public synchronized void setPageProperty(String pageId, String key, JsonNode value)
+      throws IOException {
+    page(pageId).properties.put(key, value);
+  }
+
+  @Override
+  public String[] listPagesInSpace() throws IOException {
+    throw unsupported("list the pages of the space");
+  }
+
+  @Override
+  public List<String> getSpacePageIds(String spaceKey) throws IOException {
+    throw unsupported("list the pages of the space");
+  }
+
+  @Override
+  public void cleanSpace() throws IOException {
+    throw unsupported("clean the space");
+  }
+
+  @Override
+  public void cleanPageTree(String pageTitle) throws IOException {
+    throw unsupported("clean a page tree");
+  }
+
+  @Override
+  public void cleanPageTreeById(String pageId) throws IOException {
+    throw unsupported("clean a page tree");
+  }
+
+  /** Writes the manifest of the pages and closes the bundle. */
+  @Override
+  public synchronized void close() throws IOException {
+    List<PageBundle.Page> written = new ArrayList<>();
+    for (PageState page : pages.values()) {
+      written.add(
+          new PageBundle.Page(
+              page.id,
+              page.title,
+              page.parentId,
+              pageFile(page.id),
+              List.copyOf(page.attachments.values()),
+              new LinkedHashMap<>(page.properties)));
+    }
+    bundle.setPages(written);
+    bundle.close();
+  }
+
+  private PageState page(String pageId) throws IOException {
+    PageState page = pages.get(pageId);
+    if (page == null) {
+      throw new IOException("Page " + pageId + " is not in the bundle");
+    }
+    return page;
+  }
+
+  private String nextId(String kind) {
+    return "bundle-" + kind + "-" + ids.incrementAndGet();
+  }
+
+  private static String pageFile(String pageId) {
+    return "pages/" + pageId + ".json";
+  }
+
+  private static String safeName(String fileName) {
+    return fileName.replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+
+  private static IOException unsupported(String operation) {
+    return new IOException("Cannot " + operation + " of an offline bundle");
+  }
+}
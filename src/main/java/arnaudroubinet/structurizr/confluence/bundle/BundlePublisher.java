@@ -0,0 +1,184 @@
+package arnaudroubinet.structurizr.confluence.bundle;
+
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import arnaudroubinet.structurizr.confluence.manifest.PagePublisher;
+import arnaudroubinet.structurizr.confluence.scheduler.ExecutionReport;
+import arnaudroubinet.structurizr.confluence.scheduler.ExportTask;
+import arnaudroubinet.structurizr.confluence.scheduler.TaskGraph;
+import arnaudroubinet.structurizr.confluence.scheduler.TaskType;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes a {@link PageBundle} to Confluence. Every page is created as soon as its parent exists,
+ * every attachment uploaded as soon as its page exists, and every body published as soon as the
+ * media files it refers to are uploaded, all on as many threads as allowed. Pages are found by
+ * title like in a direct export, so publishing a bundle again updates the same pages.
+ */
+public final class BundlePublisher {
+
+  private static final Logger logger = LoggerFactory.getLogger(BundlePublisher.class);
+
+  private final ConfluenceClient confluenceClient;
+  private String parentPageId;
+
+  /** Published identifiers, by quoted placeholder as it appears in the ADF JSON. */
+  private final Map<String, String> replacements = new ConcurrentHashMap<>();
+
+  /** Confluence page IDs, by placeholder page ID. */
+  private final Map<String, String> pageIds = new ConcurrentHashMap<>();
+
+  public BundlePublisher(ConfluenceClient confluenceClient) {
+    this.confluenceClient = confluenceClient;
+  }
+
+  /**
+   * Publishes the bundle under the given page instead of the parent page of the export that wrote
+   * it.
+   *
+   * @param parentPageId the parent page ID, or null to keep the parent of the export
+   */
+  public void setParentPageId(String parentPageId) {
+    this.parentPageId = parentPageId;
+  }
+
+  /**
+   * Publishes all pages, attachments and content properties of the bundle.
+   *
+   * @param bundle the bundle
+   * @param parallelism maximum number of requests sent at the same time
+   * @return the timings of the publication
+   * @throws Exception the first failure; pages and attachments already published stay published
+   */
+  public ExecutionReport publish(PageBundle bundle, int parallelism) throws Exception {
+    TaskGraph graph = new TaskGraph();
+    Map<String, ExportTask> createTasks = new HashMap<>();
+    Map<String, ExportTask> uploadTasks = new HashMap<>();
+    Map<String, List<String>> mediaFiles = new HashMap<>();
+    List<String> fileIds =
+        bundle.getPages().stream()
+            .flatMap(page -> page.attachments().stream())
+            .map(PageBundle.Attachment::fileId)
+            .toList();
+
+    for (PageBundle.Page page : bundle.getPages()) {
+      // Media files are referenced by their quoted identifiers in the ADF JSON
+      String content = bundle.readContent(page);
+      List<String> media = fileIds.stream().filter(id -> content.contains(quote(id))).toList();
+      mediaFiles.put(page.id(), media);
+
+      ExportTask create =
+          graph.add(
+              "create " + page.title(),
+              TaskType.CREATE_PAGE,
+              () -> {
+                // Pages showing media are published once the media files are uploaded
+                String body =
+                    media.isEmpty() ? replace(bundle.readContent(page)) : PagePublisher.EMPTY_ADF;
+                String id =
+                    confluenceClient
+                        .createOrUpdatePageVersioned(page.title(), body, parentId(page))
+                        .id();
+                pageIds.put(page.id(), id);
+                replacements.put(
+                    quote(BundleClient.COLLECTION_PREFIX + page.id()),
+                    quote(BundleClient.COLLECTION_PREFIX + id));
+              });
+      ExportTask parent = createTasks.get(page.parentId());
+      if (parent != null) {
+        create.after(parent);
+      }
+      createTasks.put(page.id(), create);
+
+      for (PageBundle.Attachment attachment : page.attachments()) {
+        ExportTask upload =
+            graph.add(
+                "upload " + attachment.filename(),
+                TaskType.UPLOAD_ATTACHMENT,
+                () -> {
+                  ConfluenceClient.AttachmentDetails details =
+                      confluenceClient.uploadAttachmentDetailed(
+                          pageIds.get(page.id()),
+                          attachment.filename(),
+                          bundle.readAttachment(attachment),
+                          attachment.mediaType());
+                  if (details.fileId() != null) {
+                    replacements.put(quote(attachment.fileId()), quote(details.fileId()));
+                  }
+                });
+        uploadTasks.put(attachment.fileId(), upload.after(create));
+      }
+    }
+
+    for (PageBundle.Page page : bundle.getPages()) {
+      ExportTask published = createTasks.get(page.id());
+      List<String> media = mediaFiles.get(page.id());
+      if (!media.isEmpty()) {
+        published =
+            graph
+                .add(
+                    "publish " + page.title(),
+                    TaskType.PUBLISH_BODY,
+                    () ->
+                        confluenceClient.updatePageByIdVersioned(
+                            pageIds.get(page.id()),
+                            page.title(),
+                            replace(bundle.readContent(page))))
+                .after(published)
+                .after(media.stream().map(uploadTasks::get).toList());
+      }
+      for (Map.Entry<String, JsonNode> property : page.properties().entrySet()) {
+        graph
+            .add(
+                "property " + property.getKey() + " of " + page.title(),
+                TaskType.PUBLISH_BODY,
+                () ->
+                    confluenceClient.setPageProperty(
+                        pageIds.get(page.id()), property.getKey(), property.getValue()))
+            .after(published);
+      }
+    }
+
+    logger.info(
+        "Publishing {} pages and {} attachments from bundle {}",
+        createTasks.size(),
+        uploadTasks.size(),
+        bundle.getPath());
+    ExecutionReport report = graph.execute(parallelism);
+    report.log(logger);
+    return report;
+  }
+
+  /** Returns the Confluence ID of a published bundle page. */
+  public String getPageId(String bundlePageId) {
+    return pageIds.get(bundlePageId);
+  }
+
+  private String parentId(PageBundle.Page page) {
+    if (page.parentId() == null) {
+      return parentPageId;
+    }
+    String published = pageIds.get(page.parentId());
+    if (published != null) {
+      return published;
+    }
+    return parentPageId != null ? parentPageId : page.parentId();
+  }
+
+  private String replace(String content) {
+    String replaced = content;
+    for (Map.Entry<String, String> replacement : replacements.entrySet()) {
+      replaced = replaced.replace(replacement.getKey(), replacement.getValue());
+    }
+    return replaced;
+  }
+
+  private static String quote(String identifier) {
+    return "\"" + identifier + "\"";
+  }
+}
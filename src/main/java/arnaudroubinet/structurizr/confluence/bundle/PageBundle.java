@@ -0,0 +1,268 @@
+package arnaudroubinet.structurizr.confluence.bundle;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Pages and attachments prepared for Confluence but not published: a directory, or a zip file when
+ * the path ends with {@code .zip}, holding the ADF JSON of each page, its attachments and a {@code
+ * bundle.json} manifest of the page tree. Pages and attachments refer to each other with the
+ * placeholder identifiers given when the bundle was written, replaced on publication.
+ */
+public final class PageBundle implements AutoCloseable {
+
+  /** Name of the manifest at the root of the bundle. */
+  public static final String MANIFEST = "bundle.json";
+
+  private static final int FORMAT = 1;
+  private static final ObjectMapper OBJECT_MAPPER =
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  /**
+   * An attachment of a page.
+   *
+   * @param id placeholder attachment ID
+   * @param filename the attachment file name
+   * @param mediaType the MIME type
+   * @param fileId placeholder media file ID, referenced by the media nodes of the pages
+   * @param file path of the content in the bundle
+   */
+  public record Attachment(
+      String id, String filename, String mediaType, String fileId, String file) {}
+
+  /**
+   * A page, listed after its parent when the parent is in the bundle.
+   *
+   * @param id placeholder page ID
+   * @param title the page title
+   * @param parentId placeholder ID of a parent in the bundle, ID of an existing Confluence page, or
+   *     null for a page at the root of the space
+   * @param file path of the ADF JSON in the bundle
+   * @param attachments the attachments of the page
+   * @param properties the content properties of the page
+   */
+  public record Page(
+      String id,
+      String title,
+      String parentId,
+      String file,
+      List<Attachment> attachments,
+      Map<String, JsonNode> properties) {}
+
+  private final Path path;
+  private final FileSystem zipFileSystem;
+  private final Path root;
+  private final boolean writable;
+  private List<Page> pages = List.of();
+
+  private PageBundle(Path path, FileSystem zipFileSystem, Path root, boolean writable) {
+    this.path = path;
+    this.zipFileSystem = zipFileSystem;
+    this.root = root;
+    this.writable = writable;
+  }
+
+  /**
+   * Creates an empty bundle, replacing a previous bundle at the same path. A directory holding
+   * other files is never overwritten.
+   *
+   * @param path the bundle directory, or zip file if it ends with {@code .zip}
+   * @return the bundle, whose manifest is written when it is closed
+   * @throws IOException if the bundle cannot be created
+   */
+  public static PageBundle create(Path path) throws IOException {
+    Path absolute = path.toAbsolutePath();
+    if (isZip(absolute)) {
+      Files.createDirectories(absolute.getParent());
+      Files.deleteIfExists(absolute);
+      FileSystem zip = FileSystems.newFileSystem(zipUri(absolute), Map.of("create", "true"));
+      return new PageBundle(absolute, zip, zip.getPath("/"), true);
+    }
+    if (Files.isDirectory(absolute)) {
+      try (Stream<Path> entries = Files.list(absolute)) {
+        if (entries.findAny().isPresent()) {
+          if (!Files.exists(absolute.resolve(MANIFEST))) {
+            throw new IOException("Not a bundle, refusing to overwrite: " + absolute);
+          }
+          deleteContents(absolute);
+        }
+      }
+    }
+    Files.createDirectories(absolute);
+    return new PageBundle(absolute, null, absolute, true);
+  }
+
+  /**
+   * Opens a bundle and reads its manifest.
+   *
+   * @param path the bundle directory or zip file
+   * @return the bundle, read-only
+   * @throws IOException if the bundle cannot be read
+   */
+  public static PageBundle open(Path path) throws IOException {
+    Path absolute = path.toAbsolutePath();
+    PageBundle bundle;
+    if (isZip(absolute) && Files.isRegularFile(absolute)) {
+      FileSystem zip = FileSystems.newFileSystem(zipUri(absolute), Map.of());
+      bundle = new PageBundle(absolute, zip, zip.getPath("/"), false);
+    } else {
+      bundle = new PageBundle(absolute, null, absolute, false);
+    }
+    try {
+      bundle.pages = readManifest(bundle.root.resolve(MANIFEST));
+    } catch (IOException | RuntimeException e) {
+      bundle.close();
+      throw new IOException("Cannot read bundle " + absolute + ": " + e.getMessage(), e);
+    }
+    return bundle;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  /** Returns the pages, parents before their children. */
+  public List<Page> getPages() {
+    return pages;
+  }
+
+  /** Sets the pages written to the manifest when the bundle is closed. */
+  void setPages(List<Page> pages) {
+    this.pages = List.copyOf(pages);
+  }
+
+  /** Returns the ADF JSON of a page. */
+  public String readContent(Page page) throws IOException {
+    return readString(page.file());
+  }
+
+  /** Returns the content of an attachment. */
+  public byte[] readAttachment(Attachment attachment) throws IOException {
+    return Files.readAllBytes(root.resolve(attachment.file()));
+  }
+
+  /** Returns a text file of the bundle. */
+  synchronized String readString(String file) throws IOException {
+    return Files.readString(root.resolve(file));
+  }
+
+  /** Writes a file of the bundle, replacing it if it exists. */
+  synchronized void write(String file, byte[] content) throws IOException {
+    Path target = root.resolve(file);
+    Files.createDirectories(target.getParent());
+    Files.write(target, content);
+  }
+
+  /** Deletes a file of the bundle, if it exists. */
+  synchronized void delete(String file) throws IOException {
+    Files.deleteIfExists(root.resolve(file));
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      if (writable) {
+        Files.write(root.resolve(MANIFEST), OBJECT_MAPPER.writeValueAsBytes(toManifest(pages)));
+      }
+    } finally {
+      if (zipFileSystem != null && zipFileSystem.isOpen()) {
+        zipFileSystem.close();
+      }
+    }
+  }
+
+  private static ObjectNode toManifest(List<Page> pages) {
+    ObjectNode manifest = OBJECT_MAPPER.createObjectNode();
+    manifest.put("format", FORMAT);
+    ArrayNode pageNodes = manifest.putArray("pages");
+    for (Page page : pages) {
+      ObjectNode pageNode = pageNodes.addObject();
+      pageNode.put("id", page.id());
+      pageNode.put("title", page.title());
+      pageNode.put("parentId", page.parentId());
+      pageNode.put("file", page.file());
+      ArrayNode attachmentNodes = pageNode.putArray("attachments");
+      for (Attachment attachment : page.attachments()) {
+        attachmentNodes
+            .addObject()
+            .put("id", attachment.id())
+            .put("filename", attachment.filename())
+            .put("mediaType", attachment.mediaType())
+            .put("fileId", attachment.fileId())
+            .put("file", attachment.file());
+      }
+      ObjectNode properties = pageNode.putObject("properties");
+      page.properties().forEach(properties::set);
+    }
+    return manifest;
+  }
+
+  private static List<Page> readManifest(Path file) throws IOException {
+    JsonNode manifest = OBJECT_MAPPER.readTree(Files.readAllBytes(file));
+    if (manifest.path("format").asInt() != FORMAT) {
+      throw new IOException("Unsupported bundle manifest format");
+    }
+    List<Page> pages = new ArrayList<>();
+    for (JsonNode pageNode : manifest.path("pages")) {
+      List<Attachment> attachments = new ArrayList<>();
+      for (JsonNode attachment : pageNode.path("attachments")) {
+        attachments.add(
+            new Attachment(
+                attachment.get("id").asText(),
+                attachment.get("filename").asText(),
+                attachment.get("mediaType").asText(),
+                attachment.get("fileId").asText(),
+                attachment.get("file").asText()));
+      }
+      Map<String, JsonNode> properties = new LinkedHashMap<>();
+      pageNode
+          .path("properties")
+          .fields()
+          .forEachRemaining(e -> properties.put(e.getKey(), e.getValue()));
+      JsonNode parentId = pageNode.get("parentId");
+      pages.add(
+          new Page(
+              pageNode.get("id").asText(),
+              pageNode.get("title").asText(),
+              parentId == null || parentId.isNull() ? null : parentId.asText(),
+              pageNode.get("file").asText(),
+              attachments,
+              properties));
+    }
+    return pages;
+  }
+
+  private static boolean isZip(Path path) {
+    return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip");
+  }
+
+  private static URI zipUri(Path path) {
+    return URI.create("jar:" + path.toUri());
+  }
+
+  private static void deleteContents(Path directory) throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        if (!file.equals(directory)) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+}
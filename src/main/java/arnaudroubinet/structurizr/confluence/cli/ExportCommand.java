@@ -1,14 +1,49 @@
 package arnaudroubinet.structurizr.confluence.cli;
 
 import arnaudroubinet.structurizr.confluence.ConfluenceExporter;
+import arnaudroubinet.structurizr.confluence.batch.BatchExporter;
+import arnaudroubinet.structurizr.confluence.batch.BatchJob;
+import arnaudroubinet.structurizr.confluence.batch.BatchJobFile;
+import arnaudroubinet.structurizr.confluence.bundle.BundleClient;
+import arnaudroubinet.structurizr.confluence.bundle.PageBundle;
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
 import arnaudroubinet.structurizr.confluence.client.ConfluenceConfig;
 import arnaudroubinet.structurizr.confluence.client.StructurizrConfig;
+import arnaudroubinet.structurizr.confluence.jfr.ExportPhaseEvent;
+import arnaudroubinet.structurizr.confluence.jfr.ExportRecording;
+import arnaudroubinet.structurizr.confluence.manifest.ExportJournal;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifestStore;
+import arnaudroubinet.structurizr.confluence.manifest.WorkspaceChanges;
+import arnaudroubinet.structurizr.confluence.metrics.ExportMetrics;
+import arnaudroubinet.structurizr.confluence.processor.AsciidoctorPool;
+import arnaudroubinet.structurizr.confluence.processor.BrowserPool;
+import arnaudroubinet.structurizr.confluence.processor.DiagramExporter;
+import arnaudroubinet.structurizr.confluence.progress.ProgressReporter;
+import arnaudroubinet.structurizr.confluence.replay.HttpArchive;
+import arnaudroubinet.structurizr.confluence.replay.RecordingDiagramExporter;
+import arnaudroubinet.structurizr.confluence.replay.RecordingProxy;
+import arnaudroubinet.structurizr.confluence.replay.ReplayDiagramExporter;
+import arnaudroubinet.structurizr.confluence.replay.ReplayServer;
+import arnaudroubinet.structurizr.confluence.report.RunReport;
+import arnaudroubinet.structurizr.confluence.tracing.ExportTracing;
+import arnaudroubinet.structurizr.confluence.watch.FileChangeWatcher;
+import arnaudroubinet.structurizr.confluence.workspace.DslWorkspaceLoader;
+import arnaudroubinet.structurizr.confluence.workspace.LazyWorkspace;
+import arnaudroubinet.structurizr.confluence.workspace.StreamingWorkspaceLoader;
 import com.structurizr.Workspace;
 import com.structurizr.util.WorkspaceUtils;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
@@ -33,6 +68,11 @@ public class ExportCommand implements Runnable {
   private static final String ENV_STRUCTURIZR_API_SECRET = "STRUCTURIZR_API_SECRET";
   private static final String ENV_STRUCTURIZR_WORKSPACE_ID = "STRUCTURIZR_WORKSPACE_ID";
 
+  private static final String BATCH_IDS = " when batch jobs use a workspaceId";
+
+  /** Manifest of watch mode when none is given, so that republishes are incremental. */
+  private static final String WATCH_MANIFEST = "target/export-manifest-watch.json";
+
   // Confluence options
   @CommandLine.Option(
       names = {"-u", "--confluence-url"},
@@ -67,6 +107,14 @@ public class ExportCommand implements Runnable {
       required = false)
   File workspaceFile;
 
+  @CommandLine.Option(
+      names = {"--workspace-dsl"},
+      description =
+          "Path to a Structurizr DSL workspace, parsed locally with its !docs and !adrs (takes"
+              + " priority over Structurizr options)",
+      required = false)
+  File workspaceDsl;
+
   // Structurizr on-premise options
   @CommandLine.Option(
       names = {"--structurizr-url"},
@@ -94,8 +142,8 @@ public class ExportCommand implements Runnable {
 
   @CommandLine.Option(
       names = {"-b", "--branch"},
-      description = "Branch name for versioning (required)",
-      required = true)
+      description = "Branch name for versioning (required unless --batch)",
+      required = false)
   String branchName;
 
   @CommandLine.Option(
@@ -112,8 +160,8 @@ public class ExportCommand implements Runnable {
 
   @CommandLine.Option(
       names = {"--page-id"},
-      description = "Parent page ID where branch subpage will be created (required)",
-      required = true)
+      description = "Parent page ID where branch subpage will be created (required unless --batch)",
+      required = false)
   String pageId;
 
   @CommandLine.Option(
@@ -122,6 +170,139 @@ public class ExportCommand implements Runnable {
       defaultValue = "false")
   boolean force;
 
+  @CommandLine.Option(
+      names = {"--manifest"},
+      description =
+          "Export manifest file enabling incremental export: only changed pages and attachments are published and pages whose source disappeared are deleted",
+      required = false)
+  File manifestFile;
+
+  @CommandLine.Option(
+      names = {"--manifest-on-page"},
+      description =
+          "Also store the export manifest as a content property of the branch page, and read it from there when the manifest file is missing",
+      defaultValue = "false")
+  boolean manifestOnPage;
+
+  @CommandLine.Option(
+      names = {"--skip-unchanged"},
+      description =
+          "Skip the export when the workspace (revision, last modification date and content) is identical to the one of the last successful export recorded in the manifest; requires --manifest or --manifest-on-page",
+      defaultValue = "false")
+  boolean skipUnchanged;
+
+  @CommandLine.Option(
+      names = {"--journal"},
+      description =
+          "Journal of the completed export steps (rendered views, uploaded attachments, published pages), deleted when the export succeeds",
+      defaultValue = "target/export-journal.jsonl")
+  File journalFile;
+
+  @CommandLine.Option(
+      names = {"--resume"},
+      description =
+          "Resume an interrupted export from its journal: steps already done are skipped when their inputs did not change",
+      defaultValue = "false")
+  boolean resume;
+
+  @CommandLine.Option(
+      names = {"--parallelism"},
+      description =
+          "Maximum number of export tasks (rendering, uploads, conversions, page updates) running at the same time (default: EXPORT_PARALLELISM or the number of processors, up to 8)",
+      required = false)
+  Integer parallelism;
+
+  @CommandLine.Option(
+      names = {"--batch"},
+      description =
+          "JSON job file listing workspaces, parent page IDs and branches to export in this process, sharing browsers, Asciidoctor and Confluence connections",
+      required = false)
+  File batchFile;
+
+  @CommandLine.Option(
+      names = {"--batch-concurrency"},
+      description = "Maximum number of batch jobs running at the same time (default: 2)",
+      defaultValue = "2")
+  int batchConcurrency;
+
+  @CommandLine.Option(
+      names = {"--watch"},
+      description =
+          "Keep running and republish when the workspace file changes: bursts of saves are debounced, only changed pages are republished and the browser and converters stay warm",
+      defaultValue = "false")
+  boolean watch;
+
+  @CommandLine.Option(
+      names = {"--watch-debounce"},
+      description =
+          "Quiet period in milliseconds ending a burst of changes in watch mode (default: 500)",
+      defaultValue = "500")
+  long watchDebounceMillis;
+
+  @CommandLine.Option(
+      names = {"--metrics-file"},
+      description =
+          "Write the export metrics (phases, Confluence requests, diagram renders, images) to this file at the end of the run: JSON if it ends with .json, Prometheus text otherwise")
+  File metricsFile;
+
+  @CommandLine.Option(
+      names = {"--trace-file"},
+      description =
+          "Trace the export with OpenTelemetry and write the spans (export, tasks, conversions, diagram renders, uploads, Confluence requests) to this file in the OTLP JSON format")
+  File traceFile;
+
+  @CommandLine.Option(
+      names = {"--report"},
+      paramLabel = "FILE",
+      description =
+          "Write a run report (pages and attachments touched, critical path, slowest views, sections and requests, cache hit ratios, requests by endpoint) to this file at the end of the run: HTML if it ends with .html, JSON otherwise")
+  File reportFile;
+
+  @CommandLine.Option(
+      names = {"--jfr"},
+      arity = "0..1",
+      fallbackValue = "",
+      paramLabel = "FILE",
+      description =
+          "Record the run with Java Flight Recorder, including export phase, Confluence request, diagram render and ADF conversion events, to this file (default: a timestamped .jfr file next to the journal)")
+  File jfrFile;
+
+  @CommandLine.Option(
+      names = {"--bundle"},
+      paramLabel = "DIR|ZIP",
+      description =
+          "Render and convert without publishing: write the ADF JSON of each page, its attachments and a manifest of the page tree to this bundle directory, or zip file if it ends with .zip, for the publish command (no Confluence access needed)")
+  File bundleFile;
+
+  @CommandLine.Option(
+      names = {"--record-traffic"},
+      paramLabel = "FILE",
+      description =
+          "Record the Confluence and Structurizr HTTP traffic of the run, with its timing and without request headers or credentials, and the rendered diagrams to this gzipped archive for --replay-traffic")
+  File recordTrafficFile;
+
+  @CommandLine.Option(
+      names = {"--replay-traffic"},
+      paramLabel = "FILE",
+      description =
+          "Answer the Confluence and Structurizr requests of the run from local stand-ins replaying this --record-traffic archive, and publish the recorded diagrams instead of rendering them, so that the run needs none of the real services")
+  File replayTrafficFile;
+
+  @CommandLine.Option(
+      names = {"--replay-latency-scale"},
+      description =
+          "Factor applied to the recorded latencies with --replay-traffic: 1 replays them, 0 answers at once (default: 1)",
+      defaultValue = "1")
+  double replayLatencyScale;
+
+  @CommandLine.Option(
+      names = {"--progress"},
+      paramLabel = "MODE",
+      description =
+          "Progress display while exporting (views, sections, attachments, pages, requests in flight, ETA): live redraws a status line, lines prints a summary every 10 seconds, off shows nothing, auto is live on a terminal and lines otherwise (default: auto)",
+      defaultValue = "auto")
+  String progress;
+
   @CommandLine.Option(
       names = {"--disable-ssl-verification"},
       description = "Disable SSL certificate verification (useful for self-signed certificates)",
@@ -134,6 +315,14 @@ public class ExportCommand implements Runnable {
       defaultValue = "false")
   boolean debugMode;
 
+  private final ExportMetrics metrics = new ExportMetrics();
+  private final RunReport report = new RunReport(metrics);
+  private ExportRecording recording; // recording of the run with --jfr
+  private HttpArchive trafficArchive; // archive written with --record-traffic
+  private long trafficStartNanos; // start of the --record-traffic recording
+  private List<HttpArchive.Exchange> replayedExchanges; // archive read with --replay-traffic
+  private final List<AutoCloseable> trafficServers = new ArrayList<>();
+
   @Override
   public void run() {
     try {
@@ -157,6 +346,38 @@ public class ExportCommand implements Runnable {
         return;
       }
 
+      if (traceFile != null) {
+        ExportTracing.enable(traceFile.toPath());
+      }
+      if (jfrFile != null) {
+        recording = ExportRecording.start(jfrFile());
+      }
+      if (recordTrafficFile != null || replayTrafficFile != null) {
+        startTrafficServers();
+      }
+
+      if (batchFile != null) {
+        runBatch();
+        return;
+      }
+
+      if (workspaceFile != null && workspaceDsl != null) {
+        System.err.println("❌ Error: --workspace-file and --workspace-dsl are mutually exclusive");
+        System.exit(1);
+        return;
+      }
+      if (watch && workspaceFile == null && workspaceDsl == null) {
+        System.err.println("❌ Error: --watch requires --workspace-file or --workspace-dsl");
+        System.exit(1);
+        return;
+      }
+
+      if (branchName == null || pageId == null) {
+        System.err.println("❌ Error: --branch and --page-id are required unless using --batch");
+        System.exit(1);
+        return;
+      }
+
       // Validate page targeting parameters
       if (cleanPageTitle != null && pageId != null) {
         System.err.println("❌ Error: Cannot specify both --page-title and --page-id for cleaning");
@@ -178,20 +399,61 @@ public class ExportCommand implements Runnable {
           new ConfluenceConfig(confluenceUrl, confluenceUser, confluenceToken, confluenceSpaceKey);
 
       // Create exporter based on workspace source
+      BundleClient bundleClient =
+          bundleFile != null ? new BundleClient(PageBundle.create(bundleFile.toPath())) : null;
       ConfluenceExporter exporter;
+      BrowserPool browserPool = null;
+      AsciidoctorPool asciidoctorPool = null;
+      LazyWorkspace lazyWorkspace = null;
       Workspace workspace = null;
 
-      if (workspaceFile != null) {
-        // Load workspace from file
-        logger.info("Loading workspace from file: {}", workspaceFile.getAbsolutePath());
-        workspace = WorkspaceUtils.loadWorkspaceFromJson(workspaceFile);
+      if (workspaceFile != null || workspaceDsl != null) {
+        long loadStart = System.nanoTime();
+        ExportPhaseEvent loadEvent = new ExportPhaseEvent();
+        loadEvent.begin();
+        if (workspaceDsl != null) {
+          // Parse the DSL locally, documentation and decisions included
+          logger.info("Loading workspace from DSL: {}", workspaceDsl.getAbsolutePath());
+          workspace = loadDslWorkspace();
+        } else {
+          // Load workspace from file
+          logger.info("Loading workspace from file: {}", workspaceFile.getAbsolutePath());
+          if (!watch && StreamingWorkspaceLoader.shouldStream(workspaceFile.toPath())) {
+            // Large files are mostly documentation and images, read only when converted
+            lazyWorkspace = StreamingWorkspaceLoader.load(workspaceFile.toPath());
+            workspace = lazyWorkspace.getWorkspace();
+          } else {
+            workspace = WorkspaceUtils.loadWorkspaceFromJson(workspaceFile);
+          }
+        }
         if (workspace == null) {
-          logger.error("Failed to load workspace from file: {}", workspaceFile);
+          logger.error(
+              "Failed to load workspace from file: {}",
+              workspaceDsl != null ? workspaceDsl : workspaceFile);
           System.exit(1);
           return;
         }
+        metrics.recordPhase("load", System.nanoTime() - loadStart);
+        loadEvent.phase = "load";
+        loadEvent.commit();
         logger.info("Workspace loaded successfully: {}", workspace.getName());
-        exporter = new ConfluenceExporter(confluenceConfig);
+        if (watch) {
+          // Pools outliving each export keep the browser and Asciidoctor warm between republishes
+          browserPool = new BrowserPool(1);
+          asciidoctorPool = new AsciidoctorPool(AsciidoctorPool.configuredSize());
+          exporter =
+              new ConfluenceExporter(
+                  new ConfluenceClient(confluenceConfig), null, asciidoctorPool, browserPool);
+          if (manifestFile == null && !manifestOnPage) {
+            // Start from a full export: the pages may have changed since the last watch session
+            manifestFile = new File(WATCH_MANIFEST);
+            Files.deleteIfExists(manifestFile.toPath());
+          }
+        } else if (bundleClient != null) {
+          exporter = new ConfluenceExporter(bundleClient, null);
+        } else {
+          exporter = new ConfluenceExporter(confluenceConfig);
+        }
       } else {
         // Load workspace from Structurizr on-premise
         logger.info("Loading workspace from Structurizr on-premise: {}", structurizrUrl);
@@ -204,7 +466,40 @@ public class ExportCommand implements Runnable {
                 structurizrApiSecret,
                 structurizrWorkspaceId,
                 debugMode);
-        exporter = new ConfluenceExporter(confluenceConfig, structurizrConfig);
+        exporter =
+            bundleClient != null
+                ? new ConfluenceExporter(bundleClient, structurizrConfig)
+                : new ConfluenceExporter(confluenceConfig, structurizrConfig);
+      }
+
+      exporter.setMetrics(metrics);
+      if (reportFile != null) {
+        exporter.setReport(report);
+      }
+      Function<String, DiagramExporter> diagramExporterFactory = trafficDiagramExporterFactory();
+      if (diagramExporterFactory != null) {
+        exporter.setDiagramExporterFactory(diagramExporterFactory);
+      }
+      if (bundleClient != null && (manifestFile != null || manifestOnPage || resume)) {
+        // The bundle pages have no Confluence IDs to remember
+        logger.warn("--manifest, --manifest-on-page and --resume ignored with --bundle");
+      } else if (manifestFile != null || manifestOnPage) {
+        exporter.setManifestStore(
+            new ExportManifestStore(
+                manifestFile != null ? manifestFile.toPath() : null,
+                exporter.getConfluenceClient(),
+                manifestOnPage));
+      }
+
+      if (parallelism != null) {
+        exporter.setParallelism(parallelism);
+      }
+      if (skipUnchanged && manifestFile == null && !manifestOnPage) {
+        logger.warn("--skip-unchanged ignored: it needs --manifest or --manifest-on-page");
+      }
+      exporter.setSkipUnchanged(skipUnchanged && !cleanSpace);
+      if (bundleClient == null) {
+        exporter.setJournal(new ExportJournal(journalFile.toPath(), resume && !cleanSpace));
       }
 
       // Clean target page tree if requested
@@ -226,27 +521,340 @@ public class ExportCommand implements Runnable {
         } else {
           exporter.getConfluenceClient().cleanPageTree(targetPageTitle);
         }
+
+        // The cleaned pages are gone, so the manifest no longer describes anything
+        if (manifestFile != null && Files.deleteIfExists(manifestFile.toPath())) {
+          logger.info("Removed export manifest {} after cleaning", manifestFile);
+        }
+        if (resume) {
+          logger.warn("--resume ignored: the pages of the interrupted export were cleaned");
+        }
       }
 
       // Export workspace
       logger.info(
           "Starting workspace export with parent page ID: {} and branch: {}", pageId, branchName);
-      if (workspace != null) {
-        exporter.export(workspace, pageId, branchName);
+      try (ProgressReporter progressReporter = startProgress()) {
+        if (lazyWorkspace != null) {
+          try {
+            exporter.export(lazyWorkspace, pageId, branchName);
+          } finally {
+            lazyWorkspace.close();
+          }
+        } else if (workspace != null) {
+          exporter.export(workspace, pageId, branchName);
+        } else {
+          exporter.exportFromStructurizr(pageId, branchName);
+        }
+      }
+      if (bundleClient != null) {
+        bundleClient.close();
+        System.out.println(
+            "📦 Bundle of "
+                + bundleClient.getPageCount()
+                + " pages and "
+                + bundleClient.getAttachmentCount()
+                + " attachments written to "
+                + bundleClient.getBundle().getPath());
+      } else if (exporter.isLastExportSkipped()) {
+        System.out.println("✅ Workspace unchanged since the last export, nothing to publish");
       } else {
-        exporter.exportFromStructurizr(pageId, branchName);
+        logger.info("Export completed successfully!");
+        System.out.println("✅ Workspace exported successfully to Confluence!");
       }
-      logger.info("Export completed successfully!");
+      reportMetrics();
 
-      System.out.println("✅ Workspace exported successfully to Confluence!");
+      if (watch) {
+        try {
+          watchAndRepublish(exporter, workspace);
+        } finally {
+          exporter.close();
+          asciidoctorPool.close();
+          browserPool.close();
+        }
+      }
 
     } catch (Exception e) {
       logger.error("Export failed: {}", e.getMessage(), e);
       System.err.println("❌ Export failed: " + e.getMessage());
+      ExportTracing.shutdown();
       System.exit(1);
+    } finally {
+      if (recording != null) {
+        recording.close();
+      }
+      stopTrafficServers();
     }
   }
 
+  /**
+   * Points the Confluence and Structurizr URLs at local proxies recording the traffic, or at local
+   * servers replaying it.
+   */
+  private void startTrafficServers() throws IOException {
+    if (recordTrafficFile != null && replayTrafficFile != null) {
+      throw new IllegalStateException(
+          "--record-traffic and --replay-traffic are mutually exclusive");
+    }
+    boolean usesConfluence = confluenceUrl != null && !confluenceUrl.isBlank();
+    boolean usesStructurizr = structurizrUrl != null && !structurizrUrl.isBlank();
+    if (recordTrafficFile != null) {
+      trafficArchive = HttpArchive.create(recordTrafficFile.toPath());
+      long startNanos = System.nanoTime();
+      trafficStartNanos = startNanos;
+      if (usesConfluence) {
+        RecordingProxy confluenceProxy =
+            new RecordingProxy("confluence", confluenceUrl, trafficArchive, startNanos);
+        trafficServers.add(confluenceProxy);
+        confluenceUrl = confluenceProxy.proxyUrl(confluenceUrl);
+      }
+      if (usesStructurizr) {
+        RecordingProxy structurizrProxy =
+            new RecordingProxy("structurizr", structurizrUrl, trafficArchive, startNanos);
+        trafficServers.add(structurizrProxy);
+        structurizrUrl = structurizrProxy.proxyUrl(structurizrUrl);
+      }
+      System.out.println("⏺ Recording HTTP traffic to " + recordTrafficFile.getAbsolutePath());
+    } else {
+      List<HttpArchive.Exchange> exchanges = HttpArchive.read(replayTrafficFile.toPath());
+      replayedExchanges = exchanges;
+      if (usesConfluence) {
+        ReplayServer confluenceServer =
+            new ReplayServer("confluence", exchanges, replayLatencyScale);
+        trafficServers.add(confluenceServer);
+        confluenceUrl = confluenceServer.localUrl(confluenceUrl);
+      }
+      if (usesStructurizr) {
+        ReplayServer structurizrServer =
+            new ReplayServer("structurizr", exchanges, replayLatencyScale);
+        trafficServers.add(structurizrServer);
+        structurizrUrl = structurizrServer.localUrl(structurizrUrl);
+      }
+      System.out.println(
+          "⏵ Replaying "
+              + exchanges.size()
+              + " recorded HTTP exchanges from "
+              + replayTrafficFile.getAbsolutePath());
+    }
+  }
+
+  /**
+   * Returns the diagram exporters recording the rendered diagrams with --record-traffic, or
+   * publishing the recorded ones with --replay-traffic, else null for the default exporters.
+   */
+  private Function<String, DiagramExporter> trafficDiagramExporterFactory() {
+    if (trafficArchive != null) {
+      HttpArchive archive = trafficArchive;
+      long startNanos = trafficStartNanos;
+      return workspaceId ->
+          RecordingDiagramExporter.fromEnvironment(workspaceId, archive, startNanos);
+    }
+    if (replayedExchanges != null) {
+      List<HttpArchive.Exchange> exchanges = replayedExchanges;
+      return workspaceId -> new ReplayDiagramExporter(workspaceId, exchanges, replayLatencyScale);
+    }
+    return null;
+  }
+
+  private void stopTrafficServers() {
+    for (AutoCloseable server : trafficServers) {
+      try {
+        server.close();
+      } catch (Exception e) {
+        logger.warn("Cannot stop traffic server: {}", e.getMessage());
+      }
+    }
+    trafficServers.clear();
+    if (trafficArchive != null) {
+      try {
+        trafficArchive.close();
+      } catch (IOException e) {
+        logger.warn("Cannot close traffic archive: {}", e.getMessage());
+      }
+      trafficArchive = null;
+    }
+  }
+
+  /** Returns the JFR recording file, next to the journal unless set. */
+  Path jfrFile() {
+    if (jfrFile.getPath().isEmpty()) {
+      File outputDirectory = journalFile.getAbsoluteFile().getParentFile();
+      return ExportRecording.defaultFile(
+          outputDirectory != null ? outputDirectory.toPath() : Path.of("."));
+    }
+    return jfrFile.toPath();
+  }
+
+  /**
+   * Runs the jobs of the batch file in this process. Exits with an error status if any job failed,
+   * once all jobs ran.
+   */
+  private void runBatch() throws Exception {
+    if (cleanSpace) {
+      System.err.println("❌ Error: --clean cannot be used with --batch");
+      System.exit(1);
+      return;
+    }
+    List<BatchJob> jobs = BatchJobFile.load(batchFile.toPath());
+    boolean loadsWorkspaceIds = jobs.stream().anyMatch(job -> job.workspaceId() != null);
+    if (loadsWorkspaceIds
+        && (!isConfigValid(structurizrUrl, "--structurizr-url", ENV_STRUCTURIZR_URL, BATCH_IDS)
+            || !isConfigValid(
+                structurizrApiKey, "--structurizr-key", ENV_STRUCTURIZR_API_KEY, BATCH_IDS)
+            || !isConfigValid(
+                structurizrApiSecret,
+                "--structurizr-secret",
+                ENV_STRUCTURIZR_API_SECRET,
+                BATCH_IDS))) {
+      System.exit(1);
+      return;
+    }
+    if (manifestFile != null) {
+      logger.warn("--manifest ignored with --batch: set a manifest per job in the job file");
+    }
+
+    logger.info(
+        "Starting batch export of {} jobs from {} ({} at a time)",
+        jobs.size(),
+        batchFile.getAbsolutePath(),
+        batchConcurrency);
+    ConfluenceConfig confluenceConfig =
+        new ConfluenceConfig(confluenceUrl, confluenceUser, confluenceToken, confluenceSpaceKey);
+    StructurizrConfig structurizrConfig =
+        loadsWorkspaceIds
+            ? new StructurizrConfig(
+                structurizrUrl, structurizrApiKey, structurizrApiSecret, 0, debugMode)
+            : null;
+
+    List<BatchExporter.JobResult> results;
+    try (BatchExporter batchExporter =
+        new BatchExporter(confluenceConfig, structurizrConfig, batchConcurrency)) {
+      File journalDirectory = journalFile.getAbsoluteFile().getParentFile();
+      if (journalDirectory != null) {
+        batchExporter.setJournalDirectory(journalDirectory.toPath());
+      }
+      batchExporter.setResume(resume);
+      batchExporter.setManifestOnPage(manifestOnPage);
+      batchExporter.setParallelism(parallelism);
+      batchExporter.setSkipUnchanged(skipUnchanged);
+      batchExporter.setMetrics(metrics);
+      batchExporter.setDiagramExporterFactory(trafficDiagramExporterFactory());
+      if (reportFile != null) {
+        batchExporter.setReport(report);
+      }
+      try (ProgressReporter progressReporter = startProgress()) {
+        results = batchExporter.run(jobs);
+      }
+    }
+    reportMetrics();
+
+    long failed = results.stream().filter(result -> !result.succeeded()).count();
+    if (failed > 0) {
+      System.err.println("❌ " + failed + " of " + results.size() + " batch jobs failed");
+      System.exit(1);
+      return;
+    }
+    System.out.println("✅ " + results.size() + " batch jobs exported successfully to Confluence!");
+  }
+
+  /**
+   * Republishes the workspace each time its file changes, until the process is stopped. Saves that
+   * change nothing are skipped; otherwise the export manifest limits the republish to the changed
+   * pages, and diagrams are only rendered again when the model or views changed. A failed republish
+   * is reported and the next change is awaited.
+   */
+  private void watchAndRepublish(ConfluenceExporter exporter, Workspace workspace)
+      throws Exception {
+    Workspace exported = workspace;
+    // A DSL workspace includes files and imports !docs and !adrs directories next to it
+    Path watched =
+        workspaceDsl != null
+            ? workspaceDsl.getAbsoluteFile().getParentFile().toPath()
+            : workspaceFile.toPath();
+    try (FileChangeWatcher watcher =
+        new FileChangeWatcher(List.of(watched), Duration.ofMillis(watchDebounceMillis))) {
+      System.out.println("👀 Watching " + watched + " for changes (Ctrl+C to stop)");
+      while (true) {
+        Set<Path> changed = watcher.awaitChanges();
+        logger.debug("Changed files: {}", changed);
+
+        Workspace current;
+        try {
+          current =
+              workspaceDsl != null
+                  ? loadDslWorkspace()
+                  : WorkspaceUtils.loadWorkspaceFromJson(workspaceFile);
+        } catch (Exception e) {
+          // Typically a save in progress or a syntax error: wait for the next save
+          logger.warn("Cannot load workspace, waiting for the next change: {}", e.getMessage());
+          continue;
+        }
+        WorkspaceChanges changes = WorkspaceChanges.between(exported, current);
+        if (changes.isEmpty()) {
+          logger.info("Workspace file saved without changes, nothing to republish");
+          continue;
+        }
+
+        logger.info("Workspace changed ({}), republishing", changes);
+        long start = System.nanoTime();
+        try {
+          try (ProgressReporter progressReporter = startProgress()) {
+            exporter.export(current, pageId, branchName);
+          }
+          exported = current;
+          System.out.println(
+              "✅ Republished in "
+                  + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                  + " ms: "
+                  + changes);
+          reportMetrics();
+        } catch (Exception e) {
+          logger.error("Republish failed: {}", e.getMessage(), e);
+          System.err.println("❌ Republish failed, waiting for the next change: " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  /** Starts displaying the progress of an export on the standard error, unless turned off. */
+  private ProgressReporter startProgress() {
+    return ProgressReporter.start(ProgressReporter.Mode.parse(progress), System.err);
+  }
+
+  /**
+   * Prints the metrics of the exports so far and writes them to the metrics file, if any, the run
+   * report to the report file, if any, and the pending spans to the trace file. In watch mode, they
+   * cover all republishes since the start.
+   */
+  private void reportMetrics() throws IOException {
+    ExportTracing.flush();
+    String summary = metrics.summary();
+    if (!summary.isEmpty()) {
+      System.out.println("📊 Export metrics");
+      System.out.print(summary);
+    }
+    if (metricsFile != null) {
+      metrics.write(metricsFile.toPath());
+      logger.info("Export metrics written to {}", metricsFile.getAbsolutePath());
+    }
+    if (reportFile != null) {
+      report.write(reportFile.toPath());
+      System.out.println("📄 Run report written to " + reportFile.getAbsolutePath());
+    }
+  }
+
+  /**
+   * Parses the DSL workspace. The DSL does not carry the ID of the workspace on the Structurizr
+   * server rendering the diagrams, so the configured workspace ID, if any, is applied.
+   */
+  private Workspace loadDslWorkspace() throws IOException {
+    Workspace workspace = DslWorkspaceLoader.load(workspaceDsl.toPath());
+    if (structurizrWorkspaceId != null) {
+      workspace.setId(structurizrWorkspaceId);
+    }
+    return workspace;
+  }
+
   private void loadConfigurationFromEnvironment() {
     // Load Confluence configuration from environment variables
     confluenceUrl = loadFromEnvIfNull(confluenceUrl, ENV_CONFLUENCE_URL);
@@ -285,7 +893,7 @@ public class ExportCommand implements Runnable {
    * @param envVarName the environment variable name
    * @return the environment variable value if current is null, otherwise the current value
    */
-  private String loadFromEnvIfNull(String currentValue, String envVarName) {
+  static String loadFromEnvIfNull(String currentValue, String envVarName) {
     if (currentValue == null) {
       String envValue = System.getenv(envVarName);
       if (envValue != null) {
@@ -297,19 +905,34 @@ public class ExportCommand implements Runnable {
   }
 
   private boolean validateConfiguration() {
-    // Validate Confluence configuration
-    if (!isConfigValid(confluenceUrl, "--confluence-url", ENV_CONFLUENCE_URL)) {
-      return false;
-    }
-    if (!isConfigValid(confluenceUser, "--confluence-user", ENV_CONFLUENCE_USER)) {
-      return false;
+    if (bundleFile != null) {
+      // Bundles are written without Confluence access
+      if (batchFile != null || watch || cleanSpace) {
+        System.err.println("❌ Error: --bundle cannot be combined with --batch, --watch or --clean");
+        return false;
+      }
+    } else {
+      // Validate Confluence configuration
+      if (!isConfigValid(confluenceUrl, "--confluence-url", ENV_CONFLUENCE_URL)) {
+        return false;
+      }
+      if (!isConfigValid(confluenceUser, "--confluence-user", ENV_CONFLUENCE_USER)) {
+        return false;
+      }
+      if (!isConfigValid(confluenceToken, "--confluence-token", ENV_CONFLUENCE_TOKEN)) {
+        return false;
+      }
     }
-    if (!isConfigValid(confluenceToken, "--confluence-token", ENV_CONFLUENCE_TOKEN)) {
+
+    try {
+      ProgressReporter.Mode.parse(progress);
+    } catch (IllegalArgumentException e) {
+      System.err.println("❌ Error: --progress must be auto, live, lines or off");
       return false;
     }
 
-    // Validate workspace source
-    if (workspaceFile == null) {
+    // Validate workspace source (batch jobs name their own sources)
+    if (workspaceFile == null && workspaceDsl == null && batchFile == null) {
       // Using Structurizr on-premise, validate those parameters
       if (!isConfigValid(
           structurizrUrl,
@@ -344,7 +967,7 @@ public class ExportCommand implements Runnable {
 
     // Space is required for normal export operations unless using page-id which can work without
     // space
-    if (confluenceSpaceKey == null && pageId == null) {
+    if (confluenceSpaceKey == null && pageId == null && batchFile == null) {
       System.err.println(
           "❌ Error: --confluence-space is required (or set "
               + ENV_CONFLUENCE_SPACE_KEY
@@ -396,6 +1019,8 @@ public class ExportCommand implements Runnable {
   private void logConfiguration() {
     if (workspaceFile != null) {
       logger.info("Workspace source: File - {}", workspaceFile.getAbsolutePath());
+    } else if (workspaceDsl != null) {
+      logger.info("Workspace source: DSL - {}", workspaceDsl.getAbsolutePath());
     } else {
       logger.info("Workspace source: Structurizr on-premise - {}", structurizrUrl);
       logger.info("Structurizr workspace ID: {}", structurizrWorkspaceId);
@@ -407,6 +1032,13 @@ public class ExportCommand implements Runnable {
     }
     logger.info("Parent page ID: {}", pageId);
     logger.info("Branch: {}", branchName);
+    if (manifestFile != null || manifestOnPage) {
+      logger.info(
+          "Incremental export manifest: {}{}",
+          manifestFile != null ? manifestFile.getAbsolutePath() : "(none)",
+          manifestOnPage ? " + branch page content property" : "");
+    }
+    logger.info("Export journal: {}{}", journalFile.getAbsolutePath(), resume ? " (resuming)" : "");
   }
 
   private boolean promptForCleanConfirmation(String targetPageTitle, String targetPageId) {
@@ -0,0 +1,164 @@
+package arnaudroubinet.structurizr.confluence.cli;
+
+import arnaudroubinet.structurizr.confluence.workspace.SyntheticWorkspaceGenerator;
+import arnaudroubinet.structurizr.confluence.workspace.SyntheticWorkspaceGenerator.ContentFormat;
+import arnaudroubinet.structurizr.confluence.workspace.SyntheticWorkspaceGenerator.Distribution;
+import com.structurizr.Workspace;
+import com.structurizr.util.WorkspaceUtils;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+/**
+ * Writes a synthetic workspace file for scalability tests, see {@link SyntheticWorkspaceGenerator}.
+ * Hidden: it is a tool for measuring the exporter, not for documenting architectures.
+ */
+@CommandLine.Command(
+    name = "generate-workspace",
+    hidden = true,
+    description = "Generate a synthetic workspace JSON file for scalability testing")
+public class GenerateWorkspaceCommand implements Runnable {
+  private static final Logger logger = LoggerFactory.getLogger(GenerateWorkspaceCommand.class);
+
+  @CommandLine.Option(
+      names = {"-o", "--output"},
+      description = "Workspace JSON file to write",
+      required = true)
+  File output;
+
+  @CommandLine.Option(
+      names = {"--preset"},
+      description = "Base size: small, medium or large (default: small)",
+      defaultValue = "small")
+  String preset;
+
+  @CommandLine.Option(
+      names = {"--seed"},
+      description = "Random seed; the same seed and options give the same workspace",
+      defaultValue = "42")
+  long seed;
+
+  @CommandLine.Option(
+      names = {"--workspace-id"},
+      description = "Workspace ID (default: 1)",
+      defaultValue = "1")
+  long workspaceId;
+
+  @CommandLine.Option(
+      names = {"--sections"},
+      description = "Number of documentation sections (default: from the preset)")
+  Integer sections;
+
+  @CommandLine.Option(
+      names = {"--decisions"},
+      description = "Number of decisions (default: from the preset)")
+  Integer decisions;
+
+  @CommandLine.Option(
+      names = {"--views"},
+      description = "Number of views (default: from the preset)")
+  Integer views;
+
+  @CommandLine.Option(
+      names = {"--blocks"},
+      description = "Mean number of paragraphs, lists, tables... per section")
+  Integer blocks;
+
+  @CommandLine.Option(
+      names = {"--table-rows"},
+      description = "Mean number of table rows")
+  Integer tableRows;
+
+  @CommandLine.Option(
+      names = {"--distribution"},
+      description = "Size distribution: ${COMPLETION-CANDIDATES} (default: LONG_TAIL)")
+  Distribution distribution;
+
+  @CommandLine.Option(
+      names = {"--formats"},
+      split = ",",
+      description = "Content format weights, e.g. markdown=2,asciidoc=1,html=1")
+  Map<String, Integer> formats;
+
+  @CommandLine.Option(
+      names = {"--embeds"},
+      description = "Mean number of embedded diagrams per section")
+  Double embeds;
+
+  @CommandLine.Option(
+      names = {"--external-images"},
+      description = "Mean number of external images per section")
+  Double externalImages;
+
+  @CommandLine.Option(
+      names = {"--cross-links"},
+      description = "Mean number of links to other sections and decisions per section")
+  Double crossLinks;
+
+  @Override
+  public void run() {
+    try {
+      Workspace workspace = createGenerator().generate();
+      Files.writeString(
+          output.toPath(), WorkspaceUtils.toJson(workspace, true), StandardCharsets.UTF_8);
+      System.out.printf(
+          "✅ Generated %s: %d sections, %d decisions, %d views%n",
+          output,
+          workspace.getDocumentation().getSections().size(),
+          workspace.getDocumentation().getDecisions().size(),
+          workspace.getViews().getViews().size());
+    } catch (Exception e) {
+      logger.error("Workspace generation failed: {}", e.getMessage(), e);
+      System.err.println("❌ Workspace generation failed: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  SyntheticWorkspaceGenerator createGenerator() {
+    SyntheticWorkspaceGenerator generator = SyntheticWorkspaceGenerator.preset(preset);
+    generator.setSeed(seed);
+    generator.setWorkspaceId(workspaceId);
+    if (sections != null) {
+      generator.setSections(sections);
+    }
+    if (decisions != null) {
+      generator.setDecisions(decisions);
+    }
+    if (views != null) {
+      generator.setViews(views);
+    }
+    if (blocks != null) {
+      generator.setBlocksPerSection(blocks);
+    }
+    if (tableRows != null) {
+      generator.setTableRows(tableRows);
+    }
+    if (distribution != null) {
+      generator.setDistribution(distribution);
+    }
+    if (formats != null) {
+      for (ContentFormat format : ContentFormat.values()) {
+        generator.setFormatWeight(format, 0);
+      }
+      formats.forEach(
+          (name, weight) ->
+              generator.setFormatWeight(
+                  ContentFormat.valueOf(name.toUpperCase(Locale.ROOT)), weight));
+    }
+    if (embeds != null) {
+      generator.setEmbedsPerSection(embeds);
+    }
+    if (externalImages != null) {
+      generator.setExternalImagesPerSection(externalImages);
+    }
+    if (crossLinks != null) {
+      generator.setCrossLinksPerSection(crossLinks);
+    }
+    return generator;
+  }
+}
@@ -0,0 +1,139 @@
+package arnaudroubinet.structurizr.confluence.cli;
+
+import arnaudroubinet.structurizr.confluence.bundle.BundlePublisher;
+import arnaudroubinet.structurizr.confluence.bundle.PageBundle;
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import arnaudroubinet.structurizr.confluence.client.ConfluenceConfig;
+import arnaudroubinet.structurizr.confluence.metrics.ExportMetrics;
+import arnaudroubinet.structurizr.confluence.scheduler.ExecutionReport;
+import java.io.File;
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+/**
+ * Publishes a bundle written by {@code export --bundle} to Confluence, so that the CPU-heavy
+ * rendering and conversion and the network-heavy publication run on different machines and can be
+ * retried independently.
+ */
+@CommandLine.Command(
+    name = "publish",
+    description = "Publish a bundle written by export --bundle to Confluence")
+public class PublishCommand implements Runnable {
+  private static final Logger logger = LoggerFactory.getLogger(PublishCommand.class);
+
+  private static final String ENV_CONFLUENCE_URL = "CONFLUENCE_URL";
+  private static final String ENV_CONFLUENCE_USER = "CONFLUENCE_USER";
+  private static final String ENV_CONFLUENCE_TOKEN = "CONFLUENCE_TOKEN";
+  private static final String ENV_CONFLUENCE_SPACE_KEY = "CONFLUENCE_SPACE_KEY";
+
+  @CommandLine.Parameters(
+      index = "0",
+      paramLabel = "BUNDLE",
+      description = "Bundle directory or zip file written by export --bundle")
+  File bundleFile;
+
+  @CommandLine.Option(
+      names = {"-u", "--confluence-url"},
+      description = "Confluence base URL (default: CONFLUENCE_URL env var)")
+  String confluenceUrl;
+
+  @CommandLine.Option(
+      names = {"-e", "--confluence-user"},
+      description = "Confluence user email (default: CONFLUENCE_USER env var)")
+  String confluenceUser;
+
+  @CommandLine.Option(
+      names = {"-t", "--confluence-token"},
+      description = "Confluence API token (default: CONFLUENCE_TOKEN env var)")
+  String confluenceToken;
+
+  @CommandLine.Option(
+      names = {"-s", "--confluence-space"},
+      description = "Confluence space key (default: CONFLUENCE_SPACE_KEY env var)")
+  String confluenceSpaceKey;
+
+  @CommandLine.Option(
+      names = {"--page-id"},
+      description =
+          "Parent page ID to publish the bundle under (default: the --page-id of the export)")
+  String pageId;
+
+  @CommandLine.Option(
+      names = {"--parallelism"},
+      description =
+          "Maximum number of Confluence requests (page creations, uploads, page updates) sent at the same time (default: 16)",
+      defaultValue = "16")
+  int parallelism;
+
+  @CommandLine.Option(
+      names = {"--disable-ssl-verification"},
+      description = "Disable SSL certificate verification (useful for self-signed certificates)",
+      defaultValue = "false")
+  boolean disableSslVerification;
+
+  @Override
+  public void run() {
+    try {
+      confluenceUrl = ExportCommand.loadFromEnvIfNull(confluenceUrl, ENV_CONFLUENCE_URL);
+      confluenceUser = ExportCommand.loadFromEnvIfNull(confluenceUser, ENV_CONFLUENCE_USER);
+      confluenceToken = ExportCommand.loadFromEnvIfNull(confluenceToken, ENV_CONFLUENCE_TOKEN);
+      confluenceSpaceKey =
+          ExportCommand.loadFromEnvIfNull(confluenceSpaceKey, ENV_CONFLUENCE_SPACE_KEY);
+
+      if (confluenceUrl == null
+          || confluenceUser == null
+          || confluenceToken == null
+          || confluenceSpaceKey == null) {
+        System.err.println(
+            "❌ Error: --confluence-url, --confluence-user, --confluence-token and --confluence-space are required (or set "
+                + ENV_CONFLUENCE_URL
+                + ", "
+                + ENV_CONFLUENCE_USER
+                + ", "
+                + ENV_CONFLUENCE_TOKEN
+                + " and "
+                + ENV_CONFLUENCE_SPACE_KEY
+                + " environment variables)");
+        System.exit(1);
+        return;
+      }
+      if (parallelism < 1) {
+        System.err.println("❌ Error: --parallelism must be at least 1");
+        System.exit(1);
+        return;
+      }
+      if (disableSslVerification) {
+        System.setProperty("disable.ssl.verification", "true");
+        logger.warn("SSL certificate verification disabled via command line option");
+      }
+
+      ConfluenceClient client =
+          new ConfluenceClient(
+              new ConfluenceConfig(
+                  confluenceUrl, confluenceUser, confluenceToken, confluenceSpaceKey));
+      ExportMetrics metrics = new ExportMetrics();
+      client.setMetrics(metrics);
+      BundlePublisher publisher = new BundlePublisher(client);
+      publisher.setParentPageId(pageId);
+
+      try (PageBundle bundle = PageBundle.open(bundleFile.toPath())) {
+        ExecutionReport report = publisher.publish(bundle, parallelism);
+        System.out.println(
+            "✅ Published "
+                + bundle.getPages().size()
+                + " pages from "
+                + bundle.getPath()
+                + " in "
+                + Duration.ofNanos(report.getWallClockNanos()).toMillis()
+                + " ms");
+      }
+      logger.info("{}", metrics.summary());
+    } catch (Exception e) {
+      logger.error("Publication failed: {}", e.getMessage(), e);
+      System.err.println("❌ Publication failed: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package arnaudroubinet.structurizr.confluence.cli;
+
+import arnaudroubinet.structurizr.confluence.batch.BatchExporter;
+import arnaudroubinet.structurizr.confluence.batch.BatchJob;
+import arnaudroubinet.structurizr.confluence.batch.BatchJobFile;
+import arnaudroubinet.structurizr.confluence.client.ConfluenceConfig;
+import arnaudroubinet.structurizr.confluence.client.StructurizrConfig;
+import arnaudroubinet.structurizr.confluence.metrics.ExportMetrics;
+import arnaudroubinet.structurizr.confluence.server.ExportQueue;
+import arnaudroubinet.structurizr.confluence.server.ExportServer;
+import arnaudroubinet.structurizr.confluence.tracing.ExportTracing;
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+/**
+ * Runs the exporter as a long-running HTTP server. Exports are requested through a REST API or by
+ * Structurizr workspace-change callbacks; browsers, Asciidoctor and Confluence connections stay
+ * warm between exports, and every export after the first of a target is incremental.
+ */
+@CommandLine.Command(
+    name = "serve",
+    description = "Run an export server triggered by REST requests and Structurizr callbacks")
+public class ServeCommand implements Runnable {
+  private static final Logger logger = LoggerFactory.getLogger(ServeCommand.class);
+
+  private static final String ENV_CONFLUENCE_URL = "CONFLUENCE_URL";
+  private static final String ENV_CONFLUENCE_USER = "CONFLUENCE_USER";
+  private static final String ENV_CONFLUENCE_TOKEN = "CONFLUENCE_TOKEN";
+  private static final String ENV_CONFLUENCE_SPACE_KEY = "CONFLUENCE_SPACE_KEY";
+  private static final String ENV_STRUCTURIZR_URL = "STRUCTURIZR_URL";
+  private static final String ENV_STRUCTURIZR_API_KEY = "STRUCTURIZR_API_KEY";
+  private static final String ENV_STRUCTURIZR_API_SECRET = "STRUCTURIZR_API_SECRET";
+  private static final String ENV_SERVER_TOKEN = "EXPORT_SERVER_TOKEN";
+
+  @CommandLine.Option(
+      names = {"-u", "--confluence-url"},
+      description = "Confluence base URL (default: CONFLUENCE_URL env var)")
+  String confluenceUrl;
+
+  @CommandLine.Option(
+      names = {"-e", "--confluence-user"},
+      description = "Confluence user email (default: CONFLUENCE_USER env var)")
+  String confluenceUser;
+
+  @CommandLine.Option(
+      names = {"-t", "--confluence-token"},
+      description = "Confluence API token (default: CONFLUENCE_TOKEN env var)")
+  String confluenceToken;
+
+  @CommandLine.Option(
+      names = {"-s", "--confluence-space"},
+      description = "Confluence space key (default: CONFLUENCE_SPACE_KEY env var)")
+  String confluenceSpaceKey;
+
+  @CommandLine.Option(
+      names = {"--structurizr-url"},
+      description = "Structurizr on-premise URL (default: STRUCTURIZR_URL env var)")
+  String structurizrUrl;
+
+  @CommandLine.Option(
+      names = {"--structurizr-key"},
+      description = "Structurizr API key (default: STRUCTURIZR_API_KEY env var)")
+  String structurizrApiKey;
+
+  @CommandLine.Option(
+      names = {"--structurizr-secret"},
+      description = "Structurizr API secret (default: STRUCTURIZR_API_SECRET env var)")
+  String structurizrApiSecret;
+
+  @CommandLine.Option(
+      names = {"--targets"},
+      description =
+          "Job file (batch format) listing the pages exported when a workspace change callback is received")
+  File targetsFile;
+
+  @CommandLine.Option(
+      names = {"--host"},
+      description = "Address to listen on (default: 0.0.0.0)",
+      defaultValue = "0.0.0.0")
+  String host;
+
+  @CommandLine.Option(
+      names = {"--port"},
+      description = "Port to listen on (default: 8080)",
+      defaultValue = "8080")
+  int port;
+
+  @CommandLine.Option(
+      names = {"--token"},
+      description = "Token required from clients (default: EXPORT_SERVER_TOKEN env var)")
+  String token;
+
+  @CommandLine.Option(
+      names = {"--concurrency"},
+      description = "Maximum number of exports running at the same time (default: 2)",
+      defaultValue = "2")
+  int concurrency;
+
+  @CommandLine.Option(
+      names = {"--state-dir"},
+      description = "Directory of the export manifests and journals (default: target/server)",
+      defaultValue = "target/server")
+  File stateDirectory;
+
+  @CommandLine.Option(
+      names = {"--trace-file"},
+      description =
+          "Trace the exports with OpenTelemetry and write the spans to this file in the OTLP JSON format")
+  File traceFile;
+
+  @CommandLine.Option(
+      names = {"--manifest-on-page"},
+      description = "Also store export manifests as content properties of the branch pages",
+      defaultValue = "false")
+  boolean manifestOnPage;
+
+  @CommandLine.Option(
+      names = {"--parallelism"},
+      description = "Maximum number of tasks running at the same time within each export")
+  Integer parallelism;
+
+  @CommandLine.Option(
+      names = {"--disable-ssl-verification"},
+      description = "Disable SSL certificate verification (useful for self-signed certificates)",
+      defaultValue = "false")
+  boolean disableSslVerification;
+
+  @CommandLine.Option(
+      names = {"--debug"},
+      description = "Enable debug mode for HTTP request/response logging",
+      defaultValue = "false")
+  boolean debugMode;
+
+  @Override
+  public void run() {
+    try {
+      confluenceUrl = ExportCommand.loadFromEnvIfNull(confluenceUrl, ENV_CONFLUENCE_URL);
+      confluenceUser = ExportCommand.loadFromEnvIfNull(confluenceUser, ENV_CONFLUENCE_USER);
+      confluenceToken = ExportCommand.loadFromEnvIfNull(confluenceToken, ENV_CONFLUENCE_TOKEN);
+      confluenceSpaceKey =
+          ExportCommand.loadFromEnvIfNull(confluenceSpaceKey, ENV_CONFLUENCE_SPACE_KEY);
+      structurizrUrl = ExportCommand.loadFromEnvIfNull(structurizrUrl, ENV_STRUCTURIZR_URL);
+      structurizrApiKey =
+          ExportCommand.loadFromEnvIfNull(structurizrApiKey, ENV_STRUCTURIZR_API_KEY);
+      structurizrApiSecret =
+          ExportCommand.loadFromEnvIfNull(structurizrApiSecret, ENV_STRUCTURIZR_API_SECRET);
+      token = ExportCommand.loadFromEnvIfNull(token, ENV_SERVER_TOKEN);
+
+      if (confluenceUrl == null || confluenceUser == null || confluenceToken == null) {
+        System.err.println(
+            "❌ Error: --confluence-url, --confluence-user and --confluence-token are required (or set "
+                + ENV_CONFLUENCE_URL
+                + ", "
+                + ENV_CONFLUENCE_USER
+                + " and "
+                + ENV_CONFLUENCE_TOKEN
+                + " environment variables)");
+        System.exit(1);
+        return;
+      }
+      if (disableSslVerification) {
+        System.setProperty("disable.ssl.verification", "true");
+        logger.warn("SSL certificate verification disabled via command line option");
+      }
+      if (token == null) {
+        logger.warn("No --token set: any client reaching port {} can trigger exports", port);
+      }
+
+      List<BatchJob> targets =
+          targetsFile != null ? BatchJobFile.load(targetsFile.toPath()) : List.of();
+      Files.createDirectories(stateDirectory.toPath());
+      if (traceFile != null) {
+        ExportTracing.enable(traceFile.toPath());
+      }
+
+      ConfluenceConfig confluenceConfig =
+          new ConfluenceConfig(confluenceUrl, confluenceUser, confluenceToken, confluenceSpaceKey);
+      StructurizrConfig structurizrConfig =
+          structurizrUrl != null && structurizrApiKey != null && structurizrApiSecret != null
+              ? new StructurizrConfig(
+                  structurizrUrl, structurizrApiKey, structurizrApiSecret, 0, debugMode)
+              : null;
+
+      BatchExporter batchExporter =
+          new BatchExporter(confluenceConfig, structurizrConfig, concurrency);
+      batchExporter.setManifestDirectory(stateDirectory.toPath());
+      batchExporter.setJournalDirectory(stateDirectory.toPath());
+      batchExporter.setManifestOnPage(manifestOnPage);
+      batchExporter.setParallelism(parallelism);
+      ExportMetrics metrics = new ExportMetrics();
+      batchExporter.setMetrics(metrics);
+      ExportQueue queue = new ExportQueue(concurrency, batchExporter::export);
+      ExportServer server =
+          new ExportServer(new InetSocketAddress(host, port), queue, targets, token);
+      server.setMetrics(metrics);
+
+      CountDownLatch stopped = new CountDownLatch(1);
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(
+                  () -> {
+                    logger.info("Stopping export server");
+                    server.close();
+                    queue.close();
+                    batchExporter.close();
+                    ExportTracing.shutdown();
+                    stopped.countDown();
+                  },
+                  "export-server-shutdown"));
+
+      System.out.println("✅ Export server listening on " + server.getAddress());
+      stopped.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      logger.error("Export server failed: {}", e.getMessage(), e);
+      System.err.println("❌ Export server failed: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+}
@@ -12,7 +12,12 @@ import picocli.CommandLine;
     name = "structurizr-confluence",
     description = "Export Structurizr workspaces to Confluence Cloud",
     mixinStandardHelpOptions = true,
-    subcommands = {ExportCommand.class})
+    subcommands = {
+      ExportCommand.class,
+      PublishCommand.class,
+      ServeCommand.class,
+      GenerateWorkspaceCommand.class
+    })
 public class StructurizrConfluenceCommand {
   // Main entry point - delegates to subcommands
 }
@@ -66,4 +66,17 @@ public interface ConfluenceApi {
   @Path("/rest/api/content/{pageId}/child/attachment")
   Uni<String> getAttachments(
       @PathParam("pageId") String pageId, @QueryParam("filename") String filename);
+
+  @GET
+  @Path("/api/v2/pages/{pageId}/properties")
+  Uni<String> getPageProperties(@PathParam("pageId") String pageId, @QueryParam("key") String key);
+
+  @POST
+  @Path("/api/v2/pages/{pageId}/properties")
+  Uni<String> createPageProperty(@PathParam("pageId") String pageId, String body);
+
+  @PUT
+  @Path("/api/v2/pages/{pageId}/properties/{propertyId}")
+  Uni<String> updatePageProperty(
+      @PathParam("pageId") String pageId, @PathParam("propertyId") String propertyId, String body);
 }
@@ -1,14 +1,20 @@
 package arnaudroubinet.structurizr.confluence.client;
 
+import arnaudroubinet.structurizr.confluence.jfr.ConfluenceRequestEvent;
+import arnaudroubinet.structurizr.confluence.metrics.ExportMetrics;
+import arnaudroubinet.structurizr.confluence.progress.ExportProgress;
+import arnaudroubinet.structurizr.confluence.tracing.ExportTracing;
 import arnaudroubinet.structurizr.confluence.util.SslTrustUtils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.Span;
 import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.inject.Vetoed;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
@@ -27,6 +33,8 @@ public class ConfluenceClient {
   private final ConfluenceConfig config;
   private final ObjectMapper objectMapper;
   private final ConfluenceApi api;
+  private volatile String spaceId;
+  private volatile ExportMetrics metrics = ExportMetrics.disabled();
 
   public ConfluenceClient(ConfluenceConfig config) {
     this.config = config;
@@ -48,9 +56,93 @@ public class ConfluenceClient {
         builder
             .baseUri(normalizeBaseUri(config.getBaseUrl()))
             .register(new AuthHeadersFilter(config.getUsername(), config.getApiToken()))
+            .register(new RequestMetricsFilter(() -> metrics))
+            .register(new RequestTracingFilter())
+            .register(new RequestEventFilter())
             .build(ConfluenceApi.class);
   }
 
+  /**
+   * Creates a client without a REST connection, for subclasses keeping the pages somewhere else
+   * than in Confluence. Such subclasses override every method sending a request.
+   */
+  protected ConfluenceClient() {
+    this.config = null;
+    this.objectMapper = new ObjectMapper();
+    this.api = null;
+  }
+
+  /**
+   * Records every request of this client, by endpoint and status, in the given metrics.
+   *
+   * @param metrics the metrics, or null to stop recording
+   */
+  public void setMetrics(ExportMetrics metrics) {
+    this.metrics = metrics != null ? metrics : ExportMetrics.disabled();
+  }
+
+  /** Returns the metrics requests are recorded in, disabled unless set. */
+  public ExportMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Sends a request the REST client cannot send (multipart uploads) and records it in the metrics,
+   * traces and JFR events like the requests of the REST client.
+   */
+  private HttpResponse<String> sendRecorded(HttpClient client, HttpRequest request)
+      throws IOException, InterruptedException {
+    long start = System.nanoTime();
+    ConfluenceRequestEvent event = new ConfluenceRequestEvent();
+    event.begin();
+    event.requestBytes = request.bodyPublisher().map(BodyPublisher::contentLength).orElse(0L);
+    Span span = RequestTracingFilter.start(request.method(), request.uri());
+    request
+        .bodyPublisher()
+        .ifPresent(body -> span.setAttribute("http.request.body.size", body.contentLength()));
+    HttpResponse<String> response;
+    boolean inFlight = ExportProgress.requestStarted();
+    try {
+      response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    } catch (IOException | InterruptedException e) {
+      ExportTracing.failed(span, e);
+      span.end();
+      throw e;
+    } finally {
+      if (inFlight) {
+        ExportProgress.requestFinished();
+      }
+    }
+    RequestTracingFilter.end(span, response.statusCode());
+    RequestEventFilter.commit(
+        event,
+        request.method(),
+        request.uri().getPath(),
+        response.statusCode(),
+        response.headers().firstValueAsLong("Content-Length").orElse(-1));
+    metrics.recordRequest(
+        request.method(),
+        RequestMetricsFilter.endpoint(request.uri().getPath()),
+        response.statusCode(),
+        System.nanoTime() - start);
+    return response;
+  }
+
+  /**
+   * Sends a request of the REST client and waits for its response, counting it in flight in the
+   * export progress until it ends, with or without a response.
+   */
+  private static <T> T send(Uni<T> request) {
+    boolean inFlight = ExportProgress.requestStarted();
+    try {
+      return request.await().indefinitely();
+    } finally {
+      if (inFlight) {
+        ExportProgress.requestFinished();
+      }
+    }
+  }
+
   private static RestClientBuilder createRestClientBuilder() {
     try {
       Class<?> impl = Class.forName("org.jboss.resteasy.microprofile.client.RestClientBuilderImpl");
@@ -80,20 +172,44 @@ public class ConfluenceClient {
   /** Creates or updates a page in Confluence with ADF content under a specific parent. */
   public String createOrUpdatePage(String title, String adfContent, String parentId)
       throws IOException {
+    return createOrUpdatePageVersioned(title, adfContent, parentId).id();
+  }
+
+  /**
+   * Creates or updates a page and returns its ID together with the resulting version number.
+   *
+   * @param title the page title, used to find an existing page
+   * @param adfContent the ADF content
+   * @param parentId the parent page ID for new pages (may be null)
+   * @return the published page
+   * @throws IOException if the request fails
+   */
+  public PublishedPage createOrUpdatePageVersioned(String title, String adfContent, String parentId)
+      throws IOException {
     // First, check if page exists
     String existingPageId = findPageByTitle(title);
 
     if (existingPageId != null) {
-      return updatePage(existingPageId, title, adfContent);
+      return updatePageVersioned(existingPageId, title, adfContent);
     } else {
       return createPage(title, adfContent, parentId);
     }
   }
 
+  /**
+   * Finds a page ID by title in the configured space.
+   *
+   * @param title the page title
+   * @return the page ID or null if no page has this title
+   * @throws IOException if the request fails
+   */
+  public String findPageIdByTitle(String title) throws IOException {
+    return findPageByTitle(title);
+  }
+
   private String findPageByTitle(String title) throws IOException {
     try {
-      Uni<String> uni = api.findContentByTitle(title, config.getSpaceKey());
-      String responseBody = uni.await().indefinitely();
+      String responseBody = send(api.findContentByTitle(title, config.getSpaceKey()));
       JsonNode responseJson = objectMapper.readTree(responseBody);
       if (responseJson.has("results") && responseJson.get("results").size() > 0) {
         return responseJson.get("results").get(0).get("id").asText();
@@ -122,7 +238,8 @@ public class ConfluenceClient {
     return null;
   }
 
-  private String createPage(String title, String adfContent, String parentId) throws IOException {
+  private PublishedPage createPage(String title, String adfContent, String parentId)
+      throws IOException {
     try {
       String spaceId = getSpaceId();
       Map<String, Object> pageData = new HashMap<>();
@@ -140,20 +257,22 @@ public class ConfluenceClient {
       pageData.put("body", body);
 
       String jsonBody = objectMapper.writeValueAsString(pageData);
-      String responseBody = api.createPage(jsonBody).await().indefinitely();
+      String responseBody = send(api.createPage(jsonBody));
       JsonNode responseJson = objectMapper.readTree(responseBody);
       String pageId = responseJson.get("id").asText();
+      JsonNode versionNode = responseJson.path("version").path("number");
       logger.info("Page created successfully with ID: {}", pageId);
-      return pageId;
+      return new PublishedPage(pageId, versionNode.isInt() ? versionNode.asInt() : 1);
     } catch (Exception e) {
       throw new IOException("Failed to create page", e);
     }
   }
 
-  private String updatePage(String pageId, String title, String adfContent) throws IOException {
+  private PublishedPage updatePageVersioned(String pageId, String title, String adfContent)
+      throws IOException {
     try {
       // Get current page version using API v2
-      String getResponseBody = api.getPageInfo(pageId).await().indefinitely();
+      String getResponseBody = send(api.getPageInfo(pageId));
       int currentVersion;
       String spaceId;
       String parentId = null;
@@ -201,9 +320,9 @@ public class ConfluenceClient {
       pageData.put("body", body);
 
       String jsonBody = objectMapper.writeValueAsString(pageData);
-      api.updatePage(pageId, jsonBody).await().indefinitely();
+      send(api.updatePage(pageId, jsonBody));
       logger.info("Page updated successfully with ID: {}", pageId);
-      return pageId;
+      return new PublishedPage(pageId, currentVersion + 1);
     } catch (Exception e) {
       throw new IOException("Failed to update page", e);
     }
@@ -219,20 +338,39 @@ public class ConfluenceClient {
    * @throws IOException if the update fails
    */
   public String updatePageById(String pageId, String title, String adfContent) throws IOException {
-    return updatePage(pageId, title, adfContent);
+    return updatePageVersioned(pageId, title, adfContent).id();
   }
 
   /**
-   * Gets the space ID from the space key using API v2.
+   * Updates a specific page by ID and returns the new version number.
+   *
+   * @param pageId the ID of the page to update
+   * @param title the new title for the page
+   * @param adfContent the ADF content to set
+   * @return the published page
+   * @throws IOException if the update fails
+   */
+  public PublishedPage updatePageByIdVersioned(String pageId, String title, String adfContent)
+      throws IOException {
+    return updatePageVersioned(pageId, title, adfContent);
+  }
+
+  /**
+   * Gets the space ID from the space key using API v2. It is looked up once and cached, as every
+   * page creation needs it.
    *
    * @return the space ID
    * @throws IOException if the request fails
    */
-  private String getSpaceId() throws IOException {
+  public String getSpaceId() throws IOException {
+    String cached = spaceId;
+    if (cached != null) {
+      return cached;
+    }
     try {
       // Utiliser l'endpoint API v2 pour lister les espaces et filtrer par clé
       logger.info("Getting space ID for space key: {}", config.getSpaceKey());
-      String responseBody = api.listSpacesByKeys(config.getSpaceKey()).await().indefinitely();
+      String responseBody = send(api.listSpacesByKeys(config.getSpaceKey()));
       JsonNode jsonResponse = objectMapper.readTree(responseBody);
       JsonNode results = jsonResponse.get("results");
 
@@ -242,6 +380,7 @@ public class ConfluenceClient {
 
       String spaceId = results.get(0).get("id").asText();
       logger.info("Found space ID: {} for key: {}", spaceId, config.getSpaceKey());
+      this.spaceId = spaceId;
       return spaceId;
     } catch (Exception e) {
       String msg =
@@ -266,7 +405,7 @@ public class ConfluenceClient {
 
       // Utiliser l'endpoint API v2 avec l'ID de l'espace
       logger.info("Listing pages in space: {} (ID: {})", config.getSpaceKey(), spaceId);
-      String responseBody = api.listPages(spaceId, DEFAULT_PAGE_LIMIT).await().indefinitely();
+      String responseBody = send(api.listPages(spaceId, DEFAULT_PAGE_LIMIT));
       logger.info(
           "Response from listing pages: {}",
           responseBody.substring(0, Math.min(LOG_RESPONSE_MAX_LENGTH, responseBody.length())));
@@ -300,7 +439,7 @@ public class ConfluenceClient {
   public void deletePage(String pageId) throws IOException {
     try {
       logger.info("Deleting page with ID: {}", pageId);
-      api.deletePage(pageId).await().indefinitely();
+      send(api.deletePage(pageId));
       logger.info("Successfully deleted page: {}", pageId);
     } catch (Exception e) {
       logger.error("Error deleting page: {}", pageId, e);
@@ -346,7 +485,7 @@ public class ConfluenceClient {
   public List<String> getSpacePageIds(String spaceKey) throws IOException {
     try {
       String spaceId = getSpaceId();
-      String responseBody = api.listPages(spaceId, DEFAULT_PAGE_LIMIT).await().indefinitely();
+      String responseBody = send(api.listPages(spaceId, DEFAULT_PAGE_LIMIT));
       JsonNode jsonResponse = objectMapper.readTree(responseBody);
       JsonNode results = jsonResponse.get("results");
 
@@ -373,7 +512,7 @@ public class ConfluenceClient {
    */
   public String getPageContent(String pageId) throws IOException {
     try {
-      String responseBody = api.getPage(pageId, "atlas_doc_format").await().indefinitely();
+      String responseBody = send(api.getPage(pageId, "atlas_doc_format"));
       JsonNode jsonResponse = objectMapper.readTree(responseBody);
       JsonNode body = jsonResponse.get("body");
       if (body != null && body.get("atlas_doc_format") != null) {
@@ -398,7 +537,7 @@ public class ConfluenceClient {
    */
   public String getPageInfo(String pageId) throws IOException {
     try {
-      String responseBody = api.getPageInfo(pageId).await().indefinitely();
+      String responseBody = send(api.getPageInfo(pageId));
       return responseBody;
     } catch (Exception e) {
       throw new IOException("Error getting page info", e);
@@ -413,7 +552,7 @@ public class ConfluenceClient {
    */
   public boolean pageExists(String pageId) {
     try {
-      api.getPageInfo(pageId).await().indefinitely();
+      send(api.getPageInfo(pageId));
       return true;
     } catch (Exception e) {
       logger.debug("Page with ID {} does not exist: {}", pageId, e.getMessage());
@@ -431,7 +570,7 @@ public class ConfluenceClient {
    */
   private String getExistingAttachmentId(String pageId, String fileName) throws IOException {
     try {
-      String responseBody = api.getAttachments(pageId, fileName).await().indefinitely();
+      String responseBody = send(api.getAttachments(pageId, fileName));
       JsonNode responseJson = objectMapper.readTree(responseBody);
       JsonNode results = responseJson.get("results");
       if (results != null && results.isArray() && results.size() > 0) {
@@ -500,7 +639,7 @@ public class ConfluenceClient {
           SslTrustUtils.shouldDisableSslVerification()
               ? SslTrustUtils.createTrustAllHttpClient()
               : HttpClient.newHttpClient();
-      HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+      HttpResponse<String> response = sendRecorded(client, request);
       String responseBody = response.body();
       if (response.statusCode() == 200) {
         JsonNode jsonResponse = objectMapper.readTree(responseBody);
@@ -583,7 +722,7 @@ public class ConfluenceClient {
           SslTrustUtils.shouldDisableSslVerification()
               ? SslTrustUtils.createTrustAllHttpClient()
               : HttpClient.newHttpClient();
-      HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+      HttpResponse<String> response = sendRecorded(client, request);
       String responseBody = response.body();
       if (response.statusCode() == 200) {
         JsonNode jsonResponse = objectMapper.readTree(responseBody);
@@ -615,8 +754,7 @@ public class ConfluenceClient {
 
     // Fetch attachment details with extensions to get media identifiers
     try {
-      String responseBody =
-          api.getAttachmentWithExtensions(attachmentId, "extensions").await().indefinitely();
+      String responseBody = send(api.getAttachmentWithExtensions(attachmentId, "extensions"));
       JsonNode json = objectMapper.readTree(responseBody);
       String title = json.has("title") ? json.get("title").asText() : fileName;
       String fileId = null;
@@ -649,6 +787,68 @@ public class ConfluenceClient {
     }
   }
 
+  /**
+   * Reads a content property of a page.
+   *
+   * @param pageId the page ID
+   * @param key the property key
+   * @return the property value as JSON, or null if the property does not exist
+   * @throws IOException if the request fails
+   */
+  public JsonNode getPageProperty(String pageId, String key) throws IOException {
+    JsonNode property = findPageProperty(pageId, key);
+    return property != null ? property.get("value") : null;
+  }
+
+  /**
+   * Creates or updates a content property of a page.
+   *
+   * @param pageId the page ID
+   * @param key the property key
+   * @param value the property value
+   * @throws IOException if the request fails
+   */
+  public void setPageProperty(String pageId, String key, JsonNode value) throws IOException {
+    try {
+      JsonNode existing = findPageProperty(pageId, key);
+      Map<String, Object> propertyData = new HashMap<>();
+      propertyData.put("key", key);
+      propertyData.put("value", value);
+      if (existing == null) {
+        send(api.createPageProperty(pageId, objectMapper.writeValueAsString(propertyData)));
+      } else {
+        propertyData.put(
+            "version", Map.of("number", existing.path("version").path("number").asInt() + 1));
+        send(
+            api.updatePageProperty(
+                pageId,
+                existing.get("id").asText(),
+                objectMapper.writeValueAsString(propertyData)));
+      }
+      logger.debug("Content property '{}' saved on page {}", key, pageId);
+    } catch (IOException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException("Failed to save content property '" + key + "' on page " + pageId, e);
+    }
+  }
+
+  private JsonNode findPageProperty(String pageId, String key) throws IOException {
+    try {
+      String responseBody = send(api.getPageProperties(pageId, key));
+      JsonNode results = objectMapper.readTree(responseBody).get("results");
+      if (results != null && results.isArray() && results.size() > 0) {
+        return results.get(0);
+      }
+      return null;
+    } catch (Exception e) {
+      throw new IOException("Failed to read content property '" + key + "' on page " + pageId, e);
+    }
+  }
+
+  /** Record containing the ID and version of a page after it was created or updated. */
+  public static record PublishedPage(String id, int version) {}
+
   /** Record containing attachment details and media identifiers. */
   public static record AttachmentDetails(
       String attachmentId, String filename, String fileId, String collectionName) {}
@@ -749,7 +949,7 @@ public class ConfluenceClient {
    */
   private List<String> getChildPages(String pageId) throws IOException {
     try {
-      String responseBody = api.listChildPages(pageId, 200).await().indefinitely();
+      String responseBody = send(api.listChildPages(pageId, 200));
       JsonNode responseJson = objectMapper.readTree(responseBody);
       List<String> childIds = new ArrayList<>();
 
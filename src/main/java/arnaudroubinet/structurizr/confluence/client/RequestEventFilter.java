@@ -0,0 +1,55 @@
+package arnaudroubinet.structurizr.confluence.client;
+
+import arnaudroubinet.structurizr.confluence.jfr.ConfluenceRequestEvent;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.client.ClientResponseContext;
+import jakarta.ws.rs.client.ClientResponseFilter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Records every Confluence REST request as a JFR event with its endpoint, status and payload sizes.
+ * Does nothing unless a recording enables the event.
+ */
+class RequestEventFilter implements ClientRequestFilter, ClientResponseFilter {
+
+  private static final String EVENT_PROPERTY = RequestEventFilter.class.getName() + ".event";
+
+  @Override
+  public void filter(ClientRequestContext requestContext) {
+    ConfluenceRequestEvent event = new ConfluenceRequestEvent();
+    if (!event.isEnabled()) {
+      return;
+    }
+    event.begin();
+    if (requestContext.getEntity() instanceof String body) {
+      event.requestBytes = body.getBytes(StandardCharsets.UTF_8).length;
+    }
+    requestContext.setProperty(EVENT_PROPERTY, event);
+  }
+
+  @Override
+  public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+    if (requestContext.getProperty(EVENT_PROPERTY) instanceof ConfluenceRequestEvent event) {
+      commit(
+          event,
+          requestContext.getMethod(),
+          requestContext.getUri().getPath(),
+          responseContext.getStatus(),
+          responseContext.getLength());
+    }
+  }
+
+  /** Ends and commits the event of a request with its response. */
+  static void commit(
+      ConfluenceRequestEvent event, String method, String path, int status, long responseBytes) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.method = method;
+      event.endpoint = RequestMetricsFilter.endpoint(path);
+      event.status = status;
+      event.responseBytes = responseBytes;
+      event.commit();
+    }
+  }
+}
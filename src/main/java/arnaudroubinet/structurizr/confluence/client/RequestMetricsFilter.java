@@ -0,0 +1,53 @@
+package arnaudroubinet.structurizr.confluence.client;
+
+import arnaudroubinet.structurizr.confluence.metrics.ExportMetrics;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.client.ClientResponseContext;
+import jakarta.ws.rs.client.ClientResponseFilter;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Times every Confluence REST request and records it in the export metrics by method, endpoint and
+ * status. Endpoints are request paths with page, attachment and property IDs replaced by
+ * placeholders, so that they group requests of the same kind.
+ */
+class RequestMetricsFilter implements ClientRequestFilter, ClientResponseFilter {
+
+  private static final String START_PROPERTY = RequestMetricsFilter.class.getName() + ".start";
+  private static final Pattern ID_SEGMENT = Pattern.compile("/(?:\\d+|att\\d+)(?=/|$)");
+
+  private final Supplier<ExportMetrics> metrics;
+
+  RequestMetricsFilter(Supplier<ExportMetrics> metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void filter(ClientRequestContext requestContext) {
+    requestContext.setProperty(START_PROPERTY, System.nanoTime());
+  }
+
+  @Override
+  public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+    Object start = requestContext.getProperty(START_PROPERTY);
+    if (start instanceof Long startNanos) {
+      metrics
+          .get()
+          .recordRequest(
+              requestContext.getMethod(),
+              endpoint(requestContext.getUri().getPath()),
+              responseContext.getStatus(),
+              System.nanoTime() - startNanos);
+    }
+  }
+
+  /** Returns the path from {@code /api} or {@code /rest} on, with IDs replaced by placeholders. */
+  static String endpoint(String path) {
+    int api = path.indexOf("/api/");
+    int rest = path.indexOf("/rest/");
+    int from = api >= 0 && (rest < 0 || api < rest) ? api : Math.max(rest, 0);
+    return ID_SEGMENT.matcher(path.substring(from)).replaceAll("/{id}");
+  }
+}
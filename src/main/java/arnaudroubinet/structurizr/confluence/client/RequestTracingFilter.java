@@ -0,0 +1,64 @@
+package arnaudroubinet.structurizr.confluence.client;
+
+import arnaudroubinet.structurizr.confluence.tracing.ExportTracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.client.ClientResponseContext;
+import jakarta.ws.rs.client.ClientResponseFilter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Traces every Confluence REST request as a client span, child of the span current when the request
+ * is sent, with the method, endpoint, status and payload sizes. Requests failing without a response
+ * leave their span unfinished, so it is not exported.
+ */
+class RequestTracingFilter implements ClientRequestFilter, ClientResponseFilter {
+
+  private static final String SPAN_PROPERTY = RequestTracingFilter.class.getName() + ".span";
+
+  @Override
+  public void filter(ClientRequestContext requestContext) {
+    if (!ExportTracing.isEnabled()) {
+      return;
+    }
+    Span span = start(requestContext.getMethod(), requestContext.getUri());
+    if (requestContext.getEntity() instanceof String body) {
+      span.setAttribute("http.request.body.size", body.getBytes(StandardCharsets.UTF_8).length);
+    }
+    requestContext.setProperty(SPAN_PROPERTY, span);
+  }
+
+  @Override
+  public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+    if (requestContext.getProperty(SPAN_PROPERTY) instanceof Span span) {
+      if (responseContext.getLength() >= 0) {
+        span.setAttribute("http.response.body.size", responseContext.getLength());
+      }
+      end(span, responseContext.getStatus());
+    }
+  }
+
+  /** Starts the client span of a request. */
+  static Span start(String method, URI uri) {
+    return ExportTracing.tracer()
+        .spanBuilder(method + " " + RequestMetricsFilter.endpoint(uri.getPath()))
+        .setSpanKind(SpanKind.CLIENT)
+        .setAttribute("http.request.method", method)
+        .setAttribute("url.path", uri.getPath())
+        .setAttribute("server.address", String.valueOf(uri.getHost()))
+        .startSpan();
+  }
+
+  /** Ends the client span of a request with its response status, failed for 4xx and 5xx. */
+  static void end(Span span, int status) {
+    span.setAttribute("http.response.status_code", status);
+    if (status >= 400) {
+      span.setStatus(StatusCode.ERROR, "HTTP " + status);
+    }
+    span.end();
+  }
+}
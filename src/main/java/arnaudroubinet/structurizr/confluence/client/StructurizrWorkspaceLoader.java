@@ -2,8 +2,8 @@ package arnaudroubinet.structurizr.confluence.client;
 
 import arnaudroubinet.structurizr.confluence.util.SslTrustUtils;
 import com.structurizr.Workspace;
-import com.structurizr.api.StructurizrClient;
 import com.structurizr.api.StructurizrClientException;
+import com.structurizr.api.WorkspaceApiClient;
 import java.util.logging.Level;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,7 +14,7 @@ public class StructurizrWorkspaceLoader {
   private static final Logger logger = LoggerFactory.getLogger(StructurizrWorkspaceLoader.class);
 
   private final StructurizrConfig config;
-  private final StructurizrClient client;
+  private final WorkspaceApiClient client;
 
   public StructurizrWorkspaceLoader(StructurizrConfig config) throws StructurizrClientException {
     this.config = config;
@@ -35,23 +35,23 @@ public class StructurizrWorkspaceLoader {
       enableHttpLogging();
     }
 
-    // Create StructurizrClient with API URL, key, and secret
+    // Create WorkspaceApiClient with API URL, key, and secret
     if (config.getApiUrl() != null && !config.getApiUrl().isEmpty()) {
-      // Append /api to the URL for StructurizrClient API calls
+      // Append /api to the URL for WorkspaceApiClient API calls
       String apiUrl = config.getApiUrl();
       if (!apiUrl.endsWith("/api") && !apiUrl.endsWith("/api/")) {
         apiUrl = apiUrl.endsWith("/") ? apiUrl + "api" : apiUrl + "/api";
       }
 
-      this.client = new StructurizrClient(apiUrl, config.getApiKey(), config.getApiSecret());
+      this.client = new WorkspaceApiClient(apiUrl, config.getApiKey(), config.getApiSecret());
       if (config.isDebugMode()) {
-        logger.debug("Created StructurizrClient for API URL: {}", apiUrl);
+        logger.debug("Created WorkspaceApiClient for API URL: {}", apiUrl);
       }
     } else {
       // Use default Structurizr cloud URL if no API URL provided
-      this.client = new StructurizrClient(config.getApiKey(), config.getApiSecret());
+      this.client = new WorkspaceApiClient(config.getApiKey(), config.getApiSecret());
       if (config.isDebugMode()) {
-        logger.debug("Created StructurizrClient for Structurizr cloud service");
+        logger.debug("Created WorkspaceApiClient for Structurizr cloud service");
       }
     }
   }
@@ -92,6 +92,11 @@ public class StructurizrWorkspaceLoader {
     }
   }
 
+  /** Returns the ID of the workspace this loader loads. */
+  public long getWorkspaceId() {
+    return config.getWorkspaceId();
+  }
+
   /**
    * Loads a workspace from the Structurizr instance.
    *
@@ -1,9 +1,15 @@
 package arnaudroubinet.structurizr.confluence.exporter;
 
 import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
-import arnaudroubinet.structurizr.confluence.processor.AsciiDocConverter;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest;
+import arnaudroubinet.structurizr.confluence.manifest.PagePublisher;
+import arnaudroubinet.structurizr.confluence.manifest.SourceHashes;
+import arnaudroubinet.structurizr.confluence.processor.AdfConverters;
+import arnaudroubinet.structurizr.confluence.processor.AsciiDocToAdfConverter;
 import arnaudroubinet.structurizr.confluence.processor.HtmlToAdfConverter;
-import arnaudroubinet.structurizr.confluence.processor.MarkdownConverter;
+import arnaudroubinet.structurizr.confluence.processor.MarkdownToAdfConverter;
+import arnaudroubinet.structurizr.confluence.tracing.ExportTracing;
+import arnaudroubinet.structurizr.confluence.workspace.DocumentationContents;
 import com.atlassian.adf.Document;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.structurizr.Workspace;
@@ -25,23 +31,40 @@ public class AdrExporter {
   private static final String FORMAT_MARKDOWN = "Markdown";
   private static final String FORMAT_MARKDOWN_SHORT = "md";
 
+  /** Manifest key of the ADR index page. */
+  public static final String ADR_INDEX_PAGE_KEY = "adr-index";
+
+  /** Manifest key prefix of ADR pages, followed by the decision ID. */
+  public static final String ADR_PAGE_KEY_PREFIX = "adr:";
+
   private final ConfluenceClient confluenceClient;
   private final ObjectMapper objectMapper;
   private final HtmlToAdfConverter htmlToAdfConverter;
-  private final AsciiDocConverter asciiDocConverter;
-  private final MarkdownConverter markdownConverter;
+  private final AsciiDocToAdfConverter asciiDocToAdfConverter;
+  private final MarkdownToAdfConverter markdownToAdfConverter;
+  private volatile DocumentationContents documentationContents = DocumentationContents.INLINE;
 
   public AdrExporter(
       ConfluenceClient confluenceClient,
       ObjectMapper objectMapper,
       HtmlToAdfConverter htmlToAdfConverter,
-      AsciiDocConverter asciiDocConverter,
-      MarkdownConverter markdownConverter) {
+      AsciiDocToAdfConverter asciiDocToAdfConverter,
+      MarkdownToAdfConverter markdownToAdfConverter) {
     this.confluenceClient = confluenceClient;
     this.objectMapper = objectMapper;
     this.htmlToAdfConverter = htmlToAdfConverter;
-    this.asciiDocConverter = asciiDocConverter;
-    this.markdownConverter = markdownConverter;
+    this.asciiDocToAdfConverter = asciiDocToAdfConverter;
+    this.markdownToAdfConverter = markdownToAdfConverter;
+  }
+
+  /**
+   * Reads decision content through the given accessor, e.g. from a {@link
+   * arnaudroubinet.structurizr.confluence.workspace.LazyWorkspace}.
+   *
+   * @param documentationContents access to the decision content
+   */
+  public void setDocumentationContents(DocumentationContents documentationContents) {
+    this.documentationContents = documentationContents;
   }
 
   /**
@@ -54,6 +77,26 @@ public class AdrExporter {
    */
   public void exportDecisions(Workspace workspace, String parentPageId, String branchName)
       throws Exception {
+    exportDecisions(
+        workspace,
+        parentPageId,
+        branchName,
+        new PagePublisher(confluenceClient, new ExportManifest()));
+  }
+
+  /**
+   * Exports all architecture decision records through the given publisher. Decisions whose source
+   * did not change since the export recorded by the publisher's manifest are skipped.
+   *
+   * @param workspace the workspace containing ADRs
+   * @param parentPageId the parent page ID where ADRs will be created
+   * @param branchName the branch name for context
+   * @param publisher the page publisher of the current export
+   * @throws Exception if export fails
+   */
+  public void exportDecisions(
+      Workspace workspace, String parentPageId, String branchName, PagePublisher publisher)
+      throws Exception {
     if (workspace.getDocumentation() == null
         || workspace.getDocumentation().getDecisions().isEmpty()) {
       logger.info("No architecture decision records found in workspace");
@@ -63,35 +106,126 @@ public class AdrExporter {
     Collection<Decision> decisions = workspace.getDocumentation().getDecisions();
     logger.info("Exporting {} architecture decision records", decisions.size());
 
-    // Create main ADR page
+    String adrMainPageId = exportIndex(parentPageId, branchName, publisher);
+
+    // Create individual ADR pages
+    for (Decision decision : decisions) {
+      DecisionPage page = convertDecision(decision, workspace, branchName, publisher);
+      if (page != null) {
+        publishDecision(page, adrMainPageId, publisher);
+      }
+    }
+  }
+
+  /**
+   * An architecture decision record converted to ADF, ready to be published.
+   *
+   * @param key logical page key
+   * @param title page title
+   * @param sourceHash hash of the decision
+   * @param adfJson the page body
+   */
+  public record DecisionPage(String key, String title, String sourceHash, String adfJson) {}
+
+  /**
+   * Creates or updates the ADR index page, parent of the decision pages.
+   *
+   * @param parentPageId the parent page ID
+   * @param branchName the branch name, suffix of the page title
+   * @param publisher the page publisher of the current export
+   * @return the index page ID
+   * @throws Exception if the page cannot be published
+   */
+  public String exportIndex(String parentPageId, String branchName, PagePublisher publisher)
+      throws Exception {
     Document adrMainDoc =
         Document.create()
             .paragraph("This page contains all architecture decision records for this project.");
 
     String adrMainPageTitle = "Architecture Decision Records - " + branchName;
+    String adrMainJson = convertDocumentToJson(adrMainDoc);
+    String adrMainSourceHash = SourceHashes.content(adrMainPageTitle, adrMainJson);
     String adrMainPageId =
-        confluenceClient.createOrUpdatePage(
-            adrMainPageTitle, convertDocumentToJson(adrMainDoc), parentPageId);
+        publisher.reuseIfUnchanged(ADR_INDEX_PAGE_KEY, adrMainSourceHash)
+            ? publisher.pageId(ADR_INDEX_PAGE_KEY)
+            : publisher.publish(
+                ADR_INDEX_PAGE_KEY, adrMainPageTitle, parentPageId, adrMainSourceHash, adrMainJson);
     logger.info("Created/updated main ADR page with ID: {}", adrMainPageId);
+    return adrMainPageId;
+  }
 
-    // Create individual ADR pages
-    for (Decision decision : decisions) {
-      exportDecision(decision, adrMainPageId, workspace, branchName);
-    }
+  /**
+   * Converts a single architecture decision record to ADF, unless its source did not change since
+   * the export recorded by the publisher's manifest.
+   *
+   * @param decision the decision to export
+   * @param workspace the workspace for context
+   * @param branchName the branch name
+   * @param publisher the page publisher of the current export
+   * @return the page to publish, or null when it is unchanged
+   * @throws Exception if conversion fails
+   */
+  public DecisionPage convertDecision(
+      Decision decision, Workspace workspace, String branchName, PagePublisher publisher)
+      throws Exception {
+    return convertDecision(
+        decision,
+        workspace,
+        branchName,
+        publisher,
+        new AdfConverters(htmlToAdfConverter, markdownToAdfConverter, asciiDocToAdfConverter));
   }
 
   /**
-   * Exports a single architecture decision record to Confluence.
+   * Converts a single architecture decision record to ADF with converters of its own, so it can run
+   * next to other conversions.
    *
    * @param decision the decision to export
-   * @param parentPageId the parent page ID
    * @param workspace the workspace for context
    * @param branchName the branch name
-   * @throws Exception if export fails
+   * @param publisher the page publisher of the current export
+   * @param converters the converters of this decision
+   * @return the page to publish, or null when it is unchanged
+   * @throws Exception if conversion fails
    */
-  private void exportDecision(
-      Decision decision, String parentPageId, Workspace workspace, String branchName)
+  public DecisionPage convertDecision(
+      Decision decision,
+      Workspace workspace,
+      String branchName,
+      PagePublisher publisher,
+      AdfConverters converters)
+      throws Exception {
+    return ExportTracing.trace(
+        "convert decision",
+        span -> {
+          span.setAttribute("decision.id", String.valueOf(decision.getId()));
+          DecisionPage page =
+              convertDecisionPage(decision, workspace, branchName, publisher, converters);
+          span.setAttribute("page.unchanged", page == null);
+          if (page != null) {
+            span.setAttribute("page.title", page.title());
+            span.setAttribute("page.body.length", page.adfJson().length());
+          }
+          return page;
+        });
+  }
+
+  private DecisionPage convertDecisionPage(
+      Decision decision,
+      Workspace workspace,
+      String branchName,
+      PagePublisher publisher,
+      AdfConverters converters)
       throws Exception {
+    String pageKey = ADR_PAGE_KEY_PREFIX + decision.getId();
+    String pageTitle = "ADR " + decision.getId() + " - " + decision.getTitle();
+    String content = documentationContents.of(decision);
+    String sourceHash =
+        SourceHashes.decision(pageTitle, decision, content, publisher.getDiagramsHash());
+    if (publisher.reuseIfUnchanged(pageKey, sourceHash)) {
+      return null;
+    }
+
     Document decisionDoc = Document.create();
 
     // Add decision metadata
@@ -111,29 +245,28 @@ public class AdrExporter {
         });
 
     // Add decision content (convert from AsciiDoc/Markdown if needed)
-    if (decision.getContent() != null && !decision.getContent().trim().isEmpty()) {
+    if (content != null && !content.trim().isEmpty()) {
       decisionDoc.h2("Content");
 
       String formatName = decision.getFormat() != null ? decision.getFormat().name() : "";
-      String htmlContent;
+      Document convertedContent;
 
-      if (isAsciiDocFormat(formatName)) {
+      if (isMarkdownFormat(formatName)) {
+        logger.debug("Converting Markdown content for ADR: {}", decision.getTitle());
+        convertedContent = converters.markdown().convertToAdf(content, "Content");
+      } else if (isAsciiDocFormat(formatName)) {
         logger.debug("Converting AsciiDoc content for ADR: {}", decision.getTitle());
         String workspaceId = getWorkspaceId(workspace);
-        htmlContent =
-            asciiDocConverter.convertToHtml(
-                decision.getContent(), "ADR " + decision.getId(), workspaceId, branchName);
-      } else if (isMarkdownFormat(formatName)) {
-        logger.debug("Converting Markdown content for ADR: {}", decision.getTitle());
-        htmlContent = markdownConverter.toHtml(decision.getContent());
+        convertedContent =
+            converters
+                .asciiDoc()
+                .convertToAdf(content, "ADR " + decision.getId(), workspaceId, branchName);
       } else {
         logger.debug(
             "Treating content as HTML for ADR: {} (format: {})", decision.getTitle(), formatName);
-        htmlContent = decision.getContent();
+        // Convert HTML content to structured ADF
+        convertedContent = converters.html().convertToAdf(content, "Content");
       }
-
-      // Convert HTML content to structured ADF
-      Document convertedContent = htmlToAdfConverter.convertToAdf(htmlContent, "Content");
       decisionDoc = combineDocuments(decisionDoc, convertedContent);
     }
 
@@ -152,10 +285,21 @@ public class AdrExporter {
           });
     }
 
-    String pageTitle = "ADR " + decision.getId() + " - " + decision.getTitle();
-    confluenceClient.createOrUpdatePage(
-        pageTitle, convertDocumentToJson(decisionDoc), parentPageId);
-    logger.info("Created/updated ADR page: {}", pageTitle);
+    return new DecisionPage(pageKey, pageTitle, sourceHash, convertDocumentToJson(decisionDoc));
+  }
+
+  /**
+   * Publishes a converted architecture decision record under the ADR index page.
+   *
+   * @param page the converted decision
+   * @param parentPageId the ADR index page ID
+   * @param publisher the page publisher of the current export
+   * @throws Exception if the page cannot be published
+   */
+  public void publishDecision(DecisionPage page, String parentPageId, PagePublisher publisher)
+      throws Exception {
+    publisher.publish(page.key(), page.title(), parentPageId, page.sourceHash(), page.adfJson());
+    logger.info("Created/updated ADR page: {}", page.title());
   }
 
   private boolean isAsciiDocFormat(String formatName) {
@@ -1,10 +1,11 @@
 package arnaudroubinet.structurizr.confluence.exporter;
 
 import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
-import arnaudroubinet.structurizr.confluence.processor.AsciiDocConverter;
+import arnaudroubinet.structurizr.confluence.processor.AsciiDocToAdfConverter;
 import arnaudroubinet.structurizr.confluence.processor.HtmlToAdfConverter;
 import arnaudroubinet.structurizr.confluence.processor.ImageUploadManager;
-import arnaudroubinet.structurizr.confluence.processor.MarkdownConverter;
+import arnaudroubinet.structurizr.confluence.processor.MarkdownToAdfConverter;
+import arnaudroubinet.structurizr.confluence.workspace.DocumentationContents;
 import com.structurizr.Workspace;
 import com.structurizr.documentation.Section;
 import org.slf4j.Logger;
@@ -25,18 +26,29 @@ public class DocumentationSectionExporter {
 
   private final ConfluenceClient confluenceClient;
   private final HtmlToAdfConverter htmlToAdfConverter;
-  private final AsciiDocConverter asciiDocConverter;
-  private final MarkdownConverter markdownConverter;
+  private final AsciiDocToAdfConverter asciiDocToAdfConverter;
+  private final MarkdownToAdfConverter markdownToAdfConverter;
+  private volatile DocumentationContents documentationContents = DocumentationContents.INLINE;
 
   public DocumentationSectionExporter(
       ConfluenceClient confluenceClient,
       HtmlToAdfConverter htmlToAdfConverter,
-      AsciiDocConverter asciiDocConverter,
-      MarkdownConverter markdownConverter) {
+      AsciiDocToAdfConverter asciiDocToAdfConverter,
+      MarkdownToAdfConverter markdownToAdfConverter) {
     this.confluenceClient = confluenceClient;
     this.htmlToAdfConverter = htmlToAdfConverter;
-    this.asciiDocConverter = asciiDocConverter;
-    this.markdownConverter = markdownConverter;
+    this.asciiDocToAdfConverter = asciiDocToAdfConverter;
+    this.markdownToAdfConverter = markdownToAdfConverter;
+  }
+
+  /**
+   * Reads section content through the given accessor, e.g. from a {@link
+   * arnaudroubinet.structurizr.confluence.workspace.LazyWorkspace}.
+   *
+   * @param documentationContents access to the section content
+   */
+  public void setDocumentationContents(DocumentationContents documentationContents) {
+    this.documentationContents = documentationContents;
   }
 
   /**
@@ -79,31 +91,33 @@ public class DocumentationSectionExporter {
       Section section, String parentPageId, Workspace workspace, String branchName)
       throws Exception {
     String filenameFallback = section.getFilename();
-    String content = section.getContent();
+    String content = documentationContents.of(section);
 
-    String htmlContent;
     String formatName = section.getFormat() != null ? section.getFormat().name() : "";
-
-    if (isAsciiDocFormat(formatName)) {
+    boolean markdown = isMarkdownFormat(formatName);
+    boolean asciiDoc = isAsciiDocFormat(formatName);
+
+    // Markdown and AsciiDoc are converted straight from their AST, without an HTML round trip
+    AsciiDocToAdfConverter.Loaded asciiDocDocument = null;
+    String extractedTitle;
+    if (markdown) {
+      logger.debug("Markdown content detected for section (filename: {})", filenameFallback);
+      extractedTitle = markdownToAdfConverter.extractTitle(content);
+    } else if (asciiDoc) {
       logger.debug("Converting AsciiDoc content for section (filename: {})", filenameFallback);
-      String workspaceId = getWorkspaceId(workspace);
-      htmlContent =
-          asciiDocConverter.convertToHtml(content, filenameFallback, workspaceId, branchName);
-    } else if (isMarkdownFormat(formatName)) {
-      logger.debug(
-          "Markdown content detected for section (filename: {}): converting to HTML for title extraction",
-          filenameFallback);
-      htmlContent = markdownConverter.toHtml(content);
+      asciiDocDocument =
+          asciiDocToAdfConverter.load(
+              content, filenameFallback, getWorkspaceId(workspace), branchName);
+      extractedTitle = asciiDocToAdfConverter.extractTitle(asciiDocDocument);
     } else {
       logger.debug(
           "Treating content as HTML for section (filename: {}), format: {}",
           filenameFallback,
           formatName);
-      htmlContent = content;
+      // Extract title from HTML content (first H1) if available
+      extractedTitle = htmlToAdfConverter.extractPageTitleOnly(content);
     }
 
-    // Extract title from HTML content (first H1) if available
-    String extractedTitle = htmlToAdfConverter.extractPageTitleOnly(htmlContent);
     String actualTitle =
         (extractedTitle != null && !extractedTitle.trim().isEmpty())
             ? extractedTitle
@@ -112,6 +126,8 @@ public class DocumentationSectionExporter {
     // Setup image upload manager for this page
     ImageUploadManager imageUploadManager = new ImageUploadManager(confluenceClient);
     htmlToAdfConverter.setImageUploadManager(imageUploadManager);
+    markdownToAdfConverter.setImageUploadManager(imageUploadManager);
+    asciiDocToAdfConverter.setImageUploadManager(imageUploadManager);
 
     // Create page first to get the page ID for image uploads
     String pageTitle = actualTitle;
@@ -121,9 +137,18 @@ public class DocumentationSectionExporter {
 
     // Set page context for image uploads
     htmlToAdfConverter.setCurrentPageId(pageId);
-
-    // Convert HTML to ADF JSON for Confluence with native table support
-    String adfJson = htmlToAdfConverter.convertToAdfJson(htmlContent, actualTitle);
+    markdownToAdfConverter.setCurrentPageId(pageId);
+    asciiDocToAdfConverter.setCurrentPageId(pageId);
+
+    // Convert to ADF JSON for Confluence with native table support
+    String adfJson;
+    if (markdown) {
+      adfJson = markdownToAdfConverter.convertToAdfJson(content, actualTitle);
+    } else if (asciiDoc) {
+      adfJson = asciiDocToAdfConverter.convertToAdfJson(asciiDocDocument, actualTitle);
+    } else {
+      adfJson = htmlToAdfConverter.convertToAdfJson(content, actualTitle);
+    }
 
     // Update page with actual content
     confluenceClient.updatePageById(pageId, pageTitle, adfJson);
@@ -1,6 +1,9 @@
 package arnaudroubinet.structurizr.confluence.exporter;
 
 import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest;
+import arnaudroubinet.structurizr.confluence.manifest.PagePublisher;
+import arnaudroubinet.structurizr.confluence.manifest.SourceHashes;
 import arnaudroubinet.structurizr.confluence.processor.HtmlToAdfConverter;
 import arnaudroubinet.structurizr.confluence.processor.ImageUploadManager;
 import com.atlassian.adf.Document;
@@ -24,6 +27,9 @@ public class ViewExporter {
 
   private static final Logger logger = LoggerFactory.getLogger(ViewExporter.class);
 
+  /** Manifest key of the Views page. */
+  public static final String VIEWS_PAGE_KEY = "views";
+
   private final ConfluenceClient confluenceClient;
   private final ObjectMapper objectMapper;
   private final HtmlToAdfConverter htmlToAdfConverter;
@@ -55,6 +61,20 @@ public class ViewExporter {
    * @throws Exception if export fails
    */
   public void exportAllViewsSinglePage(Workspace workspace, String parentPageId) throws Exception {
+    exportAllViewsSinglePage(workspace, parentPageId, newPublisher());
+  }
+
+  /**
+   * Creates a single "Views" page containing all exported view diagrams, skipping it when the
+   * diagrams did not change since the export recorded by the publisher's manifest.
+   *
+   * @param workspace the workspace
+   * @param parentPageId the parent page ID
+   * @param publisher the page publisher of the current export
+   * @throws Exception if export fails
+   */
+  public void exportAllViewsSinglePage(
+      Workspace workspace, String parentPageId, PagePublisher publisher) throws Exception {
     ViewSet views = workspace.getViews();
     logger.info(
         "[ViewsExport] Single page export (no branch) - counts => SystemLandscape: {} | SystemContext: {} | Container: {} | Component: {} | Deployment: {}",
@@ -64,42 +84,10 @@ public class ViewExporter {
         views.getComponentViews().size(),
         views.getDeploymentViews().size());
 
-    String viewsPageId =
-        confluenceClient.createOrUpdatePage(
-            "Views", "{\"version\":1,\"type\":\"doc\",\"content\":[]}", parentPageId);
-
-    ImageUploadManager imageUploadManager = new ImageUploadManager(confluenceClient);
-    htmlToAdfConverter.setImageUploadManager(imageUploadManager);
-    htmlToAdfConverter.setCurrentPageId(viewsPageId);
-
-    Document viewsDoc = Document.create();
-    String viewsJson = convertDocumentToJson(viewsDoc);
-    ObjectNode viewsNode =
-        objectMapper.readTree(viewsJson) instanceof ObjectNode
-            ? (ObjectNode) objectMapper.readTree(viewsJson)
-            : objectMapper.createObjectNode();
-    ArrayNode viewsContent =
-        viewsNode.has("content") && viewsNode.get("content").isArray()
-            ? (ArrayNode) viewsNode.get("content")
-            : viewsNode.putArray("content");
-
-    addExportedDiagramsToContent(viewsContent);
-
-    int nodeCount = viewsContent.size();
-    logger.info("[ViewsExport] Generated ADF nodes (no branch): {}", nodeCount);
-    if (nodeCount == 0) {
-      logger.warn(
-          "[ViewsExport] No content nodes added to 'Views' page (no branch version). Page will appear empty.");
+    ViewsPage page = prepareViewsPage("Views", parentPageId, publisher);
+    if (page != null) {
+      publishViewsPage(page, publisher);
     }
-
-    String finalViewsJson = objectMapper.writeValueAsString(viewsNode);
-    logger.info(
-        "[ViewsExport] Views page JSON length (no branch): {} chars", finalViewsJson.length());
-    if (logger.isDebugEnabled()) {
-      logger.debug("[ViewsExport] Views page JSON (no branch): {}", finalViewsJson);
-    }
-    confluenceClient.updatePageById(viewsPageId, "Views", finalViewsJson);
-    logger.info("Created/updated single Views page with all diagrams (pageId: {})", viewsPageId);
   }
 
   /**
@@ -113,6 +101,22 @@ public class ViewExporter {
    */
   public void exportAllViewsSinglePage(Workspace workspace, String parentPageId, String branchName)
       throws Exception {
+    exportAllViewsSinglePage(workspace, parentPageId, branchName, newPublisher());
+  }
+
+  /**
+   * Creates the "Views - branch" page through the given publisher, skipping it when the diagrams
+   * did not change since the export recorded by the publisher's manifest.
+   *
+   * @param workspace the workspace
+   * @param parentPageId the parent page ID
+   * @param branchName branch name to add as suffix to page title
+   * @param publisher the page publisher of the current export
+   * @throws Exception if export fails
+   */
+  public void exportAllViewsSinglePage(
+      Workspace workspace, String parentPageId, String branchName, PagePublisher publisher)
+      throws Exception {
     ViewSet views = workspace.getViews();
     logger.info(
         "[ViewsExport] Branch export '{}' - counts => SystemLandscape: {} | SystemContext: {} | Container: {} | Component: {} | Deployment: {}",
@@ -123,15 +127,94 @@ public class ViewExporter {
         views.getComponentViews().size(),
         views.getDeploymentViews().size());
 
-    String viewsPageTitle = "Views - " + branchName;
-    String viewsPageId =
-        confluenceClient.createOrUpdatePage(
-            viewsPageTitle, "{\"version\":1,\"type\":\"doc\",\"content\":[]}", parentPageId);
+    ViewsPage page = prepareViewsPage("Views - " + branchName, parentPageId, publisher);
+    if (page != null) {
+      publishViewsPage(page, publisher);
+    }
+  }
+
+  /**
+   * A Views page whose content is being exported.
+   *
+   * @param title page title
+   * @param parentPageId parent page ID
+   * @param pageId page ID, known before the content so that diagrams can be uploaded to it
+   * @param sourceHash hash of the page inputs
+   * @param imageUploadManager upload manager of the page, caching the uploaded diagrams
+   */
+  public record ViewsPage(
+      String title,
+      String parentPageId,
+      String pageId,
+      String sourceHash,
+      ImageUploadManager imageUploadManager) {}
+
+  /**
+   * First step of a Views page export: returns null when the diagrams did not change since the
+   * previous export, otherwise makes sure the page exists so diagrams can be uploaded to it.
+   *
+   * @param title page title
+   * @param parentPageId parent page ID
+   * @param publisher the page publisher of the current export
+   * @return the page to publish, or null when it is unchanged
+   * @throws Exception if the page cannot be created
+   */
+  public ViewsPage prepareViewsPage(String title, String parentPageId, PagePublisher publisher)
+      throws Exception {
+    String sourceHash = SourceHashes.content(title, publisher.getDiagramsHash());
+    if (publisher.reuseIfUnchanged(VIEWS_PAGE_KEY, sourceHash)) {
+      return null;
+    }
+    String viewsPageId = publisher.ensurePage(VIEWS_PAGE_KEY, title, parentPageId);
 
     ImageUploadManager imageUploadManager = new ImageUploadManager(confluenceClient);
-    htmlToAdfConverter.setImageUploadManager(imageUploadManager);
-    htmlToAdfConverter.setCurrentPageId(viewsPageId);
+    imageUploadManager.setPagePublisher(publisher);
+    return new ViewsPage(title, parentPageId, viewsPageId, sourceHash, imageUploadManager);
+  }
+
+  /**
+   * Returns the diagram images shown on the Views page, without the legend ({@code -key}) images.
+   * Uploading them ahead of {@link #publishViewsPage} lets the uploads run in parallel.
+   *
+   * @return the diagram files, empty when no diagram was exported
+   */
+  public List<File> getViewDiagramFiles() {
+    List<File> files = new ArrayList<>();
+    if (exportedDiagrams != null) {
+      for (File diagramFile : exportedDiagrams) {
+        String filename = diagramFile.getName();
+        if (!filename.endsWith("-key.png") && extractViewKeyFromFilename(filename) != null) {
+          files.add(diagramFile);
+        }
+      }
+    }
+    return files;
+  }
 
+  /**
+   * Last step of a Views page export: converts the diagrams to ADF, uploading those not uploaded
+   * yet through the page's upload manager, and publishes the page.
+   *
+   * @param page the page returned by {@link #prepareViewsPage}
+   * @param publisher the page publisher of the current export
+   * @throws Exception if the page cannot be published
+   */
+  public void publishViewsPage(ViewsPage page, PagePublisher publisher) throws Exception {
+    htmlToAdfConverter.setImageUploadManager(page.imageUploadManager());
+    htmlToAdfConverter.setCurrentPageId(page.pageId());
+    publishViewsPage(page, publisher, htmlToAdfConverter);
+  }
+
+  /**
+   * Publishes a Views page with a converter of its own, so it can run next to other conversions.
+   *
+   * @param page the page returned by {@link #prepareViewsPage}
+   * @param publisher the page publisher of the current export
+   * @param converter converts the diagrams, uploading images through the page's upload manager
+   * @throws Exception if the page cannot be published
+   */
+  public void publishViewsPage(
+      ViewsPage page, PagePublisher publisher, HtmlToAdfConverter converter) throws Exception {
     Document viewsDoc = Document.create();
     String viewsJson = convertDocumentToJson(viewsDoc);
     ObjectNode viewsNode =
@@ -143,26 +226,28 @@ public class ViewExporter {
             ? (ArrayNode) viewsNode.get("content")
             : viewsNode.putArray("content");
 
-    addExportedDiagramsToContent(viewsContent);
+    addExportedDiagramsToContent(viewsContent, converter);
 
     int nodeCount = viewsContent.size();
-    logger.info("[ViewsExport] Generated ADF nodes (branch '{}'): {}", branchName, nodeCount);
+    logger.info("[ViewsExport] Generated ADF nodes ('{}'): {}", page.title(), nodeCount);
     if (nodeCount == 0) {
       logger.warn(
-          "[ViewsExport] No content nodes added to 'Views - {}' page. Page will appear empty.",
-          branchName);
+          "[ViewsExport] No content nodes added to '{}' page. Page will appear empty.",
+          page.title());
     }
 
     String finalViewsJson = objectMapper.writeValueAsString(viewsNode);
     logger.info(
-        "[ViewsExport] Views page JSON length (branch '{}'): {} chars",
-        branchName,
+        "[ViewsExport] Views page JSON length ('{}'): {} chars",
+        page.title(),
         finalViewsJson.length());
     if (logger.isDebugEnabled()) {
-      logger.debug("[ViewsExport] Views page JSON (branch '{}'): {}", branchName, finalViewsJson);
+      logger.debug("[ViewsExport] Views page JSON ('{}'): {}", page.title(), finalViewsJson);
     }
-    confluenceClient.updatePageById(viewsPageId, viewsPageTitle, finalViewsJson);
-    logger.info("Created/updated Views page with branch suffix (pageId: {})", viewsPageId);
+    publisher.publish(
+        VIEWS_PAGE_KEY, page.title(), page.parentPageId(), page.sourceHash(), finalViewsJson);
+    logger.info(
+        "Created/updated page '{}' with all diagrams (pageId: {})", page.title(), page.pageId());
   }
 
   /**
@@ -172,8 +257,9 @@ public class ViewExporter {
    * serialization issues.
    *
    * @param content the ArrayNode to add diagram content to
+   * @param converter converts the combined diagram HTML
    */
-  private void addExportedDiagramsToContent(ArrayNode content) {
+  private void addExportedDiagramsToContent(ArrayNode content, HtmlToAdfConverter converter) {
     if (exportedDiagrams == null) {
       logger.error(
           "[ViewsExport] exportedDiagrams is null - diagram export may have failed; page will be empty");
@@ -223,8 +309,7 @@ public class ViewExporter {
     String combinedHtml = html.toString();
     logger.debug("[ViewsExport] Combined HTML length: {} chars", combinedHtml.length());
     try {
-      String combinedAdfJson =
-          htmlToAdfConverter.convertToAdfJson(combinedHtml, "All Views Diagrams");
+      String combinedAdfJson = converter.convertToAdfJson(combinedHtml, "All Views Diagrams");
       logger.debug("[ViewsExport] Combined ADF JSON length: {} chars", combinedAdfJson.length());
       ObjectNode combinedNode =
           objectMapper.readTree(combinedAdfJson) instanceof ObjectNode
@@ -307,6 +392,13 @@ public class ViewExporter {
     return nameWithoutExt.substring(secondDash + 1);
   }
 
+  /** Publisher without manifest, used when the caller does not track the export. */
+  private PagePublisher newPublisher() {
+    PagePublisher publisher = new PagePublisher(confluenceClient, new ExportManifest());
+    publisher.setDiagramsHash(SourceHashes.diagrams(exportedDiagrams));
+    return publisher;
+  }
+
   private String convertDocumentToJson(Document document) throws Exception {
     return objectMapper.writeValueAsString(document);
   }
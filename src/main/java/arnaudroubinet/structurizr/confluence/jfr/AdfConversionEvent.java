@@ -0,0 +1,43 @@
+package arnaudroubinet.structurizr.confluence.jfr;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** The conversion of documentation content to ADF. */
+@Name("structurizr.confluence.AdfConversion")
+@Label("ADF Conversion")
+@Category("Structurizr Confluence")
+@Description("Conversion of Markdown, AsciiDoc or HTML content to an ADF document")
+public final class AdfConversionEvent extends jdk.jfr.Event {
+
+  @Label("Section")
+  public String section;
+
+  @Label("Format")
+  public String format;
+
+  @Label("Input Characters")
+  public int inputChars;
+
+  @Label("Output Nodes")
+  @Description("Nodes of the ADF document")
+  public int outputNodes;
+
+  /**
+   * Counts the nodes of an ADF document, the document itself excluded.
+   *
+   * @param document the ADF document
+   * @return the number of nodes in its content, recursively
+   */
+  public static int countNodes(JsonNode document) {
+    int nodes = 0;
+    JsonNode content = document.path("content");
+    for (JsonNode node : content) {
+      nodes += 1 + countNodes(node);
+    }
+    return nodes;
+  }
+}
@@ -0,0 +1,34 @@
+package arnaudroubinet.structurizr.confluence.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A Confluence REST request. */
+@Name("structurizr.confluence.ConfluenceRequest")
+@Label("Confluence Request")
+@Category("Structurizr Confluence")
+@Description("Request to the Confluence REST API")
+public final class ConfluenceRequestEvent extends jdk.jfr.Event {
+
+  @Label("Method")
+  public String method;
+
+  @Label("Endpoint")
+  @Description("Request path with IDs replaced by placeholders")
+  public String endpoint;
+
+  @Label("Status")
+  public int status;
+
+  @Label("Request Bytes")
+  @DataAmount
+  public long requestBytes;
+
+  @Label("Response Bytes")
+  @Description("Response size, -1 when unknown")
+  @DataAmount
+  public long responseBytes;
+}
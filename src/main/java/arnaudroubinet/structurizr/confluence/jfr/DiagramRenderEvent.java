@@ -0,0 +1,27 @@
+package arnaudroubinet.structurizr.confluence.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** The rendering of a view to PNG in the browser. */
+@Name("structurizr.confluence.DiagramRender")
+@Label("Diagram Render")
+@Category("Structurizr Confluence")
+@Description("Rendering of a view and its key to PNG")
+public final class DiagramRenderEvent extends jdk.jfr.Event {
+
+  @Label("View Key")
+  public String viewKey;
+
+  @Label("View Type")
+  public String viewType;
+
+  @Label("Pixels")
+  @Description("Width times height of the diagram image")
+  public long pixels;
+
+  @Label("Files")
+  public int files;
+}
@@ -0,0 +1,21 @@
+package arnaudroubinet.structurizr.confluence.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** An export phase: loading the workspace, or one task of the export graph. */
+@Name("structurizr.confluence.ExportPhase")
+@Label("Export Phase")
+@Category("Structurizr Confluence")
+@Description("Loading of a workspace or a task of an export")
+public final class ExportPhaseEvent extends jdk.jfr.Event {
+
+  @Label("Phase")
+  @Description("load, or the task type: render view, upload attachment, create page, ...")
+  public String phase;
+
+  @Label("Task")
+  public String task;
+}
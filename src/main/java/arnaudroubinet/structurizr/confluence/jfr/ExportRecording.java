@@ -0,0 +1,92 @@
+package arnaudroubinet.structurizr.confluence.jfr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Java Flight Recorder recording of a CLI run, with the JDK default settings plus the export
+ * events (phases, Confluence requests, diagram renders, ADF conversions), written to a file when
+ * closed or when the JVM exits.
+ */
+public final class ExportRecording implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ExportRecording.class);
+
+  private static final List<Class<? extends Event>> EVENTS =
+      List.of(
+          ExportPhaseEvent.class,
+          ConfluenceRequestEvent.class,
+          DiagramRenderEvent.class,
+          AdfConversionEvent.class);
+  private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+  private final Recording recording;
+  private final Path file;
+
+  private ExportRecording(Recording recording, Path file) {
+    this.recording = recording;
+    this.file = file;
+  }
+
+  /**
+   * Starts a recording.
+   *
+   * @param file the recording file
+   * @return the running recording
+   * @throws IOException if the file cannot be created
+   */
+  public static ExportRecording start(Path file) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Recording recording;
+    try {
+      recording = new Recording(Configuration.getConfiguration("default"));
+    } catch (ParseException e) {
+      throw new IOException("Cannot read the default JFR settings", e);
+    }
+    recording.setName("structurizr-confluence");
+    for (Class<? extends Event> event : EVENTS) {
+      recording.enable(event).withoutThreshold();
+    }
+    recording.setDestination(file);
+    recording.setDumpOnExit(true);
+    recording.start();
+    logger.info("Recording the run with JFR to {}", file.toAbsolutePath());
+    return new ExportRecording(recording, file);
+  }
+
+  /**
+   * Returns a timestamped recording file in the given directory.
+   *
+   * @param directory the directory of the export outputs
+   * @return the recording file
+   */
+  public static Path defaultFile(Path directory) {
+    return directory.resolve(
+        "structurizr-confluence-" + LocalDateTime.now().format(TIMESTAMP) + ".jfr");
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  /** Stops the recording and writes it to its file. */
+  @Override
+  public void close() {
+    recording.stop();
+    recording.close();
+    logger.info("JFR recording written to {}", file.toAbsolutePath());
+  }
+}
@@ -0,0 +1,68 @@
+package arnaudroubinet.structurizr.confluence.manifest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Incremental SHA-256 hash over the inputs of a published page or attachment. Each part is
+ * length-prefixed so that {@code add("ab").add("c")} and {@code add("a").add("bc")} differ.
+ */
+public final class ContentHasher {
+
+  private final MessageDigest digest;
+
+  public ContentHasher() {
+    try {
+      this.digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  /** Adds a string part; null is distinct from the empty string. */
+  public ContentHasher add(String value) {
+    if (value == null) {
+      digest.update((byte) 0);
+      return this;
+    }
+    digest.update((byte) 1);
+    return add(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Adds a binary part. */
+  public ContentHasher add(byte[] bytes) {
+    int length = bytes.length;
+    digest.update(
+        new byte[] {
+          (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length
+        });
+    digest.update(bytes);
+    return this;
+  }
+
+  /** Adds the name and content of a file. */
+  public ContentHasher add(File file) throws IOException {
+    add(file.getName());
+    return add(Files.readAllBytes(file.toPath()));
+  }
+
+  /** Returns the lowercase hexadecimal digest. The hasher must not be reused afterwards. */
+  public String hex() {
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /** Hashes a single string. */
+  public static String sha256(String value) {
+    return new ContentHasher().add(value).hex();
+  }
+
+  /** Hashes a single byte array. */
+  public static String sha256(byte[] bytes) {
+    return new ContentHasher().add(bytes).hex();
+  }
+}
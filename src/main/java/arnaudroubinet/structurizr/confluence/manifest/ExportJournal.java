@@ -0,0 +1,357 @@
+package arnaudroubinet.structurizr.confluence.manifest;
+
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest.AttachmentEntry;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest.PageEntry;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only journal of the units of work completed by an export: rendered diagrams, uploaded
+ * attachments and published pages. Each step is written as one JSON line as soon as it completes,
+ * so that an export interrupted by a failure can be resumed without redoing them.
+ *
+ * <p>On resume, journaled pages and attachments are laid over the previous {@link ExportManifest},
+ * where their source and content hashes let {@link PagePublisher} skip them, and journaled diagrams
+ * are reused as long as the diagram inputs of the workspace did not change and the files on disk
+ * still match. The journal is deleted once the export completes.
+ */
+public class ExportJournal implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ExportJournal.class);
+
+  static final String START = "start";
+  static final String PAGE = "page";
+  static final String ATTACHMENT = "attachment";
+  static final String DIAGRAM = "diagram";
+
+  private final Path file;
+  private final boolean resume;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Map<String, PageEntry> resumedPages = new LinkedHashMap<>();
+  private final List<AttachmentEntry> resumedAttachments = new ArrayList<>();
+  private final Map<String, List<DiagramFile>> resumedDiagrams = new HashMap<>();
+  private BufferedWriter writer;
+  private boolean resuming;
+
+  /**
+   * A line of the journal. Only the fields relevant to its type are set.
+   *
+   * @param type one of {@code start}, {@code page}, {@code attachment} or {@code diagram}
+   * @param formatVersion manifest format version ({@code start})
+   * @param branch branch name ({@code start})
+   * @param parentPageId parent page ID ({@code start})
+   * @param diagramInputsHash hash of the workspace inputs of the diagrams ({@code start})
+   * @param key page key ({@code page}) or view key ({@code diagram})
+   * @param page the published page ({@code page})
+   * @param attachment the uploaded attachment ({@code attachment})
+   * @param files the rendered files ({@code diagram})
+   */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  record Entry(
+      String type,
+      Integer formatVersion,
+      String branch,
+      String parentPageId,
+      String diagramInputsHash,
+      String key,
+      PageEntry page,
+      AttachmentEntry attachment,
+      List<DiagramFile> files) {}
+
+  /**
+   * A rendered diagram file.
+   *
+   * @param path file path
+   * @param hash hash of the file content
+   */
+  record DiagramFile(String path, String hash) {}
+
+  /**
+   * Creates a journal.
+   *
+   * @param file the journal file
+   * @param resume whether a journal left by an interrupted export should be resumed
+   */
+  public ExportJournal(Path file, boolean resume) {
+    this.file = file;
+    this.resume = resume;
+  }
+
+  /**
+   * Opens the journal for an export. When resuming and the existing journal was written for the
+   * same target, its steps are loaded and new steps are appended; otherwise the journal is started
+   * over.
+   *
+   * @param branch branch name
+   * @param parentPageId parent page ID (may be null)
+   * @param diagramInputsHash hash of the workspace inputs of the diagrams, see {@link
+   *     SourceHashes#diagramInputs}
+   * @throws IOException if the journal cannot be written
+   */
+  public synchronized void open(String branch, String parentPageId, String diagramInputsHash)
+      throws IOException {
+    close();
+    resumedPages.clear();
+    resumedAttachments.clear();
+    resumedDiagrams.clear();
+    resuming = resume && load(branch, parentPageId, diagramInputsHash);
+
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    if (resuming) {
+      writer =
+          Files.newBufferedWriter(
+              file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      logger.info(
+          "Resuming export from journal {}: {} pages, {} attachments and {} diagrams already done",
+          file,
+          resumedPages.size(),
+          resumedAttachments.size(),
+          resumedDiagrams.size());
+    } else {
+      writer =
+          Files.newBufferedWriter(
+              file,
+              StandardCharsets.UTF_8,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE);
+      append(
+          new Entry(
+              START,
+              ExportManifest.FORMAT_VERSION,
+              branch,
+              parentPageId,
+              diagramInputsHash,
+              null,
+              null,
+              null,
+              null));
+    }
+  }
+
+  /** Returns true if the journal of an interrupted export is being resumed. */
+  public synchronized boolean isResuming() {
+    return resuming;
+  }
+
+  /**
+   * Lays the pages and attachments of the resumed export over the previous manifest, so that steps
+   * already done are skipped when their inputs did not change.
+   *
+   * @param previous the manifest of the previous export
+   */
+  public synchronized void applyTo(ExportManifest previous) {
+    resumedPages.forEach(previous::putPage);
+    resumedAttachments.forEach(previous::putAttachment);
+  }
+
+  /**
+   * Returns the files rendered for a view by the resumed export, or null when the view has to be
+   * rendered again (not journaled, or a file is missing or was modified).
+   *
+   * @param viewKey the view key
+   * @return the diagram files or null
+   */
+  public List<File> diagram(String viewKey) {
+    List<DiagramFile> files;
+    synchronized (this) {
+      files = resumedDiagrams.get(viewKey);
+    }
+    if (files == null) {
+      return null;
+    }
+    List<File> result = new ArrayList<>(files.size());
+    for (DiagramFile diagramFile : files) {
+      File f = new File(diagramFile.path());
+      try {
+        if (!f.isFile()
+            || !diagramFile.hash().equals(ContentHasher.sha256(Files.readAllBytes(f.toPath())))) {
+          return null;
+        }
+      } catch (IOException e) {
+        return null;
+      }
+      result.add(f);
+    }
+    return result;
+  }
+
+  /** Journals a page created or published. */
+  public void recordPage(String key, PageEntry entry) {
+    append(new Entry(PAGE, null, null, null, null, key, entry, null, null));
+  }
+
+  /** Journals an attachment uploaded. */
+  public void recordAttachment(AttachmentEntry entry) {
+    append(new Entry(ATTACHMENT, null, null, null, null, null, null, entry, null));
+  }
+
+  /**
+   * Journals the files rendered for a view.
+   *
+   * @param viewKey the view key
+   * @param files the rendered files
+   */
+  public void recordDiagram(String viewKey, List<File> files) {
+    List<DiagramFile> diagramFiles = new ArrayList<>(files.size());
+    for (File f : files) {
+      try {
+        diagramFiles.add(
+            new DiagramFile(f.getPath(), ContentHasher.sha256(Files.readAllBytes(f.toPath()))));
+      } catch (IOException e) {
+        logger.warn("Cannot hash diagram {}, not journaled: {}", f, e.getMessage());
+        return;
+      }
+    }
+    append(new Entry(DIAGRAM, null, null, null, null, viewKey, null, null, diagramFiles));
+  }
+
+  /** Deletes the journal once the export completed, so that the next export starts over. */
+  public synchronized void complete() {
+    close();
+    resuming = false;
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      logger.warn("Cannot delete export journal {}: {}", file, e.getMessage());
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.close();
+    } catch (IOException e) {
+      logger.warn("Cannot close export journal {}: {}", file, e.getMessage());
+    }
+    writer = null;
+  }
+
+  /**
+   * Returns true if a journal left by an interrupted export will be resumed, before it is opened.
+   * Lets startup skip work the resumed export may not need, such as launching the browser.
+   */
+  public boolean isResumeRequested() {
+    return resume && hasInterruptedExport();
+  }
+
+  /**
+   * Returns true if an export using this journal was interrupted, before it is opened: the journal
+   * is only deleted once an export completes, so the pages may be partly updated.
+   */
+  public boolean hasInterruptedExport() {
+    return Files.exists(file);
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  /** Writes one line and flushes it, so the step survives a crash of the export. */
+  private synchronized void append(Entry entry) {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.write(objectMapper.writeValueAsString(entry));
+      writer.newLine();
+      writer.flush();
+    } catch (IOException e) {
+      // The journal only speeds up a resume, it must not fail the export
+      logger.warn("Cannot write to export journal {}: {}", file, e.getMessage());
+    }
+  }
+
+  /** Loads the journal of an interrupted export, returning false if it cannot be resumed. */
+  private boolean load(String branch, String parentPageId, String diagramInputsHash) {
+    if (!Files.isRegularFile(file)) {
+      logger.info("No export journal found at {}, starting a full export", file);
+      return false;
+    }
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      logger.warn("Cannot read export journal {}: {}", file, e.getMessage());
+      return false;
+    }
+
+    Entry start = lines.isEmpty() ? null : parse(lines.get(0));
+    if (start == null
+        || !START.equals(start.type())
+        || !Objects.equals(start.formatVersion(), ExportManifest.FORMAT_VERSION)
+        || !Objects.equals(start.branch(), branch)
+        || !Objects.equals(start.parentPageId(), parentPageId)) {
+      logger.warn("Export journal {} was written for another export target, ignoring it", file);
+      return false;
+    }
+    boolean sameDiagramInputs =
+        diagramInputsHash != null && diagramInputsHash.equals(start.diagramInputsHash());
+    if (!sameDiagramInputs) {
+      logger.info(
+          "Workspace views changed since the interrupted export, diagrams will be rendered");
+    }
+
+    for (int i = 1; i < lines.size(); i++) {
+      Entry entry = parse(lines.get(i));
+      if (entry == null) {
+        // Typically the last line, cut short by the failure
+        continue;
+      }
+      switch (entry.type()) {
+        case PAGE -> {
+          if (entry.key() != null && entry.page() != null) {
+            resumedPages.put(entry.key(), entry.page());
+          }
+        }
+        case ATTACHMENT -> {
+          if (entry.attachment() != null) {
+            resumedAttachments.add(entry.attachment());
+          }
+        }
+        case DIAGRAM -> {
+          if (sameDiagramInputs && entry.key() != null && entry.files() != null) {
+            resumedDiagrams.put(entry.key(), entry.files());
+          }
+        }
+        default -> logger.debug("Ignoring journal entry of type {}", entry.type());
+      }
+    }
+    return true;
+  }
+
+  private Entry parse(String line) {
+    if (line.isBlank()) {
+      return null;
+    }
+    try {
+      return objectMapper.readValue(line, Entry.class);
+    } catch (IOException e) {
+      logger.debug("Ignoring unreadable journal line: {}", e.getMessage());
+      return null;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package arnaudroubinet.structurizr.confluence.manifest;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Record of what a previous export published: for each page its Confluence ID, version, source hash
+ * and ADF hash, and for each attachment its content hash and media identifiers. The next export
+ * compares the workspace against it to touch only what changed.
+ *
+ * <p>Pages are keyed by a logical key (for example {@code documentation} or {@code adr:1}) that is
+ * stable across runs, independently of the Confluence title.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ExportManifest {
+
+  /** Bumped whenever the page layout or hashing changes, invalidating older manifests. */
+  public static final int FORMAT_VERSION = 1;
+
+  private int formatVersion = FORMAT_VERSION;
+  private String branch;
+  private String parentPageId;
+  private String workspaceHash;
+  private String workspaceRevision;
+  private Map<String, PageEntry> pages = new LinkedHashMap<>();
+  private Map<String, AttachmentEntry> attachments = new LinkedHashMap<>();
+
+  public ExportManifest() {}
+
+  public ExportManifest(String branch, String parentPageId) {
+    this.branch = branch;
+    this.parentPageId = parentPageId;
+  }
+
+  /**
+   * A page published by an export.
+   *
+   * @param id Confluence page ID
+   * @param title page title
+   * @param version page version after the last update
+   * @param sourceHash hash of the workspace inputs of the page (null for placeholders)
+   * @param adfHash hash of the ADF body last sent to Confluence (null for placeholders)
+   */
+  public record PageEntry(
+      String id, String title, int version, String sourceHash, String adfHash) {}
+
+  /**
+   * An attachment uploaded by an export.
+   *
+   * @param pageId the page holding the attachment
+   * @param filename the attachment filename
+   * @param hash hash of the uploaded bytes
+   * @param fileId media file ID used by ADF media nodes (may be null)
+   * @param collectionName media collection used by ADF media nodes (may be null)
+   */
+  public record AttachmentEntry(
+      String pageId, String filename, String hash, String fileId, String collectionName) {}
+
+  /** Returns true if this manifest was written for the given export target. */
+  public boolean matches(String branch, String parentPageId) {
+    return formatVersion == FORMAT_VERSION
+        && Objects.equals(this.branch, branch)
+        && Objects.equals(this.parentPageId, parentPageId);
+  }
+
+  public synchronized PageEntry page(String key) {
+    return pages.get(key);
+  }
+
+  public synchronized void putPage(String key, PageEntry entry) {
+    pages.put(key, entry);
+  }
+
+  public synchronized AttachmentEntry attachment(String pageId, String filename) {
+    return attachments.get(attachmentKey(pageId, filename));
+  }
+
+  public synchronized void putAttachment(AttachmentEntry entry) {
+    attachments.put(attachmentKey(entry.pageId(), entry.filename()), entry);
+  }
+
+  /** Returns the attachments recorded for a page. */
+  public synchronized List<AttachmentEntry> attachmentsOf(String pageId) {
+    List<AttachmentEntry> result = new ArrayList<>();
+    for (AttachmentEntry entry : attachments.values()) {
+      if (entry.pageId().equals(pageId)) {
+        result.add(entry);
+      }
+    }
+    return result;
+  }
+
+  @JsonIgnore
+  public synchronized boolean isEmpty() {
+    return pages.isEmpty();
+  }
+
+  public int getFormatVersion() {
+    return formatVersion;
+  }
+
+  public void setFormatVersion(int formatVersion) {
+    this.formatVersion = formatVersion;
+  }
+
+  public String getBranch() {
+    return branch;
+  }
+
+  public void setBranch(String branch) {
+    this.branch = branch;
+  }
+
+  public String getParentPageId() {
+    return parentPageId;
+  }
+
+  public void setParentPageId(String parentPageId) {
+    this.parentPageId = parentPageId;
+  }
+
+  /**
+   * Hash of the whole exported workspace (see {@link SourceHashes#workspace}), recorded only when
+   * the export completed with its diagrams, so that an export of an identical workspace can be
+   * skipped.
+   */
+  public String getWorkspaceHash() {
+    return workspaceHash;
+  }
+
+  public void setWorkspaceHash(String workspaceHash) {
+    this.workspaceHash = workspaceHash;
+  }
+
+  /** Structurizr revision and last modification date of the exported workspace, for logs. */
+  public String getWorkspaceRevision() {
+    return workspaceRevision;
+  }
+
+  public void setWorkspaceRevision(String workspaceRevision) {
+    this.workspaceRevision = workspaceRevision;
+  }
+
+  public synchronized Map<String, PageEntry> getPages() {
+    return new LinkedHashMap<>(pages);
+  }
+
+  public synchronized void setPages(Map<String, PageEntry> pages) {
+    this.pages = new LinkedHashMap<>(pages);
+  }
+
+  public synchronized Map<String, AttachmentEntry> getAttachments() {
+    return new LinkedHashMap<>(attachments);
+  }
+
+  public synchronized void setAttachments(Map<String, AttachmentEntry> attachments) {
+    this.attachments = new LinkedHashMap<>(attachments);
+  }
+
+  private static String attachmentKey(String pageId, String filename) {
+    return pageId + "/" + filename;
+  }
+}
@@ -0,0 +1,218 @@
+package arnaudroubinet.structurizr.confluence.manifest;
+
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads and saves the {@link ExportManifest}, in a local JSON file and optionally as a content
+ * property on the branch page so that other machines (e.g. CI runners) can share it. The local file
+ * wins when both exist. On the page, the manifest is gzipped, base64-encoded and split over {@link
+ * #PROPERTY_KEY} and, above the property size limit, numbered properties ({@code <key>.1}, {@code
+ * <key>.2}, ...). Manifests stored as plain JSON by earlier versions are still read.
+ */
+public class ExportManifestStore {
+
+  private static final Logger logger = LoggerFactory.getLogger(ExportManifestStore.class);
+
+  /** Content property key used on the branch page. */
+  public static final String PROPERTY_KEY = "structurizr-confluence-export-manifest";
+
+  /** Confluence rejects content property values above this size. */
+  static final int MAX_PROPERTY_LENGTH = 32_000;
+
+  /** Most properties a manifest is spread over, about 1.5 MB once compressed. */
+  static final int MAX_PROPERTY_PARTS = 50;
+
+  /** Encoded characters per property, leaving room for the JSON around them. */
+  private static final int PART_LENGTH = MAX_PROPERTY_LENGTH - 200;
+
+  private static final String ENCODING_FIELD = "encoding";
+  private static final String PARTS_FIELD = "parts";
+  private static final String DATA_FIELD = "data";
+  private static final String GZIP_BASE64 = "gzip+base64";
+
+  private final Path file;
+  private final ConfluenceClient confluenceClient;
+  private final boolean useContentProperty;
+  private final ObjectMapper objectMapper =
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  /**
+   * Creates a store.
+   *
+   * @param file local manifest file (may be null when only the content property is used)
+   * @param confluenceClient client used for the content property (may be null when unused)
+   * @param useContentProperty whether to also read and write the branch page content property
+   */
+  public ExportManifestStore(
+      Path file, ConfluenceClient confluenceClient, boolean useContentProperty) {
+    this.file = file;
+    this.confluenceClient = confluenceClient;
+    this.useContentProperty = useContentProperty && confluenceClient != null;
+  }
+
+  /**
+   * Loads the manifest of the previous export to the given target. Returns an empty manifest when
+   * none is found, when it cannot be read, or when it was written for another branch or parent.
+   *
+   * @param branch branch name (also the branch page title)
+   * @param parentPageId parent page ID (may be null)
+   * @return the previous manifest, possibly empty
+   */
+  public ExportManifest load(String branch, String parentPageId) {
+    ExportManifest manifest = loadFromFile();
+    if (manifest == null && useContentProperty) {
+      manifest = loadFromProperty(branch);
+    }
+    if (manifest == null) {
+      logger.info("No export manifest found, all pages will be published");
+      return new ExportManifest(branch, parentPageId);
+    }
+    if (!manifest.matches(branch, parentPageId)) {
+      logger.warn(
+          "Export manifest was written for branch '{}' under parent '{}' (format {}), ignoring it",
+          manifest.getBranch(),
+          manifest.getParentPageId(),
+          manifest.getFormatVersion());
+      return new ExportManifest(branch, parentPageId);
+    }
+    logger.info("Loaded export manifest with {} pages", manifest.getPages().size());
+    return manifest;
+  }
+
+  /**
+   * Saves the manifest locally and, if enabled, on the branch page.
+   *
+   * @param manifest the manifest to save
+   * @param branchPageId the branch page ID holding the content property
+   * @throws IOException if the local file cannot be written, or if the manifest is too large to be
+   *     stored on the page even compressed
+   */
+  public void save(ExportManifest manifest, String branchPageId) throws IOException {
+    if (file != null) {
+      Path parent = file.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+      objectMapper.writeValue(temp.toFile(), manifest);
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      logger.info("Export manifest saved to {}", file);
+    }
+    if (useContentProperty && branchPageId != null) {
+      List<String> parts = encode(manifest);
+      if (parts.size() > MAX_PROPERTY_PARTS) {
+        throw new IOException(
+            "Export manifest needs "
+                + parts.size()
+                + " content properties once compressed, above the limit of "
+                + MAX_PROPERTY_PARTS
+                + "; keep it in a local file instead");
+      }
+      try {
+        // The first property, which tells how many parts follow, is written last: a write failing
+        // halfway leaves parts that fail the gzip check, and the next export publishes every page.
+        for (int i = parts.size() - 1; i >= 0; i--) {
+          ObjectNode value = objectMapper.createObjectNode();
+          if (i == 0) {
+            value.put(ENCODING_FIELD, GZIP_BASE64);
+            value.put(PARTS_FIELD, parts.size());
+          }
+          value.put(DATA_FIELD, parts.get(i));
+          confluenceClient.setPageProperty(branchPageId, partKey(i), value);
+        }
+        logger.info(
+            "Export manifest stored on branch page {} in {} properties",
+            branchPageId,
+            parts.size());
+      } catch (IOException e) {
+        logger.warn("Failed to store export manifest on page {}: {}", branchPageId, e.getMessage());
+      }
+    }
+  }
+
+  private ExportManifest loadFromFile() {
+    if (file == null || !Files.isRegularFile(file)) {
+      return null;
+    }
+    try {
+      return objectMapper.readValue(file.toFile(), ExportManifest.class);
+    } catch (IOException e) {
+      logger.warn("Cannot read export manifest {}: {}", file, e.getMessage());
+      return null;
+    }
+  }
+
+  private ExportManifest loadFromProperty(String branchPageTitle) {
+    try {
+      String branchPageId = confluenceClient.findPageIdByTitle(branchPageTitle);
+      if (branchPageId == null) {
+        return null;
+      }
+      JsonNode value = confluenceClient.getPageProperty(branchPageId, PROPERTY_KEY);
+      return value != null ? decode(branchPageId, value) : null;
+    } catch (IOException e) {
+      logger.warn(
+          "Cannot read export manifest from page '{}': {}", branchPageTitle, e.getMessage());
+      return null;
+    }
+  }
+
+  private static String partKey(int index) {
+    return index == 0 ? PROPERTY_KEY : PROPERTY_KEY + "." + index;
+  }
+
+  /** Gzips the manifest JSON and splits its base64 encoding into property-sized parts. */
+  private List<String> encode(ExportManifest manifest) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT).writeValue(gzip, manifest);
+    }
+    String encoded = Base64.getEncoder().encodeToString(compressed.toByteArray());
+    List<String> parts = new ArrayList<>();
+    for (int start = 0; start < encoded.length(); start += PART_LENGTH) {
+      parts.add(encoded.substring(start, Math.min(encoded.length(), start + PART_LENGTH)));
+    }
+    return parts;
+  }
+
+  private ExportManifest decode(String branchPageId, JsonNode value) throws IOException {
+    if (!GZIP_BASE64.equals(value.path(ENCODING_FIELD).asText())) {
+      return objectMapper.treeToValue(value, ExportManifest.class);
+    }
+    StringBuilder encoded = new StringBuilder(value.path(DATA_FIELD).asText());
+    int parts = value.path(PARTS_FIELD).asInt(1);
+    for (int i = 1; i < parts; i++) {
+      JsonNode part = confluenceClient.getPageProperty(branchPageId, partKey(i));
+      if (part == null) {
+        throw new IOException("Export manifest property " + partKey(i) + " is missing");
+      }
+      encoded.append(part.path(DATA_FIELD).asText());
+    }
+    byte[] compressed;
+    try {
+      compressed = Base64.getDecoder().decode(encoded.toString());
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Export manifest property is not valid base64", e);
+    }
+    try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      return objectMapper.readValue(gzip, ExportManifest.class);
+    }
+  }
+}
@@ -0,0 +1,321 @@
+package arnaudroubinet.structurizr.confluence.manifest;
+
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient.PublishedPage;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest.AttachmentEntry;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest.PageEntry;
+import arnaudroubinet.structurizr.confluence.progress.ExportProgress;
+import arnaudroubinet.structurizr.confluence.report.RunReport;
+import arnaudroubinet.structurizr.confluence.tracing.ExportTracing;
+import io.opentelemetry.api.trace.Span;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes pages through the {@link ExportManifest} of the previous export. Pages whose source
+ * hash did not change are skipped without any request, pages whose ADF did not change are not
+ * updated, and pages of the previous export that were not published again are deleted at the end.
+ *
+ * <p>With an empty previous manifest every page is created or updated, as a full export would.
+ * Distinct pages can be published concurrently.
+ */
+public class PagePublisher {
+
+  private static final Logger logger = LoggerFactory.getLogger(PagePublisher.class);
+
+  /** Body used for placeholder pages created before their content is known. */
+  public static final String EMPTY_ADF = "{\"version\":1,\"type\":\"doc\",\"content\":[]}";
+
+  private final ConfluenceClient confluenceClient;
+  private final ExportManifest previous;
+  private final ExportManifest current;
+  private volatile String diagramsHash = SourceHashes.diagrams(null);
+  private ExportJournal journal;
+  private RunReport report;
+  private final AtomicInteger unchangedPages = new AtomicInteger();
+  private final AtomicInteger sameContentPages = new AtomicInteger();
+  private final AtomicInteger publishedPages = new AtomicInteger();
+  private final AtomicInteger deletedPages = new AtomicInteger();
+
+  /**
+   * Creates a publisher for one export run.
+   *
+   * @param confluenceClient the Confluence client
+   * @param previous the manifest of the previous export (empty for a full export)
+   */
+  public PagePublisher(ConfluenceClient confluenceClient, ExportManifest previous) {
+    this.confluenceClient = confluenceClient;
+    this.previous = previous;
+    this.current = new ExportManifest(previous.getBranch(), previous.getParentPageId());
+  }
+
+  /** The manifest of the previous export. */
+  public ExportManifest previous() {
+    return previous;
+  }
+
+  /** The manifest being built by this export. */
+  public ExportManifest current() {
+    return current;
+  }
+
+  /** Hash of the diagram files rendered for this export, see {@link SourceHashes#diagrams}. */
+  public String getDiagramsHash() {
+    return diagramsHash;
+  }
+
+  public void setDiagramsHash(String diagramsHash) {
+    this.diagramsHash = diagramsHash;
+  }
+
+  /**
+   * Journals every page and attachment recorded by this export, so an interrupted export can be
+   * resumed.
+   *
+   * @param journal the journal, or null to disable journaling
+   */
+  public void setJournal(ExportJournal journal) {
+    this.journal = journal;
+  }
+
+  /**
+   * Records every page this export creates, updates or skips, and the attachments reported by the
+   * image upload manager, in the run report.
+   *
+   * @param report the run report, or null to disable reporting
+   */
+  public void setReport(RunReport report) {
+    this.report = report;
+  }
+
+  /**
+   * Reports an attachment handled for this export, see {@link RunReport#recordAttachment}. Does
+   * nothing without a run report.
+   */
+  public void reportAttachment(
+      String pageId, String filename, String action, long bytes, long nanos) {
+    if (report != null) {
+      report.recordAttachment(pageId, filename, action, bytes, nanos);
+    }
+  }
+
+  /**
+   * Records an attachment uploaded to a page by this export.
+   *
+   * @param entry the attachment
+   */
+  public void recordAttachment(AttachmentEntry entry) {
+    current.putAttachment(entry);
+    if (journal != null) {
+      journal.recordAttachment(entry);
+    }
+  }
+
+  /**
+   * Keeps a page as-is when it was published from the same source before. The page entry and its
+   * attachments are carried over to the current manifest.
+   *
+   * @param key logical page key
+   * @param sourceHash hash of the page inputs
+   * @return true if the page can be skipped
+   */
+  public boolean reuseIfUnchanged(String key, String sourceHash) {
+    PageEntry entry = previous.page(key);
+    if (entry == null || entry.id() == null || !sourceHash.equals(entry.sourceHash())) {
+      return false;
+    }
+    current.putPage(key, entry);
+    previous.attachmentsOf(entry.id()).forEach(current::putAttachment);
+    unchangedPages.incrementAndGet();
+    ExportProgress.completed(ExportProgress.Kind.PAGE);
+    reportPage(entry.title(), entry.id(), "skipped", null, 0);
+    logger.info(
+        "Page '{}' unchanged since last export, skipping (ID: {})", entry.title(), entry.id());
+    return true;
+  }
+
+  /**
+   * Returns the known ID of a page, from this export or the previous one.
+   *
+   * @param key logical page key
+   * @return the page ID or null
+   */
+  public String pageId(String key) {
+    PageEntry entry = current.page(key);
+    if (entry == null) {
+      entry = previous.page(key);
+    }
+    return entry != null ? entry.id() : null;
+  }
+
+  /**
+   * Returns the ID of a page, creating an empty placeholder when it is not known yet. Used for
+   * pages that must exist before their content is converted (attachments, children).
+   *
+   * @param key logical page key
+   * @param title page title
+   * @param parentId parent page ID for a new page
+   * @return the page ID
+   * @throws IOException if the page cannot be created
+   */
+  public String ensurePage(String key, String title, String parentId) throws IOException {
+    String id = pageId(key);
+    if (id != null) {
+      return id;
+    }
+    long start = System.nanoTime();
+    PublishedPage page = confluenceClient.createOrUpdatePageVersioned(title, EMPTY_ADF, parentId);
+    record(key, new PageEntry(page.id(), title, page.version(), null, null));
+    reportPage(title, page.id(), action(page), EMPTY_ADF, System.nanoTime() - start);
+    return page.id();
+  }
+
+  /**
+   * Publishes the content of a page. The update is skipped when the same ADF was sent last time.
+   *
+   * @param key logical page key
+   * @param title page title
+   * @param parentId parent page ID for a new page
+   * @param sourceHash hash of the page inputs
+   * @param adfJson the page body
+   * @return the page ID
+   * @throws IOException if the page cannot be published
+   */
+  public String publish(
+      String key, String title, String parentId, String sourceHash, String adfJson)
+      throws IOException {
+    return ExportTracing.trace(
+        "publish page",
+        span -> {
+          span.setAttribute("page.key", key);
+          span.setAttribute("page.title", title);
+          span.setAttribute("page.body.length", adfJson.length());
+          String id = publishContent(key, title, parentId, sourceHash, adfJson, span);
+          span.setAttribute("page.id", id);
+          ExportProgress.completed(ExportProgress.Kind.PAGE);
+          return id;
+        });
+  }
+
+  private String publishContent(
+      String key, String title, String parentId, String sourceHash, String adfJson, Span span)
+      throws IOException {
+    long start = System.nanoTime();
+    String adfHash = ContentHasher.sha256(adfJson);
+    String id = pageId(key);
+    PageEntry known = previous.page(key);
+
+    if (known != null
+        && id != null
+        && id.equals(known.id())
+        && title.equals(known.title())
+        && adfHash.equals(known.adfHash())) {
+      record(key, new PageEntry(id, title, known.version(), sourceHash, adfHash));
+      sameContentPages.incrementAndGet();
+      span.setAttribute("page.unchanged", true);
+      reportPage(title, id, "skipped", null, System.nanoTime() - start);
+      logger.info("Page '{}' content identical to last export, not updated (ID: {})", title, id);
+      return id;
+    }
+
+    PublishedPage page;
+    if (id == null) {
+      page = confluenceClient.createOrUpdatePageVersioned(title, adfJson, parentId);
+    } else {
+      try {
+        page = confluenceClient.updatePageByIdVersioned(id, title, adfJson);
+      } catch (IOException e) {
+        if (current.page(key) != null) {
+          throw e;
+        }
+        // The page recorded in the manifest may have been deleted in Confluence
+        logger.warn(
+            "Updating page '{}' (ID: {}) from the manifest failed, publishing it by title: {}",
+            title,
+            id,
+            e.getMessage());
+        page = confluenceClient.createOrUpdatePageVersioned(title, adfJson, parentId);
+      }
+    }
+    record(key, new PageEntry(page.id(), title, page.version(), sourceHash, adfHash));
+    publishedPages.incrementAndGet();
+    reportPage(title, page.id(), action(page), adfJson, System.nanoTime() - start);
+    return page.id();
+  }
+
+  /** Returns whether a page was created or updated, a new page being at version 1. */
+  private static String action(PublishedPage page) {
+    return page.version() <= 1 ? "created" : "updated";
+  }
+
+  private void reportPage(String title, String id, String action, String body, long nanos) {
+    if (report != null) {
+      long bytes = body != null ? body.getBytes(StandardCharsets.UTF_8).length : 0;
+      report.recordPage(title, id, action, bytes, nanos);
+    }
+  }
+
+  /**
+   * Deletes the pages of the previous export that this export did not publish, children first. Call
+   * only once the export succeeded.
+   *
+   * @return the IDs of the deleted pages
+   */
+  public List<String> deleteOrphans() {
+    List<Map.Entry<String, PageEntry>> entries = new ArrayList<>(previous.getPages().entrySet());
+    List<String> deleted = new ArrayList<>();
+    // Pages are recorded parents first, so walking backwards deletes children first
+    for (int i = entries.size() - 1; i >= 0; i--) {
+      String key = entries.get(i).getKey();
+      PageEntry entry = entries.get(i).getValue();
+      if (current.page(key) != null || entry.id() == null) {
+        continue;
+      }
+      try {
+        confluenceClient.deletePage(entry.id());
+        deleted.add(entry.id());
+        deletedPages.incrementAndGet();
+        logger.info(
+            "Deleted page '{}' whose source disappeared (ID: {})", entry.title(), entry.id());
+      } catch (IOException e) {
+        logger.warn("Failed to delete orphan page '{}' (ID: {})", entry.title(), entry.id(), e);
+      }
+    }
+    return deleted;
+  }
+
+  private void record(String key, PageEntry entry) {
+    current.putPage(key, entry);
+    if (journal != null) {
+      journal.recordPage(key, entry);
+    }
+  }
+
+  /** Logs a one-line summary of what this export touched. */
+  public void logSummary() {
+    logger.info(
+        "Incremental export: {} pages unchanged, {} with identical content, {} published, {} deleted",
+        unchangedPages.get(),
+        sameContentPages.get(),
+        publishedPages.get(),
+        deletedPages.get());
+  }
+
+  public int getUnchangedPages() {
+    return unchangedPages.get();
+  }
+
+  public int getPublishedPages() {
+    return publishedPages.get();
+  }
+
+  public int getDeletedPages() {
+    return deletedPages.get();
+  }
+}
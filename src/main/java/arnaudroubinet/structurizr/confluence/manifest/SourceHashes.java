@@ -0,0 +1,227 @@
+package arnaudroubinet.structurizr.confluence.manifest;
+
+import arnaudroubinet.structurizr.confluence.workspace.DocumentationContents;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.structurizr.Workspace;
+import com.structurizr.documentation.Decision;
+import com.structurizr.documentation.Section;
+import com.structurizr.util.WorkspaceUtils;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Source hashes of the exported pages: everything in the workspace that influences the content of a
+ * page, so that an unchanged hash means the page does not need to be converted again. Content
+ * embedding diagrams ({@code embed:} references) also depends on the rendered diagram files.
+ */
+public final class SourceHashes {
+
+  private static final Logger logger = LoggerFactory.getLogger(SourceHashes.class);
+
+  private static final String EMBED_MARKER = "embed:";
+  private static final String DOCUMENTATION_FIELD = "documentation";
+
+  private SourceHashes() {}
+
+  /**
+   * Hashes the rendered diagram files, in filename order.
+   *
+   * @param diagramFiles the exported diagram files (may be null when diagram export failed)
+   * @return the combined hash
+   */
+  public static String diagrams(List<File> diagramFiles) {
+    ContentHasher hasher = new ContentHasher().add("diagrams");
+    if (diagramFiles == null) {
+      return hasher.add((String) null).hex();
+    }
+    List<File> sorted = new ArrayList<>(diagramFiles);
+    sorted.sort(Comparator.comparing(File::getName));
+    for (File file : sorted) {
+      try {
+        hasher.add(file);
+      } catch (IOException e) {
+        // An unreadable file must not look unchanged
+        logger.warn("Cannot hash diagram {}: {}", file, e.getMessage());
+        hasher.add(file.getName()).add(String.valueOf(System.nanoTime()));
+      }
+    }
+    return hasher.hex();
+  }
+
+  /**
+   * Hashes the workspace inputs of the rendered diagrams: the model and views, without the
+   * documentation and decisions, which do not affect them.
+   *
+   * @param workspace the workspace
+   * @return the hash, or null when the workspace cannot be serialised
+   */
+  public static String diagramInputs(Workspace workspace) {
+    try {
+      JsonNode json = new ObjectMapper().readTree(WorkspaceUtils.toJson(workspace, false));
+      removeDocumentation(json);
+      return new ContentHasher().add("diagram-inputs").add(json.toString()).hex();
+    } catch (Exception e) {
+      logger.warn("Cannot hash the diagram inputs of the workspace: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Hashes the whole workspace, including its revision and last modification date.
+   *
+   * @param workspace the workspace
+   * @return the hash, or null when the workspace cannot be serialised
+   */
+  public static String workspace(Workspace workspace) {
+    return workspace(workspace, DocumentationContents.INLINE);
+  }
+
+  /**
+   * Hashes the whole workspace, including documentation content left out of the workspace objects.
+   *
+   * @param workspace the workspace
+   * @param contents access to the documentation content
+   * @return the hash, or null when the workspace cannot be serialised
+   */
+  public static String workspace(Workspace workspace, DocumentationContents contents) {
+    try {
+      return new ContentHasher()
+          .add("workspace")
+          .add(WorkspaceUtils.toJson(workspace, false))
+          .add(contents.fingerprint())
+          .hex();
+    } catch (Exception e) {
+      logger.warn("Cannot hash the workspace: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Describes the Structurizr revision and last modification date of a workspace.
+   *
+   * @param workspace the workspace
+   * @return e.g. {@code revision 12, modified 2025-09-16T09:21:04Z}, or null when neither is known
+   */
+  public static String revision(Workspace workspace) {
+    if (workspace.getRevision() == null && workspace.getLastModifiedDate() == null) {
+      return null;
+    }
+    return "revision "
+        + workspace.getRevision()
+        + ", modified "
+        + (workspace.getLastModifiedDate() != null
+            ? workspace.getLastModifiedDate().toInstant()
+            : null);
+  }
+
+  /**
+   * Hashes the documentation sections inlined in the Documentation page.
+   *
+   * @param title the page title
+   * @param sections the sections in export order
+   * @param diagramsHash hash of the diagram files
+   * @return the page source hash
+   */
+  public static String sections(String title, Collection<Section> sections, String diagramsHash) {
+    return sections(title, sections, DocumentationContents.INLINE, diagramsHash);
+  }
+
+  /**
+   * Hashes the documentation sections inlined in the Documentation page, reading their content one
+   * at a time.
+   *
+   * @param title the page title
+   * @param sections the sections in export order
+   * @param contents access to the section content
+   * @param diagramsHash hash of the diagram files
+   * @return the page source hash
+   */
+  public static String sections(
+      String title,
+      Collection<Section> sections,
+      DocumentationContents contents,
+      String diagramsHash) {
+    ContentHasher hasher = page(title);
+    boolean embeds = false;
+    for (Section section : sections) {
+      String content = contents.of(section);
+      hasher
+          .add(section.getFilename())
+          .add(section.getFormat() != null ? section.getFormat().name() : null)
+          .add(content);
+      embeds |= embedsDiagrams(content);
+    }
+    return hasher.add(embeds ? diagramsHash : null).hex();
+  }
+
+  /**
+   * Hashes an architecture decision record page.
+   *
+   * @param title the page title
+   * @param decision the decision
+   * @param diagramsHash hash of the diagram files
+   * @return the page source hash
+   */
+  public static String decision(String title, Decision decision, String diagramsHash) {
+    return decision(title, decision, decision.getContent(), diagramsHash);
+  }
+
+  /**
+   * Hashes an architecture decision record page whose content was read separately.
+   *
+   * @param title the page title
+   * @param decision the decision
+   * @param content the decision content
+   * @param diagramsHash hash of the diagram files
+   * @return the page source hash
+   */
+  public static String decision(
+      String title, Decision decision, String content, String diagramsHash) {
+    ContentHasher hasher =
+        page(title)
+            .add(decision.getId())
+            .add(decision.getTitle())
+            .add(decision.getStatus())
+            .add(decision.getDate() != null ? String.valueOf(decision.getDate().getTime()) : null)
+            .add(decision.getFormat() != null ? decision.getFormat().name() : null)
+            .add(content);
+    decision.getLinks().forEach(link -> hasher.add(link.getId()).add(link.getDescription()));
+    return hasher.add(embedsDiagrams(content) ? diagramsHash : null).hex();
+  }
+
+  /**
+   * Hashes a page whose body is fully known up front.
+   *
+   * @param title the page title
+   * @param adfJson the page body
+   * @return the page source hash
+   */
+  public static String content(String title, String adfJson) {
+    return page(title).add(adfJson).hex();
+  }
+
+  private static ContentHasher page(String title) {
+    return new ContentHasher().add(String.valueOf(ExportManifest.FORMAT_VERSION)).add(title);
+  }
+
+  /** Removes documentation, found on the workspace and on elements, from a workspace tree. */
+  private static void removeDocumentation(JsonNode node) {
+    if (node instanceof ObjectNode object) {
+      object.remove(DOCUMENTATION_FIELD);
+    }
+    node.forEach(SourceHashes::removeDocumentation);
+  }
+
+  /** Returns true if the content embeds rendered diagrams, making it depend on them. */
+  public static boolean embedsDiagrams(String content) {
+    return content != null && content.contains(EMBED_MARKER);
+  }
+}
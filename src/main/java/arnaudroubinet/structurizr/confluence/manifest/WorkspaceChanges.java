@@ -0,0 +1,171 @@
+package arnaudroubinet.structurizr.confluence.manifest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.structurizr.Workspace;
+import com.structurizr.util.WorkspaceUtils;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * What changed between two revisions of a workspace: documentation sections, decisions and views
+ * added, removed or modified, and whether the model or anything else changed. Used by watch mode to
+ * skip saves that change nothing and to report what a republish is about; the pages themselves are
+ * republished incrementally through the export manifest.
+ */
+public final class WorkspaceChanges {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final List<String> sections;
+  private final List<String> decisions;
+  private final List<String> views;
+  private final boolean modelChanged;
+  private final boolean changed;
+
+  private WorkspaceChanges(
+      List<String> sections,
+      List<String> decisions,
+      List<String> views,
+      boolean modelChanged,
+      boolean changed) {
+    this.sections = List.copyOf(sections);
+    this.decisions = List.copyOf(decisions);
+    this.views = List.copyOf(views);
+    this.modelChanged = modelChanged;
+    this.changed = changed;
+  }
+
+  /**
+   * Compares two revisions of a workspace.
+   *
+   * @param previous the previously exported workspace
+   * @param current the new workspace
+   * @return the changes
+   * @throws Exception if a workspace cannot be serialised
+   */
+  public static WorkspaceChanges between(Workspace previous, Workspace current) throws Exception {
+    JsonNode before = OBJECT_MAPPER.readTree(WorkspaceUtils.toJson(previous, false));
+    JsonNode after = OBJECT_MAPPER.readTree(WorkspaceUtils.toJson(current, false));
+    return new WorkspaceChanges(
+        changedItems(
+            before.path("documentation").path("sections"),
+            after.path("documentation").path("sections"),
+            "filename",
+            "title"),
+        changedItems(
+            before.path("documentation").path("decisions"),
+            after.path("documentation").path("decisions"),
+            "id"),
+        changedViews(before.path("views"), after.path("views")),
+        !before.path("model").equals(after.path("model")),
+        !before.equals(after));
+  }
+
+  /** Keys of the documentation sections added, removed or modified (filename, else title). */
+  public List<String> getSections() {
+    return sections;
+  }
+
+  /** IDs of the decisions added, removed or modified. */
+  public List<String> getDecisions() {
+    return decisions;
+  }
+
+  /** Keys of the views added, removed or modified. */
+  public List<String> getViews() {
+    return views;
+  }
+
+  public boolean isModelChanged() {
+    return modelChanged;
+  }
+
+  /** Returns true if the two revisions are identical, so there is nothing to republish. */
+  public boolean isEmpty() {
+    return !changed;
+  }
+
+  @Override
+  public String toString() {
+    if (!changed) {
+      return "no changes";
+    }
+    List<String> parts = new ArrayList<>();
+    describe(parts, "sections", sections);
+    describe(parts, "decisions", decisions);
+    describe(parts, "views", views);
+    if (modelChanged) {
+      parts.add("model");
+    }
+    return parts.isEmpty() ? "workspace properties" : String.join(", ", parts);
+  }
+
+  private static void describe(List<String> parts, String label, List<String> keys) {
+    if (!keys.isEmpty()) {
+      parts.add(label + " " + keys);
+    }
+  }
+
+  private static List<String> changedViews(JsonNode before, JsonNode after) {
+    Map<String, JsonNode> previous = new LinkedHashMap<>();
+    Map<String, JsonNode> current = new LinkedHashMap<>();
+    collectViews(before, previous);
+    collectViews(after, current);
+    List<String> changed = changedKeys(previous, current);
+    if (!before.path("configuration").equals(after.path("configuration"))) {
+      changed.add("configuration");
+    }
+    return changed;
+  }
+
+  /** Collects the views of all types ({@code systemContextViews}, {@code containerViews}...). */
+  private static void collectViews(JsonNode views, Map<String, JsonNode> byKey) {
+    Iterator<Map.Entry<String, JsonNode>> fields = views.fields();
+    while (fields.hasNext()) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      if (field.getKey().endsWith("Views") && field.getValue().isArray()) {
+        byKey.putAll(index(field.getValue(), "key"));
+      }
+    }
+  }
+
+  private static List<String> changedItems(JsonNode before, JsonNode after, String... keyFields) {
+    return changedKeys(index(before, keyFields), index(after, keyFields));
+  }
+
+  private static Map<String, JsonNode> index(JsonNode items, String... keyFields) {
+    Map<String, JsonNode> byKey = new LinkedHashMap<>();
+    int position = 0;
+    for (JsonNode item : items) {
+      String key = null;
+      for (String keyField : keyFields) {
+        if (item.hasNonNull(keyField)) {
+          key = item.get(keyField).asText();
+          break;
+        }
+      }
+      byKey.put(key != null ? key : "#" + position, item);
+      position++;
+    }
+    return byKey;
+  }
+
+  private static List<String> changedKeys(
+      Map<String, JsonNode> previous, Map<String, JsonNode> current) {
+    List<String> changed = new ArrayList<>();
+    current.forEach(
+        (key, item) -> {
+          if (!Objects.equals(previous.getOrDefault(key, MissingNode.getInstance()), item)) {
+            changed.add(key);
+          }
+        });
+    previous.keySet().stream().filter(key -> !current.containsKey(key)).forEach(changed::add);
+    return changed;
+  }
+}
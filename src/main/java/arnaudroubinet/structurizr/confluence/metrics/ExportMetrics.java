@@ -0,0 +1,337 @@
+package arnaudroubinet.structurizr.confluence.metrics;
+
+import arnaudroubinet.structurizr.confluence.jfr.ExportPhaseEvent;
+import arnaudroubinet.structurizr.confluence.scheduler.ExecutionReport;
+import arnaudroubinet.structurizr.confluence.scheduler.ExportTask;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer metrics of exports: time spent per phase (load, render, convert, upload, publish),
+ * Confluence requests by endpoint and status, diagram render time per view, and image bytes and
+ * cache hits. Printed as a summary table at the end of CLI runs, written as Prometheus text or JSON
+ * with {@code --metrics-file}, and served by the export server.
+ *
+ * <p>One instance is shared by all the exports of a process; {@link #disabled()} records nothing.
+ */
+public final class ExportMetrics {
+
+  /** Time spent per export phase, tagged {@code phase}. */
+  public static final String PHASE = "export.phase";
+
+  /** Confluence REST requests, tagged {@code method}, {@code endpoint} and {@code status}. */
+  public static final String REQUESTS = "confluence.requests";
+
+  /** Diagram render time, tagged {@code view}. */
+  public static final String RENDER = "diagram.render";
+
+  /** Images served by the upload manager, tagged {@code result}: uploaded, reused or cached. */
+  public static final String IMAGES = "images";
+
+  /** Bytes of the images uploaded as attachments. */
+  public static final String IMAGE_BYTES = "images.uploaded.bytes";
+
+  private static final ExportMetrics DISABLED = new ExportMetrics(disabledRegistry());
+  private static final ObjectMapper OBJECT_MAPPER =
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  private final MeterRegistry registry;
+
+  /** Creates metrics kept in a Prometheus registry. */
+  public ExportMetrics() {
+    this(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+  }
+
+  /**
+   * Creates metrics kept in the given registry.
+   *
+   * @param registry the registry
+   */
+  public ExportMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  private static MeterRegistry disabledRegistry() {
+    MeterRegistry registry = new CompositeMeterRegistry();
+    registry.config().meterFilter(MeterFilter.deny());
+    return registry;
+  }
+
+  /** Returns metrics that record nothing, used when no metrics are configured. */
+  public static ExportMetrics disabled() {
+    return DISABLED;
+  }
+
+  public MeterRegistry getRegistry() {
+    return registry;
+  }
+
+  /**
+   * Records time spent in an export phase.
+   *
+   * @param phase the phase: load, render, convert, upload or publish
+   * @param nanos the duration in nanoseconds
+   */
+  public void recordPhase(String phase, long nanos) {
+    Timer.builder(PHASE)
+        .description("Time spent per export phase")
+        .tag("phase", phase)
+        .register(registry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Runs an action and records its duration as an export phase, whether or not it fails. The phase
+   * is also recorded as a JFR event.
+   *
+   * @param phase the phase
+   * @param action the action
+   * @return the result of the action
+   * @throws Exception if the action fails
+   */
+  public <T> T timePhase(String phase, Callable<T> action) throws Exception {
+    ExportPhaseEvent event = new ExportPhaseEvent();
+    event.begin();
+    long start = System.nanoTime();
+    try {
+      return action.call();
+    } finally {
+      recordPhase(phase, System.nanoTime() - start);
+      event.phase = phase;
+      event.commit();
+    }
+  }
+
+  /**
+   * Records the tasks of an export by phase: diagram rendering, conversions, attachment uploads,
+   * and page creation and publishing.
+   *
+   * @param report the execution report of the export
+   */
+  public void recordTasks(ExecutionReport report) {
+    for (ExportTask task : report.getTasks()) {
+      recordPhase(phase(task), task.getDurationNanos());
+    }
+  }
+
+  private static String phase(ExportTask task) {
+    switch (task.getType()) {
+      case RENDER_VIEW:
+        return "render";
+      case CONVERT_SECTION:
+        return "convert";
+      case UPLOAD_ATTACHMENT:
+        return "upload";
+      default:
+        return "publish";
+    }
+  }
+
+  /**
+   * Records a Confluence REST request.
+   *
+   * @param method the HTTP method
+   * @param endpoint the request path with IDs replaced by placeholders
+   * @param status the response status
+   * @param nanos the duration in nanoseconds
+   */
+  public void recordRequest(String method, String endpoint, int status, long nanos) {
+    Timer.builder(REQUESTS)
+        .description("Confluence REST requests")
+        .tags("method", method, "endpoint", endpoint, "status", String.valueOf(status))
+        .publishPercentiles(0.5, 0.95)
+        .register(registry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Records the rendering of a view.
+   *
+   * @param viewKey the view key
+   * @param nanos the duration in nanoseconds
+   */
+  public void recordRender(String viewKey, long nanos) {
+    Timer.builder(RENDER)
+        .description("Diagram render time per view")
+        .tag("view", viewKey)
+        .register(registry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Records an image handled by the upload manager.
+   *
+   * @param result uploaded, reused (unchanged since the previous export) or cached (already
+   *     uploaded by this export)
+   * @param uploadedBytes the bytes uploaded, 0 unless uploaded
+   */
+  public void recordImage(String result, long uploadedBytes) {
+    Counter.builder(IMAGES)
+        .description("Images by upload result")
+        .tag("result", result)
+        .register(registry)
+        .increment();
+    if (uploadedBytes > 0) {
+      Counter.builder(IMAGE_BYTES)
+          .description("Bytes of the uploaded images")
+          .baseUnit("bytes")
+          .register(registry)
+          .increment(uploadedBytes);
+    }
+  }
+
+  /** Returns the metrics in the Prometheus text format. */
+  public String toPrometheus() {
+    if (registry instanceof PrometheusMeterRegistry prometheus) {
+      return prometheus.scrape();
+    }
+    throw new IllegalStateException("Metrics are not kept in a Prometheus registry");
+  }
+
+  /** Returns the metrics as JSON: one entry per meter with its tags and measurements. */
+  public String toJson() throws IOException {
+    List<Map<String, Object>> meters = new ArrayList<>();
+    for (Meter meter : sortedMeters()) {
+      Map<String, Object> entry = new LinkedHashMap<>();
+      entry.put("name", meter.getId().getName());
+      Map<String, String> tags = new LinkedHashMap<>();
+      for (Tag tag : meter.getId().getTags()) {
+        tags.put(tag.getKey(), tag.getValue());
+      }
+      entry.put("tags", tags);
+      Map<String, Double> measurements = new LinkedHashMap<>();
+      for (Measurement measurement : meter.measure()) {
+        measurements.put(
+            measurement.getStatistic().name().toLowerCase(Locale.ROOT), measurement.getValue());
+      }
+      entry.put("measurements", measurements);
+      meters.add(entry);
+    }
+    return OBJECT_MAPPER.writeValueAsString(Map.of("meters", meters));
+  }
+
+  /**
+   * Writes the metrics to a file: JSON if its name ends with {@code .json}, Prometheus text
+   * otherwise.
+   *
+   * @param file the file
+   * @throws IOException if the file cannot be written
+   */
+  public void write(Path file) throws IOException {
+    String content =
+        file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")
+            ? toJson()
+            : toPrometheus();
+    Files.writeString(file, content, StandardCharsets.UTF_8);
+  }
+
+  /** Returns a human readable summary table, empty when nothing was recorded. */
+  public String summary() {
+    StringBuilder summary = new StringBuilder();
+    List<Timer> phases = timers(PHASE);
+    if (!phases.isEmpty()) {
+      summary.append(
+          String.format("%-12s %8s %12s %12s%n", "Phase", "Count", "Total (s)", "Max (s)"));
+      for (Timer timer : phases) {
+        summary.append(
+            String.format(
+                "%-12s %8d %12.2f %12.2f%n",
+                timer.getId().getTag("phase"),
+                timer.count(),
+                timer.totalTime(TimeUnit.SECONDS),
+                timer.max(TimeUnit.SECONDS)));
+      }
+    }
+    List<Timer> requests = timers(REQUESTS);
+    if (!requests.isEmpty()) {
+      summary.append(
+          String.format(
+              "%n%-52s %6s %8s %10s %10s%n",
+              "Confluence request", "Status", "Count", "p50 (ms)", "p95 (ms)"));
+      for (Timer timer : requests) {
+        summary.append(
+            String.format(
+                "%-52s %6s %8d %10.0f %10.0f%n",
+                timer.getId().getTag("method") + " " + timer.getId().getTag("endpoint"),
+                timer.getId().getTag("status"),
+                timer.count(),
+                percentileMillis(timer, 0.5),
+                percentileMillis(timer, 0.95)));
+      }
+    }
+    List<Timer> renders = timers(RENDER);
+    if (!renders.isEmpty()) {
+      Timer slowest =
+          renders.stream().max(Comparator.comparingDouble(t -> t.max(TimeUnit.MILLISECONDS))).get();
+      summary.append(
+          String.format(
+              "%nDiagrams: %d views rendered in %.2f s, slowest %s (%.0f ms)%n",
+              renders.size(),
+              renders.stream().mapToDouble(t -> t.totalTime(TimeUnit.SECONDS)).sum(),
+              slowest.getId().getTag("view"),
+              slowest.max(TimeUnit.MILLISECONDS)));
+    }
+    List<Counter> images =
+        registry.find(IMAGES).counters().stream()
+            .sorted(Comparator.comparing(c -> c.getId().getTag("result")))
+            .toList();
+    if (!images.isEmpty()) {
+      Counter bytes = registry.find(IMAGE_BYTES).counter();
+      List<String> results = new ArrayList<>();
+      for (Counter counter : images) {
+        results.add(String.format("%.0f %s", counter.count(), counter.getId().getTag("result")));
+      }
+      summary.append(
+          String.format(
+              "%nImages: %s, %.1f KiB uploaded%n",
+              String.join(", ", results), bytes != null ? bytes.count() / 1024 : 0.0));
+    }
+    return summary.toString();
+  }
+
+  private List<Timer> timers(String name) {
+    return registry.find(name).timers().stream()
+        .sorted(Comparator.comparing(timer -> timer.getId().getTags().toString()))
+        .toList();
+  }
+
+  private List<Meter> sortedMeters() {
+    return registry.getMeters().stream()
+        .sorted(
+            Comparator.comparing((Meter meter) -> meter.getId().getName())
+                .thenComparing(meter -> meter.getId().getTags().toString()))
+        .toList();
+  }
+
+  private static double percentileMillis(Timer timer, double percentile) {
+    for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+      if (value.percentile() == percentile) {
+        return value.value(TimeUnit.MILLISECONDS);
+      }
+    }
+    return timer.mean(TimeUnit.MILLISECONDS);
+  }
+}
@@ -0,0 +1,70 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import java.io.File;
+import java.util.function.Function;
+
+/**
+ * The HTML, Markdown and AsciiDoc to ADF converters of one conversion. The converters keep the page
+ * their images are attached to in fields, so conversions running at the same time each use their
+ * own set; the Markdown parser and the Asciidoctor instances behind them are shared.
+ */
+public final class AdfConverters {
+
+  private final HtmlToAdfConverter html;
+  private final MarkdownToAdfConverter markdown;
+  private final AsciiDocToAdfConverter asciiDoc;
+
+  public AdfConverters(
+      HtmlToAdfConverter html, MarkdownToAdfConverter markdown, AsciiDocToAdfConverter asciiDoc) {
+    this.html = html;
+    this.markdown = markdown;
+    this.asciiDoc = asciiDoc;
+  }
+
+  /**
+   * Creates converters attaching their images to the given page.
+   *
+   * @param markdownConverter the shared Markdown parser
+   * @param asciiDocConverter the shared AsciiDoc converter
+   * @param imageUploadManager uploads the images of the page
+   * @param pageId the page the images are attached to
+   * @param diagramResolver maps diagram view keys to rendered files, or null before rendering
+   * @return the converters
+   */
+  public static AdfConverters forPage(
+      MarkdownConverter markdownConverter,
+      AsciiDocConverter asciiDocConverter,
+      ImageUploadManager imageUploadManager,
+      String pageId,
+      Function<String, File> diagramResolver) {
+    AdfConverters converters =
+        new AdfConverters(
+            new HtmlToAdfConverter(),
+            new MarkdownToAdfConverter(markdownConverter),
+            new AsciiDocToAdfConverter(asciiDocConverter));
+    converters.html.setImageUploadManager(imageUploadManager);
+    converters.html.setCurrentPageId(pageId);
+    converters.markdown.setImageUploadManager(imageUploadManager);
+    converters.markdown.setCurrentPageId(pageId);
+    converters.asciiDoc.setImageUploadManager(imageUploadManager);
+    converters.asciiDoc.setCurrentPageId(pageId);
+    if (diagramResolver != null) {
+      converters.html.setDiagramResolver(diagramResolver);
+      converters.markdown.setDiagramResolver(diagramResolver);
+      converters.asciiDoc.setDiagramResolver(diagramResolver);
+    }
+    return converters;
+  }
+
+  public HtmlToAdfConverter html() {
+    return html;
+  }
+
+  public MarkdownToAdfConverter markdown() {
+    return markdown;
+  }
+
+  public AsciiDocToAdfConverter asciiDoc() {
+    return asciiDoc;
+  }
+}
@@ -0,0 +1,178 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.jsoup.parser.Parser;
+
+/**
+ * Converts the inline HTML fragments produced by Asciidoctor for paragraph text, list items, titles
+ * and table cells into ADF inline nodes. Only the small tag set emitted by the html5 backend for
+ * inline markup is recognised; unknown tags are dropped and their text kept. This is a single
+ * linear scan, not a DOM parse.
+ */
+final class AdfInlineHtml {
+
+  private static final Pattern TOKEN =
+      Pattern.compile(
+          "<!--[\\s\\S]*?-->|<(/?)([a-zA-Z][a-zA-Z0-9]*)((?:[^>\"']|\"[^\"]*\"|'[^']*')*)>");
+  private static final Pattern ATTRIBUTE =
+      Pattern.compile("([a-zA-Z_:][-a-zA-Z0-9_:.]*)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')");
+
+  /** An image found inline; ADF media are blocks, so callers place it after the paragraph. */
+  record InlineImage(String src, String alt, String title) {}
+
+  private AdfInlineHtml() {}
+
+  /**
+   * Appends the inline nodes for an HTML fragment to {@code target}.
+   *
+   * @param html the inline HTML fragment (may be null)
+   * @param baseMarks marks applied to every text node (e.g. a table column style)
+   * @param target the content array receiving text and hardBreak nodes
+   * @param images receives the images found in the fragment
+   */
+  static void append(
+      String html, List<ObjectNode> baseMarks, ArrayNode target, List<InlineImage> images) {
+    if (html == null || html.isEmpty()) {
+      return;
+    }
+    Deque<OpenTag> open = new ArrayDeque<>();
+    Matcher matcher = TOKEN.matcher(html);
+    int position = 0;
+    while (matcher.find()) {
+      appendText(html.substring(position, matcher.start()), baseMarks, open, target);
+      position = matcher.end();
+
+      String tag = matcher.group(2);
+      if (tag == null) {
+        continue; // comment
+      }
+      tag = tag.toLowerCase();
+      boolean closing = !matcher.group(1).isEmpty();
+      if (closing) {
+        close(open, tag);
+        continue;
+      }
+
+      Map<String, String> attributes = attributes(matcher.group(3));
+      switch (tag) {
+        case "br" -> target.add(AdfNodes.leaf("hardBreak"));
+        case "img" ->
+            images.add(
+                new InlineImage(
+                    attributes.getOrDefault("src", ""),
+                    attributes.getOrDefault("alt", ""),
+                    attributes.getOrDefault("title", "")));
+        default -> {
+          if (!matcher.group(3).trim().endsWith("/")) {
+            open.push(new OpenTag(tag, markFor(tag, attributes)));
+          }
+        }
+      }
+    }
+    appendText(html.substring(position), baseMarks, open, target);
+  }
+
+  /** Returns the plain text of an inline HTML fragment (tags dropped, entities decoded). */
+  static String text(String html) {
+    if (html == null || html.isEmpty()) {
+      return "";
+    }
+    return Parser.unescapeEntities(TOKEN.matcher(html).replaceAll(""), false)
+        .replace('\n', ' ')
+        .trim();
+  }
+
+  private static void appendText(
+      String raw, List<ObjectNode> baseMarks, Deque<OpenTag> open, ArrayNode target) {
+    if (raw.isEmpty()) {
+      return;
+    }
+    String text = Parser.unescapeEntities(raw, false).replace('\n', ' ');
+    if (text.isEmpty()) {
+      return;
+    }
+
+    List<ObjectNode> marks = new ArrayList<>(baseMarks);
+    // Marks are applied outermost first; the stack iterates innermost first.
+    List<OpenTag> tags = new ArrayList<>(open);
+    for (int i = tags.size() - 1; i >= 0; i--) {
+      ObjectNode mark = tags.get(i).mark();
+      if (mark != null && !hasMark(marks, mark.get("type").asText())) {
+        marks.add(mark);
+      }
+    }
+    if (hasMark(marks, "code")) {
+      // ADF only allows the code mark alongside a link.
+      marks.removeIf(
+          mark -> {
+            String type = mark.get("type").asText();
+            return !"code".equals(type) && !"link".equals(type);
+          });
+    }
+    target.add(AdfNodes.text(text, marks));
+  }
+
+  private static void close(Deque<OpenTag> open, String tag) {
+    for (OpenTag candidate : open) {
+      if (candidate.name().equals(tag)) {
+        while (!open.isEmpty() && !open.pop().name().equals(tag)) {
+          // Drop unclosed inner tags
+        }
+        return;
+      }
+    }
+  }
+
+  private static ObjectNode markFor(String tag, Map<String, String> attributes) {
+    return switch (tag) {
+      case "strong", "b" -> AdfNodes.mark("strong");
+      case "em", "i" -> AdfNodes.mark("em");
+      case "code", "kbd", "tt", "samp" -> AdfNodes.mark("code");
+      case "del", "s", "strike" -> AdfNodes.mark("strike");
+      case "u", "ins" -> AdfNodes.mark("underline");
+      case "sup", "sub" -> {
+        ObjectNode mark = AdfNodes.mark("subsup");
+        mark.putObject("attrs").put("type", tag);
+        yield mark;
+      }
+      case "a" -> {
+        String href = attributes.get("href");
+        yield href != null && !href.isEmpty() ? AdfNodes.linkMark(href) : null;
+      }
+      default -> null;
+    };
+  }
+
+  private static boolean hasMark(List<ObjectNode> marks, String type) {
+    for (ObjectNode mark : marks) {
+      if (type.equals(mark.get("type").asText())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Map<String, String> attributes(String raw) {
+    Map<String, String> attributes = new HashMap<>();
+    if (raw == null || raw.isBlank()) {
+      return attributes;
+    }
+    Matcher matcher = ATTRIBUTE.matcher(raw);
+    while (matcher.find()) {
+      String value = matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+      attributes.put(matcher.group(1).toLowerCase(), Parser.unescapeEntities(value, true));
+    }
+    return attributes;
+  }
+
+  private record OpenTag(String name, ObjectNode mark) {}
+}
@@ -0,0 +1,166 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves image references found by the AST-based converters into ADF media nodes. Handles local
+ * diagram placeholders ({@code local:diagram:key} and Structurizr {@code embed:key}), external
+ * images (downloaded and attached to the current page) and plain attachment references. Mirrors the
+ * behaviour of {@link HtmlToAdfConverter} for {@code img} elements.
+ */
+final class AdfMediaResolver {
+
+  private static final Logger logger = LoggerFactory.getLogger(AdfMediaResolver.class);
+
+  static final String LOCAL_DIAGRAM_PREFIX = "local:diagram:";
+  static final String EMBED_PREFIX = "embed:";
+
+  private ImageUploadManager imageUploadManager;
+  private String currentPageId;
+  private Function<String, File> diagramResolver;
+
+  void setImageUploadManager(ImageUploadManager imageUploadManager) {
+    this.imageUploadManager = imageUploadManager;
+  }
+
+  void setCurrentPageId(String currentPageId) {
+    this.currentPageId = currentPageId;
+  }
+
+  void setDiagramResolver(Function<String, File> diagramResolver) {
+    this.diagramResolver = diagramResolver;
+  }
+
+  /**
+   * Starts uploading the external images among the given sources, so that {@link #resolve} only
+   * waits for uploads still in flight instead of downloading the images one after the other.
+   *
+   * @param sources the image sources of a document, in any form {@link #resolve} accepts
+   */
+  void prefetch(Collection<String> sources) {
+    if (imageUploadManager == null || currentPageId == null) {
+      return;
+    }
+    Set<String> external = new LinkedHashSet<>();
+    for (String src : sources) {
+      if (src != null && isExternalUrl(src.trim())) {
+        external.add(src.trim());
+      }
+    }
+    if (!external.isEmpty()) {
+      imageUploadManager.prefetchImages(external, currentPageId);
+    }
+  }
+
+  /**
+   * Builds the block-level ADF node for an image reference.
+   *
+   * @param src the image source (URL, attachment name or diagram placeholder)
+   * @param alt the alternative text (may be empty)
+   * @param title the image title (may be empty)
+   * @return a mediaSingle, mediaGroup or fallback paragraph node
+   */
+  ObjectNode resolve(String src, String alt, String title) {
+    src = src == null ? "" : src.trim();
+    alt = alt == null ? "" : alt;
+    title = title == null ? "" : title;
+
+    if (src.isEmpty()) {
+      return AdfNodes.paragraph("Image: (no source)");
+    }
+
+    String viewKey = diagramViewKey(src);
+    if (viewKey != null) {
+      return resolveDiagram(viewKey, alt, title);
+    }
+
+    String caption = title.isEmpty() ? alt : title;
+    String imageId = generateImageId(src);
+
+    if (isExternalUrl(src) && imageUploadManager != null && currentPageId != null) {
+      try {
+        String attachmentFilename = imageUploadManager.downloadAndUploadImage(src, currentPageId);
+        ImageUploadManager.MediaUploadResult info = imageUploadManager.getMediaInfo(src);
+        if (info != null && info.fileId() != null && info.collectionName() != null) {
+          return AdfNodes.mediaSingle(info.fileId(), info.collectionName());
+        }
+        return AdfNodes.mediaGroup(imageId, attachmentFilename, caption);
+      } catch (Exception e) {
+        logger.warn(
+            "Failed to download and upload external image: {}, falling back to text", src, e);
+        StringBuilder imageText = new StringBuilder("Image (external)");
+        if (!alt.isEmpty()) {
+          imageText.append(": ").append(alt);
+        }
+        if (!title.isEmpty()) {
+          imageText.append(" - ").append(title);
+        }
+        return AdfNodes.paragraph(imageText.toString());
+      }
+    }
+
+    return AdfNodes.mediaGroup(imageId, src, caption);
+  }
+
+  private ObjectNode resolveDiagram(String viewKey, String alt, String title) {
+    if (diagramResolver == null) {
+      logger.debug("No diagram resolver configured for view key: {}", viewKey);
+      return AdfNodes.paragraph("Diagram: " + viewKey + (alt.isEmpty() ? "" : " (" + alt + ")"));
+    }
+
+    try {
+      File diagramFile = diagramResolver.apply(viewKey);
+      if (diagramFile == null || !diagramFile.exists()) {
+        logger.warn("Local diagram file not found for view key: {}", viewKey);
+        return AdfNodes.paragraph("Diagram not found: " + viewKey);
+      }
+      if (imageUploadManager == null || currentPageId == null) {
+        logger.warn("No image upload manager or page ID configured for diagram: {}", viewKey);
+        return AdfNodes.paragraph("Diagram available but cannot upload: " + viewKey);
+      }
+
+      String attachmentFilename = imageUploadManager.uploadLocalFile(diagramFile, currentPageId);
+      ImageUploadManager.MediaUploadResult info =
+          imageUploadManager.getMediaInfo("local:" + diagramFile.getAbsolutePath());
+      if (info != null && info.fileId() != null && info.collectionName() != null) {
+        return AdfNodes.mediaSingle(info.fileId(), info.collectionName());
+      }
+      String caption = title.isEmpty() ? alt : title;
+      return AdfNodes.mediaGroup(
+          generateImageId(diagramFile.getName()), attachmentFilename, caption);
+    } catch (Exception e) {
+      logger.error("Failed to process local diagram for view key: {}", viewKey, e);
+      return AdfNodes.paragraph("Error loading diagram: " + viewKey + " - " + e.getMessage());
+    }
+  }
+
+  /** Returns the view key of a diagram placeholder, or null when the source is not a diagram. */
+  static String diagramViewKey(String src) {
+    if (src.startsWith(LOCAL_DIAGRAM_PREFIX)) {
+      return src.substring(LOCAL_DIAGRAM_PREFIX.length());
+    }
+    if (src.startsWith(EMBED_PREFIX)) {
+      return src.substring(EMBED_PREFIX.length());
+    }
+    return null;
+  }
+
+  private static boolean isExternalUrl(String url) {
+    return url.startsWith("http://") || url.startsWith("https://");
+  }
+
+  private static String generateImageId(String src) {
+    if (src.contains("/")) {
+      String filename = src.substring(src.lastIndexOf('/') + 1);
+      return filename.replaceAll("\\.[^.]*$", "").replaceAll("[^a-zA-Z0-9_-]", "_");
+    }
+    return src.replaceAll("[^a-zA-Z0-9_-]", "_");
+  }
+}
@@ -0,0 +1,143 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.List;
+
+/**
+ * Small factory for raw ADF JSON nodes. Used by the converters that build ADF directly from a
+ * source AST instead of going through the ADF Builder and the marker-based post-processors.
+ */
+final class AdfNodes {
+
+  private static final JsonNodeFactory factory = JsonNodeFactory.instance;
+
+  private AdfNodes() {}
+
+  /** Creates an empty ADF document root ({@code version 1, type doc}). */
+  static ObjectNode doc() {
+    ObjectNode doc = factory.objectNode();
+    doc.put("version", 1);
+    doc.put("type", "doc");
+    doc.putArray("content");
+    return doc;
+  }
+
+  /** Creates a node of the given type with an empty content array. */
+  static ObjectNode container(String type) {
+    ObjectNode node = factory.objectNode();
+    node.put("type", type);
+    node.putArray("content");
+    return node;
+  }
+
+  /** Creates a leaf node (no content array) of the given type. */
+  static ObjectNode leaf(String type) {
+    ObjectNode node = factory.objectNode();
+    node.put("type", type);
+    return node;
+  }
+
+  static ObjectNode paragraph() {
+    return container("paragraph");
+  }
+
+  /** Creates a paragraph holding a single plain text node, or an empty paragraph. */
+  static ObjectNode paragraph(String text) {
+    ObjectNode paragraph = paragraph();
+    if (text != null && !text.isEmpty()) {
+      content(paragraph).add(text(text, List.of()));
+    }
+    return paragraph;
+  }
+
+  static ObjectNode heading(int level) {
+    ObjectNode heading = container("heading");
+    heading.putObject("attrs").put("level", Math.max(1, Math.min(6, level)));
+    return heading;
+  }
+
+  /** Creates a text node carrying copies of the given marks (omitted when empty). */
+  static ObjectNode text(String text, List<ObjectNode> marks) {
+    ObjectNode node = factory.objectNode();
+    node.put("type", "text");
+    node.put("text", text);
+    if (marks != null && !marks.isEmpty()) {
+      ArrayNode markArray = node.putArray("marks");
+      for (ObjectNode mark : marks) {
+        markArray.add(mark.deepCopy());
+      }
+    }
+    return node;
+  }
+
+  static ObjectNode mark(String type) {
+    ObjectNode mark = factory.objectNode();
+    mark.put("type", type);
+    return mark;
+  }
+
+  static ObjectNode linkMark(String href) {
+    ObjectNode mark = mark("link");
+    mark.putObject("attrs").put("href", href);
+    return mark;
+  }
+
+  static ObjectNode codeBlock(String language, String code) {
+    ObjectNode codeBlock = container("codeBlock");
+    if (language != null && !language.isBlank()) {
+      codeBlock.putObject("attrs").put("language", language.trim());
+    }
+    if (code != null && !code.isEmpty()) {
+      content(codeBlock).add(text(code, List.of()));
+    }
+    return codeBlock;
+  }
+
+  static ObjectNode panel(String panelType) {
+    ObjectNode panel = container("panel");
+    panel.putObject("attrs").put("panelType", panelType);
+    return panel;
+  }
+
+  /** Creates a centred mediaSingle referencing an Atlassian Media file (original size kept). */
+  static ObjectNode mediaSingle(String fileId, String collection) {
+    ObjectNode mediaSingle = container("mediaSingle");
+    mediaSingle.putObject("attrs").put("layout", "center");
+    ObjectNode media = leaf("media");
+    ObjectNode attrs = media.putObject("attrs");
+    attrs.put("type", "file");
+    attrs.put("id", fileId);
+    attrs.put("collection", collection);
+    content(mediaSingle).add(media);
+    return mediaSingle;
+  }
+
+  /** Creates a mediaGroup with one file, mirroring the ADF Builder output for attachments. */
+  static ObjectNode mediaGroup(String id, String collection, String occurrenceKey) {
+    ObjectNode mediaGroup = container("mediaGroup");
+    ObjectNode media = leaf("media");
+    ObjectNode attrs = media.putObject("attrs");
+    attrs.put("type", "file");
+    attrs.put("id", id);
+    attrs.put("collection", collection);
+    if (occurrenceKey != null && !occurrenceKey.isEmpty()) {
+      attrs.put("occurrenceKey", occurrenceKey);
+    }
+    content(mediaGroup).add(media);
+    return mediaGroup;
+  }
+
+  /** Returns the content array of a node, creating it when missing. */
+  static ArrayNode content(ObjectNode node) {
+    return node.has("content") && node.get("content").isArray()
+        ? (ArrayNode) node.get("content")
+        : node.putArray("content");
+  }
+
+  /** Returns true when the node has no child content. */
+  static boolean isEmpty(ObjectNode node) {
+    return !node.has("content") || node.get("content").isEmpty();
+  }
+}
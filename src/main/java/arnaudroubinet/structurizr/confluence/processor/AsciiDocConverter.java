@@ -2,8 +2,9 @@ package arnaudroubinet.structurizr.confluence.processor;
 
 import java.io.File;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
-import org.asciidoctor.Asciidoctor;
+import java.util.function.UnaryOperator;
 import org.asciidoctor.Attributes;
 import org.asciidoctor.Options;
 import org.asciidoctor.SafeMode;
@@ -13,17 +14,71 @@ import org.slf4j.LoggerFactory;
 /**
  * Converts AsciiDoc content to HTML using AsciidoctorJ. Handles preprocessing of AsciiDoc syntax
  * before conversion to ADF.
+ *
+ * <p>Asciidoctor instances are created lazily from a small pool (see {@link AsciidoctorPool}), so
+ * workspaces without AsciiDoc content never pay for the JRuby boot. Call {@link #warmUp()} to start
+ * it in the background ahead of the first conversion.
  */
 public class AsciiDocConverter {
 
   private static final Logger logger = LoggerFactory.getLogger(AsciiDocConverter.class);
 
-  private final Asciidoctor asciidoctor;
-  private Function<String, File> diagramResolver; // Function to resolve diagram files by view key
+  /** Conversion options are identical for every document, so they are built once. */
+  private static final Options OPTIONS =
+      Options.builder()
+          .safe(SafeMode.UNSAFE) // Allow all content
+          .backend("html5")
+          .standalone(false) // Only body content, no full HTML document
+          .attributes(Attributes.builder().showTitle(true).build())
+          .build();
 
+  private static final String EXTERNAL_DIAGRAM_BASE_URL =
+      "https://structurizr.roubinet.fr/workspace/";
+
+  private final AsciidoctorPool pool;
+  private final boolean ownsPool;
+  private volatile Function<String, File> diagramResolver; // Resolves diagram files by view key
+
+  /** Creates a converter whose pool size comes from {@code ASCIIDOCTOR_POOL_SIZE} (default 2). */
   public AsciiDocConverter() {
-    this.asciidoctor = Asciidoctor.Factory.create();
-    logger.info("AsciiDoc converter initialized");
+    this(AsciidoctorPool.configuredSize());
+  }
+
+  /**
+   * Creates a converter backed by at most {@code poolSize} Asciidoctor instances.
+   *
+   * @param poolSize maximum number of concurrently usable Asciidoctor instances
+   */
+  public AsciiDocConverter(int poolSize) {
+    this.pool = new AsciidoctorPool(poolSize);
+    this.ownsPool = true;
+    logger.debug("AsciiDoc converter initialized (lazy, pool size {})", pool.maxSize());
+  }
+
+  /**
+   * Creates a converter borrowing its Asciidoctor instances from a pool shared with other
+   * converters. Closing the converter leaves the pool open.
+   *
+   * @param sharedPool the shared pool
+   */
+  public AsciiDocConverter(AsciidoctorPool sharedPool) {
+    this.pool = sharedPool;
+    this.ownsPool = false;
+  }
+
+  /**
+   * Starts booting the first Asciidoctor instance on a background thread, so that it is ready by
+   * the time the first section is converted. Safe to call several times.
+   *
+   * @return a future completing when the instance is available
+   */
+  public CompletableFuture<Void> warmUp() {
+    return pool.warmUp();
+  }
+
+  /** Returns true once at least one Asciidoctor instance has been created or is being created. */
+  public boolean isInitialized() {
+    return pool.size() > 0;
   }
 
   /**
@@ -66,21 +121,12 @@ public class AsciiDocConverter {
     try {
       logger.debug("Converting AsciiDoc content to HTML for document: {}", title);
 
-      // Configure conversion options: ensure the document title is rendered as H1 using showtitle
-      Attributes attrs = Attributes.builder().showTitle(true).build();
-      Options options =
-          Options.builder()
-              .safe(SafeMode.UNSAFE) // Allow all content
-              .backend("html5")
-              .standalone(false) // Only body content, no full HTML document
-              .attributes(attrs)
-              .build();
-
       // Process AsciiDoc content and handle diagram embeds
       String processedContent = preprocessAsciiDocContent(asciiDocContent, workspaceId, branchName);
 
       // Convert to HTML
-      String htmlContent = asciidoctor.convert(processedContent, options);
+      String htmlContent =
+          pool.execute(asciidoctor -> asciidoctor.convert(processedContent, OPTIONS));
 
       logger.debug(
           "Successfully converted AsciiDoc to HTML ({} chars -> {} chars)",
@@ -96,6 +142,42 @@ public class AsciiDocConverter {
     }
   }
 
+  /**
+   * Parses AsciiDoc content into an Asciidoctor document tree and reads it, applying the same
+   * preprocessing as {@link #convertToHtml(String, String, String, String)}. Used by {@link
+   * AsciiDocToAdfConverter} to walk the structure without rendering HTML.
+   *
+   * <p>The document is backed by the pooled JRuby runtime, so the reader runs while the instance is
+   * borrowed and must return plain Java data, never the document or its nodes.
+   *
+   * @param asciiDocContent the AsciiDoc content to parse
+   * @param title optional document title
+   * @param workspaceId workspace ID for diagram URL generation
+   * @param branchName branch name for diagram URL generation
+   * @param reader reads what the caller needs from the parsed document
+   * @return what the reader returned
+   */
+  public <T> T load(
+      String asciiDocContent,
+      String title,
+      String workspaceId,
+      String branchName,
+      Function<org.asciidoctor.ast.Document, T> reader) {
+    try {
+      logger.debug("Loading AsciiDoc document structure for: {}", title);
+
+      String processedContent =
+          preprocessAsciiDocContent(
+              asciiDocContent != null ? asciiDocContent : "", workspaceId, branchName);
+      return pool.execute(asciidoctor -> reader.apply(asciidoctor.load(processedContent, OPTIONS)));
+
+    } catch (Exception e) {
+      logger.error("Error loading AsciiDoc document: {}", title, e);
+      throw new IllegalStateException(
+          "AsciiDoc document loading failed: " + (title != null ? title : "(no title)"), e);
+    }
+  }
+
   /**
    * Converts AsciiDoc content to HTML with custom attributes.
    *
@@ -115,21 +197,12 @@ public class AsciiDocConverter {
       logger.debug(
           "Converting AsciiDoc content to HTML with custom attributes for document: {}", title);
 
-      // Configure conversion options with custom attributes and showtitle
-      Attributes attrs = Attributes.builder().showTitle(true).build();
-      Options options =
-          Options.builder()
-              .safe(SafeMode.UNSAFE)
-              .backend("html5")
-              .standalone(false)
-              .attributes(attrs)
-              .build();
-
       // Process AsciiDoc content and handle diagram embeds
       String processedContent = preprocessAsciiDocContent(asciiDocContent);
 
       // Convert to HTML
-      String htmlContent = asciidoctor.convert(processedContent, options);
+      String htmlContent =
+          pool.execute(asciidoctor -> asciidoctor.convert(processedContent, OPTIONS));
 
       logger.debug(
           "Successfully converted AsciiDoc to HTML with attributes ({} chars -> {} chars)",
@@ -166,43 +239,7 @@ public class AsciiDocConverter {
    * @return processed AsciiDoc content with proper image URLs
    */
   private String preprocessAsciiDocContent(String content, String workspaceId, String branchName) {
-    // Handle Structurizr diagram embeds: image::embed:diagram_key[]
-    String processed = content;
-
-    // Check if we have local diagram files available
-    if (diagramResolver != null) {
-      // Use local diagram files - replace with placeholders that will be handled by
-      // HtmlToAdfConverter
-      processed =
-          processed.replaceAll("image::embed:([a-zA-Z0-9_-]+)\\[\\]", "image::local:diagram:$1[]");
-      logger.debug("Replaced diagram embeds with local diagram placeholders");
-    } else if (workspaceId != null && branchName != null) {
-      // Fallback to external URLs (old behavior)
-      processed =
-          processed.replaceAll(
-              "image::embed:([a-zA-Z0-9_-]+)\\[\\]",
-              "image::https://structurizr.roubinet.fr/workspace/"
-                  + workspaceId
-                  + "/diagrams/$1-"
-                  + branchName
-                  + ".svg[]");
-      logger.debug(
-          "Replaced diagram embeds with external URLs for workspace {} and branch {}",
-          workspaceId,
-          branchName);
-    } else {
-      // Use local diagram placeholders even without explicit diagram resolver
-      // This allows the HtmlToAdfConverter to attempt to find and use local diagrams
-      processed =
-          processed.replaceAll("image::embed:([a-zA-Z0-9_-]+)\\[\\]", "image::local:diagram:$1[]");
-      logger.debug("Used local diagram placeholders as fallback (no workspace context available)");
-    }
-
-    // Handle include directives that might reference external files
-    processed = processed.replaceAll("include::([^\\[]+)\\[\\]", "[INCLUDE: $1]");
-
-    // Handle ifndef/ifdef blocks that might cause issues
-    processed = processed.replaceAll("ifndef::([^\\[]+)\\[([^\\]]+)\\]", "");
+    String processed = AsciiDocPreprocessor.process(content, embedTarget(workspaceId, branchName));
 
     logger.trace(
         "Preprocessed AsciiDoc content: {} chars -> {} chars",
@@ -212,11 +249,25 @@ public class AsciiDocConverter {
     return processed;
   }
 
+  /**
+   * Chooses how {@code image::embed:key[]} targets are rewritten. Local diagram placeholders are
+   * used when a diagram resolver is set or no workspace context is available; otherwise the
+   * external Structurizr diagram URL is used.
+   */
+  private UnaryOperator<String> embedTarget(String workspaceId, String branchName) {
+    if (diagramResolver == null && workspaceId != null && branchName != null) {
+      String prefix = EXTERNAL_DIAGRAM_BASE_URL + workspaceId + "/diagrams/";
+      String suffix = "-" + branchName + ".svg";
+      return viewKey -> prefix + viewKey + suffix;
+    }
+    return viewKey -> "local:diagram:" + viewKey;
+  }
+
   /** Closes the AsciiDoc converter and releases resources. */
   public void close() {
-    if (asciidoctor != null) {
-      asciidoctor.close();
-      logger.info("AsciiDoc converter closed");
+    if (ownsPool) {
+      pool.close();
     }
+    logger.info("AsciiDoc converter closed");
   }
 }
@@ -0,0 +1,99 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Rewrites Structurizr-specific AsciiDoc before it is handed to Asciidoctor:
+ *
+ * <ul>
+ *   <li>{@code image::embed:key[]} targets are rewritten through a caller-supplied function (local
+ *       diagram placeholder or external URL)
+ *   <li>{@code include::target[]} directives become a literal {@code [INCLUDE: target]} marker
+ *   <li>{@code ifndef::name[content]} directives are removed
+ * </ul>
+ *
+ * <p>All three are handled in a single scan jumping from one {@code ::} to the next. Include and
+ * ifndef directives may span lines: once one starts, the scan reads ahead to its closing bracket,
+ * as the former {@code replaceAll} patterns did.
+ */
+public final class AsciiDocPreprocessor {
+
+  private static final String EMBED_PREFIX = "image::embed:";
+  private static final String INCLUDE_PREFIX = "include::";
+  private static final String IFNDEF_PREFIX = "ifndef::";
+
+  private AsciiDocPreprocessor() {}
+
+  /**
+   * Rewrites the given AsciiDoc content.
+   *
+   * @param content the original AsciiDoc content
+   * @param embedTarget maps a view key to the image target replacing {@code embed:key}
+   * @return the rewritten content
+   */
+  public static String process(String content, UnaryOperator<String> embedTarget) {
+    if (content == null || content.isEmpty()) {
+      return "";
+    }
+    StringBuilder out = null;
+    int copied = 0;
+    int colons = content.indexOf("::");
+    while (colons >= 0) {
+      int start;
+      int end = -1;
+      String replacement = null;
+      if ((start = prefixStart(content, colons, EMBED_PREFIX, copied)) >= 0) {
+        int keyStart = start + EMBED_PREFIX.length();
+        int keyEnd = keyStart;
+        while (keyEnd < content.length() && isKeyChar(content.charAt(keyEnd))) {
+          keyEnd++;
+        }
+        if (keyEnd > keyStart && content.startsWith("[]", keyEnd)) {
+          end = keyEnd + 2;
+          replacement = "image::" + embedTarget.apply(content.substring(keyStart, keyEnd)) + "[]";
+        }
+      } else if ((start = prefixStart(content, colons, INCLUDE_PREFIX, copied)) >= 0) {
+        int targetStart = start + INCLUDE_PREFIX.length();
+        int bracket = content.indexOf('[', targetStart);
+        if (bracket > targetStart && content.startsWith("[]", bracket)) {
+          end = bracket + 2;
+          replacement = "[INCLUDE: " + content.substring(targetStart, bracket) + "]";
+        }
+      } else if ((start = prefixStart(content, colons, IFNDEF_PREFIX, copied)) >= 0) {
+        int nameStart = start + IFNDEF_PREFIX.length();
+        int bracket = content.indexOf('[', nameStart);
+        int close = bracket > nameStart ? content.indexOf(']', bracket + 1) : -1;
+        if (close > bracket + 1) {
+          end = close + 1;
+          replacement = "";
+        }
+      }
+
+      if (replacement == null) {
+        colons = content.indexOf("::", colons + 1);
+        continue;
+      }
+      if (out == null) {
+        out = new StringBuilder(content.length() + 64);
+      }
+      out.append(content, copied, start).append(replacement);
+      copied = end;
+      colons = content.indexOf("::", end);
+    }
+    return out == null ? content : out.append(content, copied, content.length()).toString();
+  }
+
+  /** Returns where {@code prefix} starts if its {@code ::} is the one at {@code colons}, or -1. */
+  private static int prefixStart(String content, int colons, String prefix, int copied) {
+    int start = colons - prefix.indexOf("::");
+    return start >= copied && content.startsWith(prefix, start) ? start : -1;
+  }
+
+  private static boolean isKeyChar(char c) {
+    return (c >= 'a' && c <= 'z')
+        || (c >= 'A' && c <= 'Z')
+        || (c >= '0' && c <= '9')
+        || c == '_'
+        || c == '-';
+  }
+}
@@ -0,0 +1,640 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import com.atlassian.adf.Document;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Function;
+import org.asciidoctor.ast.Block;
+import org.asciidoctor.ast.Cell;
+import org.asciidoctor.ast.DescriptionList;
+import org.asciidoctor.ast.DescriptionListEntry;
+import org.asciidoctor.ast.ListItem;
+import org.asciidoctor.ast.Row;
+import org.asciidoctor.ast.Section;
+import org.asciidoctor.ast.StructuralNode;
+import org.asciidoctor.ast.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts AsciiDoc straight from the Asciidoctor document tree to Atlassian Document Format (ADF).
+ * The document is loaded with {@code asciidoctor.load(...)} and its sections, blocks, lists and
+ * tables are walked directly, so no HTML page is rendered and re-parsed with Jsoup. Only inline
+ * text (already converted by Asciidoctor) goes through the lightweight {@link AdfInlineHtml}
+ * scanner.
+ *
+ * <p>Table cells, admonitions (as ADF panels) and image macros (including Structurizr {@code
+ * embed:key} diagrams) stay typed. The document header title, when present, is used as the page
+ * title and not repeated in the body, matching {@link HtmlToAdfConverter}.
+ */
+public class AsciiDocToAdfConverter {
+
+  private static final Logger logger = LoggerFactory.getLogger(AsciiDocToAdfConverter.class);
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final AsciiDocConverter asciiDocConverter;
+  private final AdfMediaResolver mediaResolver = new AdfMediaResolver();
+
+  public AsciiDocToAdfConverter(AsciiDocConverter asciiDocConverter) {
+    this.asciiDocConverter = asciiDocConverter;
+  }
+
+  /** Sets the image upload manager used for external images and local diagrams. */
+  public void setImageUploadManager(ImageUploadManager imageUploadManager) {
+    mediaResolver.setImageUploadManager(imageUploadManager);
+  }
+
+  /** Sets the ID of the page that uploaded images are attached to. */
+  public void setCurrentPageId(String pageId) {
+    mediaResolver.setCurrentPageId(pageId);
+  }
+
+  /** Sets the resolver used to map diagram view keys to locally exported files. */
+  public void setDiagramResolver(Function<String, File> diagramResolver) {
+    mediaResolver.setDiagramResolver(diagramResolver);
+  }
+
+  /**
+   * Loads an AsciiDoc document so that its title and content can be used without parsing twice. The
+   * document tree is walked while the Asciidoctor instance is borrowed; images are resolved (and
+   * uploaded) later by {@link #convertToAdfNode(Loaded, String)}.
+   *
+   * @param content the AsciiDoc source
+   * @param title the fallback title (used for logging and error messages)
+   * @param workspaceId workspace ID for diagram URL generation (may be null)
+   * @param branchName branch name for diagram URL generation (may be null)
+   * @return the loaded document
+   */
+  public Loaded load(String content, String title, String workspaceId, String branchName) {
+    return asciiDocConverter.load(
+        content,
+        title,
+        workspaceId,
+        branchName,
+        document -> {
+          logger.debug("Converting AsciiDoc document tree to ADF for document: {}", title);
+          try {
+            ObjectNode doc = AdfNodes.doc();
+            TreeWalker walker = new TreeWalker(doc);
+            walker.walkBlocks(document.getBlocks());
+            return new Loaded(headerTitle(document), doc, walker.images);
+          } catch (RuntimeException e) {
+            logger.error("Error converting AsciiDoc to ADF", e);
+            throw new IllegalStateException(
+                "AsciiDoc to ADF conversion failed: " + (title != null ? title : "(no title)"), e);
+          }
+        });
+  }
+
+  private static String headerTitle(org.asciidoctor.ast.Document document) {
+    if (!document.hasAttribute("doctitle")) {
+      return null;
+    }
+    String title = AdfInlineHtml.text(document.getDoctitle());
+    return title.isEmpty() ? null : title;
+  }
+
+  /**
+   * Returns the document header title as plain text, or null when the document has no header.
+   *
+   * @param document the loaded document
+   * @return the title or null
+   */
+  public String extractTitle(Loaded document) {
+    return document != null ? document.title : null;
+  }
+
+  /**
+   * Converts a loaded AsciiDoc document to an ADF document tree, resolving its images against the
+   * current page.
+   *
+   * @param document the loaded document
+   * @param title the document title (used for logging and error messages)
+   * @return the ADF document root node
+   */
+  public ObjectNode convertToAdfNode(Loaded document, String title) {
+    if (document == null) {
+      return AdfNodes.doc();
+    }
+    List<String> sources = new ArrayList<>();
+    for (PendingImage image : document.images) {
+      sources.add(image.src());
+    }
+    mediaResolver.prefetch(sources);
+    for (PendingImage image : document.images) {
+      image.placeholder().setAll(mediaResolver.resolve(image.src(), image.alt(), image.title()));
+    }
+    document.images.clear();
+    return document.doc;
+  }
+
+  /**
+   * Loads and converts AsciiDoc content to an ADF document tree.
+   *
+   * @param content the AsciiDoc source
+   * @param title the document title
+   * @param workspaceId workspace ID for diagram URL generation (may be null)
+   * @param branchName branch name for diagram URL generation (may be null)
+   * @return the ADF document root node
+   */
+  public ObjectNode convertToAdfNode(
+      String content, String title, String workspaceId, String branchName) {
+    if (content == null || content.isBlank()) {
+      logger.warn("Empty or null AsciiDoc content provided");
+      return AdfNodes.doc();
+    }
+    return convertToAdfNode(load(content, title, workspaceId, branchName), title);
+  }
+
+  /**
+   * Loads and converts AsciiDoc content to an ADF JSON string.
+   *
+   * @param content the AsciiDoc source
+   * @param title the document title
+   * @param workspaceId workspace ID for diagram URL generation (may be null)
+   * @param branchName branch name for diagram URL generation (may be null)
+   * @return ADF JSON
+   */
+  public String convertToAdfJson(
+      String content, String title, String workspaceId, String branchName) {
+    return toJson(convertToAdfNode(content, title, workspaceId, branchName), title);
+  }
+
+  /**
+   * Converts a loaded AsciiDoc document to an ADF JSON string.
+   *
+   * @param document the loaded document
+   * @param title the document title
+   * @return ADF JSON
+   */
+  public String convertToAdfJson(Loaded document, String title) {
+    return toJson(convertToAdfNode(document, title), title);
+  }
+
+  /**
+   * Loads and converts AsciiDoc content to an ADF Builder {@link Document}, for callers that merge
+   * documents.
+   *
+   * @param content the AsciiDoc source
+   * @param title the document title
+   * @param workspaceId workspace ID for diagram URL generation (may be null)
+   * @param branchName branch name for diagram URL generation (may be null)
+   * @return the ADF document
+   */
+  public Document convertToAdf(
+      String content, String title, String workspaceId, String branchName) {
+    ObjectNode doc = convertToAdfNode(content, title, workspaceId, branchName);
+    try {
+      return objectMapper.treeToValue(doc, Document.class);
+    } catch (Exception e) {
+      throw new IllegalStateException(
+          "AsciiDoc to ADF conversion failed: " + (title != null ? title : "(no title)"), e);
+    }
+  }
+
+  private static String toJson(ObjectNode doc, String title) {
+    try {
+      return objectMapper.writeValueAsString(doc);
+    } catch (Exception e) {
+      throw new IllegalStateException(
+          "AsciiDoc to ADF JSON serialization failed: " + (title != null ? title : "(no title)"),
+          e);
+    }
+  }
+
+  /**
+   * An AsciiDoc document read into plain Java data: its header title and its ADF tree, where images
+   * are placeholders until {@link #convertToAdfNode(Loaded, String)} resolves them.
+   */
+  public static final class Loaded {
+    private final String title;
+    private final ObjectNode doc;
+    private final List<PendingImage> images;
+
+    private Loaded(String title, ObjectNode doc, List<PendingImage> images) {
+      this.title = title;
+      this.doc = doc;
+      this.images = images;
+    }
+  }
+
+  /** An image reference whose media node is filled into the placeholder once resolved. */
+  private record PendingImage(ObjectNode placeholder, String src, String alt, String title) {}
+
+  /** Maps an admonition name to the closest ADF panel type. */
+  static String panelType(String admonitionName) {
+    return switch (admonitionName == null ? "" : admonitionName.toLowerCase(Locale.ROOT)) {
+      case "tip" -> "success";
+      case "important" -> "note";
+      case "warning" -> "warning";
+      case "caution" -> "error";
+      default -> "info";
+    };
+  }
+
+  /** Per-conversion state: the stack of ADF block containers being filled. */
+  private final class TreeWalker {
+
+    private final Deque<ObjectNode> blocks = new ArrayDeque<>();
+    private final List<PendingImage> images = new ArrayList<>();
+
+    TreeWalker(ObjectNode doc) {
+      blocks.push(doc);
+    }
+
+    void walkBlocks(List<StructuralNode> nodes) {
+      for (StructuralNode node : nodes) {
+        walkBlock(node);
+      }
+    }
+
+    private void walkBlock(StructuralNode node) {
+      switch (node.getContext()) {
+        case "section" -> visitSection((Section) node);
+        case "floating_title" ->
+            addInlineBlock(AdfNodes.heading(node.getLevel() + 1), node.getTitle(), List.of());
+        case "paragraph" -> {
+          addBlockTitle(node);
+          addInlineBlock(AdfNodes.paragraph(), contentString(node), List.of());
+        }
+        case "admonition" -> visitAdmonition(node);
+        case "listing", "literal", "stem" -> visitListing(node);
+        case "ulist" -> visitList((org.asciidoctor.ast.List) node, false);
+        case "olist", "colist" -> visitList((org.asciidoctor.ast.List) node, true);
+        case "dlist" -> visitDescriptionList((DescriptionList) node);
+        case "table" -> visitTable((Table) node);
+        case "image" -> visitImage(node);
+        case "quote" -> visitQuote(node);
+        case "verse" -> visitVerse(node);
+        case "thematic_break" -> addBlock(AdfNodes.leaf("rule"));
+        case "page_break", "toc" -> {
+          // Page layout only; Confluence renders its own table of contents.
+        }
+        case "pass" -> addInlineBlock(AdfNodes.paragraph(), contentString(node), List.of());
+        case "video", "audio" -> visitMedia(node);
+        default -> {
+          // preamble, open, example, sidebar and unknown containers: keep their children.
+          addBlockTitle(node);
+          if (!node.getBlocks().isEmpty()) {
+            walkBlocks(node.getBlocks());
+          } else if (node instanceof Block block && block.getSource() != null) {
+            addInlineBlock(AdfNodes.paragraph(), contentString(node), List.of());
+          }
+        }
+      }
+    }
+
+    private void visitSection(Section section) {
+      addInlineBlock(AdfNodes.heading(section.getLevel() + 1), section.getTitle(), List.of());
+      walkBlocks(section.getBlocks());
+    }
+
+    private void visitAdmonition(StructuralNode node) {
+      Object name = node.getAttribute("name");
+      ObjectNode panel = AdfNodes.panel(panelType(name != null ? name.toString() : null));
+      withBlock(
+          panel,
+          () -> {
+            addBlockTitle(node);
+            if (node.getBlocks().isEmpty()) {
+              addInlineBlock(AdfNodes.paragraph(), contentString(node), List.of());
+            } else {
+              walkBlocks(node.getBlocks());
+            }
+          });
+      if (AdfNodes.isEmpty(panel)) {
+        AdfNodes.content(panel).add(AdfNodes.paragraph());
+      }
+    }
+
+    private void visitListing(StructuralNode node) {
+      addBlockTitle(node);
+      Object language = node.getAttribute("language");
+      String source = node instanceof Block block ? block.getSource() : null;
+      addBlock(AdfNodes.codeBlock(language != null ? language.toString() : null, source));
+    }
+
+    private void visitList(org.asciidoctor.ast.List list, boolean ordered) {
+      addBlockTitle(list);
+      boolean checklist =
+          "checklist".equals(list.getStyle())
+              || list.getItems().stream().anyMatch(item -> item.hasAttribute("checkbox", false));
+
+      if (checklist) {
+        ObjectNode taskList = AdfNodes.container("taskList");
+        taskList.putObject("attrs").put("localId", nextLocalId());
+        addBlock(taskList);
+        // Task items only hold inline content: nested lists follow the item in the taskList, and
+        // images and other blocks follow the taskList.
+        List<Runnable> trailing = new ArrayList<>();
+        for (StructuralNode item : list.getItems()) {
+          ObjectNode taskItem = AdfNodes.container("taskItem");
+          ObjectNode attrs = taskItem.putObject("attrs");
+          attrs.put("localId", nextLocalId());
+          attrs.put("state", item.hasAttribute("checked", false) ? "DONE" : "TODO");
+          AdfNodes.content(taskList).add(taskItem);
+          if (item instanceof ListItem listItem) {
+            for (AdfInlineHtml.InlineImage image :
+                appendInline(taskItem, listItem.getText(), List.of())) {
+              trailing.add(() -> addImage(image.src(), image.alt(), image.title()));
+            }
+          }
+          for (StructuralNode child : item.getBlocks()) {
+            if (child instanceof org.asciidoctor.ast.List) {
+              blocks.push(taskList);
+              try {
+                walkBlock(child);
+              } finally {
+                blocks.pop();
+              }
+            } else {
+              trailing.add(() -> walkBlock(child));
+            }
+          }
+        }
+        trailing.forEach(Runnable::run);
+        return;
+      }
+
+      ObjectNode listNode = AdfNodes.container(ordered ? "orderedList" : "bulletList");
+      Object start = list.getAttribute("start");
+      if (ordered && start != null) {
+        try {
+          listNode.putObject("attrs").put("order", Integer.parseInt(start.toString()));
+        } catch (NumberFormatException e) {
+          logger.debug("Ignoring non-numeric list start: {}", start);
+        }
+      }
+      withBlock(
+          listNode,
+          () -> {
+            for (StructuralNode item : list.getItems()) {
+              ObjectNode listItem = AdfNodes.container("listItem");
+              withBlock(
+                  listItem,
+                  () -> {
+                    if (item instanceof ListItem li && li.hasText()) {
+                      addInlineBlock(AdfNodes.paragraph(), li.getText(), List.of());
+                    }
+                    walkBlocks(item.getBlocks());
+                  });
+              if (AdfNodes.isEmpty(listItem)) {
+                AdfNodes.content(listItem).add(AdfNodes.paragraph());
+              }
+            }
+          });
+    }
+
+    private void visitDescriptionList(DescriptionList list) {
+      addBlockTitle(list);
+      ObjectNode listNode = AdfNodes.container("bulletList");
+      withBlock(
+          listNode,
+          () -> {
+            for (DescriptionListEntry entry : list.getItems()) {
+              ObjectNode listItem = AdfNodes.container("listItem");
+              withBlock(
+                  listItem,
+                  () -> {
+                    ObjectNode term = AdfNodes.paragraph();
+                    addBlock(term);
+                    for (ListItem termItem : entry.getTerms()) {
+                      if (!AdfNodes.isEmpty(term)) {
+                        AdfNodes.content(term).add(AdfNodes.text(", ", List.of()));
+                      }
+                      appendInline(term, termItem.getText(), List.of(AdfNodes.mark("strong")));
+                    }
+                    ListItem description = entry.getDescription();
+                    if (description != null) {
+                      if (description.hasText()) {
+                        addInlineBlock(AdfNodes.paragraph(), description.getText(), List.of());
+                      }
+                      walkBlocks(description.getBlocks());
+                    }
+                  });
+            }
+          });
+    }
+
+    private void visitTable(Table table) {
+      if (table.getTitle() != null && !table.getTitle().isEmpty()) {
+        String caption = table.getCaption() != null ? table.getCaption() : "";
+        addInlineBlock(AdfNodes.paragraph(), caption + table.getTitle(), List.of());
+      }
+
+      ObjectNode tableNode = AdfNodes.container("table");
+      withBlock(
+          tableNode,
+          () -> {
+            addRows(table.getHeader(), true);
+            addRows(table.getBody(), false);
+            addRows(table.getFooter(), false);
+          });
+    }
+
+    private void addRows(List<Row> rows, boolean header) {
+      for (Row row : rows) {
+        ObjectNode rowNode = AdfNodes.container("tableRow");
+        withBlock(
+            rowNode,
+            () -> {
+              for (Cell cell : row.getCells()) {
+                addCell(cell, header);
+              }
+            });
+      }
+    }
+
+    private void addCell(Cell cell, boolean headerRow) {
+      String style = cell.getStyle() != null ? cell.getStyle() : "";
+      boolean header = headerRow || "header".equals(style);
+      ObjectNode cellNode = AdfNodes.container(header ? "tableHeader" : "tableCell");
+      if (cell.getColspan() > 1 || cell.getRowspan() > 1) {
+        ObjectNode attrs = cellNode.putObject("attrs");
+        if (cell.getColspan() > 1) {
+          attrs.put("colspan", cell.getColspan());
+        }
+        if (cell.getRowspan() > 1) {
+          attrs.put("rowspan", cell.getRowspan());
+        }
+      }
+
+      withBlock(
+          cellNode,
+          () -> {
+            if ("asciidoc".equals(style) && cell.getInnerDocument() != null) {
+              walkBlocks(cell.getInnerDocument().getBlocks());
+            } else if (headerRow) {
+              addInlineBlock(AdfNodes.paragraph(), cell.getText(), List.of());
+            } else {
+              List<ObjectNode> styleMarks = styleMarks(style);
+              Object content = cell.getContent();
+              if (content instanceof List<?> paragraphs) {
+                for (Object paragraph : paragraphs) {
+                  addInlineBlock(AdfNodes.paragraph(), String.valueOf(paragraph), styleMarks);
+                }
+              } else if (content != null) {
+                addInlineBlock(AdfNodes.paragraph(), content.toString(), styleMarks);
+              }
+            }
+          });
+      if (AdfNodes.isEmpty(cellNode)) {
+        AdfNodes.content(cellNode).add(AdfNodes.paragraph());
+      }
+    }
+
+    private List<ObjectNode> styleMarks(String style) {
+      return switch (style) {
+        case "emphasis" -> List.of(AdfNodes.mark("em"));
+        case "strong" -> List.of(AdfNodes.mark("strong"));
+        case "monospace", "literal" -> List.of(AdfNodes.mark("code"));
+        default -> List.of();
+      };
+    }
+
+    private void visitImage(StructuralNode node) {
+      Object target = node.getAttribute("target");
+      if (target == null) {
+        return;
+      }
+      Object alt = node.getAttribute("alt");
+      String title = node.getTitle() != null ? AdfInlineHtml.text(node.getTitle()) : "";
+      addImage(imageUri(node, target.toString()), alt != null ? alt.toString() : "", title);
+    }
+
+    private void visitQuote(StructuralNode node) {
+      ObjectNode quote = AdfNodes.container("blockquote");
+      withBlock(
+          quote,
+          () -> {
+            addBlockTitle(node);
+            if (node.getBlocks().isEmpty()) {
+              addInlineBlock(AdfNodes.paragraph(), contentString(node), List.of());
+            } else {
+              walkBlocks(node.getBlocks());
+            }
+            addAttribution(node);
+          });
+    }
+
+    private void visitVerse(StructuralNode node) {
+      ObjectNode quote = AdfNodes.container("blockquote");
+      withBlock(
+          quote,
+          () -> {
+            addBlockTitle(node);
+            String html = contentString(node);
+            addInlineBlock(
+                AdfNodes.paragraph(), html != null ? html.replace("\n", "<br>") : null, List.of());
+            addAttribution(node);
+          });
+    }
+
+    private void addAttribution(StructuralNode node) {
+      Object attribution = node.getAttribute("attribution");
+      if (attribution != null) {
+        Object citetitle = node.getAttribute("citetitle");
+        String text = "— " + attribution + (citetitle != null ? ", " + citetitle : "");
+        addInlineBlock(AdfNodes.paragraph(), text, List.of(AdfNodes.mark("em")));
+      }
+    }
+
+    private void visitMedia(StructuralNode node) {
+      Object target = node.getAttribute("target");
+      if (target == null) {
+        return;
+      }
+      String uri = node.mediaUri(target.toString());
+      ObjectNode paragraph = AdfNodes.paragraph();
+      String label = node.getContext().equals("video") ? "Video: " : "Audio: ";
+      AdfNodes.content(paragraph).add(AdfNodes.text(label, List.of()));
+      AdfNodes.content(paragraph).add(AdfNodes.text(uri, List.of(AdfNodes.linkMark(uri))));
+      addBlock(paragraph);
+    }
+
+    // Helpers
+
+    /** Emits a block title ({@code .Title} line) as a bold paragraph. */
+    private void addBlockTitle(StructuralNode node) {
+      String title = node.getTitle();
+      if (title != null && !title.isEmpty()) {
+        addInlineBlock(AdfNodes.paragraph(), title, List.of(AdfNodes.mark("strong")));
+      }
+    }
+
+    /**
+     * Adds a paragraph or heading holding the given inline HTML. Inline images become media blocks
+     * placed right after it; blocks left without text (e.g. image-only paragraphs) are dropped.
+     */
+    private void addInlineBlock(ObjectNode container, String html, List<ObjectNode> baseMarks) {
+      List<AdfInlineHtml.InlineImage> images = appendInline(container, html, baseMarks);
+      if (!AdfNodes.isEmpty(container)) {
+        addBlock(container);
+      }
+      for (AdfInlineHtml.InlineImage image : images) {
+        addImage(image.src(), image.alt(), image.title());
+      }
+    }
+
+    private List<AdfInlineHtml.InlineImage> appendInline(
+        ObjectNode container, String html, List<ObjectNode> baseMarks) {
+      List<AdfInlineHtml.InlineImage> images = new ArrayList<>();
+      AdfInlineHtml.append(html, baseMarks, AdfNodes.content(container), images);
+      trimTrailingBreaks(AdfNodes.content(container));
+      return images;
+    }
+
+    private void trimTrailingBreaks(ArrayNode content) {
+      while (!content.isEmpty()
+          && "hardBreak".equals(content.get(content.size() - 1).path("type").asText())) {
+        content.remove(content.size() - 1);
+      }
+    }
+
+    private void addBlock(ObjectNode block) {
+      AdfNodes.content(blocks.peek()).add(block);
+    }
+
+    /** Adds a placeholder for an image, resolved once the document is released. */
+    private void addImage(String src, String alt, String title) {
+      ObjectNode placeholder = objectMapper.createObjectNode();
+      addBlock(placeholder);
+      images.add(new PendingImage(placeholder, src, alt, title));
+    }
+
+    private void withBlock(ObjectNode block, Runnable body) {
+      addBlock(block);
+      blocks.push(block);
+      try {
+        body.run();
+      } finally {
+        blocks.pop();
+      }
+    }
+
+    private String contentString(StructuralNode node) {
+      Object content = node.getContent();
+      return content != null ? content.toString() : null;
+    }
+
+    private String imageUri(StructuralNode node, String target) {
+      if (AdfMediaResolver.diagramViewKey(target) != null) {
+        return target;
+      }
+      return node.imageUri(target);
+    }
+
+    /** Task IDs must be unique on the page, which merges the documents of several sections. */
+    private String nextLocalId() {
+      return UUID.randomUUID().toString();
+    }
+  }
+}
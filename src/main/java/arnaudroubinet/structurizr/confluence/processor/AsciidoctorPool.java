@@ -0,0 +1,193 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.asciidoctor.Asciidoctor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Small pool of lazily created Asciidoctor instances. Each instance boots its own JRuby runtime,
+ * which takes seconds, so nothing is created until the first conversion or an explicit {@link
+ * #warmUp()}. Concurrent conversions borrow separate instances instead of serialising on one
+ * runtime. A pool can be shared by several converters, e.g. by the exports of a batch.
+ */
+public final class AsciidoctorPool implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(AsciidoctorPool.class);
+
+  /** Environment variable overriding the maximum number of Asciidoctor instances. */
+  static final String POOL_SIZE_ENV = "ASCIIDOCTOR_POOL_SIZE";
+
+  static final int DEFAULT_POOL_SIZE = 2;
+
+  private final int maxSize;
+  private final Supplier<Asciidoctor> factory;
+  private final BlockingQueue<Asciidoctor> idle = new LinkedBlockingQueue<>();
+  private final List<Asciidoctor> instances = new CopyOnWriteArrayList<>();
+  private final AtomicInteger reserved = new AtomicInteger();
+  private volatile CompletableFuture<Void> warmUp;
+  private volatile boolean closed;
+
+  public AsciidoctorPool(int maxSize) {
+    this(maxSize, Asciidoctor.Factory::create);
+  }
+
+  AsciidoctorPool(int maxSize, Supplier<Asciidoctor> factory) {
+    this.maxSize = Math.max(1, maxSize);
+    this.factory = factory;
+  }
+
+  /**
+   * Reads the pool size from {@value #POOL_SIZE_ENV}, defaulting to {@value #DEFAULT_POOL_SIZE}.
+   */
+  public static int configuredSize() {
+    String value = System.getenv(POOL_SIZE_ENV);
+    if (value == null || value.isBlank()) {
+      return DEFAULT_POOL_SIZE;
+    }
+    try {
+      return Math.max(1, Integer.parseInt(value.trim()));
+    } catch (NumberFormatException e) {
+      logger.warn("Invalid {} value '{}', using {}", POOL_SIZE_ENV, value, DEFAULT_POOL_SIZE);
+      return DEFAULT_POOL_SIZE;
+    }
+  }
+
+  /**
+   * Starts creating the first instance on a background daemon thread. Does nothing if an instance
+   * already exists or is being created.
+   *
+   * @return a future completing once the warm-up instance is available
+   */
+  synchronized CompletableFuture<Void> warmUp() {
+    if (warmUp != null) {
+      return warmUp;
+    }
+    if (closed || !reserveSlot()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                idle.offer(create());
+                future.complete(null);
+              } catch (Throwable t) {
+                // Errors too (e.g. a JRuby class failing to load), so that nothing waits forever
+                logger.warn("Asciidoctor warm-up failed: {}", t.toString());
+                future.completeExceptionally(t);
+              }
+            },
+            "asciidoctor-warmup");
+    thread.setDaemon(true);
+    warmUp = future;
+    thread.start();
+    return future;
+  }
+
+  /**
+   * Runs a task with an instance borrowed from the pool.
+   *
+   * @param task the work to run
+   * @return the task result
+   */
+  <T> T execute(Function<Asciidoctor, T> task) {
+    Asciidoctor asciidoctor = borrow();
+    try {
+      return task.apply(asciidoctor);
+    } finally {
+      idle.offer(asciidoctor);
+    }
+  }
+
+  /** Number of instances created so far (including one being warmed up). */
+  int size() {
+    return reserved.get();
+  }
+
+  int maxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    CompletableFuture<Void> pending = warmUp;
+    if (pending != null) {
+      try {
+        pending.join();
+      } catch (RuntimeException e) {
+        logger.debug("Ignoring failed warm-up on close: {}", e.getMessage());
+      }
+    }
+    for (Asciidoctor asciidoctor : instances) {
+      asciidoctor.close();
+    }
+    instances.clear();
+    idle.clear();
+  }
+
+  private Asciidoctor borrow() {
+    try {
+      while (true) {
+        if (closed) {
+          throw new IllegalStateException("Asciidoctor pool is closed");
+        }
+        Asciidoctor asciidoctor = idle.poll();
+        if (asciidoctor != null) {
+          return asciidoctor;
+        }
+        // Wait for a running warm-up rather than booting a second runtime in parallel
+        CompletableFuture<Void> pending = warmUp;
+        boolean warmingUp = pending != null && !pending.isDone();
+        if (!warmingUp && reserveSlot()) {
+          return create();
+        }
+        asciidoctor = idle.poll(100, TimeUnit.MILLISECONDS);
+        if (asciidoctor != null) {
+          return asciidoctor;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for an Asciidoctor instance", e);
+    }
+  }
+
+  private boolean reserveSlot() {
+    int current;
+    do {
+      current = reserved.get();
+      if (current >= maxSize) {
+        return false;
+      }
+    } while (!reserved.compareAndSet(current, current + 1));
+    return true;
+  }
+
+  private Asciidoctor create() {
+    long start = System.nanoTime();
+    try {
+      Asciidoctor asciidoctor = factory.get();
+      instances.add(asciidoctor);
+      logger.info(
+          "Asciidoctor instance {} of {} created in {} ms",
+          instances.size(),
+          maxSize,
+          (System.nanoTime() - start) / 1_000_000);
+      return asciidoctor;
+    } catch (RuntimeException | Error e) {
+      reserved.decrementAndGet();
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Playwright;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of headless Chromium browsers. Starting Playwright and launching Chromium takes seconds, so
+ * exports sharing a pool launch each browser once and only open a fresh browser context each.
+ * Browsers are launched lazily, on first use.
+ *
+ * <p>Playwright objects may only be used from the thread that created them, so each browser lives
+ * on its own thread, and a lease runs all its browser calls on {@link Lease#executor()}.
+ */
+public final class BrowserPool implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(BrowserPool.class);
+
+  private final List<Slot> slots = new ArrayList<>();
+  private final Deque<Slot> idle = new ArrayDeque<>();
+  private final Deque<CompletableFuture<Lease>> waiting = new ArrayDeque<>();
+  private boolean closed;
+
+  /**
+   * Creates a pool of at most {@code size} browsers.
+   *
+   * @param size maximum number of browsers, i.e. of exports rendering diagrams at the same time
+   */
+  public BrowserPool(int size) {
+    for (int i = 1; i <= Math.max(1, size); i++) {
+      Slot slot = new Slot(i);
+      slots.add(slot);
+      idle.add(slot);
+    }
+  }
+
+  /**
+   * Leases a browser. The returned future completes once a browser is free.
+   *
+   * @return the lease, to be closed when the export no longer needs the browser
+   */
+  public synchronized CompletableFuture<Lease> acquire() {
+    if (closed) {
+      return CompletableFuture.failedFuture(new IllegalStateException("Browser pool is closed"));
+    }
+    Slot slot = idle.poll();
+    if (slot != null) {
+      return CompletableFuture.completedFuture(new Lease(slot));
+    }
+    CompletableFuture<Lease> lease = new CompletableFuture<>();
+    waiting.add(lease);
+    return lease;
+  }
+
+  public int size() {
+    return slots.size();
+  }
+
+  private synchronized void release(Slot slot) {
+    CompletableFuture<Lease> next;
+    while ((next = waiting.poll()) != null) {
+      if (next.complete(new Lease(slot))) {
+        return;
+      }
+    }
+    idle.push(slot);
+  }
+
+  /** Closes the browsers once the calls already queued on their threads have run. */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (CompletableFuture<Lease> lease : waiting) {
+      lease.completeExceptionally(new IllegalStateException("Browser pool is closed"));
+    }
+    waiting.clear();
+    for (Slot slot : slots) {
+      slot.close();
+    }
+  }
+
+  /** Exclusive use of one pooled browser, until closed. */
+  public final class Lease implements AutoCloseable {
+
+    private final Slot slot;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Lease(Slot slot) {
+      this.slot = slot;
+    }
+
+    /** The thread owning the browser, on which all calls to it must be made. */
+    public Executor executor() {
+      return slot.thread;
+    }
+
+    /**
+     * Returns the browser, launching it on first use or after a crash. Must be called on {@link
+     * #executor()}.
+     */
+    public Browser browser() {
+      return slot.browser();
+    }
+
+    /** Returns the browser to the pool. */
+    @Override
+    public void close() {
+      if (released.compareAndSet(false, true)) {
+        release(slot);
+      }
+    }
+  }
+
+  /** A browser and the thread it is confined to. */
+  private static final class Slot {
+
+    private final int index;
+    private final ExecutorService thread;
+    private Playwright playwright;
+    private Browser browser;
+
+    Slot(int index) {
+      this.index = index;
+      this.thread =
+          Executors.newSingleThreadExecutor(
+              runnable -> {
+                Thread t = new Thread(runnable, "playwright-" + index);
+                t.setDaemon(true);
+                return t;
+              });
+    }
+
+    Browser browser() {
+      if (browser != null && browser.isConnected()) {
+        return browser;
+      }
+      long start = System.nanoTime();
+      if (playwright == null) {
+        playwright = Playwright.create();
+      }
+      browser =
+          playwright
+              .chromium()
+              .launch(
+                  new BrowserType.LaunchOptions()
+                      .setHeadless(true)
+                      .setArgs(
+                          List.of(
+                              "--no-sandbox",
+                              "--disable-setuid-sandbox",
+                              "--disable-dev-shm-usage")));
+      logger.info("Browser {} launched in {} ms", index, (System.nanoTime() - start) / 1_000_000);
+      return browser;
+    }
+
+    void close() {
+      thread.execute(
+          () -> {
+            if (playwright != null) {
+              try {
+                playwright.close();
+              } catch (Exception e) {
+                logger.debug("Failed to close Playwright: {}", e.getMessage());
+              }
+            }
+          });
+      thread.shutdown();
+    }
+  }
+}
@@ -1,15 +1,26 @@
 package arnaudroubinet.structurizr.confluence.processor;
 
+import arnaudroubinet.structurizr.confluence.jfr.DiagramRenderEvent;
+import arnaudroubinet.structurizr.confluence.manifest.ExportJournal;
+import arnaudroubinet.structurizr.confluence.metrics.ExportMetrics;
+import arnaudroubinet.structurizr.confluence.progress.ExportProgress;
+import arnaudroubinet.structurizr.confluence.tracing.ExportTracing;
 import arnaudroubinet.structurizr.confluence.util.SslTrustUtils;
 import com.microsoft.playwright.*;
 import com.structurizr.Workspace;
+import com.structurizr.view.View;
+import io.opentelemetry.api.trace.Span;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,12 +51,17 @@ public class DiagramExporter {
   private final String username;
   private final String password;
   private final String workspaceId;
-  private final Path outputDirectory;
+  private Path outputDirectory;
   private final int maxDurationSeconds;
   private final int viewportWidth;
   private final int viewportHeight;
   private final double deviceScaleFactor;
   private final double oversampleFactor;
+  private ExportJournal journal;
+  private ExportMetrics metrics = ExportMetrics.disabled();
+  private BrowserPool browserPool;
+  private BrowserPool ownedPool;
+  private CompletableFuture<BrowserSession> session;
 
   public DiagramExporter(
       String structurizrUrl, String username, String password, String workspaceId) {
@@ -86,6 +102,83 @@ public class DiagramExporter {
     return new DiagramExporter(url, user, password, workspaceId);
   }
 
+  /**
+   * Journals each rendered view. When the journal resumes an interrupted export, views rendered by
+   * that export are not rendered again, and the browser is not started at all if none is missing.
+   *
+   * @param journal the export journal, or null
+   */
+  public void setJournal(ExportJournal journal) {
+    this.journal = journal;
+  }
+
+  /**
+   * Records the render time of each view in the given metrics.
+   *
+   * @param metrics the export metrics
+   */
+  public void setMetrics(ExportMetrics metrics) {
+    this.metrics = metrics != null ? metrics : ExportMetrics.disabled();
+  }
+
+  /**
+   * Renders with the browsers of the given pool instead of launching a browser for this export
+   * only. Used when several exports run in the same process.
+   *
+   * @param browserPool the shared pool, or null to launch a dedicated browser
+   */
+  public synchronized void setBrowserPool(BrowserPool browserPool) {
+    this.browserPool = browserPool;
+  }
+
+  /**
+   * Renders diagrams into the given directory instead of {@code target/diagrams}, so that exports
+   * running at the same time do not overwrite each other's files.
+   *
+   * @param outputDirectory the diagram directory
+   */
+  public void setOutputDirectory(Path outputDirectory) {
+    this.outputDirectory = outputDirectory;
+  }
+
+  /**
+   * Starts Playwright, launches Chromium, signs in and opens the diagram viewer in the background,
+   * so that the browser cold start overlaps with loading the workspace and the other startup steps.
+   * {@link #exportDiagrams} joins the session when it needs it. Safe to call several times.
+   *
+   * <p>Playwright objects may only be used from the thread that created them, so the session and
+   * all rendering run on the thread of the leased browser (see {@link BrowserPool}).
+   *
+   * @return a future completing when the diagram viewer is ready
+   */
+  public synchronized CompletableFuture<Void> startSession() {
+    if (session == null) {
+      BrowserPool pool = browserPool;
+      if (pool == null) {
+        ownedPool = new BrowserPool(1);
+        pool = ownedPool;
+      }
+      session =
+          pool.acquire()
+              .thenCompose(
+                  lease ->
+                      CompletableFuture.supplyAsync(
+                          () -> {
+                            try {
+                              return openSession(lease);
+                            } catch (IOException e) {
+                              lease.close();
+                              throw new CompletionException(e);
+                            } catch (RuntimeException e) {
+                              lease.close();
+                              throw e;
+                            }
+                          },
+                          lease.executor()));
+    }
+    return session.thenAccept(browserSession -> {});
+  }
+
   /**
    * Exports all diagrams from the workspace using Playwright.
    *
@@ -96,35 +189,112 @@ public class DiagramExporter {
   public List<File> exportDiagrams(Workspace workspace) throws IOException {
     logger.info("Starting diagram export using Playwright for workspace {}", workspaceId);
 
+    List<File> resumedFiles = resumedDiagrams(workspace);
+    if (resumedFiles != null) {
+      logger.info(
+          "All views were rendered by the interrupted export, reusing {} diagram files",
+          resumedFiles.size());
+      int views = workspace.getViews().getViews().size();
+      ExportProgress.expect(ExportProgress.Kind.VIEW, views);
+      ExportProgress.completed(ExportProgress.Kind.VIEW, views);
+      close();
+      return resumedFiles;
+    }
+
     // Create output directory
     Files.createDirectories(outputDirectory);
 
-    // Construct workspace URL
+    try {
+      CompletableFuture<BrowserSession> started;
+      synchronized (this) {
+        startSession();
+        started = session;
+      }
+      return started
+          .thenCompose(
+              browserSession ->
+                  CompletableFuture.supplyAsync(
+                      () -> {
+                        try {
+                          return renderViews(browserSession);
+                        } catch (IOException e) {
+                          throw new CompletionException(e);
+                        }
+                      },
+                      browserSession.lease().executor()))
+          .get();
+    } catch (ExecutionException e) {
+      Throwable cause =
+          e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+              ? e.getCause().getCause()
+              : e.getCause();
+      throw new IOException("Diagram export failed: " + cause.getMessage(), cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Diagram export interrupted", e);
+    } finally {
+      close();
+    }
+  }
+
+  /**
+   * Closes the browser session, if any, and returns its browser to the pool. A browser launched for
+   * this export only is closed.
+   */
+  public synchronized void close() {
+    if (session == null) {
+      return;
+    }
+    CompletableFuture<BrowserSession> closing = session;
+    BrowserPool pool = ownedPool;
+    session = null;
+    ownedPool = null;
+    closing.whenComplete(
+        (browserSession, failure) -> {
+          if (browserSession == null) {
+            if (pool != null) {
+              pool.close();
+            }
+            return;
+          }
+          browserSession
+              .lease()
+              .executor()
+              .execute(
+                  () -> {
+                    try {
+                      browserSession.context().close();
+                    } catch (Exception e) {
+                      logger.debug("Failed to close browser context: {}", e.getMessage());
+                    }
+                    browserSession.lease().close();
+                    if (pool != null) {
+                      pool.close();
+                    }
+                  });
+        });
+  }
+
+  /** A browser context with the Structurizr diagram viewer loaded. */
+  private record BrowserSession(
+      BrowserPool.Lease lease, BrowserContext context, Frame structurizrFrame) {}
+
+  private String workspaceUrl() {
     String workspaceUrl = structurizrUrl;
     if (!workspaceUrl.endsWith("/")) {
       workspaceUrl += "/";
     }
-    workspaceUrl += "workspace/" + workspaceId;
+    return workspaceUrl + "workspace/" + workspaceId;
+  }
 
+  /** Opens a browser context on the leased browser and loads the diagram viewer in it. */
+  private BrowserSession openSession(BrowserPool.Lease lease) throws IOException {
+    String workspaceUrl = workspaceUrl();
     logger.info("Exporting diagrams from: {}", workspaceUrl);
 
-    List<File> exportedFiles = new ArrayList<>();
-
-    try (Playwright playwright = Playwright.create()) {
-      Browser browser =
-          playwright
-              .chromium()
-              .launch(
-                  new BrowserType.LaunchOptions()
-                      .setHeadless(true)
-                      .setArgs(
-                          List.of(
-                              "--no-sandbox",
-                              "--disable-setuid-sandbox",
-                              "--disable-dev-shm-usage")));
-
-      BrowserContext context;
-
+    Browser browser = lease.browser();
+    BrowserContext context = null;
+    try {
       // Configure to ignore HTTPS errors if SSL verification is disabled
       Browser.NewContextOptions ctxOptions =
           new Browser.NewContextOptions()
@@ -175,14 +345,6 @@ public class DiagramExporter {
           null,
           new Frame.WaitForFunctionOptions().setTimeout(FRAME_WAIT_TIMEOUT_MS));
 
-      // Get views from Structurizr
-      Object viewsResult =
-          structurizrFrame.evaluate("() => window.structurizr.scripting.getViews()");
-      @SuppressWarnings("unchecked")
-      List<Object> views = (List<Object>) viewsResult;
-
-      logger.info("Found {} views to export", views.size());
-
       // Optional oversampling (apply internal zoom before screenshot for sharper text if needed)
       if (oversampleFactor > 1.0) {
         try {
@@ -196,19 +358,43 @@ public class DiagramExporter {
               "Failed to apply oversample zoom factor {}: {}", oversampleFactor, e.getMessage());
         }
       }
-
-      // Export each view
-      int exportCount = 0;
-      for (Object viewObj : views) {
-        exportCount += exportView(structurizrFrame, viewObj, exportedFiles);
+      return new BrowserSession(lease, context, structurizrFrame);
+    } catch (IOException | RuntimeException e) {
+      if (context != null) {
+        context.close();
       }
+      throw e;
+    }
+  }
 
-      logger.info("Exported {} diagrams successfully", exportCount);
+  /** Renders every view of the opened viewer. Runs on the browser thread. */
+  private List<File> renderViews(BrowserSession browserSession) throws IOException {
+    Frame structurizrFrame = browserSession.structurizrFrame();
+    List<File> exportedFiles = new ArrayList<>();
 
-    } catch (Exception e) {
-      throw new IOException("Diagram export failed: " + e.getMessage(), e);
+    // Get views from Structurizr
+    Object viewsResult = structurizrFrame.evaluate("() => window.structurizr.scripting.getViews()");
+    @SuppressWarnings("unchecked")
+    List<Object> views = (List<Object>) viewsResult;
+
+    logger.info("Found {} views to export", views.size());
+    ExportProgress.expect(ExportProgress.Kind.VIEW, views.size());
+
+    // Export each view
+    int exportCount = 0;
+    for (Object viewObj : views) {
+      exportCount +=
+          ExportTracing.trace(
+              "render view",
+              span -> {
+                int files = exportView(structurizrFrame, viewObj, exportedFiles);
+                span.setAttribute("diagram.files", files);
+                return files;
+              });
+      ExportProgress.completed(ExportProgress.Kind.VIEW);
     }
 
+    logger.info("Exported {} diagrams successfully", exportCount);
     return exportedFiles;
   }
 
@@ -360,6 +546,16 @@ public class DiagramExporter {
     return null;
   }
 
+  /** Returns width times height of a PNG image, read from its header, or 0 if it is not a PNG. */
+  static long pngPixels(byte[] png) {
+    // 8 bytes of signature, then the IHDR chunk: length, type, width and height (big-endian)
+    if (png == null || png.length < 24 || png[12] != 'I' || png[15] != 'R') {
+      return 0;
+    }
+    ByteBuffer header = ByteBuffer.wrap(png, 16, 8);
+    return Integer.toUnsignedLong(header.getInt()) * Integer.toUnsignedLong(header.getInt());
+  }
+
   /** Export a single view as PNG. */
   @SuppressWarnings("unchecked")
   private int exportView(Frame structurizrFrame, Object viewObj, List<File> exportedFiles)
@@ -374,8 +570,21 @@ public class DiagramExporter {
         logger.warn("Skipping view without key");
         return 0;
       }
+      Span.current().setAttribute("view.key", viewKey);
+      Span.current().setAttribute("view.type", String.valueOf(viewType));
+
+      List<File> journaledFiles = journal != null ? journal.diagram(viewKey) : null;
+      if (journaledFiles != null) {
+        logger.info("View {} already rendered by the interrupted export, skipping", viewKey);
+        exportedFiles.addAll(journaledFiles);
+        return journaledFiles.size();
+      }
 
       logger.info("Exporting view: {} (type: {})", viewKey, viewType);
+      DiagramRenderEvent event = new DiagramRenderEvent();
+      event.begin();
+      long start = System.nanoTime();
+      int firstFile = exportedFiles.size();
 
       structurizrFrame.evaluate("(v) => window.structurizr.scripting.changeView(v)", viewKey);
 
@@ -410,15 +619,17 @@ public class DiagramExporter {
         }
       }
 
+      byte[] diagram;
       if (diagramElement != null) {
         Locator.ScreenshotOptions shotOptions =
             new Locator.ScreenshotOptions().setPath(diagramPath);
-        diagramElement.screenshot(shotOptions);
+        diagram = diagramElement.screenshot(shotOptions);
         logger.info("Exported diagram for view {} to {}", viewKey, diagramFilename);
       } else {
         logger.warn(
             "Could not find diagram element for view {}, taking full page screenshot", viewKey);
-        structurizrFrame.page().screenshot(new Page.ScreenshotOptions().setPath(diagramPath));
+        diagram =
+            structurizrFrame.page().screenshot(new Page.ScreenshotOptions().setPath(diagramPath));
       }
 
       exportedFiles.add(diagramPath.toFile());
@@ -442,6 +653,19 @@ public class DiagramExporter {
       }
 
       logger.debug("Exported {} files for view {}", exportCount, viewKey);
+      metrics.recordRender(viewKey, System.nanoTime() - start);
+      event.end();
+      if (event.shouldCommit()) {
+        event.viewKey = viewKey;
+        event.viewType = viewType;
+        event.pixels = pngPixels(diagram);
+        event.files = exportCount;
+        event.commit();
+      }
+      if (journal != null) {
+        journal.recordDiagram(
+            viewKey, List.copyOf(exportedFiles.subList(firstFile, exportedFiles.size())));
+      }
       return exportCount;
 
     } catch (Exception e) {
@@ -450,6 +674,25 @@ public class DiagramExporter {
     }
   }
 
+  /**
+   * Returns the files of every view of the workspace when all of them were rendered by the
+   * interrupted export being resumed, or null when the browser is needed.
+   */
+  private List<File> resumedDiagrams(Workspace workspace) {
+    if (journal == null || !journal.isResuming() || workspace.getViews() == null) {
+      return null;
+    }
+    List<File> files = new ArrayList<>();
+    for (View view : workspace.getViews().getViews()) {
+      List<File> viewFiles = journal.diagram(view.getKey());
+      if (viewFiles == null) {
+        return null;
+      }
+      files.addAll(viewFiles);
+    }
+    return files.isEmpty() ? null : files;
+  }
+
   private String extractViewProperty(Object viewObj, String property) {
     try {
       String viewStr = viewObj.toString();
@@ -1,5 +1,7 @@
 package arnaudroubinet.structurizr.confluence.processor;
 
+import arnaudroubinet.structurizr.confluence.jfr.AdfConversionEvent;
+import arnaudroubinet.structurizr.confluence.tracing.ExportTracing;
 import com.atlassian.adf.Document;
 import com.atlassian.adf.inline.Text;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -7,6 +9,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.function.Function;
 import org.jsoup.Jsoup;
@@ -90,6 +93,35 @@ public class HtmlToAdfConverter {
    * @return ADF JSON string with native tables
    */
   public String convertToAdfJson(String htmlContent, String title) {
+    return ExportTracing.trace(
+        "html to adf",
+        span -> {
+          span.setAttribute("html.length", htmlContent != null ? htmlContent.length() : 0);
+          AdfConversionEvent event = new AdfConversionEvent();
+          event.begin();
+          String adfJson = convertHtmlToAdfJson(htmlContent, title);
+          event.end();
+          if (event.shouldCommit()) {
+            event.section = title;
+            event.format = "HTML";
+            event.inputChars = htmlContent != null ? htmlContent.length() : 0;
+            event.outputNodes = countNodes(adfJson);
+            event.commit();
+          }
+          span.setAttribute("adf.length", adfJson.length());
+          return adfJson;
+        });
+  }
+
+  private static int countNodes(String adfJson) {
+    try {
+      return AdfConversionEvent.countNodes(objectMapper.readTree(adfJson));
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private String convertHtmlToAdfJson(String htmlContent, String title) {
     logger.info("Converting HTML content to ADF JSON for document: {}", title);
 
     try {
@@ -128,7 +160,8 @@ public class HtmlToAdfConverter {
     }
   }
 
-  private Document convertToAdfWithoutPostProcessing(String htmlContent, String title) {
+  /** Converts HTML to ADF, leaving the table and node markers; package-private for benchmarks. */
+  Document convertToAdfWithoutPostProcessing(String htmlContent, String title) {
     logger.debug("Converting HTML content to ADF without post-processing for document: {}", title);
 
     try {
@@ -152,6 +185,7 @@ public class HtmlToAdfConverter {
 
     try {
       org.jsoup.nodes.Document htmlDoc = Jsoup.parse(htmlContent);
+      prefetchExternalImages(htmlDoc);
 
       for (Element element : htmlDoc.body().children()) {
         doc = processElement(doc, element);
@@ -165,6 +199,26 @@ public class HtmlToAdfConverter {
     return doc;
   }
 
+  /**
+   * Starts uploading the external images of the document while its elements are converted, so that
+   * {@link #processImage} only waits for uploads still in flight.
+   */
+  private void prefetchExternalImages(org.jsoup.nodes.Document htmlDoc) {
+    if (imageUploadManager == null || currentPageId == null) {
+      return;
+    }
+    Set<String> sources = new LinkedHashSet<>();
+    for (Element image : htmlDoc.select("img[src]")) {
+      String src = image.attr("src");
+      if (isExternalUrl(src)) {
+        sources.add(src);
+      }
+    }
+    if (!sources.isEmpty()) {
+      imageUploadManager.prefetchImages(sources, currentPageId);
+    }
+  }
+
   /**
    * Processes a single HTML element and converts it to appropriate ADF node.
    *
@@ -1,15 +1,36 @@
 package arnaudroubinet.structurizr.confluence.processor;
 
 import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import arnaudroubinet.structurizr.confluence.manifest.ContentHasher;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest.AttachmentEntry;
+import arnaudroubinet.structurizr.confluence.manifest.PagePublisher;
+import arnaudroubinet.structurizr.confluence.metrics.ExportMetrics;
+import arnaudroubinet.structurizr.confluence.progress.ExportProgress;
+import arnaudroubinet.structurizr.confluence.tracing.ExportTracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Handles downloading external images and uploading them as Confluence attachments. */
+/**
+ * Handles downloading external images and uploading them as Confluence attachments. Each image or
+ * file is uploaded once: callers asking for an upload in flight wait for it and share its result.
+ * External images can be prefetched in the background while a document is converted.
+ */
 public class ImageUploadManager {
   private static final Logger logger = LoggerFactory.getLogger(ImageUploadManager.class);
 
@@ -18,13 +39,33 @@ public class ImageUploadManager {
   private static final String DEFAULT_EXTENSION = ".png";
   private static final String DEFAULT_MIME_TYPE = "image/png";
 
+  /** Maximum number of external images prefetched at the same time, by all managers. */
+  static final int PREFETCH_PARALLELISM = 4;
+
+  private static final ExecutorService PREFETCH_EXECUTOR = prefetchExecutor();
+
   private final ConfluenceClient confluenceClient;
-  private final Map<String, MediaUploadResult> uploadedImages = new HashMap<>(); // key -> result
+  // key (URL or local:file path) -> upload, removed when it fails so that it can be retried
+  private final Map<String, CompletableFuture<MediaUploadResult>> uploads =
+      new ConcurrentHashMap<>();
+  // keys prefetched and not requested yet: their first request is not a cache hit
+  private final Set<String> prefetched = ConcurrentHashMap.newKeySet();
+  private PagePublisher pagePublisher; // optional, skips uploads recorded in the export manifest
 
   public ImageUploadManager(ConfluenceClient confluenceClient) {
     this.confluenceClient = confluenceClient;
   }
 
+  /**
+   * Sets the publisher whose export manifest records previously uploaded attachments. Files whose
+   * content hash matches the manifest entry for the same page are not uploaded again.
+   *
+   * @param pagePublisher the publisher of the current export
+   */
+  public void setPagePublisher(PagePublisher pagePublisher) {
+    this.pagePublisher = pagePublisher;
+  }
+
   /**
    * Downloads an external image and uploads it as an attachment to the specified page. Returns the
    * filename to use for referencing the attachment.
@@ -35,13 +76,63 @@ public class ImageUploadManager {
    * @throws IOException if download or upload fails
    */
   public String downloadAndUploadImage(String imageUrl, String pageId) throws IOException {
-    // Check if we've already uploaded this image
-    if (uploadedImages.containsKey(imageUrl)) {
-      MediaUploadResult cached = uploadedImages.get(imageUrl);
-      logger.debug("Image already uploaded: {} -> {}", imageUrl, cached.filename());
-      return cached.filename();
+    return ExportTracing.trace(
+        "upload image",
+        span -> {
+          span.setAttribute("image.url", imageUrl);
+          span.setAttribute("page.id", String.valueOf(pageId));
+          return downloadAndUpload(imageUrl, pageId);
+        });
+  }
+
+  /**
+   * Starts downloading the given external images and uploading them to a page in the background, at
+   * most {@link #PREFETCH_PARALLELISM} at a time, so that {@link #downloadAndUploadImage} finds
+   * them uploaded or in flight instead of stalling the conversion on each of them. Images already
+   * uploaded or in flight are skipped; failures are reported by {@link #downloadAndUploadImage}.
+   *
+   * @param imageUrls the external image URLs
+   * @param pageId the Confluence page ID to attach the images to
+   */
+  public void prefetchImages(Collection<String> imageUrls, String pageId) {
+    // Prefetch spans are children of the span of the conversion requesting them
+    Context context = Context.current();
+    for (String imageUrl : imageUrls) {
+      if (uploads.containsKey(imageUrl)) {
+        continue;
+      }
+      CompletableFuture<MediaUploadResult> upload = new CompletableFuture<>();
+      prefetched.add(imageUrl);
+      if (uploads.putIfAbsent(imageUrl, upload) != null) {
+        prefetched.remove(imageUrl);
+        continue;
+      }
+      PREFETCH_EXECUTOR.execute(
+          context.wrap(
+              () -> {
+                try {
+                  ExportTracing.trace(
+                      "prefetch image",
+                      span -> {
+                        span.setAttribute("image.url", imageUrl);
+                        span.setAttribute("page.id", String.valueOf(pageId));
+                        return complete(imageUrl, upload, () -> download(imageUrl, pageId));
+                      });
+                } catch (IOException e) {
+                  prefetched.remove(imageUrl);
+                  logger.debug("Prefetching image {} failed: {}", imageUrl, e.getMessage());
+                }
+              }));
     }
+  }
 
+  private String downloadAndUpload(String imageUrl, String pageId) throws IOException {
+    return uploadOnce(imageUrl, pageId, () -> download(imageUrl, pageId)).filename();
+  }
+
+  /** Downloads an external image and uploads it, unless the manifest records it unchanged. */
+  private MediaUploadResult download(String imageUrl, String pageId) throws IOException {
+    long start = System.nanoTime();
     try {
       // Extract filename from URL
       String filename = extractFilenameFromUrl(imageUrl);
@@ -52,6 +143,12 @@ public class ImageUploadManager {
       // Determine MIME type based on file extension
       String mimeType = getMimeTypeFromFilename(filename);
 
+      String hash = ContentHasher.sha256(imageContent);
+      MediaUploadResult reused = reuseAttachment(pageId, filename, hash, start);
+      if (reused != null) {
+        return reused;
+      }
+
       // Try detailed upload first to get media identifiers; fallback to legacy upload if
       // unavailable
       MediaUploadResult result;
@@ -93,10 +190,10 @@ public class ImageUploadManager {
             attachmentId);
       }
 
-      // Store mapping for future reference
-      uploadedImages.put(imageUrl, result);
+      recordAttachment(pageId, filename, hash, result);
+      recordImage(pageId, filename, "uploaded", imageContent.length, start);
 
-      return result.filename();
+      return result;
 
     } catch (Exception e) {
       logger.error("Failed to download and upload image: {}", imageUrl, e);
@@ -163,16 +260,24 @@ public class ImageUploadManager {
    * @throws IOException if upload fails
    */
   public String uploadLocalFile(File localFile, String pageId) throws IOException {
-    String filename = localFile.getName();
+    return ExportTracing.trace(
+        "upload attachment",
+        span -> {
+          span.setAttribute("attachment.filename", localFile.getName());
+          span.setAttribute("page.id", String.valueOf(pageId));
+          return uploadLocal(localFile, pageId);
+        });
+  }
 
-    // Check if we've already uploaded this file
-    String cacheKey = "local:" + localFile.getAbsolutePath();
-    if (uploadedImages.containsKey(cacheKey)) {
-      MediaUploadResult cached = uploadedImages.get(cacheKey);
-      logger.debug("Local file already uploaded: {} -> {}", filename, cached.filename());
-      return cached.filename();
-    }
+  private String uploadLocal(File localFile, String pageId) throws IOException {
+    return uploadOnce("local:" + localFile.getAbsolutePath(), pageId, () -> read(localFile, pageId))
+        .filename();
+  }
 
+  /** Uploads a local file, unless the manifest records it unchanged. */
+  private MediaUploadResult read(File localFile, String pageId) throws IOException {
+    long start = System.nanoTime();
+    String filename = localFile.getName();
     try {
       // Read the file content
       byte[] fileContent = Files.readAllBytes(localFile.toPath());
@@ -180,6 +285,12 @@ public class ImageUploadManager {
       // Determine MIME type based on file extension
       String mimeType = getMimeTypeFromFilename(filename);
 
+      String hash = ContentHasher.sha256(fileContent);
+      MediaUploadResult reused = reuseAttachment(pageId, filename, hash, start);
+      if (reused != null) {
+        return reused;
+      }
+
       // Try detailed upload for media identifiers first; fallback to legacy upload
       MediaUploadResult result;
       try {
@@ -218,9 +329,9 @@ public class ImageUploadManager {
             attachmentId);
       }
 
-      // Cache the result
-      uploadedImages.put(cacheKey, result);
-      return result.filename();
+      recordAttachment(pageId, filename, hash, result);
+      recordImage(pageId, filename, "uploaded", fileContent.length, start);
+      return result;
 
     } catch (IOException e) {
       logger.error("Failed to upload local file: {} to page {}", filename, pageId, e);
@@ -228,15 +339,136 @@ public class ImageUploadManager {
     }
   }
 
+  /** An upload run once per key. */
+  @FunctionalInterface
+  private interface Upload {
+    MediaUploadResult run() throws IOException;
+  }
+
+  /**
+   * Returns the result of the upload of a key, running it unless it was run or is running already,
+   * in which case its result is waited for and counted as a cache hit; the first request of a
+   * prefetched key is not a cache hit.
+   */
+  private MediaUploadResult uploadOnce(String key, String pageId, Upload work) throws IOException {
+    long start = System.nanoTime();
+    CompletableFuture<MediaUploadResult> upload = new CompletableFuture<>();
+    CompletableFuture<MediaUploadResult> existing = uploads.putIfAbsent(key, upload);
+    if (existing == null) {
+      return complete(key, upload, work);
+    }
+    MediaUploadResult cached;
+    try {
+      cached = existing.join();
+    } catch (CompletionException e) {
+      prefetched.remove(key);
+      if (e.getCause() instanceof IOException cause) {
+        throw cause;
+      }
+      throw new IOException("Failed to upload " + key, e.getCause());
+    }
+    if (!prefetched.remove(key)) {
+      logger.debug("Already uploaded: {} -> {}", key, cached.filename());
+      recordImage(pageId, cached.filename(), "cached", 0, start);
+    }
+    return cached;
+  }
+
+  /** Runs the upload of a key for all its callers, forgetting it if it fails. */
+  private MediaUploadResult complete(
+      String key, CompletableFuture<MediaUploadResult> upload, Upload work) throws IOException {
+    try {
+      MediaUploadResult result = work.run();
+      upload.complete(result);
+      return result;
+    } catch (IOException | RuntimeException e) {
+      uploads.remove(key, upload);
+      upload.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  /** Returns the media recorded in the previous export manifest if the content is unchanged. */
+  private MediaUploadResult reuseAttachment(
+      String pageId, String filename, String hash, long start) {
+    if (pagePublisher == null) {
+      return null;
+    }
+    AttachmentEntry entry = pagePublisher.previous().attachment(pageId, filename);
+    if (entry == null || !hash.equals(entry.hash()) || entry.fileId() == null) {
+      return null;
+    }
+    pagePublisher.current().putAttachment(entry);
+    logger.info("Attachment {} unchanged on page {}, skipping upload", filename, pageId);
+    recordImage(pageId, filename, "reused", 0, start);
+    return new MediaUploadResult(entry.filename(), entry.fileId(), entry.collectionName());
+  }
+
+  private void recordAttachment(
+      String pageId, String filename, String hash, MediaUploadResult result) {
+    if (pagePublisher != null) {
+      pagePublisher.recordAttachment(
+          new AttachmentEntry(
+              pageId, result.filename(), hash, result.fileId(), result.collectionName()));
+    }
+  }
+
+  /**
+   * Records an image in the metrics of the Confluence client, on the current span, in the run
+   * report of the page publisher and, once uploaded, in the export progress.
+   */
+  private void recordImage(
+      String pageId, String filename, String result, long uploadedBytes, long start) {
+    Span.current().setAttribute("image.result", result);
+    Span.current().setAttribute("image.bytes", uploadedBytes);
+    metrics().recordImage(result, uploadedBytes);
+    if ("uploaded".equals(result)) {
+      ExportProgress.attachmentUploaded(uploadedBytes, start);
+    }
+    if (pagePublisher != null) {
+      pagePublisher.reportAttachment(
+          pageId, filename, result, uploadedBytes, System.nanoTime() - start);
+    }
+  }
+
+  /** Returns the metrics of the Confluence client, which uploads are recorded in. */
+  private ExportMetrics metrics() {
+    ExportMetrics metrics = confluenceClient.getMetrics();
+    return metrics != null ? metrics : ExportMetrics.disabled();
+  }
+
   /** Clears the cache of uploaded images. Use this when starting a new export. */
   public void clearCache() {
-    uploadedImages.clear();
+    uploads.clear();
+    prefetched.clear();
     logger.debug("Cleared image upload cache");
   }
 
   /** Returns uploaded media info for a previously uploaded key (URL or local:file path). */
   public MediaUploadResult getMediaInfo(String key) {
-    return uploadedImages.get(key);
+    CompletableFuture<MediaUploadResult> upload = key != null ? uploads.get(key) : null;
+    return upload != null && upload.isDone() && !upload.isCompletedExceptionally()
+        ? upload.join()
+        : null;
+  }
+
+  /** Daemon threads prefetching images, stopped when idle. */
+  private static ExecutorService prefetchExecutor() {
+    AtomicInteger threads = new AtomicInteger();
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            PREFETCH_PARALLELISM,
+            PREFETCH_PARALLELISM,
+            30,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+              Thread thread = new Thread(runnable, "image-prefetch-" + threads.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 
   /**
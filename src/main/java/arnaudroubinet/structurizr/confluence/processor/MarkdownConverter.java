@@ -5,6 +5,7 @@ import com.vladsch.flexmark.ext.gfm.tasklist.TaskListExtension;
 import com.vladsch.flexmark.ext.tables.TablesExtension;
 import com.vladsch.flexmark.html.HtmlRenderer;
 import com.vladsch.flexmark.parser.Parser;
+import com.vladsch.flexmark.util.ast.Document;
 import com.vladsch.flexmark.util.ast.Node;
 import com.vladsch.flexmark.util.data.MutableDataSet;
 import java.util.Arrays;
@@ -12,7 +13,8 @@ import java.util.Arrays;
 /**
  * Robust Markdown to HTML converter using flexmark-java with common extensions (tables,
  * strikethrough, task lists). The output HTML is then fed into the HtmlToAdfConverter for ADF
- * conversion and title extraction.
+ * conversion and title extraction. The parsed AST is also exposed for {@link
+ * MarkdownToAdfConverter}, which converts it to ADF directly.
  */
 public class MarkdownConverter {
 
@@ -33,9 +35,29 @@ public class MarkdownConverter {
     this.renderer = HtmlRenderer.builder(options).escapeHtml(false).build();
   }
 
+  /**
+   * Parses Markdown into a flexmark AST using the same extensions as {@link #toHtml(String)}.
+   *
+   * @param markdown the Markdown source
+   * @return the parsed document
+   */
+  public Document parse(String markdown) {
+    return parser.parse(markdown != null ? markdown : "");
+  }
+
   public String toHtml(String markdown) {
     if (markdown == null || markdown.trim().isEmpty()) return "";
     Node doc = parser.parse(markdown);
     return renderer.render(doc);
   }
+
+  /**
+   * Renders a node of a document returned by {@link #parse(String)} to HTML.
+   *
+   * @param node the node to render, with its descendants
+   * @return the HTML
+   */
+  public String toHtml(Node node) {
+    return renderer.render(node);
+  }
 }
@@ -0,0 +1,623 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import com.atlassian.adf.Document;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.vladsch.flexmark.ast.AutoLink;
+import com.vladsch.flexmark.ast.BlockQuote;
+import com.vladsch.flexmark.ast.BulletList;
+import com.vladsch.flexmark.ast.BulletListItem;
+import com.vladsch.flexmark.ast.Code;
+import com.vladsch.flexmark.ast.Emphasis;
+import com.vladsch.flexmark.ast.FencedCodeBlock;
+import com.vladsch.flexmark.ast.HardLineBreak;
+import com.vladsch.flexmark.ast.Heading;
+import com.vladsch.flexmark.ast.HtmlBlock;
+import com.vladsch.flexmark.ast.HtmlEntity;
+import com.vladsch.flexmark.ast.HtmlInline;
+import com.vladsch.flexmark.ast.Image;
+import com.vladsch.flexmark.ast.ImageRef;
+import com.vladsch.flexmark.ast.IndentedCodeBlock;
+import com.vladsch.flexmark.ast.Link;
+import com.vladsch.flexmark.ast.LinkRef;
+import com.vladsch.flexmark.ast.ListBlock;
+import com.vladsch.flexmark.ast.ListItem;
+import com.vladsch.flexmark.ast.MailLink;
+import com.vladsch.flexmark.ast.OrderedList;
+import com.vladsch.flexmark.ast.OrderedListItem;
+import com.vladsch.flexmark.ast.Paragraph;
+import com.vladsch.flexmark.ast.Reference;
+import com.vladsch.flexmark.ast.SoftLineBreak;
+import com.vladsch.flexmark.ast.StrongEmphasis;
+import com.vladsch.flexmark.ast.Text;
+import com.vladsch.flexmark.ast.ThematicBreak;
+import com.vladsch.flexmark.ext.gfm.strikethrough.Strikethrough;
+import com.vladsch.flexmark.ext.gfm.tasklist.TaskListItem;
+import com.vladsch.flexmark.ext.tables.TableBlock;
+import com.vladsch.flexmark.ext.tables.TableCaption;
+import com.vladsch.flexmark.ext.tables.TableCell;
+import com.vladsch.flexmark.ext.tables.TableRow;
+import com.vladsch.flexmark.ext.tables.TableSeparator;
+import com.vladsch.flexmark.util.ast.Node;
+import com.vladsch.flexmark.util.ast.NodeVisitor;
+import com.vladsch.flexmark.util.ast.TextCollectingVisitor;
+import com.vladsch.flexmark.util.ast.VisitHandler;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts Markdown straight from the flexmark AST to Atlassian Document Format (ADF), without
+ * rendering HTML and parsing it back with Jsoup. Supports headings, paragraphs, emphasis,
+ * strikethrough, inline code, links, fenced and indented code blocks, block quotes, bullet, ordered
+ * and task lists, tables and images (including {@code embed:key} and {@code local:diagram:key}
+ * diagram references). Raw HTML blocks go through {@link HtmlToAdfConverter}, and paragraphs
+ * holding inline HTML are rendered to HTML and read back with the inline tag scan used for
+ * AsciiDoc.
+ *
+ * <p>As with {@link HtmlToAdfConverter}, the first level-1 heading is treated as the page title and
+ * removed from the body.
+ */
+public class MarkdownToAdfConverter {
+
+  private static final Logger logger = LoggerFactory.getLogger(MarkdownToAdfConverter.class);
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private static final Pattern HTML_BREAK = Pattern.compile("(?i)<br\\s*/?>");
+
+  private final MarkdownConverter markdownConverter;
+  private final AdfMediaResolver mediaResolver = new AdfMediaResolver();
+  private final HtmlToAdfConverter htmlToAdfConverter = new HtmlToAdfConverter();
+
+  public MarkdownToAdfConverter() {
+    this(new MarkdownConverter());
+  }
+
+  public MarkdownToAdfConverter(MarkdownConverter markdownConverter) {
+    this.markdownConverter = markdownConverter;
+  }
+
+  /** Sets the image upload manager used for external images and local diagrams. */
+  public void setImageUploadManager(ImageUploadManager imageUploadManager) {
+    mediaResolver.setImageUploadManager(imageUploadManager);
+    htmlToAdfConverter.setImageUploadManager(imageUploadManager);
+  }
+
+  /** Sets the ID of the page that uploaded images are attached to. */
+  public void setCurrentPageId(String pageId) {
+    mediaResolver.setCurrentPageId(pageId);
+    htmlToAdfConverter.setCurrentPageId(pageId);
+  }
+
+  /**
+   * Sets the resolver used to map diagram view keys ({@code embed:key}, {@code local:diagram:key})
+   * to locally exported files.
+   */
+  public void setDiagramResolver(Function<String, File> diagramResolver) {
+    mediaResolver.setDiagramResolver(diagramResolver);
+    htmlToAdfConverter.setDiagramResolver(diagramResolver);
+  }
+
+  /**
+   * Returns the text of the first level-1 heading, or null when there is none.
+   *
+   * @param markdown the Markdown source
+   * @return the extracted title or null
+   */
+  public String extractTitle(String markdown) {
+    if (markdown == null || markdown.isBlank()) {
+      return null;
+    }
+    Heading titleHeading = findTitleHeading(markdownConverter.parse(markdown));
+    return titleHeading != null ? headingText(titleHeading) : null;
+  }
+
+  /**
+   * Converts Markdown to an ADF document tree.
+   *
+   * @param markdown the Markdown source
+   * @param title the document title (used for logging and error messages)
+   * @return the ADF document root node
+   */
+  public ObjectNode convertToAdfNode(String markdown, String title) {
+    logger.debug("Converting Markdown content to ADF for document: {}", title);
+    try {
+      ObjectNode doc = AdfNodes.doc();
+      if (markdown == null || markdown.isBlank()) {
+        return doc;
+      }
+      com.vladsch.flexmark.util.ast.Document ast = markdownConverter.parse(markdown);
+      new AstWalker(ast, doc, title).walk();
+      return doc;
+    } catch (RuntimeException e) {
+      logger.error("Error converting Markdown to ADF", e);
+      throw new IllegalStateException(
+          "Markdown to ADF conversion failed: " + (title != null ? title : "(no title)"), e);
+    }
+  }
+
+  /**
+   * Converts Markdown to an ADF JSON string.
+   *
+   * @param markdown the Markdown source
+   * @param title the document title
+   * @return ADF JSON
+   */
+  public String convertToAdfJson(String markdown, String title) {
+    ObjectNode doc = convertToAdfNode(markdown, title);
+    try {
+      return objectMapper.writeValueAsString(doc);
+    } catch (Exception e) {
+      throw new IllegalStateException(
+          "Markdown to ADF JSON serialization failed: " + (title != null ? title : "(no title)"),
+          e);
+    }
+  }
+
+  /**
+   * Converts Markdown to an ADF Builder {@link Document}, for callers that merge documents.
+   *
+   * @param markdown the Markdown source
+   * @param title the document title
+   * @return the ADF document
+   */
+  public Document convertToAdf(String markdown, String title) {
+    ObjectNode doc = convertToAdfNode(markdown, title);
+    try {
+      return objectMapper.treeToValue(doc, Document.class);
+    } catch (Exception e) {
+      throw new IllegalStateException(
+          "Markdown to ADF conversion failed: " + (title != null ? title : "(no title)"), e);
+    }
+  }
+
+  private static Heading findTitleHeading(Node document) {
+    for (Node node : document.getDescendants()) {
+      if (node instanceof Heading heading && heading.getLevel() == 1) {
+        return heading;
+      }
+    }
+    return null;
+  }
+
+  private static String headingText(Heading heading) {
+    return new TextCollectingVisitor().collectAndGetText(heading).trim();
+  }
+
+  /** Per-conversion state: the block container stack, the inline target and the active marks. */
+  private final class AstWalker {
+
+    private final com.vladsch.flexmark.util.ast.Document ast;
+    private final String title;
+    private final Heading titleHeading;
+    private final Deque<ObjectNode> blocks = new ArrayDeque<>();
+    private final Deque<ObjectNode> marks = new ArrayDeque<>();
+    private final List<ObjectNode> pendingMedia = new ArrayList<>();
+    private final NodeVisitor visitor;
+    private ObjectNode inline;
+    private ObjectNode strayParagraph;
+
+    AstWalker(com.vladsch.flexmark.util.ast.Document ast, ObjectNode doc, String title) {
+      this.ast = ast;
+      this.title = title;
+      this.titleHeading = findTitleHeading(ast);
+      this.blocks.push(doc);
+      this.visitor =
+          new NodeVisitor(
+              new VisitHandler<>(Heading.class, this::visitHeading),
+              new VisitHandler<>(Paragraph.class, this::visitParagraph),
+              new VisitHandler<>(BulletList.class, this::visitList),
+              new VisitHandler<>(OrderedList.class, this::visitList),
+              new VisitHandler<>(BulletListItem.class, this::visitListItem),
+              new VisitHandler<>(OrderedListItem.class, this::visitListItem),
+              new VisitHandler<>(TaskListItem.class, this::visitListItem),
+              new VisitHandler<>(BlockQuote.class, this::visitBlockQuote),
+              new VisitHandler<>(FencedCodeBlock.class, this::visitFencedCodeBlock),
+              new VisitHandler<>(IndentedCodeBlock.class, this::visitIndentedCodeBlock),
+              new VisitHandler<>(ThematicBreak.class, node -> addBlock(AdfNodes.leaf("rule"))),
+              new VisitHandler<>(HtmlBlock.class, this::visitHtmlBlock),
+              new VisitHandler<>(TableBlock.class, this::visitTable),
+              new VisitHandler<>(TableSeparator.class, node -> {}),
+              new VisitHandler<>(TableRow.class, this::visitTableRow),
+              new VisitHandler<>(TableCell.class, this::visitTableCell),
+              new VisitHandler<>(TableCaption.class, this::visitTableCaption),
+              new VisitHandler<>(Reference.class, node -> {}),
+              new VisitHandler<>(Text.class, node -> addText(node.getChars().unescape())),
+              new VisitHandler<>(HtmlEntity.class, node -> addText(node.getChars().unescape())),
+              new VisitHandler<>(SoftLineBreak.class, node -> addText(" ")),
+              new VisitHandler<>(
+                  HardLineBreak.class, node -> addInline(AdfNodes.leaf("hardBreak"))),
+              new VisitHandler<>(HtmlInline.class, this::visitHtmlInline),
+              new VisitHandler<>(Emphasis.class, node -> withMark(AdfNodes.mark("em"), node)),
+              new VisitHandler<>(
+                  StrongEmphasis.class, node -> withMark(AdfNodes.mark("strong"), node)),
+              new VisitHandler<>(
+                  Strikethrough.class, node -> withMark(AdfNodes.mark("strike"), node)),
+              new VisitHandler<>(Code.class, this::visitCode),
+              new VisitHandler<>(Link.class, this::visitLink),
+              new VisitHandler<>(LinkRef.class, this::visitLinkRef),
+              new VisitHandler<>(AutoLink.class, this::visitAutoLink),
+              new VisitHandler<>(MailLink.class, this::visitMailLink),
+              new VisitHandler<>(Image.class, this::visitImage),
+              new VisitHandler<>(ImageRef.class, this::visitImageRef));
+    }
+
+    void walk() {
+      prefetchExternalImages();
+      visitor.visitChildren(ast);
+      flushPendingMedia();
+    }
+
+    // Blocks
+
+    private void visitHeading(Heading heading) {
+      if (heading == titleHeading) {
+        return;
+      }
+      visitInlineContainer(AdfNodes.heading(heading.getLevel()), heading);
+    }
+
+    private void visitParagraph(Paragraph paragraph) {
+      if (inline != null && "taskItem".equals(inline.path("type").asText())) {
+        // Task items only hold inline content: join their paragraphs with hard breaks.
+        if (!AdfNodes.isEmpty(inline)) {
+          addInline(AdfNodes.leaf("hardBreak"));
+        }
+        visitInlines(paragraph);
+        return;
+      }
+      visitInlineContainer(AdfNodes.paragraph(), paragraph);
+    }
+
+    private void visitInlineContainer(ObjectNode container, Node node) {
+      ObjectNode parent = blocks.peek();
+      AdfNodes.content(parent).add(container);
+      ObjectNode previousInline = inline;
+      inline = container;
+      visitInlines(node);
+      inline = previousInline;
+
+      if (!pendingMedia.isEmpty() && AdfNodes.isEmpty(container)) {
+        // Paragraph held nothing but images: replace it with the media blocks.
+        AdfNodes.content(parent).remove(AdfNodes.content(parent).size() - 1);
+      }
+      flushPendingMedia();
+    }
+
+    private void visitList(ListBlock list) {
+      ObjectNode listNode;
+      if (isTaskList(list)) {
+        listNode = AdfNodes.container("taskList");
+        listNode.putObject("attrs").put("localId", nextLocalId());
+      } else if (list instanceof OrderedList ordered) {
+        listNode = AdfNodes.container("orderedList");
+        if (ordered.getStartNumber() != 1) {
+          listNode.putObject("attrs").put("order", ordered.getStartNumber());
+        }
+      } else {
+        listNode = AdfNodes.container("bulletList");
+      }
+      // A list nested in a task item lands in the enclosing taskList, after the item.
+      ObjectNode previousInline = inline;
+      inline = null;
+      withBlock(listNode, list);
+      inline = previousInline;
+    }
+
+    private void visitListItem(ListItem item) {
+      if (inTaskList()) {
+        ObjectNode taskItem = AdfNodes.container("taskItem");
+        ObjectNode attrs = taskItem.putObject("attrs");
+        attrs.put("localId", nextLocalId());
+        boolean done = item instanceof TaskListItem task && task.isItemDoneMarker();
+        attrs.put("state", done ? "DONE" : "TODO");
+        AdfNodes.content(blocks.peek()).add(taskItem);
+
+        ObjectNode previousInline = inline;
+        inline = taskItem;
+        visitor.visitChildren(item);
+        inline = previousInline;
+        return;
+      }
+
+      ObjectNode listItem = AdfNodes.container("listItem");
+      withBlock(listItem, item);
+      if (AdfNodes.isEmpty(listItem)) {
+        AdfNodes.content(listItem).add(AdfNodes.paragraph());
+      }
+      if (item instanceof TaskListItem task) {
+        // A task item in a list that also holds plain items: keep its checkbox as text.
+        JsonNode first = AdfNodes.content(listItem).get(0);
+        if ("paragraph".equals(first.path("type").asText())) {
+          AdfNodes.content((ObjectNode) first)
+              .insert(0, AdfNodes.text(task.isItemDoneMarker() ? "[x] " : "[ ] ", List.of()));
+        }
+      }
+    }
+
+    private void visitBlockQuote(BlockQuote blockQuote) {
+      withBlock(AdfNodes.container("blockquote"), blockQuote);
+    }
+
+    private void visitFencedCodeBlock(FencedCodeBlock codeBlock) {
+      String info = codeBlock.getInfo().toString().trim();
+      String language = info.isEmpty() ? null : info.split("\\s+")[0];
+      addBlock(AdfNodes.codeBlock(language, trimTrailingNewline(codeBlock.getContentChars())));
+    }
+
+    private void visitIndentedCodeBlock(IndentedCodeBlock codeBlock) {
+      addBlock(AdfNodes.codeBlock(null, trimTrailingNewline(codeBlock.getContentChars())));
+    }
+
+    private void visitHtmlBlock(HtmlBlock htmlBlock) {
+      String html = htmlBlock.getChars().toString();
+      if (inline != null) {
+        // Task items only hold inline content.
+        visitInlineHtml(html);
+        return;
+      }
+      try {
+        JsonNode converted =
+            objectMapper.readTree(htmlToAdfConverter.convertToAdfJson(html, title));
+        for (JsonNode block : converted.path("content")) {
+          addBlock((ObjectNode) block);
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Cannot read the ADF of an HTML block", e);
+      }
+    }
+
+    private void visitTable(TableBlock table) {
+      withBlock(AdfNodes.container("table"), table);
+    }
+
+    private void visitTableRow(TableRow row) {
+      withBlock(AdfNodes.container("tableRow"), row);
+    }
+
+    private void visitTableCell(TableCell cell) {
+      ObjectNode cellNode = AdfNodes.container(cell.isHeader() ? "tableHeader" : "tableCell");
+      if (cell.getSpan() > 1) {
+        cellNode.putObject("attrs").put("colspan", cell.getSpan());
+      }
+      AdfNodes.content(blocks.peek()).add(cellNode);
+      blocks.push(cellNode);
+      visitInlineContainer(AdfNodes.paragraph(), cell);
+      blocks.pop();
+    }
+
+    private void visitTableCaption(TableCaption caption) {
+      // Captions are nested in the table block; emit them as a paragraph after the table.
+      ObjectNode table = blocks.pop();
+      visitInlineContainer(AdfNodes.paragraph(), caption);
+      blocks.push(table);
+    }
+
+    // Inlines
+
+    /**
+     * Walks the inline children of a node, or converts its rendered HTML when it holds inline HTML
+     * other than line breaks, whose tags span several flexmark nodes.
+     */
+    private void visitInlines(Node node) {
+      if (!hasInlineHtml(node)) {
+        visitor.visitChildren(node);
+        return;
+      }
+      // The enclosing block tag is dropped by the inline scan.
+      visitInlineHtml(markdownConverter.toHtml(node));
+    }
+
+    private void visitInlineHtml(String html) {
+      List<AdfInlineHtml.InlineImage> images = new ArrayList<>();
+      AdfInlineHtml.append(html.trim(), new ArrayList<>(marks), AdfNodes.content(inline), images);
+      for (AdfInlineHtml.InlineImage image : images) {
+        addImage(image.src(), image.alt(), image.title());
+      }
+    }
+
+    private boolean hasInlineHtml(Node node) {
+      for (Node child : node.getDescendants()) {
+        if (child instanceof HtmlInline && !HTML_BREAK.matcher(child.getChars()).matches()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private void visitCode(Code code) {
+      ObjectNode link = activeLink();
+      List<ObjectNode> codeMarks =
+          link != null ? List.of(AdfNodes.mark("code"), link) : List.of(AdfNodes.mark("code"));
+      String text = code.getText().toString();
+      if (!text.isEmpty()) {
+        addInline(AdfNodes.text(text, codeMarks));
+      }
+    }
+
+    private void visitLink(Link link) {
+      withMark(AdfNodes.linkMark(link.getUrl().unescape()), link);
+    }
+
+    private void visitLinkRef(LinkRef linkRef) {
+      Reference reference = linkRef.getReferenceNode(ast);
+      if (reference == null) {
+        addText(linkRef.getChars().unescape());
+        return;
+      }
+      withMark(AdfNodes.linkMark(reference.getUrl().unescape()), linkRef);
+    }
+
+    private void visitAutoLink(AutoLink autoLink) {
+      String url = autoLink.getText().toString();
+      withMark(AdfNodes.linkMark(url), () -> addText(url));
+    }
+
+    private void visitMailLink(MailLink mailLink) {
+      String address = mailLink.getText().toString();
+      withMark(AdfNodes.linkMark("mailto:" + address), () -> addText(address));
+    }
+
+    private void visitHtmlInline(HtmlInline htmlInline) {
+      if (HTML_BREAK.matcher(htmlInline.getChars()).matches()) {
+        addInline(AdfNodes.leaf("hardBreak"));
+      }
+    }
+
+    private void visitImage(Image image) {
+      addImage(
+          image.getUrl().unescape(),
+          new TextCollectingVisitor().collectAndGetText(image),
+          image.getTitle().unescape());
+    }
+
+    private void visitImageRef(ImageRef imageRef) {
+      Reference reference = imageRef.getReferenceNode(ast);
+      if (reference == null) {
+        addText(imageRef.getChars().unescape());
+        return;
+      }
+      addImage(
+          reference.getUrl().unescape(),
+          new TextCollectingVisitor().collectAndGetText(imageRef),
+          reference.getTitle().unescape());
+    }
+
+    private void addImage(String src, String alt, String title) {
+      if (inTaskList()) {
+        // Task items cannot hold media: keep a link to the image instead.
+        String label = alt.isEmpty() ? src : alt;
+        withMark(AdfNodes.linkMark(src), () -> addText(label));
+        return;
+      }
+      ObjectNode media = mediaResolver.resolve(src, alt, title);
+      if (inline == null) {
+        addBlock(media);
+      } else {
+        pendingMedia.add(media);
+      }
+    }
+
+    // Helpers
+
+    /** Starts uploading the external images ahead of the walk, which resolves them one by one. */
+    private void prefetchExternalImages() {
+      List<String> sources = new ArrayList<>();
+      for (Node node : ast.getDescendants()) {
+        if (node instanceof Image image) {
+          sources.add(image.getUrl().unescape());
+        } else if (node instanceof ImageRef imageRef) {
+          Reference reference = imageRef.getReferenceNode(ast);
+          if (reference != null) {
+            sources.add(reference.getUrl().unescape());
+          }
+        }
+      }
+      mediaResolver.prefetch(sources);
+    }
+
+    private void addBlock(ObjectNode block) {
+      AdfNodes.content(blocks.peek()).add(block);
+    }
+
+    private void withBlock(ObjectNode block, Node node) {
+      addBlock(block);
+      blocks.push(block);
+      visitor.visitChildren(node);
+      blocks.pop();
+    }
+
+    private void withMark(ObjectNode mark, Node node) {
+      withMark(mark, () -> visitor.visitChildren(node));
+    }
+
+    private void withMark(ObjectNode mark, Runnable action) {
+      marks.addLast(mark);
+      try {
+        action.run();
+      } finally {
+        marks.removeLast();
+      }
+    }
+
+    private void addText(String text) {
+      if (text == null || text.isEmpty()) {
+        return;
+      }
+      addInline(AdfNodes.text(text, new ArrayList<>(marks)));
+    }
+
+    private void addInline(ObjectNode node) {
+      if (inline == null) {
+        // Stray inline content outside a paragraph (e.g. raw HTML): wrap consecutive inlines in
+        // one paragraph, started again once a block follows it.
+        ArrayNode content = AdfNodes.content(blocks.peek());
+        if (strayParagraph == null
+            || content.isEmpty()
+            || content.get(content.size() - 1) != strayParagraph) {
+          strayParagraph = AdfNodes.paragraph();
+          addBlock(strayParagraph);
+        }
+        AdfNodes.content(strayParagraph).add(node);
+        return;
+      }
+      AdfNodes.content(inline).add(node);
+    }
+
+    private void flushPendingMedia() {
+      for (ObjectNode media : pendingMedia) {
+        addBlock(media);
+      }
+      pendingMedia.clear();
+    }
+
+    private ObjectNode activeLink() {
+      for (ObjectNode mark : marks) {
+        if ("link".equals(mark.path("type").asText())) {
+          return mark;
+        }
+      }
+      return null;
+    }
+
+    private boolean inTaskList() {
+      ObjectNode block = blocks.peek();
+      return block != null && "taskList".equals(block.path("type").asText());
+    }
+
+    private boolean isTaskList(ListBlock list) {
+      boolean hasItems = false;
+      for (Node child : list.getChildren()) {
+        if (child instanceof ListItem) {
+          if (!(child instanceof TaskListItem)) {
+            return false;
+          }
+          hasItems = true;
+        }
+      }
+      return hasItems;
+    }
+
+    /** Task IDs must be unique on the page, which merges the documents of several sections. */
+    private String nextLocalId() {
+      return UUID.randomUUID().toString();
+    }
+
+    private String trimTrailingNewline(CharSequence chars) {
+      String code = chars.toString();
+      while (code.endsWith("\n") || code.endsWith("\r")) {
+        code = code.substring(0, code.length() - 1);
+      }
+      return code;
+    }
+  }
+}
@@ -0,0 +1,232 @@
+package arnaudroubinet.structurizr.confluence.progress;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of the exports of the process: views rendered, sections converted, attachments uploaded
+ * and pages published, against the totals announced by the exporters, and the Confluence requests
+ * in flight. The exporters publish to it from any thread with a counter increment; a {@link
+ * ProgressReporter} polls {@link #snapshot()} to display it.
+ *
+ * <p>Progress is off unless {@link #start} is called; events then cost a volatile read.
+ */
+public final class ExportProgress {
+
+  /** The kinds of work counted. */
+  public enum Kind {
+    VIEW("views"),
+    SECTION("sections"),
+    ATTACHMENT("attachments"),
+    PAGE("pages");
+
+    private final String label;
+
+    Kind(String label) {
+      this.label = label;
+    }
+
+    public String label() {
+      return label;
+    }
+  }
+
+  private static final Map<Kind, LongAdder> EXPECTED = counters();
+  private static final Map<Kind, LongAdder> COMPLETED = counters();
+  private static final LongAdder UPLOADED_BYTES = new LongAdder();
+  private static final AtomicLong FIRST_UPLOAD_NANOS = new AtomicLong(Long.MAX_VALUE);
+  private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+
+  private static volatile boolean enabled;
+  private static volatile long startNanos;
+
+  private ExportProgress() {}
+
+  /** Resets the counters and starts counting. */
+  public static synchronized void start() {
+    EXPECTED.values().forEach(LongAdder::reset);
+    COMPLETED.values().forEach(LongAdder::reset);
+    UPLOADED_BYTES.reset();
+    FIRST_UPLOAD_NANOS.set(Long.MAX_VALUE);
+    IN_FLIGHT.set(0);
+    startNanos = System.nanoTime();
+    enabled = true;
+  }
+
+  /** Stops counting; the last counts stay readable. */
+  public static synchronized void stop() {
+    enabled = false;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Announces work to be done.
+   *
+   * @param kind the kind of work
+   * @param count the number of items
+   */
+  public static void expect(Kind kind, long count) {
+    if (enabled && count > 0) {
+      EXPECTED.get(kind).add(count);
+    }
+  }
+
+  /** Counts an item of work done, announced or not. */
+  public static void completed(Kind kind) {
+    completed(kind, 1);
+  }
+
+  /** Counts items of work done, announced or not. */
+  public static void completed(Kind kind, long count) {
+    if (enabled && count > 0) {
+      COMPLETED.get(kind).add(count);
+    }
+  }
+
+  /**
+   * Counts an uploaded attachment.
+   *
+   * @param bytes the size of the attachment
+   * @param uploadStartNanos {@link System#nanoTime()} when the upload started, for the upload rate
+   */
+  public static void attachmentUploaded(long bytes, long uploadStartNanos) {
+    if (enabled) {
+      COMPLETED.get(Kind.ATTACHMENT).increment();
+      UPLOADED_BYTES.add(bytes);
+      FIRST_UPLOAD_NANOS.accumulateAndGet(uploadStartNanos, Math::min);
+    }
+  }
+
+  /** Counts a Confluence request sent; returns whether it must be finished. */
+  public static boolean requestStarted() {
+    if (!enabled) {
+      return false;
+    }
+    IN_FLIGHT.incrementAndGet();
+    return true;
+  }
+
+  /** Counts a Confluence request ended, after {@link #requestStarted()} returned true. */
+  public static void requestFinished() {
+    IN_FLIGHT.decrementAndGet();
+  }
+
+  /** Returns the current counts. */
+  public static Snapshot snapshot() {
+    long now = System.nanoTime();
+    Map<Kind, Long> expected = new EnumMap<>(Kind.class);
+    Map<Kind, Long> completed = new EnumMap<>(Kind.class);
+    for (Kind kind : Kind.values()) {
+      expected.put(kind, EXPECTED.get(kind).sum());
+      completed.put(kind, COMPLETED.get(kind).sum());
+    }
+    long firstUpload = FIRST_UPLOAD_NANOS.get();
+    return new Snapshot(
+        now - startNanos,
+        expected,
+        completed,
+        UPLOADED_BYTES.sum(),
+        firstUpload == Long.MAX_VALUE ? 0 : now - firstUpload,
+        Math.max(0, IN_FLIGHT.get()));
+  }
+
+  /**
+   * The counts at one instant.
+   *
+   * @param elapsedNanos time since progress started
+   * @param expected announced items by kind
+   * @param completed items done by kind
+   * @param uploadedBytes bytes of the uploaded attachments
+   * @param uploadNanos time since the first upload started, 0 before
+   * @param inFlight Confluence requests sent and not answered yet
+   */
+  public record Snapshot(
+      long elapsedNanos,
+      Map<Kind, Long> expected,
+      Map<Kind, Long> completed,
+      long uploadedBytes,
+      long uploadNanos,
+      int inFlight) {
+
+    public long expected(Kind kind) {
+      return expected.getOrDefault(kind, 0L);
+    }
+
+    public long completed(Kind kind) {
+      return completed.getOrDefault(kind, 0L);
+    }
+
+    /** Returns the upload rate in MB/s since the first upload started. */
+    public double uploadMegabytesPerSecond() {
+      if (uploadNanos <= 0) {
+        return 0;
+      }
+      return uploadedBytes / 1_000_000.0 / (uploadNanos / 1_000_000_000.0);
+    }
+
+    /**
+     * Returns the time left at the observed rates: the longest of the times each announced kind of
+     * work needs to complete at the rate it progressed so far. Null until every unfinished kind has
+     * completed an item.
+     */
+    public Duration eta() {
+      long remainingNanos = 0;
+      boolean unfinished = false;
+      for (Kind kind : Kind.values()) {
+        long total = expected(kind);
+        long done = completed(kind);
+        if (total <= done) {
+          continue;
+        }
+        if (done == 0) {
+          return null;
+        }
+        unfinished = true;
+        remainingNanos = Math.max(remainingNanos, elapsedNanos / done * (total - done));
+      }
+      return unfinished ? Duration.ofNanos(remainingNanos) : Duration.ZERO;
+    }
+
+    /** Returns the counts on one line, such as {@code views 3/12 | sections 0/8 | ...}. */
+    public String line() {
+      StringBuilder line = new StringBuilder();
+      for (Kind kind : Kind.values()) {
+        line.append(kind.label()).append(' ').append(completed(kind));
+        if (kind == Kind.ATTACHMENT) {
+          line.append(String.format(Locale.ROOT, " (%.1f MB/s)", uploadMegabytesPerSecond()));
+        } else {
+          line.append('/').append(expected(kind));
+        }
+        line.append(" | ");
+      }
+      line.append("requests ").append(inFlight).append(" | elapsed ");
+      line.append(format(Duration.ofNanos(elapsedNanos))).append(" | ETA ");
+      Duration eta = eta();
+      line.append(eta != null ? format(eta) : "--:--");
+      return line.toString();
+    }
+
+    private static String format(Duration duration) {
+      long seconds = duration.toSeconds();
+      return seconds >= 3600
+          ? String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60)
+          : String.format("%02d:%02d", seconds / 60, seconds % 60);
+    }
+  }
+
+  private static Map<Kind, LongAdder> counters() {
+    Map<Kind, LongAdder> counters = new EnumMap<>(Kind.class);
+    for (Kind kind : Kind.values()) {
+      counters.put(kind, new LongAdder());
+    }
+    return counters;
+  }
+}
@@ -0,0 +1,103 @@
+package arnaudroubinet.structurizr.confluence.progress;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Displays the {@link ExportProgress} while an export runs: a status line redrawn in place on a
+ * terminal, or a summary line at a longer interval when the output is a file or a CI log.
+ */
+public final class ProgressReporter implements AutoCloseable {
+
+  /** How progress is displayed. */
+  public enum Mode {
+    /** {@link #LIVE} on a terminal, {@link #LINES} otherwise. */
+    AUTO,
+    /** A status line redrawn in place. */
+    LIVE,
+    /** A summary line at each interval. */
+    LINES,
+    /** Nothing. */
+    OFF;
+
+    /** Parses a mode name, ignoring case. */
+    public static Mode parse(String name) {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+  }
+
+  static final Duration LIVE_INTERVAL = Duration.ofMillis(250);
+  static final Duration LINES_INTERVAL = Duration.ofSeconds(10);
+
+  private final PrintStream out;
+  private final boolean live;
+  private final ScheduledExecutorService scheduler;
+  private int lastLength;
+
+  private ProgressReporter(PrintStream out, boolean live, Duration interval) {
+    this.out = out;
+    this.live = live;
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "export-progress");
+              thread.setDaemon(true);
+              return thread;
+            });
+    long millis = interval.toMillis();
+    scheduler.scheduleAtFixedRate(this::print, millis, millis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Starts counting the progress and displaying it.
+   *
+   * @param mode how to display it
+   * @param out where to display it
+   * @return the reporter to close once the export ends, or null with {@link Mode#OFF}
+   */
+  public static ProgressReporter start(Mode mode, PrintStream out) {
+    Mode resolved = mode == Mode.AUTO ? (System.console() != null ? Mode.LIVE : Mode.LINES) : mode;
+    if (resolved == Mode.OFF) {
+      return null;
+    }
+    return start(
+        out, resolved == Mode.LIVE, resolved == Mode.LIVE ? LIVE_INTERVAL : LINES_INTERVAL);
+  }
+
+  static ProgressReporter start(PrintStream out, boolean live, Duration interval) {
+    ExportProgress.start();
+    return new ProgressReporter(out, live, interval);
+  }
+
+  private synchronized void print() {
+    String line = ExportProgress.snapshot().line();
+    if (live) {
+      // Pad with spaces to erase the end of a longer previous line
+      out.print("\r" + line + " ".repeat(Math.max(0, lastLength - line.length())));
+      lastLength = line.length();
+    } else {
+      out.println("⏳ " + line);
+    }
+    out.flush();
+  }
+
+  /** Displays the final counts and stops counting. */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    try {
+      scheduler.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    print();
+    if (live) {
+      out.println();
+    }
+    ExportProgress.stop();
+  }
+}
@@ -0,0 +1,194 @@
+package arnaudroubinet.structurizr.confluence.replay;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archive of recorded HTTP exchanges: a gzipped JSON Lines file, one exchange per line, flushed
+ * after each exchange so that the archive of an interrupted run can be replayed up to its last
+ * exchange. Request headers and bodies are never stored, only a hash of the body, so credentials
+ * stay out of the archive.
+ */
+public final class HttpArchive implements AutoCloseable {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  /**
+   * An HTTP exchange.
+   *
+   * @param target the recorded service, such as {@code confluence} or {@code structurizr}
+   * @param method the request method
+   * @param uri the request path and query
+   * @param requestHash SHA-256 of the request body, empty without a body
+   * @param requestBytes size of the request body
+   * @param status the response status
+   * @param headers the response headers kept for replay
+   * @param body the response body
+   * @param offsetNanos time from the start of the recording to the request
+   * @param durationNanos time from the request to the complete response
+   */
+  public record Exchange(
+      String target,
+      String method,
+      String uri,
+      String requestHash,
+      long requestBytes,
+      int status,
+      Map<String, List<String>> headers,
+      byte[] body,
+      long offsetNanos,
+      long durationNanos) {}
+
+  private final Writer writer;
+
+  private HttpArchive(Writer writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * Creates an archive, replacing the file.
+   *
+   * @param file the archive file
+   * @return the archive, to which exchanges are appended
+   * @throws IOException if the file cannot be created
+   */
+  public static HttpArchive create(Path file) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    return new HttpArchive(
+        new BufferedWriter(
+            new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file), true), StandardCharsets.UTF_8)));
+  }
+
+  /** Appends an exchange to the archive. */
+  public synchronized void append(Exchange exchange) throws IOException {
+    ObjectNode node = OBJECT_MAPPER.createObjectNode();
+    node.put("target", exchange.target());
+    node.put("method", exchange.method());
+    node.put("uri", exchange.uri());
+    node.put("requestHash", exchange.requestHash());
+    node.put("requestBytes", exchange.requestBytes());
+    node.put("status", exchange.status());
+    node.set("headers", OBJECT_MAPPER.valueToTree(exchange.headers()));
+    node.put("body", Base64.getEncoder().encodeToString(exchange.body()));
+    node.put("offsetNanos", exchange.offsetNanos());
+    node.put("durationNanos", exchange.durationNanos());
+    writer.write(OBJECT_MAPPER.writeValueAsString(node));
+    writer.write('\n');
+    writer.flush();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    writer.close();
+  }
+
+  /**
+   * Reads the exchanges of an archive, in recording order. The exchanges of a truncated archive are
+   * read up to the last complete one.
+   *
+   * @param file the archive file
+   * @return the exchanges
+   * @throws IOException if the file cannot be read
+   */
+  public static List<Exchange> read(Path file) throws IOException {
+    List<Exchange> exchanges = new ArrayList<>();
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(
+                new TruncatedGzipInputStream(Files.newInputStream(file)),
+                StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isBlank()) {
+          continue;
+        }
+        try {
+          exchanges.add(parse(line));
+        } catch (JsonProcessingException e) {
+          // Exchange cut by the interruption of the recording
+          break;
+        }
+      }
+    }
+    return exchanges;
+  }
+
+  /** Gzip stream ending at the last flushed data of an archive without the gzip trailer. */
+  private static final class TruncatedGzipInputStream extends GZIPInputStream {
+
+    TruncatedGzipInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      try {
+        return super.read(buffer, offset, length);
+      } catch (EOFException e) {
+        return -1;
+      }
+    }
+  }
+
+  private static Exchange parse(String line) throws IOException {
+    ObjectNode node = (ObjectNode) OBJECT_MAPPER.readTree(line);
+    Map<String, List<String>> headers = new LinkedHashMap<>();
+    node.get("headers")
+        .fields()
+        .forEachRemaining(
+            field -> {
+              List<String> values = new ArrayList<>();
+              field.getValue().forEach(value -> values.add(value.asText()));
+              headers.put(field.getKey(), values);
+            });
+    return new Exchange(
+        node.get("target").asText(),
+        node.get("method").asText(),
+        node.get("uri").asText(),
+        node.get("requestHash").asText(),
+        node.get("requestBytes").asLong(),
+        node.get("status").asInt(),
+        headers,
+        Base64.getDecoder().decode(node.get("body").asText()),
+        node.get("offsetNanos").asLong(),
+        node.get("durationNanos").asLong());
+  }
+
+  /** Returns the SHA-256 of a request body, or an empty string without a body. */
+  static String hash(byte[] body) {
+    if (body.length == 0) {
+      return "";
+    }
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package arnaudroubinet.structurizr.confluence.replay;
+
+import arnaudroubinet.structurizr.confluence.processor.DiagramExporter;
+import com.structurizr.Workspace;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Diagram exporter appending the rendered diagram files to the traffic archive, so that a replay
+ * publishes them without a browser nor the Structurizr instance rendering them. Each file is stored
+ * as a {@value #TARGET} exchange whose path is the file name.
+ */
+public class RecordingDiagramExporter extends DiagramExporter {
+
+  private static final Logger logger = LoggerFactory.getLogger(RecordingDiagramExporter.class);
+
+  /** Target of the diagram exchanges in the archive. */
+  public static final String TARGET = "diagrams";
+
+  private final HttpArchive archive;
+  private final long startNanos;
+
+  public RecordingDiagramExporter(
+      String structurizrUrl,
+      String username,
+      String password,
+      String workspaceId,
+      HttpArchive archive,
+      long startNanos) {
+    super(structurizrUrl, username, password, workspaceId);
+    this.archive = archive;
+    this.startNanos = startNanos;
+  }
+
+  /**
+   * Creates a recording diagram exporter from the same environment variables as {@link
+   * DiagramExporter#fromEnvironment(String)}.
+   *
+   * @return the exporter, or null if the environment variables are missing
+   */
+  public static RecordingDiagramExporter fromEnvironment(
+      String workspaceId, HttpArchive archive, long startNanos) {
+    String url = System.getenv("STRUCTURIZR_URL");
+    String user = System.getenv("STRUCTURIZR_USERNAME");
+    String password = System.getenv("STRUCTURIZR_PASSWORD");
+    if (url == null || user == null || password == null) {
+      return null;
+    }
+    return new RecordingDiagramExporter(url, user, password, workspaceId, archive, startNanos);
+  }
+
+  @Override
+  public List<File> exportDiagrams(Workspace workspace) throws IOException {
+    long renderStart = System.nanoTime();
+    List<File> files = super.exportDiagrams(workspace);
+    record(archive, files, renderStart - startNanos, System.nanoTime() - renderStart);
+    logger.info("Recorded {} diagram files to the traffic archive", files.size());
+    return files;
+  }
+
+  /**
+   * Appends diagram files to an archive, the render time being shared out evenly between them.
+   *
+   * @param offsetNanos time from the start of the recording to the render
+   * @param durationNanos time spent rendering all the files
+   */
+  static void record(HttpArchive archive, List<File> files, long offsetNanos, long durationNanos)
+      throws IOException {
+    long fileNanos = files.isEmpty() ? 0 : durationNanos / files.size();
+    for (File file : files) {
+      archive.append(
+          new HttpArchive.Exchange(
+              TARGET,
+              "GET",
+              "/" + file.getName(),
+              "",
+              0,
+              200,
+              Map.of("Content-Type", List.of("image/png")),
+              Files.readAllBytes(file.toPath()),
+              offsetNanos,
+              fileNanos));
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package arnaudroubinet.structurizr.confluence.replay;
+
+import arnaudroubinet.structurizr.confluence.util.SslTrustUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local HTTP proxy recording the traffic of a service: clients are pointed at the proxy instead of
+ * the service, and every exchange is forwarded to the service and appended to an archive with its
+ * timing. Request headers, including credentials, are forwarded but not recorded.
+ */
+public final class RecordingProxy implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(RecordingProxy.class);
+
+  /** Headers set by the HTTP clients and servers themselves, never copied. */
+  private static final Set<String> HOP_HEADERS =
+      Set.of("connection", "content-length", "expect", "host", "upgrade", "transfer-encoding");
+
+  /** Response headers never recorded. */
+  private static final Set<String> REDACTED_HEADERS = Set.of("set-cookie");
+
+  private final String target;
+  private final URI upstream;
+  private final HttpArchive archive;
+  private final long startNanos;
+  private final HttpClient httpClient;
+  private final HttpServer httpServer;
+  private final ExecutorService handlers;
+
+  /**
+   * Creates and starts the proxy on a free local port.
+   *
+   * @param target name of the recorded service, stored with each exchange
+   * @param upstreamUrl URL of the service; only its scheme, host and port are used
+   * @param archive the archive the exchanges are appended to
+   * @param startNanos {@link System#nanoTime()} at the start of the recording
+   * @throws IOException if the proxy cannot listen
+   */
+  public RecordingProxy(String target, String upstreamUrl, HttpArchive archive, long startNanos)
+      throws IOException {
+    this.target = target;
+    this.upstream = URI.create(upstreamUrl);
+    this.archive = archive;
+    this.startNanos = startNanos;
+    HttpClient.Builder builder = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30));
+    if (SslTrustUtils.shouldDisableSslVerification()) {
+      try {
+        builder.sslContext(SslTrustUtils.createTrustAllSslContext());
+      } catch (GeneralSecurityException e) {
+        throw new IOException("Cannot disable SSL verification: " + e.getMessage(), e);
+      }
+    }
+    this.httpClient = builder.build();
+    this.handlers = ReplayServer.daemonExecutor("recording-proxy-" + target);
+    this.httpServer = ReplayServer.startLocal(handlers, this::handle);
+    logger.info("Recording {} traffic to {} through {}", target, upstream, proxyUrl(upstreamUrl));
+  }
+
+  /** Returns the URL reaching the given service URL through the proxy. */
+  public String proxyUrl(String url) {
+    return ReplayServer.localUrl(httpServer, url);
+  }
+
+  @Override
+  public void close() {
+    httpServer.stop(0);
+    handlers.shutdown();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      byte[] requestBody;
+      try (InputStream in = exchange.getRequestBody()) {
+        requestBody = in.readAllBytes();
+      }
+      String uri = exchange.getRequestURI().getRawPath();
+      if (exchange.getRequestURI().getRawQuery() != null) {
+        uri += "?" + exchange.getRequestURI().getRawQuery();
+      }
+      HttpRequest.Builder request =
+          HttpRequest.newBuilder(upstream.resolve(uri))
+              .method(
+                  exchange.getRequestMethod(),
+                  requestBody.length == 0
+                      ? HttpRequest.BodyPublishers.noBody()
+                      : HttpRequest.BodyPublishers.ofByteArray(requestBody));
+      exchange
+          .getRequestHeaders()
+          .forEach(
+              (name, values) -> {
+                if (!HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                  values.forEach(value -> request.header(name, value));
+                }
+              });
+
+      long requestNanos = System.nanoTime();
+      HttpResponse<byte[]> response;
+      try {
+        response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        exchange.sendResponseHeaders(502, -1);
+        return;
+      } catch (IOException e) {
+        logger.warn(
+            "Cannot forward {} {} to {}: {}",
+            exchange.getRequestMethod(),
+            uri,
+            upstream,
+            e.getMessage());
+        exchange.sendResponseHeaders(502, -1);
+        return;
+      }
+      long durationNanos = System.nanoTime() - requestNanos;
+
+      Map<String, List<String>> headers = new LinkedHashMap<>();
+      response
+          .headers()
+          .map()
+          .forEach(
+              (name, values) -> {
+                String lowerName = name.toLowerCase(Locale.ROOT);
+                if (!name.startsWith(":") && !HOP_HEADERS.contains(lowerName)) {
+                  exchange.getResponseHeaders().put(name, values);
+                  if (!REDACTED_HEADERS.contains(lowerName)) {
+                    headers.put(name, new ArrayList<>(values));
+                  }
+                }
+              });
+      byte[] body = response.body();
+      archive.append(
+          new HttpArchive.Exchange(
+              target,
+              exchange.getRequestMethod(),
+              uri,
+              HttpArchive.hash(requestBody),
+              requestBody.length,
+              response.statusCode(),
+              headers,
+              body,
+              requestNanos - startNanos,
+              durationNanos));
+      ReplayServer.sendBody(exchange, response.statusCode(), body);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package arnaudroubinet.structurizr.confluence.replay;
+
+import arnaudroubinet.structurizr.confluence.processor.DiagramExporter;
+import arnaudroubinet.structurizr.confluence.progress.ExportProgress;
+import com.structurizr.Workspace;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Diagram exporter writing the diagram files recorded by a {@link RecordingDiagramExporter} instead
+ * of rendering them, after the recorded render time, optionally scaled. A replay thus needs neither
+ * a browser nor the Structurizr instance.
+ */
+public class ReplayDiagramExporter extends DiagramExporter {
+
+  private static final Logger logger = LoggerFactory.getLogger(ReplayDiagramExporter.class);
+
+  private final String workspaceId;
+  private final List<HttpArchive.Exchange> exchanges;
+  private final double latencyScale;
+
+  /**
+   * @param workspaceId the workspace whose diagrams are replayed
+   * @param exchanges the recorded exchanges, in recording order
+   * @param latencyScale factor applied to the recorded render time: 1 replays it, 0 writes at once
+   */
+  public ReplayDiagramExporter(
+      String workspaceId, List<HttpArchive.Exchange> exchanges, double latencyScale) {
+    super(null, null, null, workspaceId);
+    this.workspaceId = workspaceId;
+    this.exchanges = exchanges;
+    this.latencyScale = latencyScale;
+  }
+
+  @Override
+  public List<File> exportDiagrams(Workspace workspace) throws IOException {
+    // The last render of each file wins when the workspace was exported several times
+    String prefix = "/structurizr-" + workspaceId + "-";
+    Map<String, HttpArchive.Exchange> recorded = new LinkedHashMap<>();
+    for (HttpArchive.Exchange exchange : exchanges) {
+      if (exchange.target().equals(RecordingDiagramExporter.TARGET)
+          && exchange.uri().startsWith(prefix)) {
+        recorded.put(exchange.uri(), exchange);
+      }
+    }
+    if (recorded.isEmpty()) {
+      throw new IOException(
+          "No diagram of workspace "
+              + workspaceId
+              + " in the traffic archive, record its export with --record-traffic");
+    }
+
+    long renderNanos =
+        recorded.values().stream().mapToLong(HttpArchive.Exchange::durationNanos).sum();
+    try {
+      TimeUnit.NANOSECONDS.sleep((long) (renderNanos * latencyScale));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Diagram replay interrupted", e);
+    }
+
+    Path outputDirectory = getOutputDirectory();
+    Files.createDirectories(outputDirectory);
+    List<File> files = new ArrayList<>();
+    for (HttpArchive.Exchange exchange : recorded.values()) {
+      Path file = outputDirectory.resolve(exchange.uri().substring(1));
+      Files.write(file, exchange.body());
+      files.add(file.toFile());
+    }
+    int views = workspace.getViews().getViews().size();
+    ExportProgress.expect(ExportProgress.Kind.VIEW, views);
+    ExportProgress.completed(ExportProgress.Kind.VIEW, views);
+    logger.info("Replayed {} recorded diagram files of workspace {}", files.size(), workspaceId);
+    return files;
+  }
+}
@@ -0,0 +1,203 @@
+package arnaudroubinet.structurizr.confluence.replay;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local stand-in for a recorded service, answering requests with the recorded responses after the
+ * recorded latencies, optionally scaled. A request gets the next unused response recorded for the
+ * same method, path, query and body, else for the same method, path and query, so that requests
+ * whose body changed between runs (such as pages with a new export date) are still answered in
+ * recording order. Once all matching responses are used, the last one is repeated.
+ */
+public final class ReplayServer implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ReplayServer.class);
+
+  private final String target;
+  private final double latencyScale;
+  private final Map<String, Deque<HttpArchive.Exchange>> byBody = new HashMap<>();
+  private final Map<String, Deque<HttpArchive.Exchange>> byUri = new HashMap<>();
+  private final Map<String, HttpArchive.Exchange> lastServed = new HashMap<>();
+  private final AtomicInteger served = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+  private final HttpServer httpServer;
+  private final ExecutorService handlers;
+
+  /**
+   * Creates and starts the server on a free local port.
+   *
+   * @param target name of the replayed service; exchanges of other services are ignored
+   * @param exchanges the recorded exchanges, in recording order
+   * @param latencyScale factor applied to the recorded latencies: 1 replays them, 0 answers at once
+   * @throws IOException if the server cannot listen
+   */
+  public ReplayServer(String target, List<HttpArchive.Exchange> exchanges, double latencyScale)
+      throws IOException {
+    this.target = target;
+    this.latencyScale = latencyScale;
+    int count = 0;
+    for (HttpArchive.Exchange exchange : exchanges) {
+      if (exchange.target().equals(target)) {
+        byBody
+            .computeIfAbsent(
+                bodyKey(exchange.method(), exchange.uri(), exchange.requestHash()),
+                k -> new ArrayDeque<>())
+            .add(exchange);
+        byUri
+            .computeIfAbsent(uriKey(exchange.method(), exchange.uri()), k -> new ArrayDeque<>())
+            .add(exchange);
+        count++;
+      }
+    }
+    this.handlers = daemonExecutor("replay-" + target);
+    this.httpServer = startLocal(handlers, this::handle);
+    logger.info(
+        "Replaying {} recorded {} exchanges on {} (latency x{})",
+        count,
+        target,
+        localUrl(httpServer, "/"),
+        latencyScale);
+  }
+
+  /** Returns the URL reaching the given service URL on this server. */
+  public String localUrl(String url) {
+    return localUrl(httpServer, url);
+  }
+
+  /** Returns the number of requests answered with a recorded response. */
+  public int getServed() {
+    return served.get();
+  }
+
+  /** Returns the number of requests without any recorded response, answered with 404. */
+  public int getMisses() {
+    return misses.get();
+  }
+
+  @Override
+  public void close() {
+    httpServer.stop(0);
+    handlers.shutdown();
+    if (misses.get() > 0) {
+      logger.warn("{} {} requests had no recorded response", misses.get(), target);
+    }
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      byte[] requestBody;
+      try (InputStream in = exchange.getRequestBody()) {
+        requestBody = in.readAllBytes();
+      }
+      String method = exchange.getRequestMethod();
+      String uri = exchange.getRequestURI().getRawPath();
+      if (exchange.getRequestURI().getRawQuery() != null) {
+        uri += "?" + exchange.getRequestURI().getRawQuery();
+      }
+
+      HttpArchive.Exchange recorded = next(method, uri, HttpArchive.hash(requestBody));
+      if (recorded == null) {
+        misses.incrementAndGet();
+        logger.warn("No recorded {} response for {} {}", target, method, uri);
+        sendBody(exchange, 404, new byte[0]);
+        return;
+      }
+      served.incrementAndGet();
+      long delayNanos = (long) (recorded.durationNanos() * latencyScale);
+      if (delayNanos > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(delayNanos);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      recorded.headers().forEach((name, values) -> exchange.getResponseHeaders().put(name, values));
+      sendBody(exchange, recorded.status(), recorded.body());
+    }
+  }
+
+  /** Takes the next recorded response of a request, or repeats the last one when all are used. */
+  private synchronized HttpArchive.Exchange next(String method, String uri, String requestHash) {
+    String uriKey = uriKey(method, uri);
+    Deque<HttpArchive.Exchange> sameBody = byBody.get(bodyKey(method, uri, requestHash));
+    HttpArchive.Exchange exchange = sameBody != null ? sameBody.poll() : null;
+    Deque<HttpArchive.Exchange> sameUri = byUri.get(uriKey);
+    if (exchange != null) {
+      sameUri.remove(exchange);
+    } else if (sameUri != null && !sameUri.isEmpty()) {
+      exchange = sameUri.poll();
+      byBody.get(bodyKey(method, uri, exchange.requestHash())).remove(exchange);
+    } else {
+      return lastServed.get(uriKey);
+    }
+    lastServed.put(uriKey, exchange);
+    return exchange;
+  }
+
+  private static String bodyKey(String method, String uri, String requestHash) {
+    return method + " " + uri + " " + requestHash;
+  }
+
+  private static String uriKey(String method, String uri) {
+    return method + " " + uri;
+  }
+
+  /** Creates the daemon threads handling the requests of a local server. */
+  static ExecutorService daemonExecutor(String name) {
+    return Executors.newCachedThreadPool(
+        runnable -> {
+          Thread thread = new Thread(runnable, name);
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /** Starts a server on a free port of the loopback address. */
+  static HttpServer startLocal(ExecutorService executor, HttpHandler handler) throws IOException {
+    HttpServer server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.setExecutor(executor);
+    server.createContext("/", handler);
+    server.start();
+    return server;
+  }
+
+  /** Returns the URL on a local server with the path and query of the given URL. */
+  static String localUrl(HttpServer server, String url) {
+    URI uri = URI.create(url);
+    String path = uri.getRawPath() != null ? uri.getRawPath() : "";
+    String query = uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "";
+    InetSocketAddress address = server.getAddress();
+    return "http://" + address.getHostString() + ":" + address.getPort() + path + query;
+  }
+
+  /** Sends a response, without a body when it is empty. */
+  static void sendBody(HttpExchange exchange, int status, byte[] body) throws IOException {
+    boolean empty = body.length == 0 || exchange.getRequestMethod().equals("HEAD");
+    exchange.sendResponseHeaders(status, empty ? -1 : body.length);
+    if (!empty) {
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    }
+  }
+}
@@ -0,0 +1,338 @@
+package arnaudroubinet.structurizr.confluence.report;
+
+import arnaudroubinet.structurizr.confluence.metrics.ExportMetrics;
+import arnaudroubinet.structurizr.confluence.scheduler.ExecutionReport;
+import arnaudroubinet.structurizr.confluence.scheduler.ExportTask;
+import arnaudroubinet.structurizr.confluence.scheduler.TaskType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Machine-readable report of a CLI run: every page and attachment touched with its action, size and
+ * latency, the critical path of each export, the slowest views, sections and requests, cache hit
+ * ratios and request counts by endpoint. Written as JSON, or HTML for people, with {@code
+ * --report}, so CI can archive it and compare runs.
+ *
+ * <p>Pages and attachments are recorded by the page publisher and the image upload manager of each
+ * export; timings by endpoint and view come from the export metrics.
+ */
+public final class RunReport {
+
+  /** A page created, updated or skipped by an export. */
+  public record PageItem(
+      String title, String id, String action, long bytes, double latencyMillis) {}
+
+  /** An attachment uploaded, reused from the previous export or cached during this one. */
+  public record AttachmentItem(
+      String pageId, String filename, String action, long bytes, double latencyMillis) {}
+
+  /** A timed item of the slowest lists: a view, a section conversion or an endpoint. */
+  public record Timing(String name, long count, double millis) {}
+
+  private static final ObjectMapper OBJECT_MAPPER =
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  private final ExportMetrics metrics;
+  private final List<PageItem> pages = new ArrayList<>();
+  private final List<AttachmentItem> attachments = new ArrayList<>();
+  private final List<Map<String, Object>> exports = new ArrayList<>();
+  private final List<Timing> sections = new ArrayList<>();
+  private int topCount = 10;
+
+  /**
+   * Creates a report whose timings by endpoint and view come from the given metrics.
+   *
+   * @param metrics the metrics of the run
+   */
+  public RunReport(ExportMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /** Sets the length of the slowest views, sections and requests lists (default: 10). */
+  public void setTopCount(int topCount) {
+    this.topCount = Math.max(1, topCount);
+  }
+
+  /**
+   * Records a page touched by an export.
+   *
+   * @param title the page title
+   * @param id the page ID
+   * @param action created, updated or skipped
+   * @param bytes the size of the published body, 0 when skipped
+   * @param nanos the time spent publishing it
+   */
+  public synchronized void recordPage(
+      String title, String id, String action, long bytes, long nanos) {
+    pages.add(new PageItem(title, id, action, bytes, millis(nanos)));
+  }
+
+  /**
+   * Records an attachment handled by an export.
+   *
+   * @param pageId the page ID
+   * @param filename the attachment file name
+   * @param action uploaded, reused or cached
+   * @param bytes the bytes uploaded, 0 unless uploaded
+   * @param nanos the time spent handling it
+   */
+  public synchronized void recordAttachment(
+      String pageId, String filename, String action, long bytes, long nanos) {
+    attachments.add(new AttachmentItem(pageId, filename, action, bytes, millis(nanos)));
+  }
+
+  /**
+   * Records the tasks and critical path of an export.
+   *
+   * @param workspace the workspace name
+   * @param branch the branch name
+   * @param report the execution report of the export
+   */
+  public synchronized void recordExport(String workspace, String branch, ExecutionReport report) {
+    Map<String, Object> export = new LinkedHashMap<>();
+    export.put("workspace", workspace);
+    export.put("branch", branch);
+    export.put("parallelism", report.getParallelism());
+    export.put("wallClockMillis", millis(report.getWallClockNanos()));
+    export.put("criticalPathMillis", millis(report.getCriticalPathNanos()));
+    export.put("totalWorkMillis", millis(report.getTotalWorkNanos()));
+    List<Map<String, Object>> criticalPath = new ArrayList<>();
+    for (ExportTask task : report.getCriticalPath()) {
+      Map<String, Object> step = new LinkedHashMap<>();
+      step.put("task", task.getName());
+      step.put("type", task.getType().name());
+      step.put("millis", millis(task.getDurationNanos()));
+      criticalPath.add(step);
+    }
+    export.put("criticalPath", criticalPath);
+    exports.add(export);
+    for (ExportTask task : report.getTasks()) {
+      if (task.getType() == TaskType.CONVERT_SECTION) {
+        sections.add(new Timing(task.getName(), 1, millis(task.getDurationNanos())));
+      }
+    }
+  }
+
+  public synchronized List<PageItem> getPages() {
+    return List.copyOf(pages);
+  }
+
+  public synchronized List<AttachmentItem> getAttachments() {
+    return List.copyOf(attachments);
+  }
+
+  /** Returns the report content, as written to JSON. */
+  public synchronized Map<String, Object> toMap() {
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("generatedAt", Instant.now().toString());
+    report.put("exports", List.copyOf(exports));
+    Map<String, Object> totals = new LinkedHashMap<>();
+    totals.put("pages", pages.size());
+    totals.put("attachments", attachments.size());
+    totals.put("pageBytes", pages.stream().mapToLong(PageItem::bytes).sum());
+    totals.put("attachmentBytes", attachments.stream().mapToLong(AttachmentItem::bytes).sum());
+    Map<String, Long> requests = requestsByEndpoint();
+    totals.put("requests", requests.values().stream().mapToLong(Long::longValue).sum());
+    report.put("totals", totals);
+    Map<String, Double> cacheHitRatios = new LinkedHashMap<>();
+    cacheHitRatios.put("pages", ratio(pages.stream().filter(p -> "skipped".equals(p.action()))));
+    cacheHitRatios.put("images", imageHitRatio());
+    report.put("cacheHitRatios", cacheHitRatios);
+    report.put("requestsByEndpoint", requests);
+    Map<String, List<Timing>> slowest = new LinkedHashMap<>();
+    slowest.put("views", slowestViews());
+    slowest.put("sections", top(sections));
+    slowest.put("requests", slowestRequests());
+    report.put("slowest", slowest);
+    report.put("pages", List.copyOf(pages));
+    report.put("attachments", List.copyOf(attachments));
+    return report;
+  }
+
+  /** Returns the report as JSON. */
+  public String toJson() throws IOException {
+    return OBJECT_MAPPER.writeValueAsString(toMap());
+  }
+
+  /** Returns the report as a standalone HTML page. */
+  public synchronized String toHtml() {
+    Map<String, Object> report = toMap();
+    StringBuilder html = new StringBuilder();
+    html.append("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\">")
+        .append("<title>Structurizr Confluence run report</title>")
+        .append("<style>body{font-family:sans-serif}table{border-collapse:collapse}")
+        .append("td,th{border:1px solid #ccc;padding:2px 8px;text-align:left}</style>")
+        .append("</head><body>\n<h1>Run report</h1>\n<p>Generated ")
+        .append(report.get("generatedAt"))
+        .append("</p>\n");
+    section(html, "Totals", List.of(report.get("totals")));
+    section(html, "Cache hit ratios", List.of(report.get("cacheHitRatios")));
+    section(html, "Exports", withoutCriticalPath(exports));
+    for (Map<String, Object> export : exports) {
+      section(
+          html,
+          "Critical path of " + export.get("workspace") + " (" + export.get("branch") + ")",
+          (List<?>) export.get("criticalPath"));
+    }
+    @SuppressWarnings("unchecked")
+    Map<String, List<Timing>> slowest = (Map<String, List<Timing>>) report.get("slowest");
+    slowest.forEach((kind, timings) -> section(html, "Slowest " + kind, timings));
+    List<Map<String, Object>> requests = new ArrayList<>();
+    requestsByEndpoint()
+        .forEach((endpoint, count) -> requests.add(Map.of("endpoint", endpoint, "count", count)));
+    section(html, "Requests by endpoint", requests);
+    section(html, "Pages", pages);
+    section(html, "Attachments", attachments);
+    return html.append("</body></html>\n").toString();
+  }
+
+  /**
+   * Writes the report to a file: HTML if its name ends with {@code .html} or {@code .htm}, JSON
+   * otherwise.
+   *
+   * @param file the file
+   * @throws IOException if the file cannot be written
+   */
+  public void write(Path file) throws IOException {
+    String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+    String content = name.endsWith(".html") || name.endsWith(".htm") ? toHtml() : toJson();
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Files.writeString(file, content, StandardCharsets.UTF_8);
+  }
+
+  private Map<String, Long> requestsByEndpoint() {
+    Map<String, Long> requests = new TreeMap<>();
+    for (Timer timer : metrics.getRegistry().find(ExportMetrics.REQUESTS).timers()) {
+      requests.merge(endpoint(timer), timer.count(), Long::sum);
+    }
+    return requests;
+  }
+
+  private List<Timing> slowestRequests() {
+    Map<String, List<Timer>> byEndpoint = new TreeMap<>();
+    for (Timer timer : metrics.getRegistry().find(ExportMetrics.REQUESTS).timers()) {
+      byEndpoint.computeIfAbsent(endpoint(timer), e -> new ArrayList<>()).add(timer);
+    }
+    List<Timing> timings = new ArrayList<>();
+    byEndpoint.forEach(
+        (endpoint, timers) ->
+            timings.add(
+                new Timing(
+                    endpoint,
+                    timers.stream().mapToLong(Timer::count).sum(),
+                    timers.stream().mapToDouble(RunReport::p95Millis).max().orElse(0))));
+    return top(timings);
+  }
+
+  private List<Timing> slowestViews() {
+    List<Timing> timings = new ArrayList<>();
+    for (Timer timer : metrics.getRegistry().find(ExportMetrics.RENDER).timers()) {
+      timings.add(
+          new Timing(
+              timer.getId().getTag("view"), timer.count(), timer.max(TimeUnit.MILLISECONDS)));
+    }
+    return top(timings);
+  }
+
+  private double imageHitRatio() {
+    double hits = 0;
+    double total = 0;
+    for (Counter counter : metrics.getRegistry().find(ExportMetrics.IMAGES).counters()) {
+      total += counter.count();
+      if (!"uploaded".equals(counter.getId().getTag("result"))) {
+        hits += counter.count();
+      }
+    }
+    return total > 0 ? hits / total : 0;
+  }
+
+  private double ratio(Stream<PageItem> hits) {
+    return pages.isEmpty() ? 0 : (double) hits.count() / pages.size();
+  }
+
+  private List<Timing> top(List<Timing> timings) {
+    return timings.stream()
+        .sorted(Comparator.comparingDouble(Timing::millis).reversed())
+        .limit(topCount)
+        .toList();
+  }
+
+  private static String endpoint(Timer timer) {
+    return timer.getId().getTag("method") + " " + timer.getId().getTag("endpoint");
+  }
+
+  private static double p95Millis(Timer timer) {
+    for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+      if (value.percentile() == 0.95) {
+        return value.value(TimeUnit.MILLISECONDS);
+      }
+    }
+    return timer.max(TimeUnit.MILLISECONDS);
+  }
+
+  private static double millis(long nanos) {
+    return Math.round(nanos / 10_000.0) / 100.0;
+  }
+
+  private static List<Map<String, Object>> withoutCriticalPath(List<Map<String, Object>> exports) {
+    List<Map<String, Object>> rows = new ArrayList<>();
+    for (Map<String, Object> export : exports) {
+      Map<String, Object> row = new LinkedHashMap<>(export);
+      row.remove("criticalPath");
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  /** Appends a titled table with a column per property of the rows. */
+  private static void section(StringBuilder html, String title, List<?> rows) {
+    html.append("<h2>").append(escape(title)).append("</h2>\n");
+    if (rows.isEmpty()) {
+      html.append("<p>None</p>\n");
+      return;
+    }
+    List<Map<String, Object>> maps = new ArrayList<>();
+    for (Object row : rows) {
+      @SuppressWarnings("unchecked")
+      Map<String, Object> map = OBJECT_MAPPER.convertValue(row, LinkedHashMap.class);
+      maps.add(map);
+    }
+    html.append("<table><tr>");
+    for (String column : maps.get(0).keySet()) {
+      html.append("<th>").append(escape(column)).append("</th>");
+    }
+    html.append("</tr>\n");
+    for (Map<String, Object> row : maps) {
+      html.append("<tr>");
+      for (Object value : row.values()) {
+        html.append("<td>").append(escape(String.valueOf(value))).append("</td>");
+      }
+      html.append("</tr>\n");
+    }
+    html.append("</table>\n");
+  }
+
+  private static String escape(String text) {
+    return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+  }
+}
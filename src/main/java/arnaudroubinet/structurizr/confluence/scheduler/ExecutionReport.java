@@ -0,0 +1,120 @@
+package arnaudroubinet.structurizr.confluence.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+
+/**
+ * Timings of an executed {@link TaskGraph}: wall-clock time, total work per task type, and the
+ * critical path, i.e. the chain of dependent tasks whose durations add up to the longest time. The
+ * export cannot finish faster than its critical path, whatever the parallelism.
+ */
+public final class ExecutionReport {
+
+  private final long wallClockNanos;
+  private final int parallelism;
+  private final List<ExportTask> tasks;
+  private final List<ExportTask> criticalPath;
+
+  ExecutionReport(long wallClockNanos, int parallelism, List<ExportTask> tasks) {
+    this.wallClockNanos = wallClockNanos;
+    this.parallelism = parallelism;
+    this.tasks = Collections.unmodifiableList(new ArrayList<>(tasks));
+    this.criticalPath = Collections.unmodifiableList(computeCriticalPath(tasks));
+  }
+
+  /** Tasks are expected in topological order, as kept by {@link TaskGraph}. */
+  private static List<ExportTask> computeCriticalPath(List<ExportTask> tasks) {
+    Map<ExportTask, Long> finish = new HashMap<>();
+    Map<ExportTask, ExportTask> previous = new HashMap<>();
+    ExportTask last = null;
+    for (ExportTask task : tasks) {
+      long start = 0;
+      ExportTask via = null;
+      for (ExportTask dependency : task.getDependencies()) {
+        long dependencyFinish = finish.getOrDefault(dependency, 0L);
+        if (via == null || dependencyFinish > start) {
+          start = dependencyFinish;
+          via = dependency;
+        }
+      }
+      if (via != null) {
+        previous.put(task, via);
+      }
+      long taskFinish = start + task.getDurationNanos();
+      finish.put(task, taskFinish);
+      if (last == null || taskFinish > finish.get(last)) {
+        last = task;
+      }
+    }
+    List<ExportTask> path = new ArrayList<>();
+    for (ExportTask task = last; task != null; task = previous.get(task)) {
+      path.add(task);
+    }
+    Collections.reverse(path);
+    return path;
+  }
+
+  public long getWallClockNanos() {
+    return wallClockNanos;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /** All tasks of the graph, in topological order. */
+  public List<ExportTask> getTasks() {
+    return tasks;
+  }
+
+  /** The longest chain of dependent tasks, from first to last. */
+  public List<ExportTask> getCriticalPath() {
+    return criticalPath;
+  }
+
+  /** Sum of the durations of the critical path tasks, in nanoseconds. */
+  public long getCriticalPathNanos() {
+    return criticalPath.stream().mapToLong(ExportTask::getDurationNanos).sum();
+  }
+
+  /** Sum of the durations of all tasks, in nanoseconds. */
+  public long getTotalWorkNanos() {
+    return tasks.stream().mapToLong(ExportTask::getDurationNanos).sum();
+  }
+
+  /** Sum of the task durations per task type, in nanoseconds. */
+  public Map<TaskType, Long> getWorkByType() {
+    Map<TaskType, Long> work = new EnumMap<>(TaskType.class);
+    for (ExportTask task : tasks) {
+      work.merge(task.getType(), task.getDurationNanos(), Long::sum);
+    }
+    return work;
+  }
+
+  /** Logs the wall-clock time, the work per task type and the critical path. */
+  public void log(Logger logger) {
+    logger.info(
+        "Export graph: {} tasks in {} ms on {} workers ({} ms of work, critical path {} ms)",
+        tasks.size(),
+        millis(wallClockNanos),
+        parallelism,
+        millis(getTotalWorkNanos()),
+        millis(getCriticalPathNanos()));
+    getWorkByType().forEach((type, nanos) -> logger.info("  {}: {} ms", type, millis(nanos)));
+    logger.info("Critical path:");
+    for (ExportTask task : criticalPath) {
+      logger.info(
+          "  {} ms  {} [{}]", millis(task.getDurationNanos()), task.getName(), task.getType());
+    }
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+}
@@ -0,0 +1,96 @@
+package arnaudroubinet.structurizr.confluence.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A unit of work in a {@link TaskGraph}, run once all the tasks it runs {@link #after} completed.
+ */
+public final class ExportTask {
+
+  /** The work done by a task. */
+  @FunctionalInterface
+  public interface Action {
+    void run() throws Exception;
+  }
+
+  private final String name;
+  private final TaskType type;
+  private final Action action;
+  private final List<ExportTask> dependencies = new ArrayList<>();
+  private volatile long startNanos;
+  private volatile long endNanos;
+
+  ExportTask(String name, TaskType type, Action action) {
+    this.name = name;
+    this.type = type;
+    this.action = action;
+  }
+
+  /**
+   * Makes this task run after the given tasks. Null tasks are ignored, so optional steps can be
+   * passed as-is.
+   *
+   * @param tasks tasks that must complete first
+   * @return this task
+   */
+  public ExportTask after(ExportTask... tasks) {
+    for (ExportTask task : tasks) {
+      if (task != null && task != this && !dependencies.contains(task)) {
+        dependencies.add(task);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Makes this task run after all the given tasks.
+   *
+   * @param tasks tasks that must complete first
+   * @return this task
+   */
+  public ExportTask after(Collection<ExportTask> tasks) {
+    return after(tasks.toArray(new ExportTask[0]));
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public TaskType getType() {
+    return type;
+  }
+
+  public List<ExportTask> getDependencies() {
+    return Collections.unmodifiableList(dependencies);
+  }
+
+  /** Time spent running the task, in nanoseconds. */
+  public long getDurationNanos() {
+    return endNanos > startNanos ? endNanos - startNanos : 0;
+  }
+
+  long getStartNanos() {
+    return startNanos;
+  }
+
+  long getEndNanos() {
+    return endNanos;
+  }
+
+  void run() throws Exception {
+    startNanos = System.nanoTime();
+    try {
+      action.run();
+    } finally {
+      endNanos = System.nanoTime();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
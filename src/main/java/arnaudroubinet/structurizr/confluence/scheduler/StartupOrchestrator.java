@@ -0,0 +1,179 @@
+package arnaudroubinet.structurizr.confluence.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the independent startup steps of an export (workspace fetch, browser launch, converter boot,
+ * Confluence discovery) at the same time, each step being joined only where its result is first
+ * needed. Startup then takes as long as its slowest step rather than the sum of all of them.
+ */
+public final class StartupOrchestrator implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(StartupOrchestrator.class);
+
+  private final ExecutorService executor;
+  private final List<Step<?>> steps = new ArrayList<>();
+
+  public StartupOrchestrator() {
+    AtomicInteger counter = new AtomicInteger();
+    this.executor =
+        Executors.newCachedThreadPool(
+            runnable -> {
+              Thread thread = new Thread(runnable, "startup-" + counter.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Starts a step in the background.
+   *
+   * @param name step name, used in logs
+   * @param task the work to do
+   * @return the step, to be joined where its result is needed
+   */
+  public <T> Step<T> start(String name, Callable<T> task) {
+    CompletableFuture<T> future =
+        CompletableFuture.supplyAsync(
+            () -> {
+              try {
+                return task.call();
+              } catch (RuntimeException e) {
+                throw e;
+              } catch (Exception e) {
+                throw new CompletionException(e);
+              }
+            },
+            executor);
+    return track(name, future);
+  }
+
+  /**
+   * Tracks a step already running asynchronously, such as a component warming itself up.
+   *
+   * @param name step name, used in logs
+   * @param future completion of the step
+   * @return the step, to be joined where its result is needed
+   */
+  public synchronized <T> Step<T> track(String name, CompletableFuture<T> future) {
+    Step<T> step = new Step<>(name, future);
+    steps.add(step);
+    return step;
+  }
+
+  /** Logs how long each step took and how long the export waited for it. */
+  public synchronized void logSummary() {
+    for (Step<?> step : steps) {
+      logger.info(
+          "Startup step '{}': {} ms, waited {} ms{}",
+          step.getName(),
+          millis(step.getDurationNanos()),
+          millis(step.getWaitedNanos()),
+          step.isDone() ? "" : " (still running)");
+    }
+  }
+
+  /** Stops accepting steps; steps still running finish in the background. */
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  /** A startup step running in the background. */
+  public static final class Step<T> {
+
+    private final String name;
+    private final CompletableFuture<T> future;
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+    private final AtomicLong waitedNanos = new AtomicLong();
+
+    private Step(String name, CompletableFuture<T> future) {
+      this.name = name;
+      this.future = future;
+      future.whenComplete((result, failure) -> endNanos = System.nanoTime());
+    }
+
+    /**
+     * Waits for the step and returns its result.
+     *
+     * @return the result of the step
+     * @throws Exception the exception thrown by the step
+     */
+    public T join() throws Exception {
+      long start = System.nanoTime();
+      try {
+        return future.get();
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+          cause = cause.getCause();
+        }
+        if (cause instanceof Exception exception) {
+          throw exception;
+        }
+        if (cause instanceof Error error) {
+          throw error;
+        }
+        throw e;
+      } finally {
+        long waited = System.nanoTime() - start;
+        waitedNanos.addAndGet(waited);
+        logger.debug("Joined startup step '{}' after waiting {} ms", name, millis(waited));
+      }
+    }
+
+    /**
+     * Runs an action with the result of the step as soon as it succeeds, such as starting a step
+     * that depends on it without waiting for the step to be joined.
+     *
+     * @param action the action, run on the thread completing the step
+     */
+    public void whenDone(Consumer<? super T> action) {
+      future
+          .thenAccept(action)
+          .exceptionally(
+              failure -> {
+                if (!future.isCompletedExceptionally()) {
+                  logger.warn("Action after startup step '{}' failed", name, failure);
+                }
+                return null;
+              });
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public boolean isDone() {
+      return future.isDone();
+    }
+
+    /** Time the step took, or has taken so far, in nanoseconds. */
+    public long getDurationNanos() {
+      return (endNanos != 0 ? endNanos : System.nanoTime()) - startNanos;
+    }
+
+    /** Time spent blocked in {@link #join()}, in nanoseconds. */
+    public long getWaitedNanos() {
+      return waitedNanos.get();
+    }
+  }
+}
@@ -0,0 +1,226 @@
+package arnaudroubinet.structurizr.confluence.scheduler;
+
+import arnaudroubinet.structurizr.confluence.jfr.ExportPhaseEvent;
+import arnaudroubinet.structurizr.confluence.tracing.ExportTracing;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dependency graph of export tasks, executed on a bounded pool of worker threads. A task is
+ * submitted as soon as all its dependencies completed, so independent steps (diagram rendering,
+ * page creation, content conversion, uploads) overlap and the export takes as long as its critical
+ * path rather than the sum of its steps.
+ *
+ * <p>The first failing task stops the scheduling of new tasks; tasks already running are allowed to
+ * finish, then the failure is rethrown.
+ */
+public final class TaskGraph {
+
+  private static final Logger logger = LoggerFactory.getLogger(TaskGraph.class);
+
+  private static final String ENV_PARALLELISM = "EXPORT_PARALLELISM";
+  private static final int MAX_DEFAULT_PARALLELISM = 8;
+
+  private final List<ExportTask> tasks = new ArrayList<>();
+
+  /**
+   * Adds a task to the graph. Its dependencies are declared on the returned task.
+   *
+   * @param name task name, used in logs and in the execution report
+   * @param type task type
+   * @param action the work to do
+   * @return the task
+   */
+  public ExportTask add(String name, TaskType type, ExportTask.Action action) {
+    ExportTask task = new ExportTask(name, type, action);
+    tasks.add(task);
+    return task;
+  }
+
+  public List<ExportTask> getTasks() {
+    return Collections.unmodifiableList(tasks);
+  }
+
+  /**
+   * Number of workers used when none is configured: the {@code EXPORT_PARALLELISM} environment
+   * variable, or the number of processors capped to 8. Most tasks wait on Confluence or the
+   * browser, so even small runners benefit from at least two workers.
+   */
+  public static int defaultParallelism() {
+    String value = System.getenv(ENV_PARALLELISM);
+    if (value != null && !value.isBlank()) {
+      try {
+        return Math.max(1, Integer.parseInt(value.trim()));
+      } catch (NumberFormatException e) {
+        logger.warn("Invalid integer for env {}: '{}'. Using default.", ENV_PARALLELISM, value);
+      }
+    }
+    return Math.max(
+        2, Math.min(MAX_DEFAULT_PARALLELISM, Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * Runs all tasks, respecting their dependencies, on at most {@code parallelism} threads.
+   *
+   * @param parallelism maximum number of tasks running at the same time
+   * @return the timings of the execution
+   * @throws Exception the failure of the first failing task
+   */
+  public ExecutionReport execute(int parallelism) throws Exception {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+    }
+    List<ExportTask> ordered = topologicalOrder();
+    Map<ExportTask, Integer> pending = new HashMap<>();
+    Map<ExportTask, List<ExportTask>> dependents = new HashMap<>();
+    for (ExportTask task : ordered) {
+      pending.put(task, task.getDependencies().size());
+      for (ExportTask dependency : task.getDependencies()) {
+        dependents.computeIfAbsent(dependency, d -> new ArrayList<>()).add(task);
+      }
+    }
+
+    long start = System.nanoTime();
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism, workerThreads());
+    CompletionService<Completion> completions = new ExecutorCompletionService<>(executor);
+    Throwable failure = null;
+    int running = 0;
+    try {
+      for (ExportTask task : ordered) {
+        if (task.getDependencies().isEmpty()) {
+          submit(completions, task);
+          running++;
+        }
+      }
+      while (running > 0) {
+        Completion completion = completions.take().get();
+        running--;
+        if (completion.failure() != null) {
+          if (failure == null) {
+            failure = completion.failure();
+            logger.error(
+                "Export task '{}' failed, waiting for {} running tasks before stopping",
+                completion.task().getName(),
+                running);
+          }
+          continue;
+        }
+        if (failure != null) {
+          continue;
+        }
+        for (ExportTask dependent : dependents.getOrDefault(completion.task(), List.of())) {
+          int remaining = pending.merge(dependent, -1, Integer::sum);
+          if (remaining == 0) {
+            submit(completions, dependent);
+            running++;
+          }
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    if (failure instanceof Exception exception) {
+      throw exception;
+    }
+    if (failure instanceof Error error) {
+      throw error;
+    }
+    return new ExecutionReport(System.nanoTime() - start, parallelism, ordered);
+  }
+
+  private record Completion(ExportTask task, Throwable failure) {}
+
+  private static void submit(CompletionService<Completion> completions, ExportTask task) {
+    // Task spans are children of the span running the graph, not of the worker thread's context
+    Context parent = Context.current();
+    completions.submit(
+        () -> {
+          try (Scope scope = parent.makeCurrent()) {
+            logger.debug("Starting export task '{}'", task.getName());
+            ExportTracing.trace(
+                task.getName(),
+                span -> {
+                  span.setAttribute("export.task.type", task.getType().name());
+                  ExportPhaseEvent event = new ExportPhaseEvent();
+                  event.begin();
+                  task.run();
+                  event.end();
+                  if (event.shouldCommit()) {
+                    event.phase = task.getType().name();
+                    event.task = task.getName();
+                    event.commit();
+                  }
+                  return null;
+                });
+            return new Completion(task, null);
+          } catch (Throwable t) {
+            return new Completion(task, t);
+          }
+        });
+  }
+
+  /** Orders the tasks so that each one comes after its dependencies, rejecting cycles. */
+  List<ExportTask> topologicalOrder() {
+    Set<ExportTask> known = new LinkedHashSet<>(tasks);
+    Map<ExportTask, Integer> pending = new HashMap<>();
+    Map<ExportTask, List<ExportTask>> dependents = new HashMap<>();
+    Deque<ExportTask> ready = new ArrayDeque<>();
+    for (ExportTask task : tasks) {
+      for (ExportTask dependency : task.getDependencies()) {
+        if (!known.contains(dependency)) {
+          throw new IllegalStateException(
+              "Task '" + task.getName() + "' depends on '" + dependency + "' outside the graph");
+        }
+        dependents.computeIfAbsent(dependency, d -> new ArrayList<>()).add(task);
+      }
+      pending.put(task, task.getDependencies().size());
+      if (task.getDependencies().isEmpty()) {
+        ready.add(task);
+      }
+    }
+
+    List<ExportTask> ordered = new ArrayList<>(tasks.size());
+    while (!ready.isEmpty()) {
+      ExportTask task = ready.poll();
+      ordered.add(task);
+      for (ExportTask dependent : dependents.getOrDefault(task, List.of())) {
+        if (pending.merge(dependent, -1, Integer::sum) == 0) {
+          ready.add(dependent);
+        }
+      }
+    }
+    if (ordered.size() != tasks.size()) {
+      List<ExportTask> cyclic = new ArrayList<>(tasks);
+      cyclic.removeAll(ordered);
+      throw new IllegalStateException("Export tasks have cyclic dependencies: " + cyclic);
+    }
+    return ordered;
+  }
+
+  private static ThreadFactory workerThreads() {
+    AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, "export-worker-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
@@ -0,0 +1,15 @@
+package arnaudroubinet.structurizr.confluence.scheduler;
+
+/** Kinds of unit of work in an export, used to group task timings in the execution report. */
+public enum TaskType {
+  /** Rendering diagrams in the browser. */
+  RENDER_VIEW,
+  /** Uploading an attachment to a page. */
+  UPLOAD_ATTACHMENT,
+  /** Creating a page, or a placeholder for it, so that children and attachments can refer to it. */
+  CREATE_PAGE,
+  /** Converting documentation or decision content to ADF. */
+  CONVERT_SECTION,
+  /** Publishing the body of a page. */
+  PUBLISH_BODY
+}
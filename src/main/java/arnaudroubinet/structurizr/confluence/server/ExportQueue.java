@@ -0,0 +1,234 @@
+package arnaudroubinet.structurizr.confluence.server;
+
+import arnaudroubinet.structurizr.confluence.batch.BatchJob;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queue of server export jobs with per-target coalescing. A target (workspace, parent page and
+ * branch) is exported by at most one job at a time, and at most one more job waits for it: a new
+ * request for a target that already has a queued job supersedes it, so only the latest revision is
+ * exported. Up to {@code concurrency} targets are exported at the same time.
+ */
+public final class ExportQueue implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ExportQueue.class);
+
+  private static final int MAX_HISTORY = 500;
+  private static final int MAX_LATENCY_SAMPLES = 1000;
+
+  /** Runs the export of one job. */
+  @FunctionalInterface
+  public interface JobRunner {
+    void run(BatchJob job) throws Exception;
+  }
+
+  private final JobRunner runner;
+  private final ExecutorService workers;
+  private final AtomicInteger sequence = new AtomicInteger();
+  private final Deque<String> ready = new ArrayDeque<>();
+  private final Map<String, ServerJob> queued = new HashMap<>();
+  private final Set<String> running = new HashSet<>();
+  private final Map<String, ServerJob> history =
+      new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ServerJob> eldest) {
+          return size() > MAX_HISTORY;
+        }
+      };
+  private final Deque<Long> latencies = new ArrayDeque<>();
+  private long accepted;
+  private long superseded;
+  private long succeeded;
+  private long failed;
+  private boolean closed;
+
+  /**
+   * Creates a queue and starts its workers.
+   *
+   * @param concurrency maximum number of targets exported at the same time
+   * @param runner runs the exports
+   */
+  public ExportQueue(int concurrency, JobRunner runner) {
+    this.runner = runner;
+    AtomicInteger counter = new AtomicInteger();
+    int workerCount = Math.max(1, concurrency);
+    this.workers =
+        Executors.newFixedThreadPool(
+            workerCount,
+            runnable -> {
+              Thread thread = new Thread(runnable, "export-server-" + counter.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    for (int i = 0; i < workerCount; i++) {
+      workers.execute(this::work);
+    }
+  }
+
+  /**
+   * Queues an export, superseding the job already waiting for the same target, if any.
+   *
+   * @param job the export
+   * @param trigger what requested the export, e.g. {@code api} or {@code webhook}
+   * @return the queued job
+   */
+  public synchronized ServerJob submit(BatchJob job, String trigger) {
+    if (closed) {
+      throw new IllegalStateException("Export queue is closed");
+    }
+    ServerJob serverJob = new ServerJob(String.valueOf(sequence.incrementAndGet()), job, trigger);
+    history.put(serverJob.getId(), serverJob);
+    accepted++;
+    String key = job.key();
+    ServerJob previous = queued.put(key, serverJob);
+    if (previous != null) {
+      previous.superseded();
+      superseded++;
+      logger.info("Job {} for {} superseded by job {}", previous.getId(), key, serverJob.getId());
+    } else if (!running.contains(key)) {
+      ready.add(key);
+      notifyAll();
+    }
+    logger.info("Queued job {} for {} ({})", serverJob.getId(), job.name(), trigger);
+    return serverJob;
+  }
+
+  /** Returns a job by ID, if it is still in the history. */
+  public synchronized ServerJob get(String id) {
+    return history.get(id);
+  }
+
+  /** Returns the most recent jobs, latest first. */
+  public synchronized List<ServerJob> recent(int limit) {
+    List<ServerJob> jobs = new ArrayList<>(history.values());
+    Collections.reverse(jobs);
+    return jobs.subList(0, Math.min(limit, jobs.size()));
+  }
+
+  /** Counters and end-to-end latency percentiles, as returned by the REST API. */
+  public synchronized Map<String, Object> metrics() {
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("accepted", accepted);
+    metrics.put("superseded", superseded);
+    metrics.put("succeeded", succeeded);
+    metrics.put("failed", failed);
+    metrics.put("queued", queued.size());
+    metrics.put("running", running.size());
+    long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+    Arrays.sort(sorted);
+    Map<String, Object> latency = new LinkedHashMap<>();
+    latency.put("samples", sorted.length);
+    if (sorted.length > 0) {
+      latency.put("p50Ms", millis(percentile(sorted, 50)));
+      latency.put("p95Ms", millis(percentile(sorted, 95)));
+      latency.put("maxMs", millis(sorted[sorted.length - 1]));
+    }
+    metrics.put("latency", latency);
+    return metrics;
+  }
+
+  /** Stops the workers once the running exports complete; queued jobs are dropped. */
+  @Override
+  public void close() {
+    synchronized (this) {
+      closed = true;
+      notifyAll();
+    }
+    workers.shutdown();
+    try {
+      workers.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void work() {
+    while (true) {
+      ServerJob job;
+      synchronized (this) {
+        while (ready.isEmpty() && !closed) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+        }
+        if (closed) {
+          return;
+        }
+        String key = ready.poll();
+        job = queued.remove(key);
+        running.add(key);
+      }
+      try {
+        run(job);
+      } catch (Throwable t) {
+        // Keep the worker: the next jobs must still run
+        logger.error("Unexpected error after job {}", job.getId(), t);
+      }
+    }
+  }
+
+  private void run(ServerJob job) {
+    String key = job.getJob().key();
+    job.started();
+    logger.info("Running job {} for {}", job.getId(), job.getJob().name());
+    Throwable failure = null;
+    try {
+      runner.run(job.getJob());
+    } catch (Throwable t) {
+      failure = t;
+      logger.error("Job {} failed: {}", job.getId(), t.getMessage(), t);
+    } finally {
+      job.finished(failure);
+      synchronized (this) {
+        // Always released, or later requests for the target would stay queued forever
+        running.remove(key);
+        if (failure == null) {
+          succeeded++;
+        } else {
+          failed++;
+        }
+        latencies.add(job.getLatencyNanos());
+        if (latencies.size() > MAX_LATENCY_SAMPLES) {
+          latencies.poll();
+        }
+        if (queued.containsKey(key)) {
+          ready.add(key);
+          notifyAll();
+        }
+      }
+    }
+    logger.info(
+        "Job {} {} in {} ms after the request",
+        job.getId(),
+        job.getStatus(),
+        millis(job.getLatencyNanos()));
+  }
+
+  private static long percentile(long[] sorted, int percentile) {
+    int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+}
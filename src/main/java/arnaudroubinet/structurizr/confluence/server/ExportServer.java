@@ -0,0 +1,262 @@
+package arnaudroubinet.structurizr.confluence.server;
+
+import arnaudroubinet.structurizr.confluence.batch.BatchJob;
+import arnaudroubinet.structurizr.confluence.batch.BatchJobFile;
+import arnaudroubinet.structurizr.confluence.metrics.ExportMetrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HTTP front end of the export server. Exports are requested through the REST API or by Structurizr
+ * workspace-change callbacks, and run by an {@link ExportQueue}.
+ *
+ * <ul>
+ *   <li>{@code POST /jobs}: queues the jobs of the body, in the batch job file format; jobs load
+ *       their workspace by ID
+ *   <li>{@code POST /webhooks/structurizr?workspaceId=N}: queues the configured targets of a
+ *       workspace; the ID may also be given as {@code workspaceId} in a JSON body
+ *   <li>{@code GET /jobs}, {@code GET /jobs/{id}}: job status
+ *   <li>{@code GET /metrics}: job counters and end-to-end latency
+ *   <li>{@code GET /metrics/prometheus}: export metrics (phases, Confluence requests, renders,
+ *       images) in the Prometheus text format, when metrics are set
+ *   <li>{@code GET /health}
+ * </ul>
+ *
+ * <p>When a token is set, requests must send it as a bearer token or, for callbacks that cannot set
+ * headers, as the {@code token} query parameter.
+ */
+public final class ExportServer implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ExportServer.class);
+
+  private static final int RECENT_JOBS = 50;
+
+  private final ExportQueue queue;
+  private final List<BatchJob> targets;
+  private final String token;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final HttpServer httpServer;
+  private final ExecutorService handlers;
+  private volatile ExportMetrics metrics;
+
+  /**
+   * Creates and starts the server.
+   *
+   * @param address address to listen on; port 0 picks a free port
+   * @param queue the queue running the exports
+   * @param targets the targets exported when their workspace changes
+   * @param token the token clients must send, or null to accept all requests
+   * @throws IOException if the server cannot listen on the address
+   */
+  public ExportServer(
+      InetSocketAddress address, ExportQueue queue, List<BatchJob> targets, String token)
+      throws IOException {
+    this.queue = queue;
+    this.targets = List.copyOf(targets);
+    this.token = token != null && !token.isBlank() ? token : null;
+    this.httpServer = HttpServer.create(address, 0);
+    this.handlers =
+        Executors.newFixedThreadPool(
+            2,
+            runnable -> {
+              Thread thread = new Thread(runnable, "export-server-http");
+              thread.setDaemon(true);
+              return thread;
+            });
+    httpServer.setExecutor(handlers);
+    httpServer.createContext("/", this::handle);
+    httpServer.start();
+    logger.info(
+        "Export server listening on {} with {} webhook targets", getAddress(), targets.size());
+  }
+
+  /** Serves the given export metrics on {@code /metrics/prometheus}. */
+  public void setMetrics(ExportMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public InetSocketAddress getAddress() {
+    return httpServer.getAddress();
+  }
+
+  @Override
+  public void close() {
+    httpServer.stop(0);
+    handlers.shutdown();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      String method = exchange.getRequestMethod();
+      String path = exchange.getRequestURI().getPath();
+      Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+      if (path.equals("/health")) {
+        respond(exchange, 200, Map.of("status", "UP"));
+        return;
+      }
+      if (!isAuthorized(exchange, query)) {
+        respond(exchange, 401, Map.of("error", "Missing or invalid token"));
+        return;
+      }
+
+      if (path.equals("/jobs") && method.equals("POST")) {
+        submitJobs(exchange);
+      } else if (path.equals("/jobs") && method.equals("GET")) {
+        respond(exchange, 200, Map.of("jobs", toMaps(queue.recent(RECENT_JOBS))));
+      } else if (path.startsWith("/jobs/") && method.equals("GET")) {
+        ServerJob job = queue.get(path.substring("/jobs/".length()));
+        if (job == null) {
+          respond(exchange, 404, Map.of("error", "Unknown job"));
+        } else {
+          respond(exchange, 200, job.toMap());
+        }
+      } else if (path.equals("/webhooks/structurizr") && method.equals("POST")) {
+        workspaceChanged(exchange, query);
+      } else if (path.equals("/metrics") && method.equals("GET")) {
+        respond(exchange, 200, queue.metrics());
+      } else if (path.equals("/metrics/prometheus") && method.equals("GET") && metrics != null) {
+        respondText(exchange, metrics.toPrometheus());
+      } else {
+        respond(exchange, 404, Map.of("error", "Not found: " + method + " " + path));
+      }
+    } catch (Exception e) {
+      logger.error("Export server request failed: {}", e.getMessage(), e);
+    }
+  }
+
+  private void submitJobs(HttpExchange exchange) throws IOException {
+    List<BatchJob> jobs;
+    try {
+      jobs = BatchJobFile.parse(readBody(exchange), Paths.get("").toAbsolutePath(), "Request");
+    } catch (IOException e) {
+      respond(exchange, 400, Map.of("error", e.getMessage()));
+      return;
+    }
+    // Server-side paths are not for clients to choose
+    if (jobs.stream().anyMatch(job -> job.workspaceFile() != null || job.manifest() != null)) {
+      respond(
+          exchange, 400, Map.of("error", "Jobs must use a workspaceId, without file or manifest"));
+      return;
+    }
+    List<ServerJob> submitted = new ArrayList<>();
+    for (BatchJob job : jobs) {
+      submitted.add(queue.submit(job, "api"));
+    }
+    respond(exchange, 202, Map.of("jobs", toMaps(submitted)));
+  }
+
+  private void workspaceChanged(HttpExchange exchange, Map<String, String> query)
+      throws IOException {
+    String workspaceId = query.get("workspaceId");
+    if (workspaceId == null) {
+      try {
+        JsonNode body = readBody(exchange);
+        if (body != null && body.hasNonNull("workspaceId")) {
+          workspaceId = body.get("workspaceId").asText();
+        }
+      } catch (IOException e) {
+        logger.debug("Ignoring unreadable callback body: {}", e.getMessage());
+      }
+    }
+    Long id;
+    try {
+      id = workspaceId != null ? Long.valueOf(workspaceId.trim()) : null;
+    } catch (NumberFormatException e) {
+      id = null;
+    }
+    if (id == null) {
+      respond(exchange, 400, Map.of("error", "A numeric workspaceId is required"));
+      return;
+    }
+
+    List<ServerJob> submitted = new ArrayList<>();
+    for (BatchJob target : targets) {
+      if (id.equals(target.workspaceId())) {
+        submitted.add(queue.submit(target, "webhook"));
+      }
+    }
+    if (submitted.isEmpty()) {
+      respond(exchange, 404, Map.of("error", "No target configured for workspace " + id));
+      return;
+    }
+    respond(exchange, 202, Map.of("jobs", toMaps(submitted)));
+  }
+
+  private boolean isAuthorized(HttpExchange exchange, Map<String, String> query) {
+    if (token == null) {
+      return true;
+    }
+    String header = exchange.getRequestHeaders().getFirst("Authorization");
+    String provided =
+        header != null && header.startsWith("Bearer ")
+            ? header.substring("Bearer ".length())
+            : query.get("token");
+    return provided != null
+        && MessageDigest.isEqual(
+            provided.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private JsonNode readBody(HttpExchange exchange) throws IOException {
+    try (InputStream body = exchange.getRequestBody()) {
+      byte[] bytes = body.readAllBytes();
+      return bytes.length > 0 ? objectMapper.readTree(bytes) : null;
+    }
+  }
+
+  private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+    byte[] bytes = objectMapper.writeValueAsBytes(body);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private void respondText(HttpExchange exchange, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private static List<Map<String, Object>> toMaps(List<ServerJob> jobs) {
+    return jobs.stream().map(ServerJob::toMap).toList();
+  }
+
+  private static Map<String, String> parseQuery(String rawQuery) {
+    Map<String, String> query = new LinkedHashMap<>();
+    if (rawQuery == null || rawQuery.isEmpty()) {
+      return query;
+    }
+    for (String parameter : rawQuery.split("&")) {
+      int separator = parameter.indexOf('=');
+      String name = separator < 0 ? parameter : parameter.substring(0, separator);
+      String value = separator < 0 ? "" : parameter.substring(separator + 1);
+      query.put(
+          URLDecoder.decode(name, StandardCharsets.UTF_8),
+          URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return query;
+  }
+}
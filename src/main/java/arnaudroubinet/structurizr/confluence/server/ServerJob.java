@@ -0,0 +1,93 @@
+package arnaudroubinet.structurizr.confluence.server;
+
+import arnaudroubinet.structurizr.confluence.batch.BatchJob;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** An export requested from the server, and its progress. */
+public final class ServerJob {
+
+  /** Lifecycle of a job. */
+  public enum Status {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    /** Replaced by a later request for the same target before it started. */
+    SUPERSEDED
+  }
+
+  private final String id;
+  private final BatchJob job;
+  private final String trigger;
+  private final long acceptedNanos = System.nanoTime();
+  private final long acceptedAtMillis = System.currentTimeMillis();
+  private volatile Status status = Status.QUEUED;
+  private volatile long startedNanos;
+  private volatile long finishedNanos;
+  private volatile String error;
+
+  ServerJob(String id, BatchJob job, String trigger) {
+    this.id = id;
+    this.job = job;
+    this.trigger = trigger;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public BatchJob getJob() {
+    return job;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  /** Time from the request to the end of the export, in nanoseconds, or 0 if not finished. */
+  public long getLatencyNanos() {
+    return finishedNanos != 0 ? finishedNanos - acceptedNanos : 0;
+  }
+
+  void started() {
+    startedNanos = System.nanoTime();
+    status = Status.RUNNING;
+  }
+
+  void finished(Throwable failure) {
+    finishedNanos = System.nanoTime();
+    if (failure != null) {
+      error = failure.getMessage() != null ? failure.getMessage() : failure.toString();
+      status = Status.FAILED;
+    } else {
+      status = Status.SUCCEEDED;
+    }
+  }
+
+  void superseded() {
+    status = Status.SUPERSEDED;
+  }
+
+  /** Status of the job as returned by the REST API. */
+  Map<String, Object> toMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("id", id);
+    map.put("target", job.name());
+    map.put("status", status);
+    map.put("trigger", trigger);
+    map.put("acceptedAt", acceptedAtMillis);
+    if (startedNanos != 0) {
+      map.put("queuedMs", TimeUnit.NANOSECONDS.toMillis(startedNanos - acceptedNanos));
+    }
+    if (finishedNanos != 0) {
+      map.put("durationMs", TimeUnit.NANOSECONDS.toMillis(finishedNanos - startedNanos));
+      map.put("latencyMs", TimeUnit.NANOSECONDS.toMillis(getLatencyNanos()));
+    }
+    if (error != null) {
+      map.put("error", error);
+    }
+    return map;
+  }
+}
@@ -0,0 +1,135 @@
+package arnaudroubinet.structurizr.confluence.tracing;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * OpenTelemetry tracing of exports: an export span, a span per export task (page creation,
+ * conversion, upload, publication), and spans for conversions, diagram renders, attachment uploads
+ * and Confluence requests below them. Spans are written to a local OTLP JSON file (see {@link
+ * OtlpJsonFileSpanExporter}), so no collector is needed.
+ *
+ * <p>Tracing is off unless {@link #enable} is called; the tracer is then a no-op whose spans cost a
+ * few allocations at most.
+ */
+public final class ExportTracing {
+
+  private static final Logger logger = LoggerFactory.getLogger(ExportTracing.class);
+
+  private static final String INSTRUMENTATION_NAME = "structurizr-confluence";
+  private static final Tracer NOOP_TRACER = OpenTelemetry.noop().getTracer(INSTRUMENTATION_NAME);
+
+  private static volatile Tracer tracer = NOOP_TRACER;
+  private static SdkTracerProvider provider;
+
+  /** The work traced by a span. */
+  @FunctionalInterface
+  public interface Traced<T, E extends Exception> {
+    T call(Span span) throws E;
+  }
+
+  private ExportTracing() {}
+
+  /**
+   * Starts writing the spans of all exports of the process to the given file, replacing it.
+   *
+   * @param file the OTLP JSON file
+   * @throws IOException if the file cannot be created
+   */
+  public static synchronized void enable(Path file) throws IOException {
+    shutdown();
+    provider =
+        SdkTracerProvider.builder()
+            .setResource(
+                Resource.getDefault()
+                    .merge(
+                        Resource.create(
+                            Attributes.of(
+                                AttributeKey.stringKey("service.name"), INSTRUMENTATION_NAME))))
+            .addSpanProcessor(
+                BatchSpanProcessor.builder(new OtlpJsonFileSpanExporter(file)).build())
+            .build();
+    tracer = provider.get(INSTRUMENTATION_NAME);
+    logger.info("Tracing exports to {}", file.toAbsolutePath());
+  }
+
+  /** Writes the pending spans and stops tracing. Does nothing when tracing is off. */
+  public static synchronized void shutdown() {
+    if (provider == null) {
+      return;
+    }
+    tracer = NOOP_TRACER;
+    provider.shutdown().join(10, TimeUnit.SECONDS);
+    provider = null;
+  }
+
+  /** Writes the pending spans, for long running processes. Does nothing when tracing is off. */
+  public static synchronized void flush() {
+    if (provider != null) {
+      provider.forceFlush().join(10, TimeUnit.SECONDS);
+    }
+  }
+
+  public static boolean isEnabled() {
+    return tracer != NOOP_TRACER;
+  }
+
+  public static Tracer tracer() {
+    return tracer;
+  }
+
+  /**
+   * Runs work in a span, child of the current span, made current while the work runs. Failures are
+   * recorded on the span and rethrown.
+   *
+   * @param name the span name
+   * @param work the work, which may add attributes to the span
+   * @return the result of the work
+   * @throws E if the work fails
+   */
+  public static <T, E extends Exception> T trace(String name, Traced<T, E> work) throws E {
+    return trace(name, SpanKind.INTERNAL, work);
+  }
+
+  /**
+   * Runs work in a span of the given kind, see {@link #trace(String, Traced)}.
+   *
+   * @param name the span name
+   * @param kind the span kind, {@link SpanKind#CLIENT} for requests to other systems
+   * @param work the work
+   * @return the result of the work
+   * @throws E if the work fails
+   */
+  public static <T, E extends Exception> T trace(String name, SpanKind kind, Traced<T, E> work)
+      throws E {
+    Span span = tracer.spanBuilder(name).setSpanKind(kind).startSpan();
+    try (Scope scope = span.makeCurrent()) {
+      return work.call(span);
+    } catch (Throwable t) {
+      failed(span, t);
+      throw t;
+    } finally {
+      span.end();
+    }
+  }
+
+  /** Marks a span as failed with the given exception. */
+  public static void failed(Span span, Throwable failure) {
+    span.recordException(failure);
+    span.setStatus(StatusCode.ERROR, String.valueOf(failure.getMessage()));
+  }
+}
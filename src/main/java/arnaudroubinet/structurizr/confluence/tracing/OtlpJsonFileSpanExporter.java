@@ -0,0 +1,177 @@
+package arnaudroubinet.structurizr.confluence.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes spans to a file in the OTLP JSON format, one {@code ExportTraceServiceRequest} per line
+ * (the format of the OpenTelemetry Collector file exporter), so traces can be loaded into a trace
+ * viewer or replayed to a collector without running one during the export.
+ */
+public final class OtlpJsonFileSpanExporter implements SpanExporter {
+
+  private static final Logger logger = LoggerFactory.getLogger(OtlpJsonFileSpanExporter.class);
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final Path file;
+  private final BufferedWriter writer;
+
+  /**
+   * Creates the exporter, replacing the file.
+   *
+   * @param file the file to write
+   * @throws IOException if the file cannot be created
+   */
+  public OtlpJsonFileSpanExporter(Path file) throws IOException {
+    this.file = file;
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+    try {
+      writer.write(OBJECT_MAPPER.writeValueAsString(toRequest(spans)));
+      writer.newLine();
+      writer.flush();
+      return CompletableResultCode.ofSuccess();
+    } catch (IOException e) {
+      logger.warn("Cannot write spans to {}: {}", file, e.getMessage());
+      return CompletableResultCode.ofFailure();
+    }
+  }
+
+  @Override
+  public CompletableResultCode flush() {
+    return CompletableResultCode.ofSuccess();
+  }
+
+  @Override
+  public synchronized CompletableResultCode shutdown() {
+    try {
+      writer.close();
+      return CompletableResultCode.ofSuccess();
+    } catch (IOException e) {
+      return CompletableResultCode.ofFailure();
+    }
+  }
+
+  /** Groups the spans by resource and instrumentation scope, as OTLP does. */
+  static ObjectNode toRequest(Collection<SpanData> spans) {
+    Map<Resource, Map<InstrumentationScopeInfo, List<SpanData>>> grouped = new LinkedHashMap<>();
+    for (SpanData span : spans) {
+      grouped
+          .computeIfAbsent(span.getResource(), r -> new LinkedHashMap<>())
+          .computeIfAbsent(span.getInstrumentationScopeInfo(), s -> new ArrayList<>())
+          .add(span);
+    }
+
+    ObjectNode request = OBJECT_MAPPER.createObjectNode();
+    ArrayNode resourceSpans = request.putArray("resourceSpans");
+    grouped.forEach(
+        (resource, scopes) -> {
+          ObjectNode resourceNode = resourceSpans.addObject();
+          resourceNode
+              .putObject("resource")
+              .set("attributes", attributes(resource.getAttributes()));
+          ArrayNode scopeSpans = resourceNode.putArray("scopeSpans");
+          scopes.forEach(
+              (scope, scopeSpanData) -> {
+                ObjectNode scopeNode = scopeSpans.addObject();
+                ObjectNode scopeInfo = scopeNode.putObject("scope").put("name", scope.getName());
+                if (scope.getVersion() != null) {
+                  scopeInfo.put("version", scope.getVersion());
+                }
+                ArrayNode spanNodes = scopeNode.putArray("spans");
+                scopeSpanData.forEach(span -> spanNodes.add(span(span)));
+              });
+        });
+    return request;
+  }
+
+  private static ObjectNode span(SpanData span) {
+    ObjectNode node = OBJECT_MAPPER.createObjectNode();
+    node.put("traceId", span.getTraceId());
+    node.put("spanId", span.getSpanId());
+    if (span.getParentSpanContext().isValid()) {
+      node.put("parentSpanId", span.getParentSpanId());
+    }
+    node.put("name", span.getName());
+    // OTLP numbers span kinds from 1 (internal) in the order of the API enum
+    node.put("kind", span.getKind().ordinal() + 1);
+    node.put("startTimeUnixNano", String.valueOf(span.getStartEpochNanos()));
+    node.put("endTimeUnixNano", String.valueOf(span.getEndEpochNanos()));
+    node.set("attributes", attributes(span.getAttributes()));
+    if (!span.getEvents().isEmpty()) {
+      ArrayNode events = node.putArray("events");
+      for (EventData event : span.getEvents()) {
+        events
+            .addObject()
+            .put("timeUnixNano", String.valueOf(event.getEpochNanos()))
+            .put("name", event.getName())
+            .set("attributes", attributes(event.getAttributes()));
+      }
+    }
+    ObjectNode status = node.putObject("status");
+    switch (span.getStatus().getStatusCode()) {
+      case OK -> status.put("code", 1);
+      case ERROR -> status.put("code", 2);
+      default -> status.put("code", 0);
+    }
+    if (!span.getStatus().getDescription().isEmpty()) {
+      status.put("message", span.getStatus().getDescription());
+    }
+    return node;
+  }
+
+  private static ArrayNode attributes(Attributes attributes) {
+    ArrayNode nodes = OBJECT_MAPPER.createArrayNode();
+    attributes.forEach(
+        (key, value) -> {
+          ObjectNode attribute = nodes.addObject().put("key", key.getKey());
+          attribute.set("value", value(key, value));
+        });
+    return nodes;
+  }
+
+  private static ObjectNode value(AttributeKey<?> key, Object value) {
+    ObjectNode node = OBJECT_MAPPER.createObjectNode();
+    switch (key.getType()) {
+      case BOOLEAN -> node.put("boolValue", (Boolean) value);
+      case LONG -> node.put("intValue", String.valueOf(value));
+      case DOUBLE -> node.put("doubleValue", (Double) value);
+      case STRING -> node.put("stringValue", (String) value);
+      default -> {
+        ArrayNode values = node.putObject("arrayValue").putArray("values");
+        for (Object element : (List<?>) value) {
+          values.addObject().put("stringValue", String.valueOf(element));
+        }
+      }
+    }
+    return node;
+  }
+}
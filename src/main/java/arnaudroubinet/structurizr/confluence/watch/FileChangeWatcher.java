@@ -0,0 +1,164 @@
+package arnaudroubinet.structurizr.confluence.watch;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches files and directory trees for changes with a {@link WatchService}, and reports them once
+ * a burst of changes is over: editors and generators often write a file several times (or write a
+ * temporary file and rename it) for a single save.
+ *
+ * <p>In watched directory trees, hidden files and directories (editor swap files, {@code .git}) and
+ * {@code target} directories, where exports write their own files, are ignored.
+ */
+public final class FileChangeWatcher implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(FileChangeWatcher.class);
+
+  private final WatchService watchService;
+  private final Duration debounce;
+  private final Map<WatchKey, Path> directories = new HashMap<>();
+  private final Set<Path> files = new HashSet<>();
+  private final Set<Path> trees = new HashSet<>();
+
+  /**
+   * Starts watching.
+   *
+   * @param paths files, watched through their directory, and directories, watched recursively
+   * @param debounce quiet period ending a burst of changes
+   * @throws IOException if a path cannot be watched
+   */
+  public FileChangeWatcher(Collection<Path> paths, Duration debounce) throws IOException {
+    this.watchService = FileSystems.getDefault().newWatchService();
+    this.debounce = debounce;
+    for (Path path : paths) {
+      Path absolute = path.toAbsolutePath().normalize();
+      if (Files.isDirectory(absolute)) {
+        trees.add(absolute);
+        registerTree(absolute);
+      } else {
+        files.add(absolute);
+        register(absolute.getParent());
+      }
+    }
+  }
+
+  /**
+   * Waits for a change to a watched path, then until no change happened for the debounce period.
+   *
+   * @return the changed paths, in the order of their first change
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public Set<Path> awaitChanges() throws InterruptedException {
+    Set<Path> changed = new LinkedHashSet<>();
+    while (changed.isEmpty()) {
+      collect(watchService.take(), changed);
+    }
+    WatchKey key;
+    while ((key = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+      collect(key, changed);
+    }
+    return changed;
+  }
+
+  @Override
+  public void close() {
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      logger.debug("Failed to close watch service: {}", e.getMessage());
+    }
+  }
+
+  private void collect(WatchKey key, Set<Path> changed) {
+    Path directory = directories.get(key);
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (directory == null) {
+        continue;
+      }
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        // Events were lost: report the directory itself
+        changed.add(directory);
+        continue;
+      }
+      Path path = directory.resolve((Path) event.context());
+      boolean inTree =
+          trees.stream()
+              .anyMatch(tree -> path.startsWith(tree) && !isIgnored(tree.relativize(path)));
+      if (files.contains(path) || inTree) {
+        changed.add(path);
+      }
+      if (inTree
+          && event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+          && Files.isDirectory(path)) {
+        try {
+          registerTree(path);
+        } catch (IOException e) {
+          logger.warn("Cannot watch new directory {}: {}", path, e.getMessage());
+        }
+      }
+    }
+    if (!key.reset()) {
+      directories.remove(key);
+    }
+  }
+
+  private void registerTree(Path root) throws IOException {
+    Files.walkFileTree(
+        root,
+        new SimpleFileVisitor<>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes)
+              throws IOException {
+            if (isIgnored(root.relativize(directory))) {
+              return FileVisitResult.SKIP_SUBTREE;
+            }
+            register(directory);
+            return FileVisitResult.CONTINUE;
+          }
+        });
+  }
+
+  private static boolean isIgnored(Path relative) {
+    for (Path name : relative) {
+      String value = name.toString();
+      if (value.startsWith(".") || value.equals("target")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void register(Path directory) throws IOException {
+    if (directories.containsValue(directory)) {
+      return;
+    }
+    WatchKey key =
+        directory.register(
+            watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+    directories.put(key, directory);
+    logger.debug("Watching {}", directory);
+  }
+}
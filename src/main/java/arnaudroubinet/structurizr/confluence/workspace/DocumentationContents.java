@@ -0,0 +1,31 @@
+package arnaudroubinet.structurizr.confluence.workspace;
+
+import com.structurizr.documentation.DocumentationContent;
+
+/**
+ * Gives access to the content of documentation sections and decisions. The content of a workspace
+ * loaded in memory is held by the objects themselves ({@link #INLINE}); a {@link LazyWorkspace}
+ * reads it from the workspace file each time it is needed, so that it is never all on the heap.
+ */
+@FunctionalInterface
+public interface DocumentationContents {
+
+  /** Content held by the documentation objects. */
+  DocumentationContents INLINE = DocumentationContent::getContent;
+
+  /**
+   * Returns the content of a section or decision.
+   *
+   * @param item the section or decision
+   * @return its content (may be null)
+   */
+  String of(DocumentationContent item);
+
+  /**
+   * Returns a hash of the content not held by the workspace objects, so that hashes of the
+   * workspace cover it, or null when all content is inline.
+   */
+  default String fingerprint() {
+    return null;
+  }
+}
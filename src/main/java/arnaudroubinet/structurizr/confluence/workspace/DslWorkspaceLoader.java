@@ -0,0 +1,50 @@
+package arnaudroubinet.structurizr.confluence.workspace;
+
+import com.structurizr.Workspace;
+import com.structurizr.dsl.StructurizrDslParser;
+import com.structurizr.dsl.StructurizrDslParserException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads a workspace from a Structurizr DSL file, in process: the DSL, its includes and the
+ * documentation and decisions imported with {@code !docs} and {@code !adrs} are read from the local
+ * file system, without exporting JSON first or fetching the workspace from a server.
+ */
+public final class DslWorkspaceLoader {
+
+  private static final Logger logger = LoggerFactory.getLogger(DslWorkspaceLoader.class);
+
+  private DslWorkspaceLoader() {}
+
+  /**
+   * Parses a DSL file.
+   *
+   * @param dslFile the workspace DSL file
+   * @return the workspace
+   * @throws IOException if the DSL cannot be read or parsed
+   */
+  public static Workspace load(Path dslFile) throws IOException {
+    long start = System.nanoTime();
+    StructurizrDslParser parser = new StructurizrDslParser();
+    parser.setCharacterEncoding(StandardCharsets.UTF_8);
+    try {
+      parser.parse(dslFile.toFile());
+    } catch (StructurizrDslParserException e) {
+      throw new IOException("Cannot parse workspace DSL " + dslFile + ": " + e.getMessage(), e);
+    }
+    Workspace workspace = parser.getWorkspace();
+    logger.info(
+        "Parsed workspace DSL {} in {} ms: {} elements, {} views, {} sections, {} decisions",
+        dslFile,
+        (System.nanoTime() - start) / 1_000_000,
+        workspace.getModel().getElements().size(),
+        workspace.getViews().getViews().size(),
+        workspace.getDocumentation().getSections().size(),
+        workspace.getDocumentation().getDecisions().size());
+    return workspace;
+  }
+}
@@ -0,0 +1,102 @@
+package arnaudroubinet.structurizr.confluence.workspace;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.structurizr.Workspace;
+import com.structurizr.documentation.DocumentationContent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * A workspace whose documentation content (sections, decisions and embedded images) stays in the
+ * memory-mapped workspace file. The workspace objects hold a short placeholder instead, and the
+ * content is decoded from its byte range each time it is read through {@link #of}, so the heap only
+ * ever holds the content being converted. Embedded images are not exported, so their content is
+ * never read.
+ *
+ * <p>Created by {@link StreamingWorkspaceLoader}. The mapping is released by the garbage collector
+ * once the workspace is no longer referenced; {@link #close} closes the file.
+ */
+public final class LazyWorkspace implements DocumentationContents, AutoCloseable {
+
+  /** Prefix of the placeholders standing for content left in the file. */
+  static final String PLACEHOLDER_PREFIX = "\u0000lazy-content:";
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  /** Byte range of a JSON string in the workspace file, quotes included. */
+  record Range(int offset, int length) {}
+
+  private final Workspace workspace;
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final List<Range> ranges;
+  private final String fingerprint;
+
+  LazyWorkspace(
+      Workspace workspace,
+      FileChannel channel,
+      ByteBuffer buffer,
+      List<Range> ranges,
+      String fingerprint) {
+    this.workspace = workspace;
+    this.channel = channel;
+    this.buffer = buffer;
+    this.ranges = List.copyOf(ranges);
+    this.fingerprint = fingerprint;
+  }
+
+  /** Returns the workspace, whose documentation content is made of placeholders. */
+  public Workspace getWorkspace() {
+    return workspace;
+  }
+
+  @Override
+  public String of(DocumentationContent item) {
+    return resolve(item.getContent());
+  }
+
+  /** Hash of the workspace file. */
+  @Override
+  public String fingerprint() {
+    return fingerprint;
+  }
+
+  /** Number of content values left in the file. */
+  public int getLazyContentCount() {
+    return ranges.size();
+  }
+
+  /** Total size in bytes of the content values left in the file. */
+  public long getLazyContentBytes() {
+    return ranges.stream().mapToLong(Range::length).sum();
+  }
+
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot close workspace file", e);
+    }
+  }
+
+  private String resolve(String value) {
+    if (value == null || !value.startsWith(PLACEHOLDER_PREFIX)) {
+      return value;
+    }
+    Range range = ranges.get(Integer.parseInt(value.substring(PLACEHOLDER_PREFIX.length())));
+    // Absolute slice: safe when several conversions read content at the same time
+    ByteBuffer slice = buffer.slice(range.offset(), range.length());
+    try (JsonParser parser = JSON_FACTORY.createParser(new ByteBufferBackedInputStream(slice))) {
+      parser.nextToken();
+      return parser.getText();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read documentation content from workspace file", e);
+    }
+  }
+}
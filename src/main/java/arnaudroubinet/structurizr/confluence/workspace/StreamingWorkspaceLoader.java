@@ -0,0 +1,157 @@
+package arnaudroubinet.structurizr.confluence.workspace;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.structurizr.Workspace;
+import com.structurizr.util.WorkspaceUtils;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads large workspace JSON files without materialising their documentation. The file is memory
+ * mapped and streamed once with the Jackson streaming parser: the content of documentation
+ * sections, decisions and images (of the workspace and of its elements) is replaced by a
+ * placeholder recording its byte range, and only the remaining skeleton (model, views, metadata) is
+ * deserialised. Peak memory then depends on the model and views, not on the documentation size.
+ */
+public final class StreamingWorkspaceLoader {
+
+  private static final Logger logger = LoggerFactory.getLogger(StreamingWorkspaceLoader.class);
+
+  /** Files from this size are worth streaming; smaller ones are simply loaded. */
+  public static final long STREAMING_THRESHOLD = 32L * 1024 * 1024;
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  private static final Set<String> DOCUMENTATION_COLLECTIONS =
+      Set.of("sections", "decisions", "images");
+
+  private StreamingWorkspaceLoader() {}
+
+  /** Returns true if the workspace file is large enough to be streamed. */
+  public static boolean shouldStream(Path file) throws IOException {
+    return Files.size(file) >= STREAMING_THRESHOLD;
+  }
+
+  /**
+   * Loads a workspace file, leaving its documentation content in the file.
+   *
+   * @param file the workspace JSON file
+   * @return the workspace, to be closed once exported
+   * @throws IOException if the file cannot be read or parsed
+   */
+  public static LazyWorkspace load(Path file) throws IOException {
+    long start = System.nanoTime();
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Workspace file too large to be mapped: " + file);
+      }
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+      List<LazyWorkspace.Range> ranges = new ArrayList<>();
+      String skeleton = skeleton(buffer.duplicate(), ranges);
+      Workspace workspace;
+      try {
+        workspace = WorkspaceUtils.fromJson(skeleton);
+      } catch (Exception e) {
+        throw new IOException("Cannot load workspace " + file + ": " + e.getMessage(), e);
+      }
+
+      LazyWorkspace lazyWorkspace =
+          new LazyWorkspace(workspace, channel, buffer, ranges, fingerprint(buffer.duplicate()));
+      logger.info(
+          "Streamed workspace {} ({} KB) in {} ms: {} documentation values ({} KB) left in the file",
+          file,
+          size / 1024,
+          (System.nanoTime() - start) / 1_000_000,
+          lazyWorkspace.getLazyContentCount(),
+          lazyWorkspace.getLazyContentBytes() / 1024);
+      return lazyWorkspace;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Copies the workspace JSON, replacing documentation content by placeholders indexing their byte
+   * ranges. The parser skips the replaced strings without decoding them.
+   */
+  private static String skeleton(ByteBuffer buffer, List<LazyWorkspace.Range> ranges)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JsonParser parser = JSON_FACTORY.createParser(new ByteBufferBackedInputStream(buffer));
+        JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+      int pending = -1;
+      long pendingStart = 0;
+      JsonToken token;
+      while ((token = parser.nextToken()) != null) {
+        long tokenStart = parser.currentTokenLocation().getByteOffset();
+        if (pending >= 0) {
+          // The range runs to the next token; trailing separators are ignored when reading it
+          ranges.set(
+              pending,
+              new LazyWorkspace.Range((int) pendingStart, (int) (tokenStart - pendingStart)));
+          pending = -1;
+        }
+        if (token == JsonToken.VALUE_STRING && isDocumentationContent(parser.getParsingContext())) {
+          pending = ranges.size();
+          pendingStart = tokenStart;
+          ranges.add(null);
+          generator.writeString(LazyWorkspace.PLACEHOLDER_PREFIX + pending);
+        } else {
+          generator.copyCurrentEvent(parser);
+        }
+      }
+      if (pending >= 0) {
+        throw new IOException("Truncated workspace file");
+      }
+    }
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  /** Returns true for {@code documentation.(sections|decisions|images)[].content}. */
+  private static boolean isDocumentationContent(JsonStreamContext context) {
+    if (!"content".equals(context.getCurrentName())) {
+      return false;
+    }
+    JsonStreamContext array = context.getParent();
+    if (array == null || !array.inArray()) {
+      return false;
+    }
+    JsonStreamContext documentation = array.getParent();
+    return documentation != null
+        && DOCUMENTATION_COLLECTIONS.contains(documentation.getCurrentName())
+        && documentation.getParent() != null
+        && "documentation".equals(documentation.getParent().getCurrentName());
+  }
+
+  private static String fingerprint(ByteBuffer buffer) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(buffer);
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+}
@@ -0,0 +1,588 @@
+package arnaudroubinet.structurizr.confluence.workspace;
+
+import com.structurizr.Workspace;
+import com.structurizr.documentation.Decision;
+import com.structurizr.documentation.Format;
+import com.structurizr.documentation.Section;
+import com.structurizr.model.Container;
+import com.structurizr.model.Person;
+import com.structurizr.model.SoftwareSystem;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds synthetic workspaces for scalability tests and benchmarks: documentation sections,
+ * decisions and views in controllable numbers, sizes and formats, with tables, diagram embeds
+ * ({@code embed:key}), external images and cross-links. The workspace only depends on the settings
+ * and the seed, so measurements on generated workspaces are comparable between runs.
+ */
+public final class SyntheticWorkspaceGenerator {
+
+  /** How the sizes of sections and tables spread around their mean. */
+  public enum Distribution {
+    /** Every section and table has the mean size. */
+    FIXED,
+    /** Sizes are uniform between 1 and twice the mean. */
+    UNIFORM,
+    /** Pareto distributed sizes: mostly small, a few very large, as in real documentation. */
+    LONG_TAIL
+  }
+
+  /**
+   * Formats of the generated content. Structurizr only knows Markdown and AsciiDoc, so HTML content
+   * is HTML blocks inside Markdown, as authors write it.
+   */
+  public enum ContentFormat {
+    MARKDOWN,
+    ASCIIDOC,
+    HTML;
+
+    Format structurizrFormat() {
+      return this == ASCIIDOC ? Format.AsciiDoc : Format.Markdown;
+    }
+
+    String extension() {
+      return this == ASCIIDOC ? "adoc" : "md";
+    }
+  }
+
+  private static final String[] WORDS = {
+    "service",
+    "gateway",
+    "request",
+    "latency",
+    "cache",
+    "database",
+    "event",
+    "queue",
+    "tenant",
+    "deployment",
+    "container",
+    "contract",
+    "schema",
+    "replica",
+    "partition",
+    "throughput",
+    "token",
+    "audit",
+    "backup",
+    "cluster",
+    "consumer",
+    "producer",
+    "endpoint",
+    "payload",
+    "retry",
+    "timeout",
+    "availability",
+    "consistency",
+    "component",
+    "interface",
+    "boundary",
+    "workflow",
+    "policy",
+    "release",
+    "metric",
+    "trace",
+    "index",
+    "storage",
+    "network",
+    "client"
+  };
+  private static final String[] STATUSES = {"Proposed", "Accepted", "Superseded", "Deprecated"};
+  private static final long FIRST_DECISION_DATE = 1577836800000L;
+  private static final int MAX_SIZE_FACTOR = 50;
+
+  private long seed = 42;
+  private long workspaceId = 1;
+  private int sections = 10;
+  private int decisions = 10;
+  private int views = 10;
+  private int blocksPerSection = 6;
+  private int tableRows = 8;
+  private Distribution distribution = Distribution.LONG_TAIL;
+  private final Map<ContentFormat, Integer> formatWeights = new EnumMap<>(ContentFormat.class);
+  private double embedsPerSection = 1;
+  private double externalImagesPerSection;
+  private double crossLinksPerSection = 1;
+  private String externalImageBaseUrl = "https://example.com/images/";
+
+  public SyntheticWorkspaceGenerator() {
+    formatWeights.put(ContentFormat.MARKDOWN, 1);
+    formatWeights.put(ContentFormat.ASCIIDOC, 1);
+    formatWeights.put(ContentFormat.HTML, 0);
+  }
+
+  /**
+   * Returns a generator for one of the standard sizes: {@code small} (10 sections, 50 decisions, 20
+   * views), {@code medium} (100 sections, 500 decisions, 100 views) or {@code large} (1000
+   * sections, 2000 decisions, 500 views, larger tables).
+   *
+   * @param name the preset name
+   * @return the generator
+   * @throws IllegalArgumentException if the preset does not exist
+   */
+  public static SyntheticWorkspaceGenerator preset(String name) {
+    SyntheticWorkspaceGenerator generator = new SyntheticWorkspaceGenerator();
+    switch (name.toLowerCase(Locale.ROOT)) {
+      case "small":
+        generator.setSize(10, 50, 20);
+        break;
+      case "medium":
+        generator.setSize(100, 500, 100);
+        break;
+      case "large":
+        generator.setSize(1000, 2000, 500);
+        generator.setTableRows(40);
+        break;
+      default:
+        throw new IllegalArgumentException(
+            "Unknown preset '" + name + "', expected small, medium or large");
+    }
+    return generator;
+  }
+
+  private void setSize(int sections, int decisions, int views) {
+    setSections(sections);
+    setDecisions(decisions);
+    setViews(views);
+  }
+
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  /** Sets the workspace ID, which names the rendered diagram files. */
+  public void setWorkspaceId(long workspaceId) {
+    this.workspaceId = workspaceId;
+  }
+
+  public void setSections(int sections) {
+    this.sections = sections;
+  }
+
+  public void setDecisions(int decisions) {
+    this.decisions = decisions;
+  }
+
+  /** Sets the number of views, alternately system context and container views. */
+  public void setViews(int views) {
+    this.views = views;
+  }
+
+  /** Sets the mean number of blocks (paragraphs, lists, tables, code, quotes) per section. */
+  public void setBlocksPerSection(int blocksPerSection) {
+    this.blocksPerSection = blocksPerSection;
+  }
+
+  /** Sets the mean number of rows of the tables. */
+  public void setTableRows(int tableRows) {
+    this.tableRows = tableRows;
+  }
+
+  /** Sets how section and table sizes spread around their mean. */
+  public void setDistribution(Distribution distribution) {
+    this.distribution = distribution;
+  }
+
+  /**
+   * Sets the relative share of a content format.
+   *
+   * @param format the format
+   * @param weight its weight, 0 to leave the format out
+   */
+  public void setFormatWeight(ContentFormat format, int weight) {
+    formatWeights.put(format, weight);
+  }
+
+  /** Sets the mean number of {@code embed:key} diagrams per section. */
+  public void setEmbedsPerSection(double embedsPerSection) {
+    this.embedsPerSection = embedsPerSection;
+  }
+
+  /**
+   * Sets the mean number of external images per section. Exporting them downloads the images from
+   * {@link #setExternalImageBaseUrl}.
+   */
+  public void setExternalImagesPerSection(double externalImagesPerSection) {
+    this.externalImagesPerSection = externalImagesPerSection;
+  }
+
+  /** Sets the mean number of links to other sections and decisions per section. */
+  public void setCrossLinksPerSection(double crossLinksPerSection) {
+    this.crossLinksPerSection = crossLinksPerSection;
+  }
+
+  public void setExternalImageBaseUrl(String externalImageBaseUrl) {
+    this.externalImageBaseUrl = externalImageBaseUrl;
+  }
+
+  /**
+   * Generates the workspace.
+   *
+   * @return a new workspace
+   * @throws IllegalStateException if no content format has a weight
+   */
+  public Workspace generate() {
+    if (formatWeights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+      throw new IllegalStateException("At least one content format needs a weight");
+    }
+    Random random = new Random(seed);
+    Workspace workspace =
+        new Workspace("Synthetic workspace " + seed, "Generated for scalability testing");
+    workspace.setId(workspaceId);
+    workspace.setLastModifiedDate(new Date(0));
+    List<String> viewKeys = addModelAndViews(workspace);
+
+    for (int i = 1; i <= sections; i++) {
+      ContentFormat format = pickFormat(random);
+      Content content = new Content(format, random);
+      content.heading(1, "Section " + i + ": " + capitalize(words(random, 3)));
+      int blocks = sample(random, blocksPerSection);
+      int embeds = count(random, embedsPerSection);
+      int images = count(random, externalImagesPerSection);
+      int links = count(random, crossLinksPerSection);
+      for (int block = 0; block < blocks; block++) {
+        addBlock(content, random);
+        if (embeds > 0 && !viewKeys.isEmpty() && random.nextInt(blocks - block) < embeds) {
+          content.embed(viewKeys.get(random.nextInt(viewKeys.size())));
+          embeds--;
+        }
+        if (images > 0 && random.nextInt(blocks - block) < images) {
+          content.image(externalImageBaseUrl + "image-" + random.nextInt(1000) + ".png");
+          images--;
+        }
+        if (links > 0 && random.nextInt(blocks - block) < links) {
+          crossLink(content, random, i);
+          links--;
+        }
+      }
+      Section section = new Section(format.structurizrFormat(), content.toString());
+      section.setFilename(String.format("%04d-section-%d.%s", i, i, format.extension()));
+      workspace.getDocumentation().addSection(section);
+    }
+
+    List<Decision> added = new ArrayList<>();
+    for (int i = 1; i <= decisions; i++) {
+      ContentFormat format = pickFormat(random);
+      Content content = new Content(format, random);
+      content.heading(2, "Context");
+      content.paragraph();
+      if (random.nextInt(4) == 0) {
+        crossLink(content, random, 0);
+      }
+      content.heading(2, "Decision");
+      content.paragraph();
+      content.heading(2, "Consequences");
+      content.list();
+
+      Decision decision = new Decision(String.valueOf(i));
+      decision.setTitle(capitalize(words(random, 4)));
+      decision.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+      decision.setDate(new Date(FIRST_DECISION_DATE + TimeUnit.DAYS.toMillis(i)));
+      decision.setFormat(format.structurizrFormat());
+      decision.setContent(content.toString());
+      if (!added.isEmpty() && random.nextInt(5) == 0) {
+        decision.addLink(added.get(random.nextInt(added.size())), "Supersedes");
+      }
+      workspace.getDocumentation().addDecision(decision);
+      added.add(decision);
+    }
+    return workspace;
+  }
+
+  /** Adds people, software systems with containers, and their views. */
+  private List<String> addModelAndViews(Workspace workspace) {
+    Person user = workspace.getModel().addPerson("User", "A user of the systems");
+    Person operator = workspace.getModel().addPerson("Operator", "Runs the systems");
+    List<String> viewKeys = new ArrayList<>();
+    SoftwareSystem previous = null;
+    for (int i = 1; viewKeys.size() < views; i++) {
+      SoftwareSystem system = workspace.getModel().addSoftwareSystem("System " + i, "System " + i);
+      user.uses(system, "Uses");
+      operator.uses(system, "Operates");
+      if (previous != null) {
+        previous.uses(system, "Calls");
+      }
+      Container api = system.addContainer("API " + i, "Entry point", "Java");
+      Container worker = system.addContainer("Worker " + i, "Background jobs", "Java");
+      Container database = system.addContainer("Database " + i, "Stores data", "PostgreSQL");
+      api.uses(worker, "Queues jobs");
+      api.uses(database, "Reads and writes");
+      worker.uses(database, "Reads and writes");
+
+      String contextKey = "Context-" + i;
+      workspace.getViews().createSystemContextView(system, contextKey, "").addAllElements();
+      viewKeys.add(contextKey);
+      if (viewKeys.size() < views) {
+        String containerKey = "Containers-" + i;
+        workspace.getViews().createContainerView(system, containerKey, "").addAllElements();
+        viewKeys.add(containerKey);
+      }
+      previous = system;
+    }
+    return viewKeys;
+  }
+
+  private void addBlock(Content content, Random random) {
+    int kind = random.nextInt(20);
+    if (kind < 10) {
+      content.paragraph();
+    } else if (kind < 13) {
+      content.list();
+    } else if (kind < 16) {
+      content.table(sample(random, tableRows));
+    } else if (kind < 18) {
+      content.code();
+    } else {
+      content.quote();
+    }
+  }
+
+  /** Links to another section, or to a decision, of the workspace. */
+  private void crossLink(Content content, Random random, int currentSection) {
+    boolean toDecision = decisions > 0 && (sections <= 1 || random.nextBoolean());
+    if (toDecision) {
+      int target = 1 + random.nextInt(decisions);
+      content.link("decision-" + target, "Decision " + target);
+    } else if (sections > 1) {
+      int target = 1 + random.nextInt(sections);
+      if (target == currentSection) {
+        target = target % sections + 1;
+      }
+      content.link("section-" + target, "Section " + target);
+    }
+  }
+
+  private ContentFormat pickFormat(Random random) {
+    int total = formatWeights.values().stream().mapToInt(Integer::intValue).sum();
+    int pick = random.nextInt(total);
+    for (ContentFormat format : ContentFormat.values()) {
+      pick -= formatWeights.getOrDefault(format, 0);
+      if (pick < 0) {
+        return format;
+      }
+    }
+    throw new IllegalStateException("No content format picked");
+  }
+
+  /** Samples a size with the configured distribution and the given mean, at least 1. */
+  private int sample(Random random, int mean) {
+    if (mean <= 1) {
+      return 1;
+    }
+    switch (distribution) {
+      case FIXED:
+        return mean;
+      case UNIFORM:
+        return 1 + random.nextInt(2 * mean - 1);
+      default:
+        // Pareto with shape 1.5, whose mean is three times the scale
+        double scale = mean / 3.0;
+        double value = scale / Math.pow(1 - random.nextDouble(), 1 / 1.5);
+        return (int) Math.max(1, Math.min(Math.round(value), (long) mean * MAX_SIZE_FACTOR));
+    }
+  }
+
+  /** Draws a count with the given mean: its integer part, plus one with its fractional part. */
+  private static int count(Random random, double mean) {
+    int whole = (int) mean;
+    return whole + (random.nextDouble() < mean - whole ? 1 : 0);
+  }
+
+  private static String words(Random random, int count) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        text.append(' ');
+      }
+      text.append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return text.toString();
+  }
+
+  private static String capitalize(String text) {
+    return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+  }
+
+  /** Writes blocks in one of the content formats. */
+  private static final class Content {
+    private final ContentFormat format;
+    private final Random random;
+    private final StringBuilder text = new StringBuilder();
+
+    Content(ContentFormat format, Random random) {
+      this.format = format;
+      this.random = random;
+    }
+
+    void heading(int level, String title) {
+      switch (format) {
+        case ASCIIDOC -> text.append("=".repeat(level + 1)).append(' ').append(title);
+        case HTML -> text.append("<h").append(level).append('>').append(title);
+        default -> text.append("#".repeat(level)).append(' ').append(title);
+      }
+      if (format == ContentFormat.HTML) {
+        text.append("</h").append(level).append('>');
+      }
+      text.append("\n\n");
+    }
+
+    void paragraph() {
+      String sentence = capitalize(words(random, 8 + random.nextInt(12)));
+      String strong = words(random, 2);
+      String code = WORDS[random.nextInt(WORDS.length)];
+      switch (format) {
+        case ASCIIDOC ->
+            text.append(sentence)
+                .append(" with *")
+                .append(strong)
+                .append("* and `")
+                .append(code)
+                .append("`.");
+        case HTML ->
+            text.append("<p>")
+                .append(sentence)
+                .append(" with <strong>")
+                .append(strong)
+                .append("</strong> and <code>")
+                .append(code)
+                .append("</code>.</p>");
+        default ->
+            text.append(sentence)
+                .append(" with **")
+                .append(strong)
+                .append("** and `")
+                .append(code)
+                .append("`.");
+      }
+      text.append("\n\n");
+    }
+
+    void list() {
+      int items = 2 + random.nextInt(4);
+      if (format == ContentFormat.HTML) {
+        text.append("<ul>\n");
+      }
+      for (int i = 0; i < items; i++) {
+        String item = capitalize(words(random, 4));
+        switch (format) {
+          case ASCIIDOC -> text.append("* ").append(item);
+          case HTML -> text.append("<li>").append(item).append("</li>");
+          default -> text.append("- ").append(item);
+        }
+        text.append('\n');
+      }
+      if (format == ContentFormat.HTML) {
+        text.append("</ul>\n");
+      }
+      text.append('\n');
+    }
+
+    void table(int rows) {
+      String[] header = {"Name", "Protocol", "Description", "Owner"};
+      switch (format) {
+        case ASCIIDOC -> {
+          text.append("[options=\"header\"]\n|===\n| ").append(String.join(" | ", header));
+          text.append('\n');
+          for (int row = 0; row < rows; row++) {
+            text.append("| ").append(String.join(" | ", row(row))).append('\n');
+          }
+          text.append("|===\n");
+        }
+        case HTML -> {
+          text.append("<table>\n<thead><tr><th>")
+              .append(String.join("</th><th>", header))
+              .append("</th></tr></thead>\n<tbody>\n");
+          for (int row = 0; row < rows; row++) {
+            text.append("<tr><td>")
+                .append(String.join("</td><td>", row(row)))
+                .append("</td></tr>\n");
+          }
+          text.append("</tbody>\n</table>\n");
+        }
+        default -> {
+          text.append("| ").append(String.join(" | ", header)).append(" |\n");
+          text.append("|---|---|---|---|\n");
+          for (int row = 0; row < rows; row++) {
+            text.append("| ").append(String.join(" | ", row(row))).append(" |\n");
+          }
+        }
+      }
+      text.append('\n');
+    }
+
+    private String[] row(int row) {
+      return new String[] {
+        WORDS[random.nextInt(WORDS.length)] + "-" + row,
+        random.nextBoolean() ? "HTTPS" : "AMQP",
+        capitalize(words(random, 6)),
+        "Team " + (1 + random.nextInt(9))
+      };
+    }
+
+    void code() {
+      String code = "class " + capitalize(WORDS[random.nextInt(WORDS.length)]) + " {}";
+      switch (format) {
+        case ASCIIDOC -> text.append("[source,java]\n----\n").append(code).append("\n----");
+        case HTML -> text.append("<pre><code>").append(code).append("</code></pre>");
+        default -> text.append("```java\n").append(code).append("\n```");
+      }
+      text.append("\n\n");
+    }
+
+    void quote() {
+      String quote = capitalize(words(random, 10));
+      switch (format) {
+        case ASCIIDOC -> text.append("NOTE: ").append(quote);
+        case HTML -> text.append("<blockquote>").append(quote).append("</blockquote>");
+        default -> text.append("> ").append(quote);
+      }
+      text.append("\n\n");
+    }
+
+    /** Embeds a diagram; HTML content uses the Markdown image syntax around its HTML blocks. */
+    void embed(String viewKey) {
+      if (format == ContentFormat.ASCIIDOC) {
+        text.append("image::embed:").append(viewKey).append("[]");
+      } else {
+        text.append("![").append(viewKey).append("](embed:").append(viewKey).append(')');
+      }
+      text.append("\n\n");
+    }
+
+    void image(String url) {
+      switch (format) {
+        case ASCIIDOC -> text.append("image::").append(url).append("[Illustration]");
+        case HTML -> text.append("<img src=\"").append(url).append("\" alt=\"Illustration\">");
+        default -> text.append("![Illustration](").append(url).append(')');
+      }
+      text.append("\n\n");
+    }
+
+    void link(String anchor, String label) {
+      switch (format) {
+        case ASCIIDOC ->
+            text.append("See <<").append(anchor).append(',').append(label).append(">>.");
+        case HTML ->
+            text.append("<p>See <a href=\"#")
+                .append(anchor)
+                .append("\">")
+                .append(label)
+                .append("</a>.</p>");
+        default -> text.append("See [").append(label).append("](#").append(anchor).append(").");
+      }
+      text.append("\n\n");
+    }
+
+    @Override
+    public String toString() {
+      return text.toString();
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package arnaudroubinet.structurizr.confluence;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import arnaudroubinet.structurizr.confluence.manifest.ExportJournal;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifestStore;
+import arnaudroubinet.structurizr.confluence.manifest.SourceHashes;
+import arnaudroubinet.structurizr.confluence.processor.AsciidoctorPool;
+import com.structurizr.Workspace;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for skipping the export of a workspace that did not change since the last export. */
+class SkipUnchangedExportTest {
+  private static final Logger logger = LoggerFactory.getLogger(SkipUnchangedExportTest.class);
+
+  @TempDir Path tempDir;
+
+  private ConfluenceClient client;
+  private Workspace workspace;
+  private Path manifestFile;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    client = mock(ConfluenceClient.class);
+    when(client.pageExists("100")).thenReturn(true);
+    workspace = new Workspace("W", "");
+    workspace.getModel().addPerson("User", "");
+    workspace.setRevision(12L);
+    workspace.setLastModifiedDate(new Date(1758014464000L));
+
+    ExportManifest manifest = new ExportManifest("main", "100");
+    manifest.setWorkspaceHash(SourceHashes.workspace(workspace));
+    manifest.setWorkspaceRevision(SourceHashes.revision(workspace));
+    manifestFile = tempDir.resolve("manifest.json");
+    new ExportManifestStore(manifestFile, null, false).save(manifest, null);
+  }
+
+  private ConfluenceExporter exporter() throws Exception {
+    ConfluenceExporter exporter =
+        new ConfluenceExporter(client, null, new AsciidoctorPool(1), null);
+    exporter.setManifestStore(new ExportManifestStore(manifestFile, null, false));
+    exporter.setJournal(new ExportJournal(tempDir.resolve("journal.jsonl"), false));
+    exporter.setSkipUnchanged(true);
+    return exporter;
+  }
+
+  @Test
+  void testUnchangedWorkspaceSkipped() throws Exception {
+    try (ConfluenceExporter exporter = exporter()) {
+      exporter.export(workspace, "100", "main");
+
+      assertTrue(exporter.isLastExportSkipped());
+      verify(client).pageExists("100");
+      verifyNoMoreInteractions(client);
+    }
+
+    logger.info("✅ Export of an unchanged workspace skipped without publishing");
+  }
+
+  @Test
+  void testNewRevisionOrInterruptedExportNotSkipped() throws Exception {
+    workspace.setRevision(13L);
+    try (ConfluenceExporter exporter = exporter()) {
+      // Without diagram configuration the export fails as soon as it really starts
+      assertTrue(
+          assertThrows(IllegalStateException.class, () -> exporter.export(workspace, "100", "main"))
+              .getMessage()
+              .contains("Diagram export"));
+      assertFalse(exporter.isLastExportSkipped());
+    }
+
+    workspace.setRevision(12L);
+    Files.writeString(tempDir.resolve("journal.jsonl"), "");
+    try (ConfluenceExporter exporter = exporter()) {
+      assertTrue(
+          assertThrows(IllegalStateException.class, () -> exporter.export(workspace, "100", "main"))
+              .getMessage()
+              .contains("Diagram export"));
+      assertFalse(exporter.isLastExportSkipped(), "Pages may be partly updated");
+    }
+
+    logger.info("✅ Changed or interrupted exports are not skipped");
+  }
+}
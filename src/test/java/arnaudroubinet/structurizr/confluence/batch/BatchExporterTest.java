@@ -0,0 +1,131 @@
+package arnaudroubinet.structurizr.confluence.batch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for batch exports: job file parsing, isolation and concurrency limit. */
+class BatchExporterTest {
+  private static final Logger logger = LoggerFactory.getLogger(BatchExporterTest.class);
+
+  @TempDir Path tempDir;
+
+  private BatchExporter newBatchExporter(int concurrency) {
+    return new BatchExporter(mock(ConfluenceClient.class), null, concurrency);
+  }
+
+  @Test
+  void testJobFileExpandsBranches() throws IOException {
+    Path file = tempDir.resolve("jobs.json");
+    Files.writeString(
+        file,
+        """
+        {"jobs": [
+          {"workspaceId": 42, "pageId": "100", "branches": ["main", "develop"]},
+          {"workspaceFile": "docs/workspace.json", "pageId": "200", "branch": "main",
+           "manifest": "manifest.json"}
+        ]}
+        """);
+
+    List<BatchJob> jobs = BatchJobFile.load(file);
+
+    assertEquals(3, jobs.size());
+    assertEquals("develop", jobs.get(1).branch());
+    assertEquals(42L, jobs.get(1).workspaceId());
+    assertEquals(tempDir.resolve("docs/workspace.json"), jobs.get(2).workspaceFile());
+    assertEquals(tempDir.resolve("manifest.json"), jobs.get(2).manifest());
+    assertEquals("42-100-main", jobs.get(0).key());
+    assertEquals("workspace-200-main", jobs.get(2).key());
+
+    logger.info("✅ Job file expanded into one job per branch");
+  }
+
+  @Test
+  void testInvalidJobsRejected() throws IOException {
+    Path file = tempDir.resolve("jobs.json");
+
+    Files.writeString(
+        file,
+        "[{\"workspaceId\": 1, \"workspaceFile\": \"w.json\", \"pageId\": \"1\", \"branch\": \"main\"}]");
+    assertThrows(IOException.class, () -> BatchJobFile.load(file));
+
+    Files.writeString(file, "[{\"workspaceId\": 1, \"branch\": \"main\"}]");
+    assertThrows(IOException.class, () -> BatchJobFile.load(file));
+
+    Files.writeString(file, "[{\"workspaceId\": 1, \"pageId\": \"1\"}]");
+    assertThrows(IOException.class, () -> BatchJobFile.load(file));
+
+    Files.writeString(
+        file,
+        "[{\"workspaceId\": 1, \"pageId\": \"1\", \"branch\": \"main\"},"
+            + "{\"workspaceId\": 1, \"pageId\": \"1\", \"branches\": [\"main\"]}]");
+    assertThrows(IOException.class, () -> BatchJobFile.load(file));
+
+    logger.info("✅ Ambiguous, incomplete and duplicate jobs rejected");
+  }
+
+  @Test
+  void testFailingJobDoesNotStopBatch() throws Exception {
+    List<BatchJob> jobs =
+        List.of(
+            new BatchJob(null, 1L, "100", "main", null),
+            new BatchJob(null, 2L, "100", "main", null),
+            new BatchJob(null, 3L, "100", "main", null));
+
+    List<BatchExporter.JobResult> results;
+    try (BatchExporter batchExporter = newBatchExporter(2)) {
+      results =
+          batchExporter.run(
+              jobs,
+              job -> {
+                if (job.workspaceId() == 2L) {
+                  throw new IOException("Confluence unavailable");
+                }
+              });
+    }
+
+    assertEquals(3, results.size());
+    assertTrue(results.get(0).succeeded());
+    assertFalse(results.get(1).succeeded());
+    assertEquals("Confluence unavailable", results.get(1).failure().getMessage());
+    assertTrue(results.get(2).succeeded());
+
+    logger.info("✅ A failing job is reported without stopping the others");
+  }
+
+  @Test
+  void testConcurrencyLimit() throws Exception {
+    AtomicInteger active = new AtomicInteger();
+    AtomicInteger maxActive = new AtomicInteger();
+    List<BatchJob> jobs =
+        List.of(
+            new BatchJob(null, 1L, "100", "main", null),
+            new BatchJob(null, 2L, "100", "main", null),
+            new BatchJob(null, 3L, "100", "main", null),
+            new BatchJob(null, 4L, "100", "main", null),
+            new BatchJob(null, 5L, "100", "main", null));
+
+    try (BatchExporter batchExporter = newBatchExporter(2)) {
+      batchExporter.run(
+          jobs,
+          job -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            active.decrementAndGet();
+          });
+    }
+
+    assertEquals(2, maxActive.get());
+    logger.info("✅ At most --batch-concurrency jobs run at the same time");
+  }
+}
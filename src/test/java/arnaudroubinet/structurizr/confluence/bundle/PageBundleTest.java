@@ -0,0 +1,95 @@
+package arnaudroubinet.structurizr.confluence.bundle;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for writing bundles through the bundle client and reading them back. */
+class PageBundleTest {
+  private static final Logger logger = LoggerFactory.getLogger(PageBundleTest.class);
+
+  @TempDir Path tempDir;
+
+  /** Writes a branch page with a child page showing a diagram. */
+  private static void writePages(BundleClient client) throws IOException {
+    String branchId = client.createOrUpdatePage("main", "{}", "12345");
+    ConfluenceClient.PublishedPage views =
+        client.createOrUpdatePageVersioned("Views", "{\"v\":0}", branchId);
+    byte[] png = "png".getBytes(StandardCharsets.UTF_8);
+    ConfluenceClient.AttachmentDetails details =
+        client.uploadAttachmentDetailed(views.id(), "context view.png", png, "image/png");
+    client.uploadAttachmentDetailed(views.id(), "context view.png", png, "image/png");
+    String content =
+        "{\"id\":\"" + details.fileId() + "\",\"collection\":\"" + details.collectionName() + "\"}";
+    assertEquals(2, client.updatePageByIdVersioned(views.id(), "Views", content).version());
+    client.setPageProperty(branchId, "manifest", new ObjectMapper().readTree("{\"n\":1}"));
+  }
+
+  private static void assertPagesRead(PageBundle bundle) throws IOException {
+    assertEquals(2, bundle.getPages().size());
+    PageBundle.Page branch = bundle.getPages().get(0);
+    PageBundle.Page views = bundle.getPages().get(1);
+    assertEquals("12345", branch.parentId());
+    assertEquals(branch.id(), views.parentId());
+    assertEquals(1, branch.properties().get("manifest").get("n").asInt());
+    assertEquals(1, views.attachments().size(), "Same file name replaces the attachment");
+
+    PageBundle.Attachment attachment = views.attachments().get(0);
+    assertEquals("context view.png", attachment.filename());
+    assertEquals("image/png", attachment.mediaType());
+    assertEquals("png", new String(bundle.readAttachment(attachment), StandardCharsets.UTF_8));
+    String content = bundle.readContent(views);
+    assertTrue(content.contains("\"" + attachment.fileId() + "\""));
+    assertTrue(content.contains("\"" + BundleClient.COLLECTION_PREFIX + views.id() + "\""));
+  }
+
+  @Test
+  void testPageTreeWrittenToDirectoryAndZip() throws Exception {
+    for (Path path : new Path[] {tempDir.resolve("bundle"), tempDir.resolve("bundle.zip")}) {
+      try (BundleClient client = new BundleClient(PageBundle.create(path))) {
+        writePages(client);
+        assertTrue(client.getPageContent(client.findPageIdByTitle("Views")).contains("collection"));
+        assertEquals(2, client.getPageCount());
+        assertEquals(1, client.getAttachmentCount());
+      }
+      try (PageBundle bundle = PageBundle.open(path)) {
+        assertPagesRead(bundle);
+      }
+    }
+    assertTrue(Files.isRegularFile(tempDir.resolve("bundle").resolve(PageBundle.MANIFEST)));
+    logger.info("✅ Page tree written to a bundle directory and zip");
+  }
+
+  @Test
+  void testOnlyBundlesOverwritten() throws Exception {
+    Path bundlePath = tempDir.resolve("bundle");
+    try (BundleClient client = new BundleClient(PageBundle.create(bundlePath))) {
+      writePages(client);
+    }
+    try (BundleClient client = new BundleClient(PageBundle.create(bundlePath))) {
+      client.createOrUpdatePage("Other", "{}", null);
+    }
+    try (PageBundle bundle = PageBundle.open(bundlePath)) {
+      assertEquals(1, bundle.getPages().size(), "Previous bundle replaced");
+    }
+    try (var files = Files.walk(bundlePath)) {
+      assertEquals(0, files.filter(file -> file.toString().endsWith(".png")).count());
+    }
+
+    Path other = Files.createDirectories(tempDir.resolve("documents"));
+    Files.writeString(other.resolve("notes.txt"), "keep");
+    assertThrows(IOException.class, () -> PageBundle.create(other));
+    assertTrue(Files.exists(other.resolve("notes.txt")));
+    assertThrows(IOException.class, () -> PageBundle.open(tempDir.resolve("missing")));
+    logger.info("✅ Only previous bundles overwritten");
+  }
+}
@@ -2,10 +2,13 @@ package arnaudroubinet.structurizr.confluence.cli;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import arnaudroubinet.structurizr.confluence.progress.ProgressReporter;
 import java.io.File;
+import java.nio.file.Path;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
 
 /**
  * Test the CLI commands to ensure they work as expected. These tests validate the command structure
@@ -177,4 +180,236 @@ class CliCommandTest {
 
     logger.info("✅ Export command supports Structurizr on-premise parameters");
   }
+
+  @Test
+  void testManifestOptionsParse() {
+    ExportCommand exportCommand = new ExportCommand();
+    new CommandLine(exportCommand)
+        .parseArgs(
+            "--branch",
+            "main",
+            "--page-id",
+            "123",
+            "--manifest",
+            "target/m.json",
+            "--manifest-on-page");
+
+    assertEquals(new File("target/m.json"), exportCommand.manifestFile);
+    assertTrue(exportCommand.manifestOnPage);
+
+    ExportCommand defaults = new ExportCommand();
+    new CommandLine(defaults).parseArgs("--branch", "main", "--page-id", "123");
+    assertNull(defaults.manifestFile, "Full export unless --manifest is given");
+    assertFalse(defaults.manifestOnPage);
+
+    logger.info("✅ Incremental export options parsed");
+  }
+
+  @Test
+  void testResumeOptionsParse() {
+    ExportCommand exportCommand = new ExportCommand();
+    new CommandLine(exportCommand)
+        .parseArgs(
+            "--branch", "main", "--page-id", "123", "--resume", "--journal", "build/j.jsonl");
+
+    assertTrue(exportCommand.resume);
+    assertEquals(new File("build/j.jsonl"), exportCommand.journalFile);
+
+    ExportCommand defaults = new ExportCommand();
+    new CommandLine(defaults).parseArgs("--branch", "main", "--page-id", "123");
+    assertFalse(defaults.resume);
+    assertEquals(new File("target/export-journal.jsonl"), defaults.journalFile);
+
+    logger.info("✅ Resume options parsed");
+  }
+
+  @Test
+  void testJfrOptionParse() {
+    ExportCommand exportCommand = new ExportCommand();
+    new CommandLine(exportCommand)
+        .parseArgs("--branch", "main", "--page-id", "123", "--jfr", "build/run.jfr");
+    assertEquals(Path.of("build/run.jfr"), exportCommand.jfrFile());
+
+    ExportCommand defaults = new ExportCommand();
+    new CommandLine(defaults)
+        .parseArgs("--branch", "main", "--page-id", "123", "--jfr", "--journal", "out/j.jsonl");
+    Path recording = defaults.jfrFile();
+    assertEquals(new File("out").getAbsoluteFile().toPath(), recording.getParent());
+    assertTrue(recording.getFileName().toString().endsWith(".jfr"));
+
+    ExportCommand none = new ExportCommand();
+    new CommandLine(none).parseArgs("--branch", "main", "--page-id", "123");
+    assertNull(none.jfrFile, "No recording unless --jfr is given");
+
+    logger.info("✅ JFR option parsed");
+  }
+
+  @Test
+  void testTrafficOptionsParse() {
+    ExportCommand exportCommand = new ExportCommand();
+    new CommandLine(exportCommand)
+        .parseArgs(
+            "--branch",
+            "main",
+            "--page-id",
+            "123",
+            "--replay-traffic",
+            "traffic.jsonl.gz",
+            "--replay-latency-scale",
+            "0.5");
+    assertEquals(new File("traffic.jsonl.gz"), exportCommand.replayTrafficFile);
+    assertEquals(0.5, exportCommand.replayLatencyScale);
+    assertNull(exportCommand.recordTrafficFile);
+
+    ExportCommand defaults = new ExportCommand();
+    new CommandLine(defaults).parseArgs("--branch", "main", "--page-id", "123");
+    assertEquals(1.0, defaults.replayLatencyScale);
+
+    logger.info("✅ Traffic recording options parsed");
+  }
+
+  @Test
+  void testBundleAndPublishParse() {
+    ExportCommand exportCommand = new ExportCommand();
+    new CommandLine(exportCommand)
+        .parseArgs("--branch", "main", "--page-id", "123", "--bundle", "out/bundle.zip");
+    assertEquals(new File("out/bundle.zip"), exportCommand.bundleFile);
+
+    PublishCommand publishCommand = new PublishCommand();
+    new CommandLine(publishCommand).parseArgs("out/bundle.zip", "--page-id", "456");
+    assertEquals(new File("out/bundle.zip"), publishCommand.bundleFile);
+    assertEquals("456", publishCommand.pageId);
+    assertEquals(16, publishCommand.parallelism);
+
+    logger.info("✅ Bundle and publish options parsed");
+  }
+
+  @Test
+  void testParallelismOptionParse() {
+    ExportCommand exportCommand = new ExportCommand();
+    new CommandLine(exportCommand)
+        .parseArgs("--branch", "main", "--page-id", "123", "--parallelism", "6");
+    assertEquals(6, exportCommand.parallelism);
+
+    ExportCommand defaults = new ExportCommand();
+    new CommandLine(defaults).parseArgs("--branch", "main", "--page-id", "123");
+    assertNull(defaults.parallelism, "Parallelism defaults to the environment");
+
+    logger.info("✅ Parallelism option parsed");
+  }
+
+  @Test
+  void testBatchOptionsParse() {
+    ExportCommand exportCommand = new ExportCommand();
+    new CommandLine(exportCommand)
+        .parseArgs("--batch", "jobs.json", "--batch-concurrency", "4", "--resume");
+    assertEquals(new File("jobs.json"), exportCommand.batchFile);
+    assertEquals(4, exportCommand.batchConcurrency);
+    assertNull(exportCommand.branchName, "Branches come from the job file");
+    assertNull(exportCommand.pageId, "Parent pages come from the job file");
+
+    ExportCommand defaults = new ExportCommand();
+    new CommandLine(defaults).parseArgs("--branch", "main", "--page-id", "123");
+    assertNull(defaults.batchFile);
+    assertEquals(2, defaults.batchConcurrency);
+
+    logger.info("✅ Batch options parsed");
+  }
+
+  @Test
+  void testWatchOptionsParse() {
+    ExportCommand exportCommand = new ExportCommand();
+    new CommandLine(exportCommand)
+        .parseArgs(
+            "-w",
+            "workspace.json",
+            "-b",
+            "main",
+            "--page-id",
+            "1",
+            "--watch",
+            "--watch-debounce",
+            "250");
+    assertTrue(exportCommand.watch);
+    assertEquals(250, exportCommand.watchDebounceMillis);
+
+    ExportCommand defaults = new ExportCommand();
+    new CommandLine(defaults).parseArgs("--branch", "main", "--page-id", "123");
+    assertFalse(defaults.watch);
+    assertEquals(500, defaults.watchDebounceMillis);
+
+    logger.info("✅ Watch options parsed");
+  }
+
+  @Test
+  void testWorkspaceDslOptionParses() {
+    ExportCommand exportCommand = new ExportCommand();
+    new CommandLine(exportCommand)
+        .parseArgs("--workspace-dsl", "docs/workspace.dsl", "-b", "main", "--page-id", "1");
+    assertEquals("workspace.dsl", exportCommand.workspaceDsl.getName());
+    assertNull(exportCommand.workspaceFile);
+
+    logger.info("✅ DSL workspace option parsed");
+  }
+
+  @Test
+  void testSkipUnchangedOptionParses() {
+    ExportCommand exportCommand = new ExportCommand();
+    new CommandLine(exportCommand)
+        .parseArgs("-b", "main", "--page-id", "1", "--manifest-on-page", "--skip-unchanged");
+    assertTrue(exportCommand.skipUnchanged);
+
+    ExportCommand defaults = new ExportCommand();
+    new CommandLine(defaults).parseArgs("--branch", "main", "--page-id", "123");
+    assertFalse(defaults.skipUnchanged, "Exports always run unless asked otherwise");
+
+    logger.info("✅ Skip-unchanged option parsed");
+  }
+
+  @Test
+  void testProgressOptionParse() {
+    ExportCommand exportCommand = new ExportCommand();
+    new CommandLine(exportCommand)
+        .parseArgs("--branch", "main", "--page-id", "123", "--progress", "Lines");
+    assertEquals(ProgressReporter.Mode.LINES, ProgressReporter.Mode.parse(exportCommand.progress));
+
+    ExportCommand defaults = new ExportCommand();
+    new CommandLine(defaults).parseArgs("--branch", "main", "--page-id", "123");
+    assertEquals(ProgressReporter.Mode.AUTO, ProgressReporter.Mode.parse(defaults.progress));
+    assertThrows(IllegalArgumentException.class, () -> ProgressReporter.Mode.parse("verbose"));
+
+    logger.info("✅ Progress option parsed");
+  }
+
+  @Test
+  void testGenerateWorkspaceOptionsOverridePreset() {
+    GenerateWorkspaceCommand command = new GenerateWorkspaceCommand();
+    new CommandLine(command)
+        .parseArgs(
+            "-o",
+            "target/synthetic.json",
+            "--preset",
+            "medium",
+            "--sections",
+            "3",
+            "--formats",
+            "html=1",
+            "--distribution",
+            "FIXED");
+    var workspace = command.createGenerator().generate();
+    assertEquals(3, workspace.getDocumentation().getSections().size());
+    assertEquals(500, workspace.getDocumentation().getDecisions().size());
+    assertTrue(
+        workspace.getDocumentation().getSections().stream()
+            .allMatch(section -> section.getContent().startsWith("<h1>")));
+    assertTrue(
+        new CommandLine(new StructurizrConfluenceCommand())
+            .getSubcommands()
+            .get("generate-workspace")
+            .getCommandSpec()
+            .usageMessage()
+            .hidden());
+
+    logger.info("✅ Generate workspace options parsed");
+  }
 }
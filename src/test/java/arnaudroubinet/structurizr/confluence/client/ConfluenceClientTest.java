@@ -0,0 +1,41 @@
+package arnaudroubinet.structurizr.confluence.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import arnaudroubinet.structurizr.confluence.progress.ExportProgress;
+import io.quarkus.test.junit.QuarkusTest;
+import java.net.ServerSocket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the Confluence client bookkeeping around its requests (the REST client needs Quarkus).
+ */
+@QuarkusTest
+class ConfluenceClientTest {
+  private static final Logger logger = LoggerFactory.getLogger(ConfluenceClientTest.class);
+
+  @AfterEach
+  void stopProgress() {
+    ExportProgress.stop();
+  }
+
+  @Test
+  void testRequestsWithoutResponseLeaveNoneInFlight() throws Exception {
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    ConfluenceClient client =
+        new ConfluenceClient(
+            new ConfluenceConfig("http://127.0.0.1:" + port, "user", "token", "TEST"));
+
+    ExportProgress.start();
+    assertThrows(Exception.class, () -> client.findPageIdByTitle("Home"));
+
+    assertEquals(0, ExportProgress.snapshot().inFlight());
+    logger.info("✅ Requests failing without a response are no longer in flight");
+  }
+}
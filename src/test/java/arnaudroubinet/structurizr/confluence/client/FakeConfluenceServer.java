@@ -0,0 +1,572 @@
+package arnaudroubinet.structurizr.confluence.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-process stand-in for the Confluence Cloud REST API used by {@link ConfluenceClient}: spaces,
+ * pages, child pages, content properties and multipart attachments, kept in memory. Latency,
+ * jitter, bandwidth limits and rate limiting (429 responses) can be injected, and requests are
+ * counted and timed per endpoint, so that exports can be tested and benchmarked offline.
+ *
+ * <p>Every space key resolves to the same space. Only what the client reads is modelled: the
+ * responses carry the fields the client parses, and the checks the client relies on (duplicate
+ * titles, version numbers) behave like Confluence.
+ */
+public final class FakeConfluenceServer implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(FakeConfluenceServer.class);
+
+  private static final String SPACE_ID = "1";
+  private static final int HANDLER_THREADS = 32;
+  private static final Pattern FILENAME = Pattern.compile("filename=\"([^\"]*)\"");
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final HttpServer httpServer;
+  private final ExecutorService handlers;
+  private final AtomicLong ids = new AtomicLong(1000);
+  private final Random random = new Random(42);
+  private final Map<String, Page> pages = new LinkedHashMap<>();
+  private final Map<String, Attachment> attachments = new LinkedHashMap<>();
+  private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+  private volatile Duration latency = Duration.ZERO;
+  private volatile Duration jitter = Duration.ZERO;
+  private volatile double throttleRate;
+  private volatile long bandwidth;
+
+  /** A page and its content properties. */
+  private static final class Page {
+    final String id;
+    String title;
+    String parentId;
+    int version = 1;
+    String body;
+    final Map<String, ObjectNode> properties = new LinkedHashMap<>();
+
+    Page(String id) {
+      this.id = id;
+    }
+  }
+
+  private record Attachment(String id, String pageId, String title, int size) {}
+
+  /** Requests received by an endpoint and their latency, injected delays included. */
+  public static final class EndpointStats {
+    private final List<Long> latencies = new ArrayList<>();
+    private long throttled;
+
+    private synchronized void record(long nanos, boolean wasThrottled) {
+      latencies.add(nanos);
+      if (wasThrottled) {
+        throttled++;
+      }
+    }
+
+    public synchronized int getCount() {
+      return latencies.size();
+    }
+
+    /** Number of requests answered with 429. */
+    public synchronized long getThrottled() {
+      return throttled;
+    }
+
+    /**
+     * Returns a latency percentile.
+     *
+     * @param percentile between 0 and 100
+     * @return the latency in milliseconds, or 0 without requests
+     */
+    public synchronized double percentileMillis(double percentile) {
+      if (latencies.isEmpty()) {
+        return 0;
+      }
+      long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+      int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+      return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+  }
+
+  private record Response(int status, Object body) {}
+
+  /**
+   * Starts the server on a free port of the loopback interface.
+   *
+   * @throws IOException if the server cannot listen
+   */
+  public FakeConfluenceServer() throws IOException {
+    this.httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    this.handlers =
+        Executors.newFixedThreadPool(
+            HANDLER_THREADS,
+            runnable -> {
+              Thread thread = new Thread(runnable, "fake-confluence");
+              thread.setDaemon(true);
+              return thread;
+            });
+    httpServer.setExecutor(handlers);
+    httpServer.createContext("/wiki", this::handle);
+    httpServer.start();
+    logger.info("Fake Confluence listening on {}", getBaseUrl());
+  }
+
+  /** Base URL to configure the client with. */
+  public String getBaseUrl() {
+    return "http://127.0.0.1:" + httpServer.getAddress().getPort();
+  }
+
+  /** Sets the delay added to every response. */
+  public void setLatency(Duration latency) {
+    this.latency = latency;
+  }
+
+  /** Sets the maximum random delay added on top of the latency. */
+  public void setJitter(Duration jitter) {
+    this.jitter = jitter;
+  }
+
+  /**
+   * Sets the share of requests answered with 429 Too Many Requests and a {@code Retry-After}.
+   *
+   * @param throttleRate between 0 (never) and 1 (always)
+   */
+  public void setThrottleRate(double throttleRate) {
+    this.throttleRate = throttleRate;
+  }
+
+  /**
+   * Limits the bandwidth: each request is delayed by the time its request and response bodies take
+   * to transfer.
+   *
+   * @param bytesPerSecond the bandwidth, or 0 for no limit
+   */
+  public void setBandwidth(long bytesPerSecond) {
+    this.bandwidth = bytesPerSecond;
+  }
+
+  /** Returns the requests received so far per endpoint, such as {@code POST /api/v2/pages}. */
+  public Map<String, EndpointStats> getStats() {
+    return new TreeMap<>(stats);
+  }
+
+  /** Returns the number of requests received so far. */
+  public int getRequestCount() {
+    return stats.values().stream().mapToInt(EndpointStats::getCount).sum();
+  }
+
+  /** Forgets the recorded requests, keeping the pages and attachments. */
+  public void resetStats() {
+    stats.clear();
+  }
+
+  public synchronized int getPageCount() {
+    return pages.size();
+  }
+
+  public synchronized int getAttachmentCount() {
+    return attachments.size();
+  }
+
+  /** Returns the ADF body of a page, or null if the page does not exist. */
+  public synchronized String getPageBody(String pageId) {
+    Page page = pages.get(pageId);
+    return page != null ? page.body : null;
+  }
+
+  /** Returns the ID of the page with the given title, or null. */
+  public synchronized String findPageId(String title) {
+    return pages.values().stream()
+        .filter(page -> page.title.equals(title))
+        .map(page -> page.id)
+        .findFirst()
+        .orElse(null);
+  }
+
+  /** Creates a page directly, typically the parent page of an export. */
+  public synchronized String addPage(String title, String parentId) {
+    Page page = new Page(nextId());
+    page.title = title;
+    page.parentId = parentId;
+    page.body = "{\"type\":\"doc\",\"version\":1,\"content\":[]}";
+    pages.put(page.id, page);
+    return page.id;
+  }
+
+  @Override
+  public void close() {
+    httpServer.stop(0);
+    handlers.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    long start = System.nanoTime();
+    try (exchange) {
+      String method = exchange.getRequestMethod();
+      String path = exchange.getRequestURI().getPath().substring("/wiki".length());
+      Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+      byte[] requestBody;
+      try (InputStream in = exchange.getRequestBody()) {
+        requestBody = in.readAllBytes();
+      }
+
+      String endpoint = method + " " + path.replaceAll("/(att)?\\d+", "/{id}");
+      boolean throttled = isThrottled();
+      Response response;
+      if (throttled) {
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        response = new Response(429, Map.of("message", "Rate limit exceeded"));
+      } else {
+        try {
+          response = route(method, path, query, requestBody, exchange);
+        } catch (Exception e) {
+          logger.warn("Fake Confluence failed on {} {}: {}", method, path, e.getMessage());
+          response = new Response(500, Map.of("message", String.valueOf(e.getMessage())));
+        }
+      }
+
+      byte[] bytes =
+          response.body() != null ? objectMapper.writeValueAsBytes(response.body()) : new byte[0];
+      sleep(responseDelay(requestBody.length + bytes.length));
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(response.status(), bytes.length > 0 ? bytes.length : -1);
+      if (bytes.length > 0) {
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(bytes);
+        }
+      }
+      stats
+          .computeIfAbsent(endpoint, key -> new EndpointStats())
+          .record(System.nanoTime() - start, throttled);
+    }
+  }
+
+  private Response route(
+      String method, String path, Map<String, String> query, byte[] body, HttpExchange exchange)
+      throws IOException {
+    String[] parts = path.substring(1).split("/");
+    String route = String.join("/", Arrays.copyOf(parts, Math.min(parts.length, 3)));
+    synchronized (this) {
+      if (route.equals("api/v2/spaces") && parts.length == 3 && method.equals("GET")) {
+        return ok(results(List.of(Map.of("id", SPACE_ID, "key", query.getOrDefault("keys", "")))));
+      }
+      if (route.equals("api/v2/spaces") && parts.length == 5 && method.equals("GET")) {
+        return ok(results(pages.values().stream().map(this::pageSummary).toList()));
+      }
+      if (route.equals("api/v2/pages")) {
+        return routePages(method, parts, query, body);
+      }
+      if (route.equals("rest/api/content")) {
+        return routeContent(method, parts, query, body, exchange);
+      }
+    }
+    return new Response(404, Map.of("message", "Not found: " + method + " " + path));
+  }
+
+  private Response routePages(String method, String[] parts, Map<String, String> query, byte[] body)
+      throws IOException {
+    if (parts.length == 3 && method.equals("POST")) {
+      return createPage(objectMapper.readTree(body));
+    }
+    Page page = parts.length > 3 ? pages.get(parts[3]) : null;
+    if (page == null) {
+      return new Response(404, Map.of("message", "Page not found"));
+    }
+    if (parts.length == 4) {
+      switch (method) {
+        case "GET":
+          return ok(pageJson(page, query.containsKey("body-format")));
+        case "PUT":
+          return updatePage(page, objectMapper.readTree(body));
+        case "DELETE":
+          pages.remove(page.id);
+          attachments.values().removeIf(attachment -> attachment.pageId().equals(page.id));
+          return new Response(204, null);
+        default:
+          break;
+      }
+    }
+    if (parts.length == 5 && parts[4].equals("properties")) {
+      if (method.equals("GET")) {
+        ObjectNode property = page.properties.get(query.get("key"));
+        return ok(results(property != null ? List.of(property) : List.of()));
+      }
+      if (method.equals("POST")) {
+        return createProperty(page, objectMapper.readTree(body));
+      }
+    }
+    if (parts.length == 6 && parts[4].equals("properties") && method.equals("PUT")) {
+      return updateProperty(page, parts[5], objectMapper.readTree(body));
+    }
+    return new Response(405, Map.of("message", "Method not allowed"));
+  }
+
+  private Response routeContent(
+      String method,
+      String[] parts,
+      Map<String, String> query,
+      byte[] body,
+      HttpExchange exchange) {
+    if (parts.length == 3 && method.equals("GET")) {
+      String title = query.get("title");
+      return ok(
+          results(
+              pages.values().stream()
+                  .filter(page -> page.title.equals(title))
+                  .map(this::pageSummary)
+                  .toList()));
+    }
+    if (parts.length == 4 && method.equals("GET")) {
+      Attachment attachment = attachments.get(parts[3]);
+      if (attachment != null) {
+        return ok(attachmentJson(attachment));
+      }
+      Page page = pages.get(parts[3]);
+      return page != null
+          ? ok(pageSummary(page))
+          : new Response(404, Map.of("message", "Content not found"));
+    }
+    Page page = pages.get(parts.length > 3 ? parts[3] : "");
+    if (page == null) {
+      return new Response(404, Map.of("message", "Page not found"));
+    }
+    if (parts.length == 6 && parts[5].equals("page") && method.equals("GET")) {
+      return ok(
+          results(
+              pages.values().stream()
+                  .filter(child -> page.id.equals(child.parentId))
+                  .map(this::pageSummary)
+                  .toList()));
+    }
+    if (parts.length >= 6 && parts[5].equals("attachment")) {
+      if (parts.length == 6 && method.equals("GET")) {
+        String filename = query.get("filename");
+        return ok(
+            results(
+                attachments.values().stream()
+                    .filter(attachment -> attachment.pageId().equals(page.id))
+                    .filter(attachment -> filename == null || attachment.title().equals(filename))
+                    .map(this::attachmentJson)
+                    .toList()));
+      }
+      if (!"nocheck".equals(exchange.getRequestHeaders().getFirst("X-Atlassian-Token"))) {
+        return new Response(403, Map.of("message", "XSRF check failed"));
+      }
+      if (parts.length == 6 && method.equals("POST")) {
+        return uploadAttachment(page, null, body);
+      }
+      if (parts.length == 8 && parts[7].equals("data") && method.equals("POST")) {
+        return uploadAttachment(page, attachments.get(parts[6]), body);
+      }
+    }
+    return new Response(405, Map.of("message", "Method not allowed"));
+  }
+
+  private Response createPage(JsonNode request) {
+    String title = request.path("title").asText();
+    if (pages.values().stream().anyMatch(page -> page.title.equals(title))) {
+      return new Response(
+          400, Map.of("message", "A page with this title already exists: " + title));
+    }
+    Page page = new Page(nextId());
+    page.title = title;
+    page.parentId = request.hasNonNull("parentId") ? request.get("parentId").asText() : null;
+    page.body = request.path("body").path("value").asText();
+    pages.put(page.id, page);
+    return ok(pageJson(page, false));
+  }
+
+  private Response updatePage(Page page, JsonNode request) {
+    int version = request.path("version").path("number").asInt();
+    if (version != page.version + 1) {
+      return new Response(
+          409, Map.of("message", "Version must be " + (page.version + 1) + ", got " + version));
+    }
+    page.version = version;
+    page.title = request.path("title").asText(page.title);
+    if (request.hasNonNull("parentId")) {
+      page.parentId = request.get("parentId").asText();
+    }
+    page.body = request.path("body").path("value").asText();
+    return ok(pageJson(page, false));
+  }
+
+  private Response createProperty(Page page, JsonNode request) {
+    String key = request.path("key").asText();
+    if (page.properties.containsKey(key)) {
+      return new Response(409, Map.of("message", "Property already exists: " + key));
+    }
+    ObjectNode property = objectMapper.createObjectNode();
+    property.put("id", nextId());
+    property.put("key", key);
+    property.set("value", request.get("value"));
+    property.putObject("version").put("number", 1);
+    page.properties.put(key, property);
+    return ok(property);
+  }
+
+  private Response updateProperty(Page page, String propertyId, JsonNode request) {
+    ObjectNode property =
+        page.properties.values().stream()
+            .filter(candidate -> candidate.path("id").asText().equals(propertyId))
+            .findFirst()
+            .orElse(null);
+    if (property == null) {
+      return new Response(404, Map.of("message", "Property not found"));
+    }
+    int version = request.path("version").path("number").asInt();
+    if (version != property.path("version").path("number").asInt() + 1) {
+      return new Response(409, Map.of("message", "Stale property version"));
+    }
+    property.set("value", request.get("value"));
+    property.putObject("version").put("number", version);
+    return ok(property);
+  }
+
+  private Response uploadAttachment(Page page, Attachment existing, byte[] multipart) {
+    String head =
+        new String(multipart, 0, Math.min(multipart.length, 1024), StandardCharsets.ISO_8859_1);
+    Matcher filename = FILENAME.matcher(head);
+    if (!filename.find()) {
+      return new Response(400, Map.of("message", "Missing file part"));
+    }
+    String title = filename.group(1);
+    if (existing == null
+        && attachments.values().stream()
+            .anyMatch(
+                attachment ->
+                    attachment.pageId().equals(page.id) && attachment.title().equals(title))) {
+      return new Response(
+          400, Map.of("message", "Cannot add a new attachment with same file name: " + title));
+    }
+    Attachment attachment =
+        new Attachment(
+            existing != null ? existing.id() : "att" + nextId(), page.id, title, multipart.length);
+    attachments.put(attachment.id(), attachment);
+    return ok(results(List.of(attachmentJson(attachment))));
+  }
+
+  private Map<String, Object> pageSummary(Page page) {
+    return Map.of("id", page.id, "title", page.title);
+  }
+
+  private ObjectNode pageJson(Page page, boolean withBody) {
+    ObjectNode json = objectMapper.createObjectNode();
+    json.put("id", page.id);
+    json.put("status", "current");
+    json.put("title", page.title);
+    json.put("spaceId", SPACE_ID);
+    json.put("parentId", page.parentId);
+    json.putObject("version").put("number", page.version);
+    if (withBody) {
+      json.putObject("body")
+          .putObject("atlas_doc_format")
+          .put("representation", "atlas_doc_format")
+          .put("value", page.body);
+    }
+    return json;
+  }
+
+  private ObjectNode attachmentJson(Attachment attachment) {
+    ObjectNode json = objectMapper.createObjectNode();
+    json.put("id", attachment.id());
+    json.put("type", "attachment");
+    json.put("title", attachment.title());
+    ObjectNode extensions = json.putObject("extensions");
+    extensions.put("fileSize", attachment.size());
+    extensions.put("fileId", "file-" + attachment.id());
+    extensions.put("collectionName", "contentId-" + attachment.pageId());
+    return json;
+  }
+
+  private Map<String, Object> results(List<?> results) {
+    ArrayNode array = objectMapper.valueToTree(results);
+    return Map.of("results", array, "size", array.size());
+  }
+
+  private static Response ok(Object body) {
+    return new Response(200, body);
+  }
+
+  private String nextId() {
+    return String.valueOf(ids.incrementAndGet());
+  }
+
+  private boolean isThrottled() {
+    double rate = throttleRate;
+    if (rate <= 0) {
+      return false;
+    }
+    synchronized (random) {
+      return random.nextDouble() < rate;
+    }
+  }
+
+  private long responseDelay(long transferredBytes) {
+    long nanos = latency.toNanos();
+    long maxJitter = jitter.toNanos();
+    if (maxJitter > 0) {
+      synchronized (random) {
+        nanos += (long) (random.nextDouble() * maxJitter);
+      }
+    }
+    long limit = bandwidth;
+    if (limit > 0) {
+      nanos += transferredBytes * TimeUnit.SECONDS.toNanos(1) / limit;
+    }
+    return nanos;
+  }
+
+  private static void sleep(long nanos) {
+    if (nanos <= 0) {
+      return;
+    }
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static Map<String, String> parseQuery(String rawQuery) {
+    Map<String, String> query = new LinkedHashMap<>();
+    if (rawQuery == null || rawQuery.isEmpty()) {
+      return query;
+    }
+    for (String parameter : rawQuery.split("&")) {
+      int separator = parameter.indexOf('=');
+      String name = separator < 0 ? parameter : parameter.substring(0, separator);
+      String value = separator < 0 ? "" : parameter.substring(separator + 1);
+      query.put(
+          URLDecoder.decode(name, StandardCharsets.UTF_8),
+          URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return query;
+  }
+}
@@ -0,0 +1,139 @@
+package arnaudroubinet.structurizr.confluence.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import arnaudroubinet.structurizr.confluence.ConfluenceExporter;
+import arnaudroubinet.structurizr.confluence.bundle.BundleClient;
+import arnaudroubinet.structurizr.confluence.bundle.BundlePublisher;
+import arnaudroubinet.structurizr.confluence.bundle.PageBundle;
+import arnaudroubinet.structurizr.confluence.processor.PrerenderedDiagramExporter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.test.junit.QuarkusTest;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the fake Confluence server, driven by the real client (the REST client needs Quarkus).
+ */
+@QuarkusTest
+class FakeConfluenceServerTest {
+  private static final Logger logger = LoggerFactory.getLogger(FakeConfluenceServerTest.class);
+
+  private FakeConfluenceServer server;
+  private ConfluenceClient client;
+
+  @BeforeEach
+  void startServer() throws Exception {
+    server = new FakeConfluenceServer();
+    client =
+        new ConfluenceClient(new ConfluenceConfig(server.getBaseUrl(), "user", "token", "BENCH"));
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.close();
+  }
+
+  @Test
+  void testPagesAttachmentsAndPropertiesBehaveLikeConfluence() throws Exception {
+    ConfluenceClient.PublishedPage created =
+        client.createOrUpdatePageVersioned("Architecture", "{\"v\":1}", null);
+    ConfluenceClient.PublishedPage updated =
+        client.createOrUpdatePageVersioned("Architecture", "{\"v\":2}", null);
+    assertEquals(created.id(), updated.id());
+    assertEquals(2, updated.version());
+    assertEquals("{\"v\":2}", client.getPageContent(created.id()));
+
+    byte[] png = "png".getBytes(StandardCharsets.UTF_8);
+    ConfluenceClient.AttachmentDetails first =
+        client.uploadAttachmentDetailed(created.id(), "context.png", png, "image/png");
+    ConfluenceClient.AttachmentDetails second =
+        client.uploadAttachmentDetailed(created.id(), "context.png", png, "image/png");
+    assertEquals(first.attachmentId(), second.attachmentId(), "Same file name updates the data");
+    assertEquals("contentId-" + created.id(), first.collectionName());
+    assertEquals(1, server.getAttachmentCount());
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    client.setPageProperty(created.id(), "manifest", objectMapper.readTree("{\"n\":1}"));
+    client.setPageProperty(created.id(), "manifest", objectMapper.readTree("{\"n\":2}"));
+    assertEquals(2, client.getPageProperty(created.id(), "manifest").get("n").asInt());
+
+    client.createOrUpdatePage("Child", "{}", created.id());
+    client.cleanPageTreeById(created.id());
+    assertEquals(0, server.getPageCount());
+    assertEquals(2, server.getStats().get("POST /api/v2/pages").getCount());
+
+    logger.info("✅ Fake Confluence serves the client's pages, attachments and properties");
+  }
+
+  @Test
+  void testThrottlingAndLatencyInjected() throws Exception {
+    server.setThrottleRate(1.0);
+    assertThrows(IOException.class, () -> client.createOrUpdatePage("Page", "{}"));
+    assertTrue(server.getStats().get("GET /rest/api/content").getThrottled() > 0);
+
+    server.setThrottleRate(0);
+    server.resetStats();
+    server.setLatency(java.time.Duration.ofMillis(50));
+    client.getSpaceId();
+    assertTrue(server.getStats().get("GET /api/v2/spaces").percentileMillis(50) >= 50);
+
+    logger.info("✅ Throttling and latency injected by the fake Confluence");
+  }
+
+  @Test
+  void testWorkspaceExportedOffline(@TempDir Path tempDir) throws Exception {
+    OfflineExport.run(server, tempDir, exporter -> {});
+
+    assertNotNull(server.findPageId("main"));
+    assertTrue(server.getPageCount() > 3, "Branch, documentation, views and decision pages");
+    assertTrue(server.getAttachmentCount() > 0, "Diagram uploaded");
+
+    logger.info("✅ Workspace exported offline against the fake Confluence");
+  }
+
+  @Test
+  void testBundleWrittenOfflineThenPublished(@TempDir Path tempDir) throws Exception {
+    Path bundleFile = tempDir.resolve("bundle.zip");
+    int bundlePages;
+    try (BundleClient bundleClient = new BundleClient(PageBundle.create(bundleFile));
+        ConfluenceExporter exporter = new ConfluenceExporter(bundleClient, null)) {
+      exporter.setDiagramDirectory(tempDir.resolve("diagrams"));
+      exporter.setDiagramExporterFactory(
+          workspaceId -> new PrerenderedDiagramExporter(workspaceId, tempDir.resolve("diagrams")));
+      exporter.export(OfflineExport.shopWorkspace(), "exports-page", "main");
+      bundlePages = bundleClient.getPageCount();
+      assertTrue(bundleClient.getAttachmentCount() > 0, "Diagram written to the bundle");
+    }
+    assertEquals(0, server.getRequestCount(), "Bundle written without Confluence");
+
+    String parentId = server.addPage("Exports", null);
+    BundlePublisher publisher = new BundlePublisher(client);
+    publisher.setParentPageId(parentId);
+    try (PageBundle bundle = PageBundle.open(bundleFile)) {
+      assertEquals(bundlePages, bundle.getPages().size());
+      boolean showsMedia = false;
+      for (PageBundle.Page page : bundle.getPages()) {
+        showsMedia |= bundle.readContent(page).contains("\"bundle-file-");
+      }
+      assertTrue(showsMedia, "Media nodes refer to placeholder files");
+      publisher.publish(bundle, 8);
+      for (PageBundle.Page page : bundle.getPages()) {
+        String body = server.getPageBody(publisher.getPageId(page.id()));
+        assertFalse(body.contains("bundle-"), "Placeholders replaced in " + page.title());
+      }
+    }
+
+    assertEquals(bundlePages + 1, server.getPageCount());
+    assertTrue(server.getAttachmentCount() > 0, "Diagram uploaded");
+    assertNotNull(server.findPageId("main"));
+    logger.info("✅ Bundle written offline, then published to the fake Confluence");
+  }
+}
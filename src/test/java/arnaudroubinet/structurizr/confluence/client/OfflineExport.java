@@ -0,0 +1,74 @@
+package arnaudroubinet.structurizr.confluence.client;
+
+import arnaudroubinet.structurizr.confluence.ConfluenceExporter;
+import arnaudroubinet.structurizr.confluence.manifest.ExportJournal;
+import arnaudroubinet.structurizr.confluence.processor.AsciidoctorPool;
+import arnaudroubinet.structurizr.confluence.processor.PrerenderedDiagramExporter;
+import com.structurizr.Workspace;
+import com.structurizr.documentation.Decision;
+import com.structurizr.documentation.Format;
+import com.structurizr.documentation.Section;
+import com.structurizr.model.Person;
+import com.structurizr.model.SoftwareSystem;
+import com.structurizr.view.SystemContextView;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.function.Consumer;
+
+/**
+ * Exports a small workspace to a {@link FakeConfluenceServer} with pre-rendered diagrams, for the
+ * tests checking what an export records. The REST client needs Quarkus, so these tests are
+ * {@code @QuarkusTest}s.
+ */
+public final class OfflineExport {
+
+  private OfflineExport() {}
+
+  /** Returns a workspace with a view, a documentation section showing it and a decision. */
+  public static Workspace shopWorkspace() {
+    Workspace workspace = new Workspace("Shop", "");
+    workspace.setId(7);
+    workspace.setLastModifiedDate(new Date(0));
+    Person customer = workspace.getModel().addPerson("Customer", "");
+    SoftwareSystem shop = workspace.getModel().addSoftwareSystem("Shop", "");
+    customer.uses(shop, "Buys from");
+    SystemContextView view = workspace.getViews().createSystemContextView(shop, "Context", "");
+    view.addAllElements();
+    workspace
+        .getDocumentation()
+        .addSection(new Section(Format.Markdown, "## Context\n\n![Context](embed:Context)\n"));
+    Decision decision = new Decision("1");
+    decision.setTitle("Use Confluence");
+    decision.setStatus("Accepted");
+    decision.setDate(new Date(0));
+    decision.setFormat(Format.Markdown);
+    decision.setContent("## Context\n\nDocumentation lives in Confluence.");
+    workspace.getDocumentation().addDecision(decision);
+    return workspace;
+  }
+
+  /**
+   * Exports {@link #shopWorkspace()} to the server, under a new "Exports" page.
+   *
+   * @param server the fake Confluence
+   * @param directory where the journal and the diagrams are written
+   * @param setup configures the exporter before the export, e.g. its metrics
+   */
+  public static void run(
+      FakeConfluenceServer server, Path directory, Consumer<ConfluenceExporter> setup)
+      throws Exception {
+    String parentId = server.addPage("Exports", null);
+    ConfluenceClient client =
+        new ConfluenceClient(new ConfluenceConfig(server.getBaseUrl(), "user", "token", "BENCH"));
+    try (AsciidoctorPool asciidoctorPool = new AsciidoctorPool(1);
+        ConfluenceExporter exporter = new ConfluenceExporter(client, null, asciidoctorPool, null)) {
+      exporter.setJournal(new ExportJournal(directory.resolve("journal.jsonl"), false));
+      exporter.setDiagramDirectory(directory.resolve("diagrams"));
+      exporter.setDiagramExporterFactory(
+          workspaceId ->
+              new PrerenderedDiagramExporter(workspaceId, directory.resolve("diagrams")));
+      setup.accept(exporter);
+      exporter.export(shopWorkspace(), parentId, "main");
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package arnaudroubinet.structurizr.confluence.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the grouping of Confluence requests by endpoint. */
+class RequestMetricsFilterTest {
+  private static final Logger logger = LoggerFactory.getLogger(RequestMetricsFilterTest.class);
+
+  @Test
+  void testEndpointsGroupRequestsOfTheSameKind() {
+    assertEquals("/api/v2/pages", RequestMetricsFilter.endpoint("/wiki/api/v2/pages"));
+    assertEquals(
+        "/api/v2/pages/{id}/properties/{id}",
+        RequestMetricsFilter.endpoint("/wiki/api/v2/pages/123456/properties/789"));
+    assertEquals(
+        "/rest/api/content/{id}/child/attachment/{id}/data",
+        RequestMetricsFilter.endpoint("/wiki/rest/api/content/42/child/attachment/att9001/data"));
+    assertEquals("/api/v2/spaces", RequestMetricsFilter.endpoint("/api/v2/spaces"));
+    logger.info("✅ Request paths grouped by endpoint");
+  }
+}
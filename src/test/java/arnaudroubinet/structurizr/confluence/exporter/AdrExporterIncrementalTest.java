@@ -0,0 +1,105 @@
+package arnaudroubinet.structurizr.confluence.exporter;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient.PublishedPage;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest;
+import arnaudroubinet.structurizr.confluence.manifest.PagePublisher;
+import arnaudroubinet.structurizr.confluence.processor.AsciiDocConverter;
+import arnaudroubinet.structurizr.confluence.processor.AsciiDocToAdfConverter;
+import arnaudroubinet.structurizr.confluence.processor.HtmlToAdfConverter;
+import arnaudroubinet.structurizr.confluence.processor.MarkdownToAdfConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.structurizr.Workspace;
+import com.structurizr.documentation.Decision;
+import com.structurizr.documentation.Format;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests that ADR export only touches decisions that changed since the previous manifest. */
+class AdrExporterIncrementalTest {
+  private static final Logger logger = LoggerFactory.getLogger(AdrExporterIncrementalTest.class);
+
+  private ConfluenceClient client;
+  private AsciiDocConverter asciiDocConverter;
+  private AdrExporter exporter;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    client = mock(ConfluenceClient.class);
+    AtomicInteger ids = new AtomicInteger(100);
+    when(client.createOrUpdatePageVersioned(anyString(), anyString(), any()))
+        .thenAnswer(invocation -> new PublishedPage(String.valueOf(ids.incrementAndGet()), 1));
+    when(client.updatePageByIdVersioned(anyString(), anyString(), anyString()))
+        .thenAnswer(invocation -> new PublishedPage(invocation.getArgument(0), 2));
+
+    asciiDocConverter = new AsciiDocConverter();
+    exporter =
+        new AdrExporter(
+            client,
+            new ObjectMapper(),
+            new HtmlToAdfConverter(),
+            new AsciiDocToAdfConverter(asciiDocConverter),
+            new MarkdownToAdfConverter());
+  }
+
+  @AfterEach
+  void tearDown() {
+    asciiDocConverter.close();
+  }
+
+  private static Workspace workspace(String secondContent, boolean withThird) {
+    Workspace workspace = new Workspace("Test", "");
+    workspace.getDocumentation().addDecision(decision("1", "First", "## Context\n\nOne."));
+    workspace.getDocumentation().addDecision(decision("2", "Second", secondContent));
+    if (withThird) {
+      workspace.getDocumentation().addDecision(decision("3", "Third", "Three."));
+    }
+    return workspace;
+  }
+
+  private static Decision decision(String id, String title, String content) {
+    Decision decision = new Decision(id);
+    decision.setTitle(title);
+    decision.setStatus("Accepted");
+    decision.setFormat(Format.Markdown);
+    decision.setContent(content);
+    return decision;
+  }
+
+  @Test
+  void testOneChangedDecisionCostsOneUpdate() throws Exception {
+    PagePublisher first = new PagePublisher(client, new ExportManifest("main", "1"));
+    exporter.exportDecisions(workspace("Two.", true), "10", "main", first);
+    ExportManifest manifest = first.current();
+    assertEquals(4, manifest.getPages().size(), "Index and three decisions recorded");
+    int requestsBefore = mockingDetails(client).getInvocations().size();
+
+    PagePublisher second = new PagePublisher(client, manifest);
+    exporter.exportDecisions(workspace("Two, revised.", false), "10", "main", second);
+    second.deleteOrphans();
+
+    int requests = mockingDetails(client).getInvocations().size() - requestsBefore;
+    String secondId = manifest.page(AdrExporter.ADR_PAGE_KEY_PREFIX + "2").id();
+    String thirdId = manifest.page(AdrExporter.ADR_PAGE_KEY_PREFIX + "3").id();
+    verify(client).updatePageByIdVersioned(anyString(), anyString(), anyString());
+    verify(client).deletePage(thirdId);
+    assertEquals(2, requests, "One update and one deletion");
+    assertEquals(2, second.getUnchangedPages(), "Index and first decision unchanged");
+    assertEquals(2, second.current().page(AdrExporter.ADR_PAGE_KEY_PREFIX + "2").version());
+    assertEquals(secondId, second.current().page(AdrExporter.ADR_PAGE_KEY_PREFIX + "2").id());
+
+    logger.info("✅ Only the changed decision was republished, the removed one deleted");
+  }
+}
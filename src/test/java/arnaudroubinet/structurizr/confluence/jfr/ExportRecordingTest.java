@@ -0,0 +1,88 @@
+package arnaudroubinet.structurizr.confluence.jfr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import arnaudroubinet.structurizr.confluence.client.FakeConfluenceServer;
+import arnaudroubinet.structurizr.confluence.client.OfflineExport;
+import arnaudroubinet.structurizr.confluence.metrics.ExportMetrics;
+import arnaudroubinet.structurizr.confluence.processor.HtmlToAdfConverter;
+import arnaudroubinet.structurizr.confluence.scheduler.TaskGraph;
+import arnaudroubinet.structurizr.confluence.scheduler.TaskType;
+import io.quarkus.test.junit.QuarkusTest;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the JFR recording of CLI runs and the export events (exports need Quarkus for the REST
+ * client).
+ */
+@QuarkusTest
+class ExportRecordingTest {
+  private static final Logger logger = LoggerFactory.getLogger(ExportRecordingTest.class);
+
+  @Test
+  void testExportEventsRecorded(@TempDir Path tempDir) throws Exception {
+    Path file = tempDir.resolve("run.jfr");
+    try (ExportRecording recording = ExportRecording.start(file)) {
+      new ExportMetrics().timePhase("load", () -> "workspace");
+      TaskGraph graph = new TaskGraph();
+      graph.add("publish page Overview", TaskType.PUBLISH_BODY, () -> {});
+      graph.execute(1);
+      new HtmlToAdfConverter().convertToAdfJson("<p>One</p><p>Two</p>", "Overview");
+    }
+
+    Map<String, List<RecordedEvent>> events =
+        RecordingFile.readAllEvents(file).stream()
+            .filter(event -> event.getEventType().getName().startsWith("structurizr."))
+            .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+    List<RecordedEvent> phases = events.get("structurizr.confluence.ExportPhase");
+    assertTrue(phases.stream().anyMatch(event -> "load".equals(event.getString("phase"))));
+    assertTrue(
+        phases.stream().anyMatch(event -> "publish page Overview".equals(event.getString("task"))));
+
+    RecordedEvent conversion = events.get("structurizr.confluence.AdfConversion").get(0);
+    assertEquals("Overview", conversion.getString("section"));
+    assertEquals("HTML", conversion.getString("format"));
+    assertEquals(20, conversion.getInt("inputChars"));
+    assertTrue(conversion.getInt("outputNodes") >= 4, "Two paragraphs and their text");
+
+    logger.info("✅ Export events recorded with JFR");
+  }
+
+  @Test
+  void testDefaultFileTimestamped(@TempDir Path tempDir) {
+    Path file = ExportRecording.defaultFile(tempDir);
+    assertEquals(tempDir, file.getParent());
+    assertTrue(file.getFileName().toString().matches("structurizr-confluence-\\d{8}-\\d{6}\\.jfr"));
+
+    logger.info("✅ Default recording file timestamped");
+  }
+
+  @Test
+  void testExportRequestsRecorded(@TempDir Path tempDir) throws Exception {
+    Path file = tempDir.resolve("export.jfr");
+    int requestCount;
+    try (FakeConfluenceServer server = new FakeConfluenceServer();
+        ExportRecording recording = ExportRecording.start(file)) {
+      OfflineExport.run(server, tempDir, exporter -> {});
+      requestCount = server.getRequestCount();
+    }
+
+    List<RecordedEvent> requests =
+        RecordingFile.readAllEvents(file).stream()
+            .filter(event -> event.getEventType().getName().endsWith("ConfluenceRequest"))
+            .toList();
+    assertEquals(requestCount, requests.size(), "Every request recorded");
+    assertTrue(
+        requests.stream().anyMatch(event -> "/api/v2/pages".equals(event.getString("endpoint"))));
+    logger.info("✅ Confluence requests of an export recorded with JFR");
+  }
+}
@@ -0,0 +1,25 @@
+package arnaudroubinet.structurizr.confluence.manifest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the content hasher used by the export manifest. */
+class ContentHasherTest {
+  private static final Logger logger = LoggerFactory.getLogger(ContentHasherTest.class);
+
+  @Test
+  void testPartsAreDelimited() {
+    String ab = new ContentHasher().add("ab").add("c").hex();
+    String a = new ContentHasher().add("a").add("bc").hex();
+    assertNotEquals(ab, a);
+    assertNotEquals(
+        new ContentHasher().add((String) null).hex(), new ContentHasher().add("").hex());
+    assertEquals(ContentHasher.sha256("x"), ContentHasher.sha256("x"));
+    assertEquals(64, ContentHasher.sha256("x").length());
+
+    logger.info("✅ Hash parts are length-delimited and null-aware");
+  }
+}
@@ -0,0 +1,184 @@
+package arnaudroubinet.structurizr.confluence.manifest;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient.PublishedPage;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest.AttachmentEntry;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest.PageEntry;
+import com.structurizr.Workspace;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the export journal used to resume interrupted exports. */
+class ExportJournalTest {
+  private static final Logger logger = LoggerFactory.getLogger(ExportJournalTest.class);
+
+  @TempDir Path tempDir;
+
+  @Test
+  void testResumeRestoresJournaledSteps() throws IOException {
+    Path file = tempDir.resolve("journal.jsonl");
+    File diagram = tempDir.resolve("structurizr-1-Context.png").toFile();
+    Files.write(diagram.toPath(), new byte[] {1, 2, 3});
+
+    try (ExportJournal journal = new ExportJournal(file, false)) {
+      journal.open("main", "100", "views-1");
+      assertFalse(journal.isResuming());
+      journal.recordDiagram("Context", List.of(diagram));
+      journal.recordPage("branch", new PageEntry("1", "main", 2, "src", "adf"));
+      journal.recordAttachment(new AttachmentEntry("1", "a.png", "h", "file-1", "coll"));
+    }
+
+    try (ExportJournal journal = new ExportJournal(file, true)) {
+      journal.open("main", "100", "views-1");
+      assertTrue(journal.isResuming());
+
+      ExportManifest previous = new ExportManifest("main", "100");
+      journal.applyTo(previous);
+      assertEquals("1", previous.page("branch").id());
+      assertNotNull(previous.attachment("1", "a.png"));
+      assertEquals(List.of(diagram), journal.diagram("Context"));
+      assertNull(journal.diagram("Containers"), "Views never rendered must be rendered");
+    }
+
+    logger.info("✅ Journaled pages, attachments and diagrams restored on resume");
+  }
+
+  @Test
+  void testChangedInputsAreNotResumed() throws IOException {
+    Path file = tempDir.resolve("journal.jsonl");
+    File diagram = tempDir.resolve("structurizr-1-Context.png").toFile();
+    Files.write(diagram.toPath(), new byte[] {1, 2, 3});
+
+    try (ExportJournal journal = new ExportJournal(file, false)) {
+      journal.open("main", "100", "views-1");
+      journal.recordDiagram("Context", List.of(diagram));
+      journal.recordPage("branch", new PageEntry("1", "main", 2, "src", "adf"));
+    }
+
+    try (ExportJournal journal = new ExportJournal(file, true)) {
+      journal.open("main", "100", "views-2");
+      assertTrue(journal.isResuming());
+      assertNull(journal.diagram("Context"), "Diagrams are rendered again when views changed");
+      ExportManifest previous = new ExportManifest("main", "100");
+      journal.applyTo(previous);
+      assertNotNull(previous.page("branch"), "Pages are still protected by their source hash");
+    }
+
+    try (ExportJournal journal = new ExportJournal(file, true)) {
+      journal.open("main", "100", "views-2");
+      Files.write(diagram.toPath(), new byte[] {4});
+      assertNull(journal.diagram("Context"), "Modified files are rendered again");
+    }
+
+    try (ExportJournal journal = new ExportJournal(file, true)) {
+      journal.open("feature", "100", "views-2");
+      assertFalse(journal.isResuming(), "Journal of another branch is started over");
+    }
+    assertEquals(1, Files.readAllLines(file).size());
+
+    logger.info("✅ Steps whose inputs changed are not resumed");
+  }
+
+  @Test
+  void testTruncatedLineIgnoredAndCompleteDeletes() throws IOException {
+    Path file = tempDir.resolve("journal.jsonl");
+    try (ExportJournal journal = new ExportJournal(file, false)) {
+      journal.open("main", null, "views");
+      journal.recordPage("branch", new PageEntry("1", "main", 1, "src", "adf"));
+    }
+    Files.writeString(file, "{\"type\":\"page\",\"key\":\"docu", StandardOpenOption.APPEND);
+
+    ExportJournal journal = new ExportJournal(file, true);
+    journal.open("main", null, "views");
+    assertTrue(journal.isResuming());
+    ExportManifest previous = new ExportManifest("main", null);
+    journal.applyTo(previous);
+    assertEquals(1, previous.getPages().size());
+
+    journal.complete();
+    assertFalse(Files.exists(file), "Journal deleted once the export completes");
+
+    logger.info("✅ Partial last line ignored, journal deleted on completion");
+  }
+
+  @Test
+  void testResumedExportSkipsPublishedPages() throws IOException {
+    Path file = tempDir.resolve("journal.jsonl");
+    ConfluenceClient client = mock(ConfluenceClient.class);
+    when(client.createOrUpdatePageVersioned("main", "{\"b\":1}", "100"))
+        .thenReturn(new PublishedPage("1", 1));
+
+    // First run publishes the branch page, then fails
+    ExportJournal journal = new ExportJournal(file, false);
+    journal.open("main", "100", "views");
+    PagePublisher first = new PagePublisher(client, new ExportManifest("main", "100"));
+    first.setJournal(journal);
+    first.publish("branch", "main", "100", "src-branch", "{\"b\":1}");
+    journal.close();
+
+    // Resumed run: the branch page is not published again
+    ConfluenceClient resumedClient = mock(ConfluenceClient.class);
+    ExportJournal resumed = new ExportJournal(file, true);
+    resumed.open("main", "100", "views");
+    ExportManifest previous = new ExportManifest("main", "100");
+    resumed.applyTo(previous);
+    PagePublisher second = new PagePublisher(resumedClient, previous);
+    second.setJournal(resumed);
+
+    assertTrue(second.reuseIfUnchanged("branch", "src-branch"));
+    assertEquals("1", second.current().page("branch").id());
+    verifyNoInteractions(resumedClient);
+    resumed.close();
+
+    logger.info("✅ Resumed export skips pages published before the failure");
+  }
+
+  @Test
+  void testDiagramInputsIgnoreDocumentation() throws Exception {
+    Workspace workspace = new Workspace("W", "");
+    workspace.getModel().addPerson("User", "");
+    String before = SourceHashes.diagramInputs(workspace);
+
+    workspace
+        .getDocumentation()
+        .addSection(
+            new com.structurizr.documentation.Section(
+                com.structurizr.documentation.Format.Markdown, "## Notes"));
+    assertEquals(before, SourceHashes.diagramInputs(workspace));
+
+    workspace.getModel().addPerson("Admin", "");
+    assertNotEquals(before, SourceHashes.diagramInputs(workspace));
+
+    logger.info("✅ Diagram inputs hash ignores documentation changes");
+  }
+
+  @Test
+  void testJournalLinesAreJson() throws IOException {
+    Path file = tempDir.resolve("journal.jsonl");
+    try (ExportJournal journal = new ExportJournal(file, false)) {
+      journal.open("main", "100", "views");
+      journal.recordPage("adr:1", new PageEntry("2", "ADR 1", 1, "s", "a"));
+    }
+    List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    assertEquals(2, lines.size());
+    assertTrue(lines.get(0).contains("\"type\":\"start\""));
+    assertTrue(lines.get(1).contains("\"key\":\"adr:1\""));
+    assertFalse(lines.get(1).contains("\"branch\""), "Unset fields are omitted");
+
+    logger.info("✅ One JSON object per journal line");
+  }
+}
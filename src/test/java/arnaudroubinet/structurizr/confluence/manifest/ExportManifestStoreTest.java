@@ -0,0 +1,159 @@
+package arnaudroubinet.structurizr.confluence.manifest;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest.AttachmentEntry;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest.PageEntry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for loading and saving export manifests. */
+class ExportManifestStoreTest {
+  private static final Logger logger = LoggerFactory.getLogger(ExportManifestStoreTest.class);
+
+  @TempDir Path tempDir;
+
+  private static ExportManifest sampleManifest() {
+    ExportManifest manifest = new ExportManifest("main", "100");
+    manifest.putPage("branch", new PageEntry("1", "main", 2, "s", "a"));
+    manifest.putPage("adr:1", new PageEntry("2", "ADR 1 - First", 1, "s1", "a1"));
+    manifest.putAttachment(new AttachmentEntry("1", "d.png", "h", "f", "c"));
+    return manifest;
+  }
+
+  @Test
+  void testFileRoundTrip() throws Exception {
+    Path file = tempDir.resolve("state/manifest.json");
+    ExportManifestStore store = new ExportManifestStore(file, null, false);
+
+    assertTrue(store.load("main", "100").isEmpty(), "Missing file means empty manifest");
+
+    store.save(sampleManifest(), "1");
+    assertTrue(Files.exists(file));
+
+    ExportManifest loaded = store.load("main", "100");
+    assertEquals(2, loaded.getPages().size());
+    assertEquals("ADR 1 - First", loaded.page("adr:1").title());
+    assertEquals("f", loaded.attachment("1", "d.png").fileId());
+
+    logger.info("✅ Manifest saved and reloaded from a local file");
+  }
+
+  @Test
+  void testManifestOfAnotherTargetIsIgnored() throws Exception {
+    Path file = tempDir.resolve("manifest.json");
+    ExportManifestStore store = new ExportManifestStore(file, null, false);
+    store.save(sampleManifest(), "1");
+
+    assertTrue(store.load("feature", "100").isEmpty(), "Other branch");
+    assertTrue(store.load("main", "200").isEmpty(), "Other parent page");
+
+    Files.writeString(file, "{not json");
+    assertTrue(store.load("main", "100").isEmpty(), "Unreadable file");
+
+    logger.info("✅ Manifests of other targets or unreadable files are ignored");
+  }
+
+  @Test
+  void testContentPropertyRoundTrip() throws Exception {
+    ConfluenceClient client = mock(ConfluenceClient.class);
+    ExportManifestStore store = new ExportManifestStore(null, client, true);
+
+    store.save(sampleManifest(), "1");
+    ArgumentCaptor<JsonNode> value = ArgumentCaptor.forClass(JsonNode.class);
+    verify(client).setPageProperty(eq("1"), eq(ExportManifestStore.PROPERTY_KEY), value.capture());
+
+    when(client.findPageIdByTitle("main")).thenReturn("1");
+    when(client.getPageProperty("1", ExportManifestStore.PROPERTY_KEY))
+        .thenReturn(value.getValue());
+    assertEquals(2, store.load("main", "100").getPages().size());
+
+    logger.info("✅ Manifest stored and read back as a branch page content property");
+  }
+
+  @Test
+  void testLargeManifestSplitOverProperties() throws Exception {
+    ConfluenceClient client = mock(ConfluenceClient.class);
+    Map<String, JsonNode> properties = new HashMap<>();
+    doAnswer(invocation -> properties.put(invocation.getArgument(1), invocation.getArgument(2)))
+        .when(client)
+        .setPageProperty(eq("1"), any(), any());
+    when(client.getPageProperty(eq("1"), any()))
+        .thenAnswer(invocation -> properties.get(invocation.<String>getArgument(1)));
+    when(client.findPageIdByTitle("main")).thenReturn("1");
+    ExportManifestStore store = new ExportManifestStore(null, client, true);
+
+    store.save(manifestWithPages(400), "1");
+
+    assertTrue(properties.size() > 1, "Compressed manifest still above a single property");
+    for (JsonNode value : properties.values()) {
+      assertTrue(value.toString().length() <= ExportManifestStore.MAX_PROPERTY_LENGTH);
+    }
+    ExportManifest loaded = store.load("main", null);
+    assertEquals(400, loaded.getPages().size());
+    assertEquals("ADR 399", loaded.page("adr:399").title());
+
+    logger.info("✅ Large manifests compressed and split over numbered properties");
+  }
+
+  @Test
+  void testPlainJsonPropertyStillLoaded() throws Exception {
+    ConfluenceClient client = mock(ConfluenceClient.class);
+    when(client.findPageIdByTitle("main")).thenReturn("1");
+    when(client.getPageProperty("1", ExportManifestStore.PROPERTY_KEY))
+        .thenReturn(new ObjectMapper().valueToTree(sampleManifest()));
+
+    ExportManifest loaded = new ExportManifestStore(null, client, true).load("main", "100");
+
+    assertEquals("ADR 1 - First", loaded.page("adr:1").title());
+    logger.info("✅ Manifests stored as plain JSON by earlier versions still loaded");
+  }
+
+  @Test
+  void testOversizedManifestFailsTheSave() throws Exception {
+    ConfluenceClient client = mock(ConfluenceClient.class);
+    Path file = tempDir.resolve("manifest.json");
+    ExportManifestStore store = new ExportManifestStore(file, client, true);
+
+    IOException e =
+        assertThrows(IOException.class, () -> store.save(manifestWithPages(15_000), "1"));
+
+    assertTrue(e.getMessage().contains("content properties"));
+    assertTrue(Files.exists(file), "The local file is still written");
+    verify(client, never()).setPageProperty(any(), any(), any());
+    logger.info("✅ Manifests too large even compressed fail the save");
+  }
+
+  private static ExportManifest manifestWithPages(int pages) {
+    ExportManifest manifest = new ExportManifest("main", null);
+    for (int i = 0; i < pages; i++) {
+      manifest.putPage(
+          "adr:" + i,
+          new PageEntry(
+              String.valueOf(i),
+              "ADR " + i,
+              1,
+              ContentHasher.sha256("s" + i),
+              ContentHasher.sha256("a" + i)));
+    }
+    return manifest;
+  }
+}
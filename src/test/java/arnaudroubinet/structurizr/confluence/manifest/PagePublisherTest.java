@@ -0,0 +1,132 @@
+package arnaudroubinet.structurizr.confluence.manifest;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import arnaudroubinet.structurizr.confluence.client.ConfluenceClient.PublishedPage;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest.AttachmentEntry;
+import arnaudroubinet.structurizr.confluence.manifest.ExportManifest.PageEntry;
+import java.io.IOException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for manifest-driven page publishing. */
+class PagePublisherTest {
+  private static final Logger logger = LoggerFactory.getLogger(PagePublisherTest.class);
+
+  private ConfluenceClient client;
+  private ExportManifest previous;
+
+  @BeforeEach
+  void setUp() {
+    client = mock(ConfluenceClient.class);
+    previous = new ExportManifest("main", "100");
+    previous.putPage(
+        "branch", new PageEntry("1", "main", 3, "src-branch", ContentHasher.sha256("{}")));
+    previous.putPage("adr:1", new PageEntry("2", "ADR 1 - First", 2, "src-adr1", "adf-adr1"));
+    previous.putPage("adr:2", new PageEntry("3", "ADR 2 - Second", 1, "src-adr2", "adf-adr2"));
+    previous.putAttachment(new AttachmentEntry("1", "diagram.png", "h", "file-1", "coll"));
+  }
+
+  @Test
+  void testUnchangedSourceIsSkippedWithoutRequests() {
+    PagePublisher publisher = new PagePublisher(client, previous);
+
+    assertTrue(publisher.reuseIfUnchanged("branch", "src-branch"));
+    assertFalse(publisher.reuseIfUnchanged("adr:1", "changed"));
+
+    assertEquals("1", publisher.current().page("branch").id());
+    assertNotNull(
+        publisher.current().attachment("1", "diagram.png"), "Attachments carried over with page");
+    assertNull(publisher.current().page("adr:1"));
+    verifyNoInteractions(client);
+
+    logger.info("✅ Unchanged pages skipped without any Confluence request");
+  }
+
+  @Test
+  void testIdenticalAdfIsNotUpdated() throws IOException {
+    PagePublisher publisher = new PagePublisher(client, previous);
+
+    String id = publisher.publish("branch", "main", "100", "new-source", "{}");
+
+    assertEquals("1", id);
+    assertEquals("new-source", publisher.current().page("branch").sourceHash());
+    verifyNoInteractions(client);
+
+    logger.info("✅ Pages whose ADF did not change are not updated");
+  }
+
+  @Test
+  void testChangedPageUpdatedByKnownId() throws IOException {
+    when(client.updatePageByIdVersioned("2", "ADR 1 - First", "{\"v\":2}"))
+        .thenReturn(new PublishedPage("2", 3));
+    PagePublisher publisher = new PagePublisher(client, previous);
+
+    publisher.publish("adr:1", "ADR 1 - First", "9", "src-new", "{\"v\":2}");
+
+    PageEntry entry = publisher.current().page("adr:1");
+    assertEquals(3, entry.version());
+    assertEquals(ContentHasher.sha256("{\"v\":2}"), entry.adfHash());
+    verify(client, never()).createOrUpdatePageVersioned(anyString(), anyString(), any());
+
+    logger.info("✅ Changed page updated directly by its recorded ID");
+  }
+
+  @Test
+  void testUpdateFailureFallsBackToTitleLookup() throws IOException {
+    when(client.updatePageByIdVersioned(eq("2"), anyString(), anyString()))
+        .thenThrow(new IOException("404"));
+    when(client.createOrUpdatePageVersioned("ADR 1 - First", "{}", "9"))
+        .thenReturn(new PublishedPage("20", 1));
+    PagePublisher publisher = new PagePublisher(client, previous);
+
+    assertEquals("20", publisher.publish("adr:1", "ADR 1 - First", "9", "src", "{}"));
+
+    logger.info("✅ Page deleted in Confluence republished by title");
+  }
+
+  @Test
+  void testNewPagesWithoutManifest() throws IOException {
+    when(client.createOrUpdatePageVersioned("Docs", PagePublisher.EMPTY_ADF, "1"))
+        .thenReturn(new PublishedPage("5", 1));
+    when(client.updatePageByIdVersioned("5", "Docs", "{\"c\":1}"))
+        .thenReturn(new PublishedPage("5", 2));
+    PagePublisher publisher = new PagePublisher(client, new ExportManifest("main", null));
+
+    assertEquals("5", publisher.ensurePage("documentation", "Docs", "1"));
+    assertEquals("5", publisher.publish("documentation", "Docs", "1", "s", "{\"c\":1}"));
+    assertEquals(2, publisher.current().page("documentation").version());
+    assertTrue(publisher.deleteOrphans().isEmpty());
+
+    logger.info("✅ Without manifest every page is created and updated");
+  }
+
+  @Test
+  void testOrphansDeletedChildrenFirst() throws IOException {
+    PagePublisher publisher = new PagePublisher(client, previous);
+    publisher.reuseIfUnchanged("branch", "src-branch");
+
+    assertEquals(java.util.List.of("3", "2"), publisher.deleteOrphans());
+
+    InOrder order = inOrder(client);
+    order.verify(client).deletePage("3");
+    order.verify(client).deletePage("2");
+    verify(client, never()).deletePage("1");
+    assertEquals(2, publisher.getDeletedPages());
+
+    logger.info("✅ Pages whose source disappeared are deleted");
+  }
+}
@@ -0,0 +1,69 @@
+package arnaudroubinet.structurizr.confluence.manifest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.structurizr.Workspace;
+import com.structurizr.documentation.Decision;
+import com.structurizr.documentation.Format;
+import com.structurizr.documentation.Section;
+import com.structurizr.model.SoftwareSystem;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the comparison of workspace revisions used by watch mode. */
+class WorkspaceChangesTest {
+  private static final Logger logger = LoggerFactory.getLogger(WorkspaceChangesTest.class);
+
+  private static Workspace workspace(String notes, String decisionContent, String viewTitle) {
+    Workspace workspace = new Workspace("W", "");
+    SoftwareSystem system = workspace.getModel().addSoftwareSystem("System", "");
+    workspace.getViews().createSystemContextView(system, "Context", "").setTitle(viewTitle);
+    workspace.getDocumentation().addSection(new Section(Format.Markdown, "## Overview"));
+    workspace.getDocumentation().addSection(new Section(Format.Markdown, notes));
+    Decision decision = new Decision("1");
+    decision.setTitle("First");
+    decision.setStatus("Accepted");
+    decision.setFormat(Format.Markdown);
+    decision.setContent(decisionContent);
+    workspace.getDocumentation().addDecision(decision);
+    return workspace;
+  }
+
+  @Test
+  void testIdenticalRevisionsHaveNoChanges() throws Exception {
+    WorkspaceChanges changes =
+        WorkspaceChanges.between(workspace("Notes", "One.", "T"), workspace("Notes", "One.", "T"));
+    assertTrue(changes.isEmpty());
+    assertEquals("no changes", changes.toString());
+
+    logger.info("✅ Saving an unchanged workspace is detected");
+  }
+
+  @Test
+  void testChangedItemsAreReported() throws Exception {
+    WorkspaceChanges docOnly =
+        WorkspaceChanges.between(
+            workspace("Notes", "One.", "T"), workspace("New notes", "One.", "T"));
+    assertFalse(docOnly.isEmpty());
+    assertEquals(1, docOnly.getSections().size(), "Only the edited section changed");
+    assertTrue(docOnly.getDecisions().isEmpty());
+    assertTrue(docOnly.getViews().isEmpty());
+    assertFalse(docOnly.isModelChanged());
+
+    WorkspaceChanges decisionAndView =
+        WorkspaceChanges.between(
+            workspace("Notes", "One.", "T"), workspace("Notes", "One, revised.", "Renamed"));
+    assertTrue(decisionAndView.getSections().isEmpty());
+    assertEquals(List.of("1"), decisionAndView.getDecisions());
+    assertEquals(List.of("Context"), decisionAndView.getViews());
+
+    Workspace withPerson = workspace("Notes", "One.", "T");
+    withPerson.getModel().addPerson("User", "");
+    assertTrue(
+        WorkspaceChanges.between(workspace("Notes", "One.", "T"), withPerson).isModelChanged());
+
+    logger.info("✅ Changed sections, decisions, views and model reported");
+  }
+}
@@ -0,0 +1,108 @@
+package arnaudroubinet.structurizr.confluence.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import arnaudroubinet.structurizr.confluence.client.FakeConfluenceServer;
+import arnaudroubinet.structurizr.confluence.client.OfflineExport;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.test.junit.QuarkusTest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the export metrics and their summary, Prometheus and JSON outputs (exports need Quarkus
+ * for the REST client).
+ */
+@QuarkusTest
+class ExportMetricsTest {
+  private static final Logger logger = LoggerFactory.getLogger(ExportMetricsTest.class);
+
+  private ExportMetrics recordedMetrics() {
+    ExportMetrics metrics = new ExportMetrics();
+    metrics.recordPhase("load", TimeUnit.MILLISECONDS.toNanos(1200));
+    metrics.recordPhase("publish", TimeUnit.MILLISECONDS.toNanos(300));
+    metrics.recordRequest("POST", "/api/v2/pages", 200, TimeUnit.MILLISECONDS.toNanos(80));
+    metrics.recordRequest("POST", "/api/v2/pages", 200, TimeUnit.MILLISECONDS.toNanos(120));
+    metrics.recordRequest("GET", "/rest/api/content", 429, TimeUnit.MILLISECONDS.toNanos(5));
+    metrics.recordRender("Context", TimeUnit.MILLISECONDS.toNanos(2500));
+    metrics.recordImage("uploaded", 2048);
+    metrics.recordImage("cached", 0);
+    return metrics;
+  }
+
+  @Test
+  void testSummaryTable() {
+    String summary = recordedMetrics().summary();
+    logger.info("Summary:\n{}", summary);
+
+    assertTrue(summary.contains("load"));
+    assertTrue(summary.matches("(?s).*POST /api/v2/pages\\s+200\\s+2 .*"));
+    assertTrue(summary.matches("(?s).*GET /rest/api/content\\s+429\\s+1 .*"));
+    assertTrue(summary.contains("1 views rendered"));
+    assertTrue(summary.contains("1 cached, 1 uploaded, 2.0 KiB uploaded"));
+
+    assertEquals("", new ExportMetrics().summary(), "Nothing recorded, nothing printed");
+    ExportMetrics.disabled().recordPhase("load", 1);
+    assertEquals("", ExportMetrics.disabled().summary());
+    logger.info("✅ Metrics summarised as a table");
+  }
+
+  @Test
+  void testPrometheusAndJsonFiles(@TempDir Path tempDir) throws Exception {
+    ExportMetrics metrics = recordedMetrics();
+
+    Path prometheus = tempDir.resolve("metrics.prom");
+    metrics.write(prometheus);
+    String text = Files.readString(prometheus);
+    assertTrue(text.contains("export_phase_seconds_count{phase=\"load\"} 1"));
+    assertTrue(text.contains("confluence_requests_seconds_count{endpoint=\"/api/v2/pages\""));
+    assertTrue(text.contains("images_uploaded_bytes_total 2048"));
+
+    Path json = tempDir.resolve("metrics.json");
+    metrics.write(json);
+    JsonNode meters = new ObjectMapper().readTree(json.toFile()).get("meters");
+    JsonNode load = null;
+    for (JsonNode meter : meters) {
+      if (meter.get("name").asText().equals(ExportMetrics.PHASE)
+          && meter.get("tags").get("phase").asText().equals("load")) {
+        load = meter;
+      }
+    }
+    assertNotNull(load);
+    assertEquals(1, load.get("measurements").get("count").asInt());
+    assertEquals(1.2, load.get("measurements").get("total_time").asDouble(), 0.001);
+    logger.info("✅ Metrics written as Prometheus text and JSON");
+  }
+
+  @Test
+  void testExportRequestsRecorded(@TempDir Path tempDir) throws Exception {
+    ExportMetrics metrics = new ExportMetrics();
+    try (FakeConfluenceServer server = new FakeConfluenceServer()) {
+      OfflineExport.run(server, tempDir, exporter -> exporter.setMetrics(metrics));
+
+      MeterRegistry registry = metrics.getRegistry();
+      assertEquals(
+          server.getRequestCount(),
+          registry.find(ExportMetrics.REQUESTS).timers().stream().mapToLong(Timer::count).sum(),
+          "Every request recorded");
+    }
+    MeterRegistry registry = metrics.getRegistry();
+    assertNotNull(
+        registry
+            .find(ExportMetrics.REQUESTS)
+            .tags("method", "POST", "endpoint", "/api/v2/pages")
+            .timer());
+    assertNotNull(registry.find(ExportMetrics.PHASE).tag("phase", "convert").timer());
+    assertTrue(registry.find(ExportMetrics.IMAGES).tag("result", "uploaded").counter().count() > 0);
+    assertTrue(metrics.summary().contains("/api/v2/pages/{id}"));
+    logger.info("✅ Requests, phases and images of an export recorded");
+  }
+}
@@ -0,0 +1,32 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the conversion of inline HTML fragments to ADF inline nodes. */
+class AdfInlineHtmlTest {
+  private static final Logger logger = LoggerFactory.getLogger(AdfInlineHtmlTest.class);
+
+  @Test
+  void testMultiLineCommentsStripped() {
+    ArrayNode target = new ObjectMapper().createArrayNode();
+    AdfInlineHtml.append(
+        "before <!-- first line\n<b>second</b> line --><strong>after</strong>",
+        List.of(),
+        target,
+        new ArrayList<>());
+
+    assertEquals(2, target.size(), target.toString());
+    assertEquals("before ", target.get(0).get("text").asText());
+    assertEquals("after", target.get(1).get("text").asText());
+    assertEquals("strong", target.get(1).get("marks").get(0).get("type").asText());
+    logger.info("✅ Multi-line HTML comments stripped");
+  }
+}
@@ -0,0 +1,94 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the single-scan AsciiDoc preprocessor. */
+class AsciiDocPreprocessorTest {
+  private static final Logger logger = LoggerFactory.getLogger(AsciiDocPreprocessorTest.class);
+
+  private static final String SAMPLE =
+      "ifndef::imagesdir[:imagesdir: ../images]\n"
+          + "[[section-context]]\n"
+          + "== Context and Scope\n\n"
+          + "The *system* talks to https://example.com[partners].\n\n"
+          + "image::embed:SystemContext[]\n\n"
+          + "[cols=\"1,2\",options=\"header\"]\n|===\n| A | B\n| include::x.adoc[] | y\n|===\n\n"
+          + "NOTE: image::embed:Containers[] inline\n"
+          + "include::shared/glossary.adoc[]\n"
+          + "ifndef::backend-pdf[\nShown outside PDF.\n]\n"
+          + "include::multi\nline.adoc[]\n";
+
+  @Test
+  void testRewritesEmbeds() {
+    String adoc =
+        "== Context\n\nimage::embed:SystemContext[]\n\nText\nimage::embed:Containers[]\n"
+            + "image::embed:SystemContext[]";
+
+    List<String> viewKeys = new ArrayList<>();
+    String processed =
+        AsciiDocPreprocessor.process(
+            adoc,
+            key -> {
+              viewKeys.add(key);
+              return "local:diagram:" + key;
+            });
+
+    assertEquals(
+        "== Context\n\nimage::local:diagram:SystemContext[]\n\nText\n"
+            + "image::local:diagram:Containers[]\nimage::local:diagram:SystemContext[]",
+        processed);
+    assertEquals(List.of("SystemContext", "Containers", "SystemContext"), viewKeys);
+
+    logger.info("✅ Embeds rewritten in document order");
+  }
+
+  @Test
+  void testIncludeAndIfndefHandling() {
+    String adoc =
+        "ifndef::imagesdir[:imagesdir: ../images]\n"
+            + "include::chapters/intro.adoc[]\n"
+            + "Keep image::other.png[] and a::b\n";
+
+    String processed = AsciiDocPreprocessor.process(adoc, key -> key);
+
+    assertEquals("\n[INCLUDE: chapters/intro.adoc]\nKeep image::other.png[] and a::b\n", processed);
+    logger.info("✅ include and ifndef directives handled in the same pass");
+  }
+
+  @Test
+  void testMatchesPreviousRegexBehaviour() {
+    String adoc = SAMPLE;
+
+    String expected =
+        adoc.replaceAll("image::embed:([a-zA-Z0-9_-]+)\\[\\]", "image::local:diagram:$1[]")
+            .replaceAll("include::([^\\[]+)\\[\\]", "[INCLUDE: $1]")
+            .replaceAll("ifndef::([^\\[]+)\\[([^\\]]+)\\]", "");
+
+    assertEquals(expected, AsciiDocPreprocessor.process(adoc, key -> "local:diagram:" + key));
+    logger.info("✅ Single scan output identical to the chained replaceAll calls");
+  }
+
+  @Test
+  void testMultiLineIfndefRemoved() {
+    String processed =
+        AsciiDocPreprocessor.process(
+            "Before\nifndef::backend-pdf[\nShown outside PDF.\n]\nAfter\n", key -> key);
+
+    assertEquals("Before\n\nAfter\n", processed);
+    logger.info("✅ ifndef directives spanning lines removed");
+  }
+
+  @Test
+  void testEmptyContent() {
+    assertEquals("", AsciiDocPreprocessor.process(null, key -> key));
+    assertEquals("", AsciiDocPreprocessor.process("", key -> key));
+
+    logger.info("✅ Empty content preprocessed");
+  }
+}
@@ -0,0 +1,268 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.structurizr.Workspace;
+import com.structurizr.documentation.Section;
+import com.structurizr.util.WorkspaceUtils;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the direct AsciiDoc document tree to ADF conversion. */
+class AsciiDocToAdfConverterTest {
+  private static final Logger logger = LoggerFactory.getLogger(AsciiDocToAdfConverterTest.class);
+
+  private static AsciiDocConverter asciiDocConverter;
+  private static AsciiDocToAdfConverter converter;
+
+  @BeforeAll
+  static void setUp() {
+    asciiDocConverter = new AsciiDocConverter();
+    converter = new AsciiDocToAdfConverter(asciiDocConverter);
+  }
+
+  @AfterAll
+  static void tearDown() {
+    asciiDocConverter.close();
+  }
+
+  @Test
+  void testHeaderTitleAndSections() {
+    String adoc = "= Document Title\n\nIntro *bold* and _em_.\n\n== Section\n\n=== Sub\n\nText.\n";
+
+    AsciiDocToAdfConverter.Loaded document = converter.load(adoc, "fallback", null, null);
+    assertEquals("Document Title", converter.extractTitle(document));
+
+    JsonNode content = converter.convertToAdfNode(document, "fallback").get("content");
+    assertEquals("paragraph", content.get(0).get("type").asText());
+    assertEquals("bold", content.get(0).get("content").get(1).get("text").asText());
+    assertEquals(
+        "strong", content.get(0).get("content").get(1).get("marks").get(0).get("type").asText());
+    assertEquals("heading", content.get(1).get("type").asText());
+    assertEquals(2, content.get(1).get("attrs").get("level").asInt());
+    assertEquals(3, content.get(2).get("attrs").get("level").asInt());
+
+    logger.info("✅ Header title extracted and sections mapped to headings");
+  }
+
+  @Test
+  void testNoHeaderMeansNoTitle() {
+    AsciiDocToAdfConverter.Loaded document =
+        converter.load("== Introduction\n\nText.\n", "fallback", null, null);
+    assertNull(converter.extractTitle(document));
+    logger.info("✅ Documents without header have no extracted title");
+  }
+
+  @Test
+  void testTableKeepsTypedCells() {
+    String adoc =
+        ".Quality goals\n"
+            + "[cols=\"1,2e\",options=\"header\"]\n"
+            + "|===\n"
+            + "| Goal | Scenario\n"
+            + "| Performance | Fast *enough*\n"
+            + "2+| Spanning cell\n"
+            + "|===\n";
+
+    JsonNode content = converter.convertToAdfNode(adoc, "Table", null, null).get("content");
+    assertEquals("paragraph", content.get(0).get("type").asText(), "Caption before table");
+    assertTrue(content.get(0).toString().contains("Quality goals"));
+
+    JsonNode table = content.get(1);
+    assertEquals("table", table.get("type").asText());
+    assertEquals(3, table.get("content").size());
+    assertEquals(
+        "tableHeader", table.get("content").get(0).get("content").get(0).get("type").asText());
+
+    JsonNode emphasisCell = table.get("content").get(1).get("content").get(1);
+    assertEquals("tableCell", emphasisCell.get("type").asText());
+    JsonNode firstText = emphasisCell.get("content").get(0).get("content").get(0);
+    assertEquals("em", firstText.get("marks").get(0).get("type").asText());
+
+    JsonNode spanning = table.get("content").get(2).get("content").get(0);
+    assertEquals(2, spanning.get("attrs").get("colspan").asInt());
+
+    logger.info("✅ Table converted with header, styled and spanning cells");
+  }
+
+  @Test
+  void testAdmonitionBecomesPanel() {
+    JsonNode content =
+        converter
+            .convertToAdfNode("WARNING: Handle with care.\n", "Admonition", null, null)
+            .get("content");
+    assertEquals("panel", content.get(0).get("type").asText());
+    assertEquals("warning", content.get(0).get("attrs").get("panelType").asText());
+    assertEquals(
+        "Handle with care.",
+        content.get(0).get("content").get(0).get("content").get(0).get("text").asText());
+
+    logger.info("✅ Admonition converted to ADF panel");
+  }
+
+  @Test
+  void testListsCodeAndLinks() {
+    String adoc =
+        "* one\n* two with https://example.com[link]\n** nested\n\n"
+            + "//-\n. first\n. second\n\n"
+            + "//-\n* [x] done\n* [ ] todo\n\n"
+            + "[source,java]\n----\nclass A {}\n----\n";
+    JsonNode content = converter.convertToAdfNode(adoc, "Lists", null, null).get("content");
+
+    assertEquals("bulletList", content.get(0).get("type").asText());
+    JsonNode second = content.get(0).get("content").get(1);
+    assertEquals("bulletList", second.get("content").get(1).get("type").asText());
+    assertTrue(second.toString().contains("\"href\":\"https://example.com\""));
+    assertEquals("orderedList", content.get(1).get("type").asText());
+    assertEquals("taskList", content.get(2).get("type").asText());
+    assertEquals("DONE", content.get(2).get("content").get(0).get("attrs").get("state").asText());
+    assertEquals("codeBlock", content.get(3).get("type").asText());
+    assertEquals("java", content.get(3).get("attrs").get("language").asText());
+    assertEquals("class A {}", content.get(3).get("content").get(0).get("text").asText());
+
+    logger.info("✅ Lists, checklists, links and source blocks converted");
+  }
+
+  @Test
+  void testTaskIdsStayUniqueAcrossMergedSections() {
+    String checklist = "* [ ] first\n* [x] second\n";
+    ArrayNode page = JsonNodeFactory.instance.arrayNode();
+    page.addAll(
+        (ArrayNode) converter.convertToAdfNode(checklist, "Section 1", null, null).get("content"));
+    page.addAll(
+        (ArrayNode) converter.convertToAdfNode(checklist, "Section 2", null, null).get("content"));
+
+    Set<String> localIds = new HashSet<>();
+    for (JsonNode taskList : page) {
+      assertTrue(localIds.add(taskList.get("attrs").get("localId").asText()));
+      for (JsonNode taskItem : taskList.get("content")) {
+        assertTrue(localIds.add(taskItem.get("attrs").get("localId").asText()));
+      }
+    }
+    assertEquals(6, localIds.size());
+
+    logger.info("✅ Task IDs unique across merged sections");
+  }
+
+  @Test
+  void testChecklistKeepsImagesAndNestedBlocks() {
+    AsciiDocToAdfConverter resolving = new AsciiDocToAdfConverter(asciiDocConverter);
+    List<String> resolved = new ArrayList<>();
+    resolving.setDiagramResolver(
+        key -> {
+          resolved.add(key);
+          return null;
+        });
+    String adoc =
+        "* [ ] review image:embed:SystemContext[]\n"
+            + "** plain note\n"
+            + "* [x] write it down\n"
+            + "+\n"
+            + "----\nnotes\n----\n";
+    JsonNode content = resolving.convertToAdfNode(adoc, "Checklist", null, null).get("content");
+
+    JsonNode items = content.get(0).get("content");
+    assertEquals("taskItem", items.get(0).get("type").asText());
+    assertEquals("bulletList", items.get(1).get("type").asText());
+    assertTrue(items.get(1).toString().contains("plain note"));
+    assertEquals("DONE", items.get(2).get("attrs").get("state").asText());
+
+    assertEquals(List.of("SystemContext"), resolved);
+    assertTrue(content.get(1).toString().contains("Diagram not found: SystemContext"));
+    assertEquals("codeBlock", content.get(2).get("type").asText());
+
+    logger.info("✅ Checklist images and nested blocks kept");
+  }
+
+  @Test
+  void testEmbedDiagramWithoutResolverFallsBackToText() {
+    JsonNode content =
+        converter
+            .convertToAdfNode("image::embed:SystemContext[]\n", "Diagram", null, null)
+            .get("content");
+    assertEquals("paragraph", content.get(0).get("type").asText());
+    assertTrue(content.get(0).toString().contains("SystemContext"));
+
+    logger.info("✅ embed: image macro resolved as a diagram reference");
+  }
+
+  @Test
+  void testImagesResolvedAfterTheDocumentIsReleased() {
+    AsciiDocToAdfConverter resolving = new AsciiDocToAdfConverter(asciiDocConverter);
+    List<String> resolved = new ArrayList<>();
+    resolving.setDiagramResolver(
+        key -> {
+          resolved.add(key);
+          return null;
+        });
+
+    AsciiDocToAdfConverter.Loaded document =
+        resolving.load("Intro.\n\nimage::embed:SystemContext[]\n", "Diagram", null, null);
+    assertTrue(resolved.isEmpty(), "No image resolved while the document is borrowed");
+
+    JsonNode content = resolving.convertToAdfNode(document, "Diagram").get("content");
+    assertEquals(List.of("SystemContext"), resolved);
+    assertEquals("paragraph", content.get(1).get("type").asText());
+    assertTrue(content.get(1).toString().contains("Diagram not found: SystemContext"));
+
+    logger.info("✅ Images resolved after the document is released");
+  }
+
+  @Test
+  void testExternalImagesPrefetchedBeforeResolving() throws Exception {
+    ImageUploadManager uploadManager = mock(ImageUploadManager.class);
+    when(uploadManager.downloadAndUploadImage(any(String.class), eq("42"))).thenReturn("a.png");
+    AsciiDocToAdfConverter resolving = new AsciiDocToAdfConverter(asciiDocConverter);
+    resolving.setImageUploadManager(uploadManager);
+    resolving.setCurrentPageId("42");
+
+    resolving.convertToAdfNode(
+        "image::https://example.com/a.png[]\n\nText image:https://example.com/b.png[b].\n",
+        "Images",
+        null,
+        null);
+
+    InOrder inOrder = inOrder(uploadManager);
+    inOrder
+        .verify(uploadManager)
+        .prefetchImages(Set.of("https://example.com/a.png", "https://example.com/b.png"), "42");
+    inOrder.verify(uploadManager).downloadAndUploadImage("https://example.com/a.png", "42");
+    inOrder.verify(uploadManager).downloadAndUploadImage("https://example.com/b.png", "42");
+
+    logger.info("✅ External images prefetched before being resolved");
+  }
+
+  @Test
+  void testDemoWorkspaceSectionsConvert() throws Exception {
+    File demo = new File("demo/itms-workspace.json");
+    if (!demo.exists()) {
+      logger.warn("Demo workspace not found, skipping");
+      return;
+    }
+    Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(demo);
+    for (Section section : workspace.getDocumentation().getSections()) {
+      ObjectNode doc =
+          converter.convertToAdfNode(section.getContent(), section.getFilename(), null, null);
+      assertTrue(doc.get("content").size() > 0, "Section should produce content");
+    }
+    logger.info("✅ All demo sections converted from the AsciiDoc tree");
+  }
+}
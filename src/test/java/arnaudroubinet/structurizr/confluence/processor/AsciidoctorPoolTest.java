@@ -0,0 +1,147 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.asciidoctor.Asciidoctor;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for lazy creation, warm-up and pooling of Asciidoctor instances. */
+class AsciidoctorPoolTest {
+  private static final Logger logger = LoggerFactory.getLogger(AsciidoctorPoolTest.class);
+
+  private final AtomicInteger created = new AtomicInteger();
+  private final List<Asciidoctor> instances = new ArrayList<>();
+
+  private synchronized Asciidoctor newInstance() {
+    created.incrementAndGet();
+    Asciidoctor asciidoctor = mock(Asciidoctor.class);
+    instances.add(asciidoctor);
+    return asciidoctor;
+  }
+
+  @Test
+  void testNothingCreatedUntilFirstUse() {
+    AsciidoctorPool pool = new AsciidoctorPool(2, this::newInstance);
+    assertEquals(0, created.get());
+    assertEquals(0, pool.size());
+
+    pool.execute(asciidoctor -> "first");
+    pool.execute(asciidoctor -> "second");
+    assertEquals(1, created.get(), "Sequential conversions should reuse one instance");
+
+    logger.info("✅ Asciidoctor instances are created lazily and reused");
+  }
+
+  @Test
+  void testConverterIsLazy() {
+    AsciiDocConverter converter = new AsciiDocConverter();
+    assertFalse(converter.isInitialized(), "Constructor must not boot JRuby");
+    converter.close();
+    logger.info("✅ AsciiDocConverter constructor does not create Asciidoctor");
+  }
+
+  @Test
+  void testWarmUpCreatesInBackgroundAndIsReused() throws Exception {
+    AsciidoctorPool pool = new AsciidoctorPool(2, this::newInstance);
+
+    pool.warmUp().get(5, TimeUnit.SECONDS);
+    pool.warmUp().get(5, TimeUnit.SECONDS);
+    assertEquals(1, created.get(), "Warm-up should only create one instance");
+
+    Asciidoctor used = pool.execute(asciidoctor -> asciidoctor);
+    assertSame(instances.get(0), used, "First conversion should use the warmed-up instance");
+    assertEquals(1, created.get());
+
+    logger.info("✅ Warm-up instance is reused by the first conversion");
+  }
+
+  @Test
+  void testConcurrentConversionsUseSeparateInstancesUpToMax() throws Exception {
+    AsciidoctorPool pool = new AsciidoctorPool(2, this::newInstance);
+    CountDownLatch bothRunning = new CountDownLatch(2);
+    Set<Asciidoctor> seen = ConcurrentHashMap.newKeySet();
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        futures.add(
+            executor.submit(
+                () ->
+                    pool.execute(
+                        asciidoctor -> {
+                          seen.add(asciidoctor);
+                          bothRunning.countDown();
+                          try {
+                            bothRunning.await(5, TimeUnit.SECONDS);
+                          } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                          }
+                          return null;
+                        })));
+      }
+      for (Future<?> future : futures) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(2, created.get(), "Pool should not exceed its maximum size");
+    assertEquals(2, seen.size(), "Concurrent conversions should not share an instance");
+
+    logger.info("✅ Concurrent conversions are spread over the pool");
+  }
+
+  @Test
+  void testWarmUpErrorDoesNotBlockBorrowersOrClose() throws Exception {
+    AsciidoctorPool pool =
+        new AsciidoctorPool(
+            1,
+            () -> {
+              throw new NoClassDefFoundError("org/jruby/Ruby");
+            });
+    CompletableFuture<Void> warmUp = pool.warmUp();
+    ExecutionException failure =
+        assertThrows(ExecutionException.class, () -> warmUp.get(5, TimeUnit.SECONDS));
+    assertInstanceOf(NoClassDefFoundError.class, failure.getCause());
+    assertEquals(0, pool.size(), "Failed creation releases its slot");
+
+    assertTimeoutPreemptively(
+        Duration.ofSeconds(5),
+        () -> {
+          assertThrows(NoClassDefFoundError.class, () -> pool.execute(asciidoctor -> "x"));
+          pool.close();
+        });
+    logger.info("✅ Warm-up errors reach borrowers and close");
+  }
+
+  @Test
+  void testCloseReleasesInstances() {
+    AsciidoctorPool pool = new AsciidoctorPool(1, this::newInstance);
+    pool.execute(asciidoctor -> null);
+    pool.close();
+
+    verify(instances.get(0)).close();
+    assertThrows(IllegalStateException.class, () -> pool.execute(asciidoctor -> null));
+
+    logger.info("✅ Closing the pool closes created instances");
+  }
+}
@@ -0,0 +1,49 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the leases of the shared browser pool. Browsers are never launched here. */
+class BrowserPoolTest {
+  private static final Logger logger = LoggerFactory.getLogger(BrowserPoolTest.class);
+
+  @Test
+  void testLeaseWaitsForFreeBrowser() throws Exception {
+    try (BrowserPool pool = new BrowserPool(1)) {
+      BrowserPool.Lease first = pool.acquire().get(1, TimeUnit.SECONDS);
+      CompletableFuture<BrowserPool.Lease> second = pool.acquire();
+      assertFalse(second.isDone(), "Only one browser in the pool");
+
+      first.close();
+      first.close();
+      BrowserPool.Lease next = second.get(1, TimeUnit.SECONDS);
+      assertSame(first.executor(), next.executor(), "The same browser is handed over");
+
+      CompletableFuture<BrowserPool.Lease> third = pool.acquire();
+      assertFalse(third.isDone(), "Closing a lease twice does not free two browsers");
+      next.close();
+      third.get(1, TimeUnit.SECONDS).close();
+    }
+
+    logger.info("✅ Leases wait for a free browser and hand it over");
+  }
+
+  @Test
+  void testCloseFailsWaitingLeases() throws Exception {
+    BrowserPool pool = new BrowserPool(1);
+    pool.acquire().get(1, TimeUnit.SECONDS);
+    CompletableFuture<BrowserPool.Lease> waiting = pool.acquire();
+
+    pool.close();
+
+    assertThrows(CompletionException.class, waiting::join);
+    assertThrows(CompletionException.class, () -> pool.acquire().join());
+    logger.info("✅ Closing the pool fails pending and new leases");
+  }
+}
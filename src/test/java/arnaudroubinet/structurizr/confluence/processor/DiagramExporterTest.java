@@ -2,6 +2,9 @@ package arnaudroubinet.structurizr.confluence.processor;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import javax.imageio.ImageIO;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -65,4 +68,17 @@ class DiagramExporterTest {
 
     logger.info("✅ Output directory handling validated");
   }
+
+  @Test
+  void testPngPixelsReadFromHeader() throws Exception {
+    BufferedImage image = new BufferedImage(30, 20, BufferedImage.TYPE_INT_RGB);
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", png);
+
+    assertEquals(600, DiagramExporter.pngPixels(png.toByteArray()));
+    assertEquals(0, DiagramExporter.pngPixels(new byte[] {1, 2, 3}));
+    assertEquals(0, DiagramExporter.pngPixels(null));
+
+    logger.info("✅ Diagram size read from the PNG header");
+  }
 }
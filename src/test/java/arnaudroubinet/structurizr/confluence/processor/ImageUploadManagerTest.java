@@ -5,6 +5,13 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import arnaudroubinet.structurizr.confluence.client.ConfluenceClient;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -137,4 +144,80 @@ class ImageUploadManagerTest {
 
     logger.info("✅ Image handling with upload manager working correctly");
   }
+
+  @Test
+  void testConcurrentRequestsUploadOnce() throws Exception {
+    when(confluenceClient.downloadImage(anyString()))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(100);
+              return new byte[] {1, 2, 3, 4};
+            });
+    when(confluenceClient.uploadAttachment(
+            anyString(), anyString(), any(byte[].class), anyString()))
+        .thenReturn("attachment-123");
+
+    String url = "https://example.com/shared.png";
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> filenames = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        filenames.add(
+            executor.submit(() -> imageUploadManager.downloadAndUploadImage(url, "page-1")));
+      }
+      for (Future<String> filename : filenames) {
+        assertEquals("shared.png", filename.get(10, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    verify(confluenceClient, times(1)).downloadImage(url);
+    verify(confluenceClient, times(1))
+        .uploadAttachment(eq("page-1"), eq("shared.png"), any(byte[].class), anyString());
+    logger.info("✅ Concurrent requests of the same image upload it once");
+  }
+
+  @Test
+  void testPrefetchedImagesResolvedWithoutNewDownload() throws Exception {
+    when(confluenceClient.downloadImage(anyString())).thenReturn(new byte[] {1, 2, 3, 4});
+    when(confluenceClient.uploadAttachmentDetailed(
+            anyString(), anyString(), any(byte[].class), anyString()))
+        .thenAnswer(
+            invocation ->
+                new ConfluenceClient.AttachmentDetails(
+                    "att-" + invocation.getArgument(1),
+                    invocation.getArgument(1),
+                    "file-" + invocation.getArgument(1),
+                    "contentId-page-1"));
+
+    List<String> urls = List.of("https://example.com/a.png", "https://example.com/b.png");
+    imageUploadManager.prefetchImages(urls, "page-1");
+    for (String url : urls) {
+      imageUploadManager.downloadAndUploadImage(url, "page-1");
+      assertEquals(
+          "file-" + imageUploadManager.extractFilenameFromUrl(url),
+          imageUploadManager.getMediaInfo(url).fileId());
+      verify(confluenceClient, times(1)).downloadImage(url);
+    }
+    verify(confluenceClient, never()).uploadAttachment(any(), any(), any(), any());
+    logger.info("✅ Prefetched images resolved without a new download");
+  }
+
+  @Test
+  void testFailedUploadRetried() throws Exception {
+    String url = "https://example.com/flaky.png";
+    when(confluenceClient.downloadImage(url))
+        .thenThrow(new IOException("connection reset"))
+        .thenReturn(new byte[] {1, 2, 3, 4});
+    when(confluenceClient.uploadAttachment(
+            anyString(), anyString(), any(byte[].class), anyString()))
+        .thenReturn("attachment-123");
+
+    assertThrows(IOException.class, () -> imageUploadManager.downloadAndUploadImage(url, "p"));
+    assertNull(imageUploadManager.getMediaInfo(url), "Failed uploads are not cached");
+    assertEquals("flaky.png", imageUploadManager.downloadAndUploadImage(url, "p"));
+    verify(confluenceClient, times(2)).downloadImage(url);
+    logger.info("✅ Failed upload retried on the next request");
+  }
 }
@@ -0,0 +1,292 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the direct Markdown AST to ADF conversion. */
+class MarkdownToAdfConverterTest {
+  private static final Logger logger = LoggerFactory.getLogger(MarkdownToAdfConverterTest.class);
+
+  private final MarkdownToAdfConverter converter = new MarkdownToAdfConverter();
+
+  @Test
+  void testTitleIsExtractedAndRemoved() {
+    String markdown = "# My Title\n\nSome text.\n\n## Sub section\n";
+
+    assertEquals("My Title", converter.extractTitle(markdown));
+
+    ObjectNode doc = converter.convertToAdfNode(markdown, "fallback");
+    JsonNode content = doc.get("content");
+    assertEquals("doc", doc.get("type").asText());
+    assertEquals(2, content.size());
+    assertEquals("paragraph", content.get(0).get("type").asText());
+    assertEquals("heading", content.get(1).get("type").asText());
+    assertEquals(2, content.get(1).get("attrs").get("level").asInt());
+
+    logger.info("✅ First H1 used as title and removed from body");
+  }
+
+  @Test
+  void testInlineMarks() {
+    ObjectNode doc =
+        converter.convertToAdfNode(
+            "A **bold**, *em*, ~~struck~~, `code` and [link](https://example.com).", "Marks");
+    JsonNode inline = doc.get("content").get(0).get("content");
+
+    assertEquals("strong", markOf(inline, "bold"));
+    assertEquals("em", markOf(inline, "em"));
+    assertEquals("strike", markOf(inline, "struck"));
+    assertEquals("code", markOf(inline, "code"));
+    assertEquals("link", markOf(inline, "link"));
+    assertEquals(
+        "https://example.com",
+        findText(inline, "link").get("marks").get(0).get("attrs").get("href").asText());
+
+    logger.info("✅ Inline marks converted natively");
+  }
+
+  @Test
+  void testTable() {
+    String markdown = "| Name | Value |\n|------|-------|\n| **a** | 1 |\n| b | 2 |\n";
+    JsonNode table = converter.convertToAdfNode(markdown, "Table").get("content").get(0);
+
+    assertEquals("table", table.get("type").asText());
+    assertEquals(3, table.get("content").size());
+    JsonNode headerRow = table.get("content").get(0);
+    assertEquals("tableHeader", headerRow.get("content").get(0).get("type").asText());
+    JsonNode bodyCell = table.get("content").get(1).get("content").get(0);
+    assertEquals("tableCell", bodyCell.get("type").asText());
+    JsonNode cellText = bodyCell.get("content").get(0).get("content").get(0);
+    assertEquals("a", cellText.get("text").asText());
+    assertEquals("strong", cellText.get("marks").get(0).get("type").asText());
+
+    logger.info("✅ Table converted with header row and formatted cells");
+  }
+
+  @Test
+  void testListsAndTaskLists() {
+    String markdown = "- one\n- two\n  1. nested\n\n3. three\n4. four\n\n- [x] done\n- [ ] todo\n";
+    JsonNode content = converter.convertToAdfNode(markdown, "Lists").get("content");
+
+    assertEquals("bulletList", content.get(0).get("type").asText());
+    JsonNode nested = content.get(0).get("content").get(1).get("content").get(1);
+    assertEquals("orderedList", nested.get("type").asText());
+
+    assertEquals("orderedList", content.get(1).get("type").asText());
+    assertEquals(3, content.get(1).get("attrs").get("order").asInt());
+
+    JsonNode taskList = content.get(2);
+    assertEquals("taskList", taskList.get("type").asText());
+    assertEquals("DONE", taskList.get("content").get(0).get("attrs").get("state").asText());
+    assertEquals("TODO", taskList.get("content").get(1).get("attrs").get("state").asText());
+    assertEquals("done", taskList.get("content").get(0).get("content").get(0).get("text").asText());
+
+    logger.info("✅ Bullet, ordered and task lists converted");
+  }
+
+  @Test
+  void testPlainListsNestedInTaskListsStayPlain() {
+    String markdown = "- [ ] task one\n  - plain note\n- [x] task two\n\n* [ ] mixed\n* plain\n";
+    JsonNode content = converter.convertToAdfNode(markdown, "Nested lists").get("content");
+
+    JsonNode taskList = content.get(0);
+    assertEquals("taskList", taskList.get("type").asText());
+    JsonNode items = taskList.get("content");
+    assertEquals(3, items.size());
+    assertEquals("taskItem", items.get(0).get("type").asText());
+    assertEquals("task one", items.get(0).get("content").get(0).get("text").asText());
+    assertEquals("bulletList", items.get(1).get("type").asText());
+    JsonNode note = items.get(1).get("content").get(0);
+    assertEquals("listItem", note.get("type").asText());
+    assertEquals(
+        "plain note", note.get("content").get(0).get("content").get(0).get("text").asText());
+    assertEquals("DONE", items.get(2).get("attrs").get("state").asText());
+
+    JsonNode mixed = content.get(1);
+    assertEquals("bulletList", mixed.get("type").asText());
+    JsonNode firstParagraph = mixed.get("content").get(0).get("content").get(0);
+    assertEquals("[ ] ", firstParagraph.get("content").get(0).get("text").asText());
+    assertEquals("mixed", firstParagraph.get("content").get(1).get("text").asText());
+
+    logger.info("✅ Plain lists stay plain next to task items");
+  }
+
+  @Test
+  void testTaskIdsStayUniqueAcrossMergedSections() {
+    String checklist = "- [ ] first\n- [x] second\n";
+    ArrayNode page = JsonNodeFactory.instance.arrayNode();
+    page.addAll((ArrayNode) converter.convertToAdfNode(checklist, "Section 1").get("content"));
+    page.addAll((ArrayNode) converter.convertToAdfNode(checklist, "Section 2").get("content"));
+
+    Set<String> localIds = new HashSet<>();
+    for (JsonNode taskList : page) {
+      assertTrue(localIds.add(taskList.get("attrs").get("localId").asText()));
+      for (JsonNode taskItem : taskList.get("content")) {
+        assertTrue(localIds.add(taskItem.get("attrs").get("localId").asText()));
+      }
+    }
+    assertEquals(6, localIds.size());
+
+    logger.info("✅ Task IDs unique across merged sections");
+  }
+
+  @Test
+  void testHtmlBlockGoesThroughHtmlConverter() {
+    String markdown = "Intro\n\n<ul>\n<li>html item</li>\n</ul>\n\nOutro\n";
+    JsonNode content = converter.convertToAdfNode(markdown, "Html block").get("content");
+
+    assertEquals(3, content.size());
+    assertEquals("paragraph", content.get(0).get("type").asText());
+    JsonNode list = content.get(1);
+    assertEquals("bulletList", list.get("type").asText());
+    assertTrue(list.toString().contains("html item"));
+    assertEquals("Outro", content.get(2).get("content").get(0).get("text").asText());
+
+    logger.info("✅ Raw HTML blocks converted to ADF blocks");
+  }
+
+  @Test
+  void testInlineHtmlKeepsItsMarks() {
+    String markdown = "Text with <b>bold</b> and <a href=\"https://example.com\">a *link*</a>.\n";
+    JsonNode paragraph = converter.convertToAdfNode(markdown, "Inline html").get("content").get(0);
+    JsonNode inlines = paragraph.get("content");
+
+    assertEquals("Text with ", inlines.get(0).get("text").asText());
+    assertEquals("bold", inlines.get(1).get("text").asText());
+    assertEquals("strong", inlines.get(1).get("marks").get(0).get("type").asText());
+    assertEquals("a ", inlines.get(3).get("text").asText());
+    assertEquals("link", inlines.get(3).get("marks").get(0).get("type").asText());
+    assertEquals(
+        "https://example.com",
+        inlines.get(3).get("marks").get(0).get("attrs").get("href").asText());
+    assertEquals("link", inlines.get(4).get("text").asText());
+    assertEquals(2, inlines.get(4).get("marks").size());
+
+    logger.info("✅ Inline HTML converted to marks");
+  }
+
+  @Test
+  void testCodeBlockQuoteAndRule() {
+    String markdown = "```java\nclass A {}\n```\n\n> quoted\n\n---\n";
+    JsonNode content = converter.convertToAdfNode(markdown, "Blocks").get("content");
+
+    assertEquals("codeBlock", content.get(0).get("type").asText());
+    assertEquals("java", content.get(0).get("attrs").get("language").asText());
+    assertEquals("class A {}", content.get(0).get("content").get(0).get("text").asText());
+    assertEquals("blockquote", content.get(1).get("type").asText());
+    assertEquals("rule", content.get(2).get("type").asText());
+
+    logger.info("✅ Code block, blockquote and rule converted");
+  }
+
+  @Test
+  void testLocalImageBecomesMediaGroup() {
+    JsonNode content =
+        converter
+            .convertToAdfNode("![Architecture](diagram.png \"Overview\")", "Image")
+            .get("content");
+
+    assertEquals(1, content.size(), "Image-only paragraph should be replaced by the media node");
+    JsonNode media = content.get(0).get("content").get(0);
+    assertEquals("mediaGroup", content.get(0).get("type").asText());
+    assertEquals("diagram.png", media.get("attrs").get("collection").asText());
+    assertEquals("Overview", media.get("attrs").get("occurrenceKey").asText());
+
+    logger.info("✅ Local image converted to mediaGroup");
+  }
+
+  @Test
+  void testEmbeddedDiagramIsUploaded(@TempDir Path tempDir) throws Exception {
+    File diagram = Files.createFile(tempDir.resolve("structurizr-1-Context.png")).toFile();
+    ImageUploadManager uploadManager = mock(ImageUploadManager.class);
+    when(uploadManager.uploadLocalFile(any(File.class), eq("42")))
+        .thenReturn("structurizr-1-Context.png");
+    when(uploadManager.getMediaInfo("local:" + diagram.getAbsolutePath()))
+        .thenReturn(
+            new ImageUploadManager.MediaUploadResult(
+                "structurizr-1-Context.png", "file-id", "collection-id"));
+
+    MarkdownToAdfConverter diagramConverter = new MarkdownToAdfConverter();
+    diagramConverter.setImageUploadManager(uploadManager);
+    diagramConverter.setCurrentPageId("42");
+    diagramConverter.setDiagramResolver(key -> "Context".equals(key) ? diagram : null);
+
+    JsonNode content =
+        diagramConverter
+            .convertToAdfNode("Intro text ![](embed:Context)", "Diagram")
+            .get("content");
+
+    assertEquals("paragraph", content.get(0).get("type").asText());
+    assertEquals("mediaSingle", content.get(1).get("type").asText());
+    JsonNode attrs = content.get(1).get("content").get(0).get("attrs");
+    assertEquals("file-id", attrs.get("id").asText());
+    assertEquals("collection-id", attrs.get("collection").asText());
+
+    logger.info("✅ embed: diagram reference uploaded and rendered as mediaSingle");
+  }
+
+  @Test
+  void testExternalImagesPrefetchedBeforeResolving() throws Exception {
+    ImageUploadManager uploadManager = mock(ImageUploadManager.class);
+    when(uploadManager.downloadAndUploadImage(any(String.class), eq("42"))).thenReturn("a.png");
+
+    MarkdownToAdfConverter imageConverter = new MarkdownToAdfConverter();
+    imageConverter.setImageUploadManager(uploadManager);
+    imageConverter.setCurrentPageId("42");
+    imageConverter.convertToAdfNode(
+        "![a](https://example.com/a.png)\n\n![b][logo] ![local](local.png)\n\n"
+            + "[logo]: https://example.com/b.png\n",
+        "Images");
+
+    InOrder inOrder = inOrder(uploadManager);
+    inOrder
+        .verify(uploadManager)
+        .prefetchImages(Set.of("https://example.com/a.png", "https://example.com/b.png"), "42");
+    inOrder.verify(uploadManager).downloadAndUploadImage("https://example.com/a.png", "42");
+    inOrder.verify(uploadManager).downloadAndUploadImage("https://example.com/b.png", "42");
+
+    logger.info("✅ External images prefetched before being resolved");
+  }
+
+  @Test
+  void testConvertToAdfDocument() {
+    assertNotNull(converter.convertToAdf("Some *content*", "Doc"));
+    assertEquals(
+        "{\"version\":1,\"type\":\"doc\",\"content\":[]}", converter.convertToAdfJson("", "Empty"));
+
+    logger.info("✅ Document and JSON outputs available");
+  }
+
+  private static JsonNode findText(JsonNode inline, String text) {
+    for (JsonNode node : inline) {
+      if (text.equals(node.path("text").asText())) {
+        return node;
+      }
+    }
+    fail("Text node not found: " + text);
+    return null;
+  }
+
+  private static String markOf(JsonNode inline, String text) {
+    return findText(inline, text).get("marks").get(0).get("type").asText();
+  }
+}
@@ -0,0 +1,62 @@
+package arnaudroubinet.structurizr.confluence.processor;
+
+import com.structurizr.Workspace;
+import com.structurizr.view.View;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+/**
+ * Diagram exporter writing the same generated PNG for every view instead of rendering them in a
+ * browser, for exports that run offline. The image is noisy so that it does not compress, and its
+ * size stands for a real diagram in bandwidth measurements.
+ */
+public class PrerenderedDiagramExporter extends DiagramExporter {
+
+  private static final byte[] DIAGRAM = generateDiagram(400, 300);
+
+  private final String workspaceId;
+
+  public PrerenderedDiagramExporter(String workspaceId, Path outputDirectory) {
+    super(null, null, null, workspaceId);
+    this.workspaceId = workspaceId;
+    setOutputDirectory(outputDirectory);
+  }
+
+  @Override
+  public List<File> exportDiagrams(Workspace workspace) throws IOException {
+    Files.createDirectories(getOutputDirectory());
+    List<File> files = new ArrayList<>();
+    for (View view : workspace.getViews().getViews()) {
+      Path file =
+          getOutputDirectory().resolve("structurizr-" + workspaceId + "-" + view.getKey() + ".png");
+      Files.write(file, DIAGRAM);
+      files.add(file.toFile());
+    }
+    return files;
+  }
+
+  private static byte[] generateDiagram(int width, int height) {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Random random = new Random(7);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.setRGB(x, y, random.nextInt(0x1000000));
+      }
+    }
+    try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+      ImageIO.write(image, "png", out);
+      return out.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
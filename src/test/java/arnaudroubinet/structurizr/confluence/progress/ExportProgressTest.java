@@ -0,0 +1,89 @@
+package arnaudroubinet.structurizr.confluence.progress;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the export progress counters, their ETA and their display. */
+class ExportProgressTest {
+  private static final Logger logger = LoggerFactory.getLogger(ExportProgressTest.class);
+
+  @AfterEach
+  void stopProgress() {
+    ExportProgress.stop();
+  }
+
+  private static ExportProgress.Snapshot snapshot(
+      long elapsedSeconds, long views, long viewsTotal, long pages, long pagesTotal) {
+    return new ExportProgress.Snapshot(
+        Duration.ofSeconds(elapsedSeconds).toNanos(),
+        Map.of(ExportProgress.Kind.VIEW, viewsTotal, ExportProgress.Kind.PAGE, pagesTotal),
+        Map.of(ExportProgress.Kind.VIEW, views, ExportProgress.Kind.PAGE, pages),
+        4_000_000,
+        Duration.ofSeconds(2).toNanos(),
+        3);
+  }
+
+  @Test
+  void testEtaFromObservedRates() {
+    assertEquals(Duration.ofSeconds(30), snapshot(10, 5, 20, 3, 3).eta(), "Views left");
+    assertEquals(
+        Duration.ofSeconds(90), snapshot(10, 5, 20, 1, 10).eta(), "Slowest kind of work wins");
+    assertNull(snapshot(10, 5, 20, 0, 3).eta(), "No rate before the first page");
+    assertEquals(Duration.ZERO, snapshot(10, 20, 20, 3, 3).eta());
+
+    String line = snapshot(75, 5, 20, 1, 10).line();
+    assertTrue(line.startsWith("views 5/20 | sections 0/0 | attachments 0 (2.0 MB/s)"), line);
+    assertTrue(line.endsWith("| requests 3 | elapsed 01:15 | ETA 11:15"), line);
+    logger.info("✅ ETA computed from observed rates");
+  }
+
+  @Test
+  void testEventsCountedOnlyWhileStarted() {
+    ExportProgress.stop();
+    ExportProgress.expect(ExportProgress.Kind.VIEW, 4);
+    assertFalse(ExportProgress.requestStarted());
+
+    ExportProgress.start();
+    assertEquals(0, ExportProgress.snapshot().expected(ExportProgress.Kind.VIEW));
+    ExportProgress.expect(ExportProgress.Kind.VIEW, 4);
+    ExportProgress.completed(ExportProgress.Kind.VIEW);
+    ExportProgress.attachmentUploaded(1_000, System.nanoTime());
+    assertTrue(ExportProgress.requestStarted());
+    assertTrue(ExportProgress.requestStarted());
+    ExportProgress.requestFinished();
+
+    ExportProgress.Snapshot snapshot = ExportProgress.snapshot();
+    assertEquals(4, snapshot.expected(ExportProgress.Kind.VIEW));
+    assertEquals(1, snapshot.completed(ExportProgress.Kind.VIEW));
+    assertEquals(1, snapshot.completed(ExportProgress.Kind.ATTACHMENT));
+    assertEquals(1_000, snapshot.uploadedBytes());
+    assertEquals(1, snapshot.inFlight());
+    logger.info("✅ Events counted only while progress is started");
+  }
+
+  @Test
+  void testReporterPrintsSummaryLines() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(output, true, StandardCharsets.UTF_8);
+    try (ProgressReporter reporter = ProgressReporter.start(out, false, Duration.ofMillis(20))) {
+      ExportProgress.expect(ExportProgress.Kind.PAGE, 2);
+      Thread.sleep(100);
+      ExportProgress.completed(ExportProgress.Kind.PAGE, 2);
+    }
+    assertFalse(ExportProgress.isEnabled());
+    String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+    assertTrue(lines.length >= 2, "Lines printed at each interval");
+    assertTrue(lines[lines.length - 1].contains("pages 2/2"), "Final counts printed on close");
+    assertNull(ProgressReporter.start(ProgressReporter.Mode.OFF, out));
+    logger.info("✅ Reporter prints summary lines");
+  }
+}
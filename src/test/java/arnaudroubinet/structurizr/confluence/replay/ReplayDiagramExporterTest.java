@@ -0,0 +1,70 @@
+package arnaudroubinet.structurizr.confluence.replay;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.structurizr.Workspace;
+import com.structurizr.model.SoftwareSystem;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for recording rendered diagrams to a traffic archive and replaying them. */
+class ReplayDiagramExporterTest {
+  private static final Logger logger = LoggerFactory.getLogger(ReplayDiagramExporterTest.class);
+
+  @TempDir Path tempDir;
+
+  private static Workspace workspace() {
+    Workspace workspace = new Workspace("Shop", "");
+    SoftwareSystem shop = workspace.getModel().addSoftwareSystem("Shop", "");
+    workspace.getViews().createSystemContextView(shop, "Context", "").addAllElements();
+    return workspace;
+  }
+
+  private Path archive() throws IOException {
+    Path rendered = Files.createDirectories(tempDir.resolve("rendered"));
+    Path diagram = Files.write(rendered.resolve("structurizr-7-Context.png"), new byte[] {1, 2});
+    Path key = Files.write(rendered.resolve("structurizr-7-Context-key.png"), new byte[] {3});
+    Path other = Files.write(rendered.resolve("structurizr-8-Context.png"), new byte[] {4});
+    Path file = tempDir.resolve("traffic.jsonl.gz");
+    try (HttpArchive archive = HttpArchive.create(file)) {
+      RecordingDiagramExporter.record(archive, List.of(diagram.toFile(), key.toFile()), 0, 10);
+      RecordingDiagramExporter.record(archive, List.of(other.toFile()), 10, 10);
+      Files.write(diagram, new byte[] {5});
+      RecordingDiagramExporter.record(archive, List.of(diagram.toFile()), 20, 10);
+    }
+    return file;
+  }
+
+  @Test
+  void testRecordedDiagramsReplayed() throws Exception {
+    ReplayDiagramExporter exporter = new ReplayDiagramExporter("7", HttpArchive.read(archive()), 0);
+    exporter.setOutputDirectory(tempDir.resolve("replayed"));
+
+    List<File> files = exporter.exportDiagrams(workspace());
+
+    assertEquals(
+        List.of("structurizr-7-Context.png", "structurizr-7-Context-key.png"),
+        files.stream().map(File::getName).toList(),
+        "Only the diagrams of the workspace");
+    assertArrayEquals(new byte[] {5}, Files.readAllBytes(files.get(0).toPath()), "Last render");
+    assertArrayEquals(new byte[] {3}, Files.readAllBytes(files.get(1).toPath()));
+    logger.info("✅ Recorded diagrams replayed without rendering");
+  }
+
+  @Test
+  void testWorkspaceWithoutRecordedDiagramsFails() throws Exception {
+    ReplayDiagramExporter exporter = new ReplayDiagramExporter("9", HttpArchive.read(archive()), 0);
+    exporter.setOutputDirectory(tempDir.resolve("replayed"));
+
+    IOException e = assertThrows(IOException.class, () -> exporter.exportDiagrams(workspace()));
+    assertTrue(e.getMessage().contains("workspace 9"), e.getMessage());
+    logger.info("✅ Replay of a workspace without recorded diagrams fails");
+  }
+}
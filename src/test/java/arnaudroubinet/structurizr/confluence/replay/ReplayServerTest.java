@@ -0,0 +1,158 @@
+package arnaudroubinet.structurizr.confluence.replay;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for recording HTTP traffic through the proxy and replaying it. */
+class ReplayServerTest {
+  private static final Logger logger = LoggerFactory.getLogger(ReplayServerTest.class);
+
+  @TempDir Path tempDir;
+
+  private HttpServer upstream;
+  private final AtomicInteger upstreamRequests = new AtomicInteger();
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+
+  @BeforeEach
+  void startUpstream() throws Exception {
+    upstream = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    upstream.createContext(
+        "/",
+        exchange -> {
+          try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            int count = upstreamRequests.incrementAndGet();
+            byte[] body =
+                (exchange.getRequestMethod() + " " + exchange.getRequestURI() + " #" + count)
+                    .getBytes(StandardCharsets.UTF_8);
+            int status = exchange.getRequestURI().getPath().endsWith("/missing") ? 404 : 200;
+            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            exchange.getResponseHeaders().add("Set-Cookie", "session=secret-cookie");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+              out.write(body);
+            }
+          }
+        });
+    upstream.start();
+  }
+
+  @AfterEach
+  void stopUpstream() {
+    upstream.stop(0);
+  }
+
+  private HttpResponse<String> send(String url, String method, String body) throws Exception {
+    return httpClient.send(
+        HttpRequest.newBuilder(URI.create(url))
+            .header("Authorization", "Basic secret-token")
+            .method(
+                method,
+                body == null
+                    ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofString(body))
+            .build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+
+  private String upstreamUrl() {
+    return "http://127.0.0.1:" + upstream.getAddress().getPort() + "/wiki";
+  }
+
+  @Test
+  void testTrafficRecordedWithoutCredentialsAndReplayed() throws Exception {
+    Path file = tempDir.resolve("traffic.jsonl.gz");
+    try (HttpArchive archive = HttpArchive.create(file);
+        RecordingProxy proxy =
+            new RecordingProxy("confluence", upstreamUrl(), archive, System.nanoTime())) {
+      String base = proxy.proxyUrl(upstreamUrl());
+      assertEquals("GET /wiki/page?id=1 #1", send(base + "/page?id=1", "GET", null).body());
+      assertEquals("GET /wiki/page?id=1 #2", send(base + "/page?id=1", "GET", null).body());
+      assertEquals(
+          "POST /wiki/pages #3", send(base + "/pages", "POST", "{\"title\":\"A\"}").body());
+      assertEquals(404, send(base + "/missing", "GET", null).statusCode());
+    }
+
+    List<HttpArchive.Exchange> exchanges = HttpArchive.read(file);
+    assertEquals(4, exchanges.size());
+    HttpArchive.Exchange post = exchanges.get(2);
+    assertEquals("/wiki/pages", post.uri());
+    assertEquals(13, post.requestBytes());
+    assertFalse(post.requestHash().isEmpty());
+    assertTrue(post.durationNanos() > 0);
+    assertTrue(post.offsetNanos() >= exchanges.get(1).offsetNanos());
+    String content;
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+      content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    assertFalse(content.contains("secret"), "No credentials, cookies or request bodies stored");
+
+    upstream.stop(0);
+    try (ReplayServer replay = new ReplayServer("confluence", exchanges, 0)) {
+      String base = replay.localUrl(upstreamUrl());
+      assertEquals("GET /wiki/page?id=1 #1", send(base + "/page?id=1", "GET", null).body());
+      // A changed body is answered from the same method and path, in recording order
+      assertEquals("POST /wiki/pages #3", send(base + "/pages", "POST", "{}").body());
+      assertEquals("GET /wiki/page?id=1 #2", send(base + "/page?id=1", "GET", null).body());
+      assertEquals("GET /wiki/page?id=1 #2", send(base + "/page?id=1", "GET", null).body());
+      HttpResponse<String> missing = send(base + "/missing", "GET", null);
+      assertEquals(404, missing.statusCode());
+      assertEquals("text/plain", missing.headers().firstValue("Content-Type").orElseThrow());
+      assertEquals(404, send(base + "/unknown", "GET", null).statusCode());
+      assertEquals(5, replay.getServed());
+      assertEquals(1, replay.getMisses());
+    }
+    logger.info("✅ Traffic recorded without credentials and replayed");
+  }
+
+  @Test
+  void testTruncatedArchiveReadUpToLastExchange() throws Exception {
+    Path file = tempDir.resolve("traffic.jsonl.gz");
+    HttpArchive archive = HttpArchive.create(file);
+    for (int i = 0; i < 3; i++) {
+      archive.append(
+          new HttpArchive.Exchange(
+              "structurizr",
+              "GET",
+              "/api/workspace/" + i,
+              "",
+              0,
+              200,
+              Map.of(),
+              new byte[] {1, 2, 3},
+              i,
+              1));
+    }
+    // The archive of an interrupted run has no gzip trailer
+    Path truncated = Files.copy(file, tempDir.resolve("interrupted.jsonl.gz"));
+    archive.close();
+
+    List<HttpArchive.Exchange> exchanges = HttpArchive.read(truncated);
+    assertEquals(3, exchanges.size());
+    assertEquals("/api/workspace/2", exchanges.get(2).uri());
+    assertArrayEquals(new byte[] {1, 2, 3}, exchanges.get(2).body());
+    logger.info("✅ Truncated archive read up to its last exchange");
+  }
+}
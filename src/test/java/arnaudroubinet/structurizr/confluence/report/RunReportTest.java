@@ -0,0 +1,119 @@
+package arnaudroubinet.structurizr.confluence.report;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import arnaudroubinet.structurizr.confluence.client.FakeConfluenceServer;
+import arnaudroubinet.structurizr.confluence.client.OfflineExport;
+import arnaudroubinet.structurizr.confluence.metrics.ExportMetrics;
+import arnaudroubinet.structurizr.confluence.scheduler.ExecutionReport;
+import arnaudroubinet.structurizr.confluence.scheduler.ExportTask;
+import arnaudroubinet.structurizr.confluence.scheduler.TaskGraph;
+import arnaudroubinet.structurizr.confluence.scheduler.TaskType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.test.junit.QuarkusTest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the run report and its JSON and HTML outputs (exports need Quarkus for the REST
+ * client).
+ */
+@QuarkusTest
+class RunReportTest {
+  private static final Logger logger = LoggerFactory.getLogger(RunReportTest.class);
+
+  private RunReport recordedReport() throws Exception {
+    ExportMetrics metrics = new ExportMetrics();
+    metrics.recordRequest("POST", "/api/v2/pages", 200, TimeUnit.MILLISECONDS.toNanos(80));
+    metrics.recordRequest("POST", "/api/v2/pages", 409, TimeUnit.MILLISECONDS.toNanos(20));
+    metrics.recordRequest("GET", "/api/v2/spaces", 200, TimeUnit.MILLISECONDS.toNanos(5));
+    metrics.recordRender("Context", TimeUnit.MILLISECONDS.toNanos(900));
+    metrics.recordRender("Containers", TimeUnit.MILLISECONDS.toNanos(1500));
+    metrics.recordImage("uploaded", 2048);
+    metrics.recordImage("reused", 0);
+    metrics.recordImage("cached", 0);
+    metrics.recordImage("cached", 0);
+
+    RunReport report = new RunReport(metrics);
+    report.recordPage("Architecture", "1", "created", 120, TimeUnit.MILLISECONDS.toNanos(90));
+    report.recordPage("Context", "2", "skipped", 0, 0);
+    report.recordAttachment("1", "context.png", "uploaded", 2048, 1_000_000);
+
+    TaskGraph graph = new TaskGraph();
+    ExportTask page = graph.add("create branch page", TaskType.CREATE_PAGE, () -> {});
+    graph.add("convert section 01-context.md", TaskType.CONVERT_SECTION, () -> {}).after(page);
+    ExecutionReport execution = graph.execute(1);
+    report.recordExport("Shop", "main", execution);
+    return report;
+  }
+
+  @Test
+  void testJsonReport(@TempDir Path tempDir) throws Exception {
+    Path file = tempDir.resolve("report.json");
+    recordedReport().write(file);
+    JsonNode report = new ObjectMapper().readTree(Files.readString(file));
+    logger.info("Report:\n{}", report.toPrettyString());
+
+    assertEquals(2, report.get("totals").get("pages").asInt());
+    assertEquals(3, report.get("totals").get("requests").asInt());
+    assertEquals(2, report.get("requestsByEndpoint").get("POST /api/v2/pages").asInt());
+    assertEquals(0.5, report.get("cacheHitRatios").get("pages").asDouble());
+    assertEquals(0.75, report.get("cacheHitRatios").get("images").asDouble());
+    assertEquals("Containers", report.get("slowest").get("views").get(0).get("name").asText());
+    assertEquals(
+        "convert section 01-context.md",
+        report.get("slowest").get("sections").get(0).get("name").asText());
+    assertEquals(
+        "POST /api/v2/pages", report.get("slowest").get("requests").get(0).get("name").asText());
+    JsonNode export = report.get("exports").get(0);
+    assertEquals("main", export.get("branch").asText());
+    assertEquals(2, export.get("criticalPath").size());
+    assertEquals("created", report.get("pages").get(0).get("action").asText());
+    assertEquals("context.png", report.get("attachments").get(0).get("filename").asText());
+    logger.info("✅ Run report written as JSON");
+  }
+
+  @Test
+  void testHtmlReport(@TempDir Path tempDir) throws Exception {
+    Path file = tempDir.resolve("reports/report.html");
+    recordedReport().write(file);
+    String html = Files.readString(file);
+
+    assertTrue(html.startsWith("<!DOCTYPE html>"));
+    assertTrue(html.contains("<h2>Critical path of Shop (main)</h2>"));
+    assertTrue(html.contains("<td>context.png</td>"));
+    assertTrue(html.contains("<td>POST /api/v2/pages</td>"));
+    logger.info("✅ Run report written as HTML");
+  }
+
+  @Test
+  void testExportRecorded(@TempDir Path tempDir) throws Exception {
+    ExportMetrics metrics = new ExportMetrics();
+    RunReport report = new RunReport(metrics);
+    try (FakeConfluenceServer server = new FakeConfluenceServer()) {
+      OfflineExport.run(
+          server,
+          tempDir,
+          exporter -> {
+            exporter.setMetrics(metrics);
+            exporter.setReport(report);
+          });
+
+      assertEquals(
+          (long) server.getRequestCount(),
+          ((Map<?, ?>) report.toMap().get("totals")).get("requests"));
+    }
+    assertTrue(report.getPages().stream().anyMatch(page -> "created".equals(page.action())));
+    assertTrue(
+        report.getAttachments().stream()
+            .anyMatch(attachment -> "uploaded".equals(attachment.action())));
+    logger.info("✅ Pages, attachments and requests of an export reported");
+  }
+}
@@ -0,0 +1,155 @@
+package arnaudroubinet.structurizr.confluence.scheduler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the concurrent startup phase of exports. */
+class StartupOrchestratorTest {
+  private static final Logger logger = LoggerFactory.getLogger(StartupOrchestratorTest.class);
+
+  @Test
+  void testStepsRunConcurrently() throws Exception {
+    CountDownLatch allStarted = new CountDownLatch(3);
+    try (StartupOrchestrator startup = new StartupOrchestrator()) {
+      StartupOrchestrator.Step<Boolean> workspace =
+          startup.start(
+              "workspace fetch",
+              () -> {
+                allStarted.countDown();
+                return allStarted.await(5, TimeUnit.SECONDS);
+              });
+      StartupOrchestrator.Step<Boolean> browser =
+          startup.start(
+              "browser launch",
+              () -> {
+                allStarted.countDown();
+                return allStarted.await(5, TimeUnit.SECONDS);
+              });
+      StartupOrchestrator.Step<Boolean> discovery =
+          startup.start(
+              "confluence discovery",
+              () -> {
+                allStarted.countDown();
+                return allStarted.await(5, TimeUnit.SECONDS);
+              });
+
+      assertTrue(workspace.join());
+      assertTrue(browser.join());
+      assertTrue(discovery.join());
+      startup.logSummary();
+    }
+
+    logger.info("✅ Startup steps overlap");
+  }
+
+  @Test
+  void testJoinRethrowsStepFailure() {
+    try (StartupOrchestrator startup = new StartupOrchestrator()) {
+      StartupOrchestrator.Step<Object> step =
+          startup.start(
+              "workspace fetch",
+              () -> {
+                throw new IOException("Structurizr unavailable");
+              });
+
+      IOException e = assertThrows(IOException.class, step::join);
+      assertEquals("Structurizr unavailable", e.getMessage());
+    }
+
+    logger.info("✅ Step failure rethrown unwrapped where the step is joined");
+  }
+
+  @Test
+  void testTrackedStepRecordsWaitTime() throws Exception {
+    CompletableFuture<String> warmUp = new CompletableFuture<>();
+    try (StartupOrchestrator startup = new StartupOrchestrator()) {
+      StartupOrchestrator.Step<String> step = startup.track("asciidoctor boot", warmUp);
+      assertFalse(step.isDone());
+
+      CompletableFuture.runAsync(
+          () -> {
+            try {
+              Thread.sleep(30);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            warmUp.complete("ready");
+          });
+
+      assertEquals("ready", step.join());
+      assertTrue(step.isDone());
+      assertTrue(step.getWaitedNanos() > 0);
+      assertTrue(step.getDurationNanos() >= step.getWaitedNanos());
+    }
+
+    logger.info("✅ Already running steps tracked with their wait time");
+  }
+
+  @Test
+  void testWhenDoneRunsOnlyAfterSuccess() throws Exception {
+    CompletableFuture<String> fetched = new CompletableFuture<>();
+    CompletableFuture<String> failed = new CompletableFuture<>();
+    List<String> results = new ArrayList<>();
+    try (StartupOrchestrator startup = new StartupOrchestrator()) {
+      startup.track("workspace fetch", fetched).whenDone(results::add);
+      startup.track("manifest load", failed).whenDone(results::add);
+      assertTrue(results.isEmpty());
+
+      fetched.complete("workspace");
+      failed.completeExceptionally(new IOException("unavailable"));
+    }
+
+    assertEquals(List.of("workspace"), results);
+    logger.info("✅ Follow-up actions run once the step succeeds");
+  }
+
+  @Test
+  void testConcurrentJoinsAllCounted() throws Exception {
+    CompletableFuture<String> warmUp = new CompletableFuture<>();
+    int joiners = 4;
+    ExecutorService threads = Executors.newFixedThreadPool(joiners);
+    try (StartupOrchestrator startup = new StartupOrchestrator()) {
+      StartupOrchestrator.Step<String> step = startup.track("asciidoctor boot", warmUp);
+      CountDownLatch joining = new CountDownLatch(joiners);
+      List<CompletableFuture<String>> joins = new ArrayList<>();
+      for (int i = 0; i < joiners; i++) {
+        joins.add(
+            CompletableFuture.supplyAsync(
+                () -> {
+                  joining.countDown();
+                  try {
+                    return step.join();
+                  } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                  }
+                },
+                threads));
+      }
+      assertTrue(joining.await(5, TimeUnit.SECONDS));
+      Thread.sleep(50);
+      warmUp.complete("ready");
+      for (CompletableFuture<String> join : joins) {
+        assertEquals("ready", join.get(5, TimeUnit.SECONDS));
+      }
+
+      assertTrue(
+          step.getWaitedNanos() >= joiners * TimeUnit.MILLISECONDS.toNanos(40),
+          "Waits of every joining thread added up");
+    } finally {
+      threads.shutdownNow();
+    }
+
+    logger.info("✅ Waits of concurrent joins all counted");
+  }
+}
@@ -0,0 +1,106 @@
+package arnaudroubinet.structurizr.confluence.scheduler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the dependency graph scheduler of exports. */
+class TaskGraphTest {
+  private static final Logger logger = LoggerFactory.getLogger(TaskGraphTest.class);
+
+  @Test
+  void testDependenciesRunFirst() throws Exception {
+    List<String> order = new CopyOnWriteArrayList<>();
+    TaskGraph graph = new TaskGraph();
+    ExportTask parent = graph.add("parent", TaskType.CREATE_PAGE, () -> order.add("parent"));
+    ExportTask upload =
+        graph.add("upload", TaskType.UPLOAD_ATTACHMENT, () -> order.add("upload")).after(parent);
+    graph.add("publish", TaskType.PUBLISH_BODY, () -> order.add("publish")).after(parent, upload);
+
+    ExecutionReport report = graph.execute(4);
+
+    assertEquals(List.of("parent", "upload", "publish"), order);
+    assertEquals(3, report.getTasks().size());
+
+    logger.info("✅ Parents before children, attachments before bodies");
+  }
+
+  @Test
+  void testIndependentTasksOverlap() throws Exception {
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    AtomicBoolean overlapped = new AtomicBoolean(true);
+    ExportTask.Action action =
+        () -> {
+          bothStarted.countDown();
+          overlapped.compareAndSet(true, bothStarted.await(5, TimeUnit.SECONDS));
+        };
+    TaskGraph graph = new TaskGraph();
+    graph.add("render", TaskType.RENDER_VIEW, action);
+    graph.add("branch page", TaskType.CREATE_PAGE, action);
+
+    graph.execute(2);
+
+    assertTrue(overlapped.get(), "Rendering and page creation run at the same time");
+    logger.info("✅ Independent tasks run in parallel");
+  }
+
+  @Test
+  void testFailureStopsDependentsAndIsRethrown() {
+    AtomicBoolean childRan = new AtomicBoolean();
+    TaskGraph graph = new TaskGraph();
+    ExportTask parent =
+        graph.add(
+            "parent",
+            TaskType.CREATE_PAGE,
+            () -> {
+              throw new IOException("Confluence unavailable");
+            });
+    graph.add("child", TaskType.PUBLISH_BODY, () -> childRan.set(true)).after(parent);
+
+    IOException e = assertThrows(IOException.class, () -> graph.execute(2));
+
+    assertEquals("Confluence unavailable", e.getMessage());
+    assertFalse(childRan.get());
+    logger.info("✅ First failure rethrown, dependents not run");
+  }
+
+  @Test
+  void testCycleRejected() {
+    TaskGraph graph = new TaskGraph();
+    ExportTask a = graph.add("a", TaskType.CREATE_PAGE, () -> {});
+    ExportTask b = graph.add("b", TaskType.CREATE_PAGE, () -> {}).after(a);
+    a.after(b);
+
+    assertThrows(IllegalStateException.class, () -> graph.execute(2));
+    logger.info("✅ Cyclic dependencies rejected");
+  }
+
+  @Test
+  void testCriticalPathFollowsLongestChain() throws Exception {
+    TaskGraph graph = new TaskGraph();
+    ExportTask render = graph.add("render", TaskType.RENDER_VIEW, () -> Thread.sleep(60));
+    ExportTask page = graph.add("page", TaskType.CREATE_PAGE, () -> Thread.sleep(5));
+    ExportTask convert =
+        graph.add("convert", TaskType.CONVERT_SECTION, () -> Thread.sleep(5)).after(page);
+    graph.add("publish", TaskType.PUBLISH_BODY, () -> Thread.sleep(5)).after(render, convert);
+
+    ExecutionReport report = graph.execute(4);
+
+    assertEquals(
+        List.of("render", "publish"),
+        report.getCriticalPath().stream().map(ExportTask::getName).toList());
+    assertTrue(report.getCriticalPathNanos() <= report.getWallClockNanos());
+    assertTrue(report.getTotalWorkNanos() > report.getCriticalPathNanos());
+    report.log(logger);
+
+    logger.info("✅ Critical path reported");
+  }
+}
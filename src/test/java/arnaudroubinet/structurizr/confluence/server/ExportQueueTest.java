@@ -0,0 +1,118 @@
+package arnaudroubinet.structurizr.confluence.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import arnaudroubinet.structurizr.confluence.batch.BatchJob;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the coalescing queue of the export server. */
+class ExportQueueTest {
+  private static final Logger logger = LoggerFactory.getLogger(ExportQueueTest.class);
+
+  private static final BatchJob MAIN = new BatchJob(null, 42L, "100", "main", null);
+  private static final BatchJob DEVELOP = new BatchJob(null, 42L, "100", "develop", null);
+
+  static void awaitStatus(ServerJob job, ServerJob.Status status) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (job.getStatus() != status && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(status, job.getStatus());
+  }
+
+  @Test
+  void testQueuedRequestsForSameTargetCoalesce() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> exported = new CopyOnWriteArrayList<>();
+    try (ExportQueue queue =
+        new ExportQueue(
+            2,
+            job -> {
+              exported.add(job.branch());
+              release.await(5, TimeUnit.SECONDS);
+            })) {
+      ServerJob running = queue.submit(MAIN, "webhook");
+      awaitStatus(running, ServerJob.Status.RUNNING);
+
+      ServerJob first = queue.submit(MAIN, "webhook");
+      ServerJob second = queue.submit(MAIN, "webhook");
+      ServerJob third = queue.submit(MAIN, "webhook");
+      assertEquals(ServerJob.Status.SUPERSEDED, first.getStatus());
+      assertEquals(ServerJob.Status.SUPERSEDED, second.getStatus());
+      assertEquals(ServerJob.Status.QUEUED, third.getStatus(), "Waits for the running export");
+
+      release.countDown();
+      awaitStatus(third, ServerJob.Status.SUCCEEDED);
+      assertEquals(List.of("main", "main"), exported, "Only the latest request ran");
+      assertEquals(4L, queue.metrics().get("accepted"));
+      assertEquals(2L, queue.metrics().get("superseded"));
+    }
+
+    logger.info("✅ Requests for a busy target coalesce into the latest one");
+  }
+
+  @Test
+  void testTargetsRunConcurrentlyAndFailuresAreReported() throws Exception {
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    try (ExportQueue queue =
+        new ExportQueue(
+            2,
+            job -> {
+              bothStarted.countDown();
+              assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+              if (job.branch().equals("develop")) {
+                throw new IOException("Confluence unavailable");
+              }
+            })) {
+      ServerJob main = queue.submit(MAIN, "api");
+      ServerJob develop = queue.submit(DEVELOP, "api");
+
+      awaitStatus(main, ServerJob.Status.SUCCEEDED);
+      awaitStatus(develop, ServerJob.Status.FAILED);
+      assertEquals("Confluence unavailable", develop.toMap().get("error"));
+
+      Map<String, Object> metrics = queue.metrics();
+      assertEquals(1L, metrics.get("succeeded"));
+      assertEquals(1L, metrics.get("failed"));
+      @SuppressWarnings("unchecked")
+      Map<String, Object> latency = (Map<String, Object>) metrics.get("latency");
+      assertEquals(2, latency.get("samples"));
+      assertTrue(latency.containsKey("p95Ms"));
+      assertSame(develop, queue.recent(1).get(0));
+    }
+
+    logger.info("✅ Different targets run in parallel, failures kept in job status");
+  }
+
+  @Test
+  void testErrorFailsJobAndKeepsWorker() throws Exception {
+    AtomicInteger runs = new AtomicInteger();
+    try (ExportQueue queue =
+        new ExportQueue(
+            1,
+            job -> {
+              if (runs.incrementAndGet() == 1) {
+                throw new NoClassDefFoundError("org/example/Missing");
+              }
+            })) {
+      ServerJob broken = queue.submit(MAIN, "api");
+      awaitStatus(broken, ServerJob.Status.FAILED);
+
+      ServerJob retried = queue.submit(MAIN, "api");
+      awaitStatus(retried, ServerJob.Status.SUCCEEDED);
+      assertEquals(1L, queue.metrics().get("failed"));
+      assertEquals(1L, queue.metrics().get("succeeded"));
+    }
+
+    logger.info("✅ Errors fail the job without losing the worker or the target");
+  }
+}
@@ -0,0 +1,142 @@
+package arnaudroubinet.structurizr.confluence.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import arnaudroubinet.structurizr.confluence.batch.BatchJob;
+import arnaudroubinet.structurizr.confluence.metrics.ExportMetrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the REST API and webhook of the export server. */
+class ExportServerTest {
+  private static final Logger logger = LoggerFactory.getLogger(ExportServerTest.class);
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+  private final List<BatchJob> exported = new CopyOnWriteArrayList<>();
+  private ExportQueue queue;
+  private ExportServer server;
+
+  @BeforeEach
+  void startServer() throws Exception {
+    queue = new ExportQueue(1, exported::add);
+    server =
+        new ExportServer(
+            new InetSocketAddress("127.0.0.1", 0),
+            queue,
+            List.of(
+                new BatchJob(null, 42L, "100", "main", null),
+                new BatchJob(null, 42L, "100", "develop", null),
+                new BatchJob(null, 7L, "200", "main", null)),
+            "secret");
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.close();
+    queue.close();
+  }
+
+  private HttpResponse<String> send(String method, String path, String body, boolean authorized)
+      throws Exception {
+    HttpRequest.Builder request =
+        HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path))
+            .method(
+                method,
+                body != null
+                    ? HttpRequest.BodyPublishers.ofString(body)
+                    : HttpRequest.BodyPublishers.noBody());
+    if (authorized) {
+      request.header("Authorization", "Bearer secret");
+    }
+    return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  @Test
+  void testWebhookQueuesTargetsOfWorkspace() throws Exception {
+    HttpResponse<String> response =
+        send("POST", "/webhooks/structurizr?token=secret", "{\"workspaceId\": 42}", false);
+
+    assertEquals(202, response.statusCode());
+    JsonNode jobs = objectMapper.readTree(response.body()).get("jobs");
+    assertEquals(2, jobs.size());
+    ExportQueueTest.awaitStatus(
+        queue.get(jobs.get(1).get("id").asText()), ServerJob.Status.SUCCEEDED);
+    assertEquals(2, exported.size());
+    assertTrue(exported.stream().allMatch(job -> job.workspaceId() == 42L));
+
+    assertEquals(404, send("POST", "/webhooks/structurizr?workspaceId=9", null, true).statusCode());
+    logger.info("✅ Workspace change callback exports the targets of the workspace");
+  }
+
+  @Test
+  void testJobApiAndStatus() throws Exception {
+    HttpResponse<String> response =
+        send(
+            "POST",
+            "/jobs",
+            "{\"workspaceId\": 5, \"pageId\": \"300\", \"branch\": \"main\"}",
+            true);
+    assertEquals(202, response.statusCode());
+    String id = objectMapper.readTree(response.body()).get("jobs").get(0).get("id").asText();
+    ExportQueueTest.awaitStatus(queue.get(id), ServerJob.Status.SUCCEEDED);
+
+    JsonNode status = objectMapper.readTree(send("GET", "/jobs/" + id, null, true).body());
+    assertEquals("SUCCEEDED", status.get("status").asText());
+    assertTrue(status.has("latencyMs"));
+
+    JsonNode metrics = objectMapper.readTree(send("GET", "/metrics", null, true).body());
+    assertEquals(1, metrics.get("succeeded").asInt());
+
+    assertEquals(
+        400,
+        send(
+                "POST",
+                "/jobs",
+                "{\"workspaceFile\": \"/etc/w.json\", \"pageId\": \"1\", \"branch\": \"main\"}",
+                true)
+            .statusCode(),
+        "Clients cannot name server files");
+    assertEquals(400, send("POST", "/jobs", "{\"pageId\": \"1\"}", true).statusCode());
+    logger.info("✅ Jobs submitted and followed through the REST API");
+  }
+
+  @Test
+  void testPrometheusMetricsServed() throws Exception {
+    assertEquals(404, send("GET", "/metrics/prometheus", null, true).statusCode());
+
+    ExportMetrics metrics = new ExportMetrics();
+    metrics.recordPhase("publish", 1_000_000);
+    server.setMetrics(metrics);
+    HttpResponse<String> response = send("GET", "/metrics/prometheus", null, true);
+    assertEquals(200, response.statusCode());
+    assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+    assertTrue(response.body().contains("export_phase_seconds_count{phase=\"publish\"} 1"));
+    assertEquals(401, send("GET", "/metrics/prometheus", null, false).statusCode());
+    logger.info("✅ Export metrics served in the Prometheus format");
+  }
+
+  @Test
+  void testTokenRequired() throws Exception {
+    assertEquals(401, send("GET", "/metrics", null, false).statusCode());
+    assertEquals(
+        401,
+        send("POST", "/webhooks/structurizr?workspaceId=42&token=wrong", null, false).statusCode());
+    assertEquals(200, send("GET", "/health", null, false).statusCode());
+    assertTrue(exported.isEmpty());
+    logger.info("✅ Requests without the token rejected");
+  }
+}
@@ -0,0 +1,153 @@
+package arnaudroubinet.structurizr.confluence.tracing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import arnaudroubinet.structurizr.confluence.client.FakeConfluenceServer;
+import arnaudroubinet.structurizr.confluence.client.OfflineExport;
+import arnaudroubinet.structurizr.confluence.scheduler.TaskGraph;
+import arnaudroubinet.structurizr.confluence.scheduler.TaskType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.Span;
+import io.quarkus.test.junit.QuarkusTest;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for export tracing and the OTLP JSON file it writes (exports need Quarkus for the REST
+ * client).
+ */
+@QuarkusTest
+class ExportTracingTest {
+  private static final Logger logger = LoggerFactory.getLogger(ExportTracingTest.class);
+
+  @AfterEach
+  void stopTracing() {
+    ExportTracing.shutdown();
+  }
+
+  /** Reads the spans of an OTLP JSON file by name. */
+  static Map<String, JsonNode> readSpans(Path file) throws IOException {
+    ObjectMapper objectMapper = new ObjectMapper();
+    Map<String, JsonNode> spans = new HashMap<>();
+    for (String line : Files.readAllLines(file)) {
+      for (JsonNode resourceSpans : objectMapper.readTree(line).get("resourceSpans")) {
+        for (JsonNode scopeSpans : resourceSpans.get("scopeSpans")) {
+          for (JsonNode span : scopeSpans.get("spans")) {
+            spans.put(span.get("name").asText(), span);
+          }
+        }
+      }
+    }
+    return spans;
+  }
+
+  private static String attribute(JsonNode span, String key) {
+    for (JsonNode attribute : span.get("attributes")) {
+      if (key.equals(attribute.get("key").asText())) {
+        return attribute.get("value").elements().next().asText();
+      }
+    }
+    return null;
+  }
+
+  @Test
+  void testNestedSpansWrittenAsOtlpJson(@TempDir Path tempDir) throws Exception {
+    Path file = tempDir.resolve("trace.jsonl");
+    ExportTracing.enable(file);
+    assertTrue(ExportTracing.isEnabled());
+
+    ExportTracing.trace(
+        "export",
+        span -> {
+          span.setAttribute("workspace.id", "42");
+          TaskGraph graph = new TaskGraph();
+          graph.add("render Context", TaskType.RENDER_VIEW, () -> {});
+          graph.execute(2);
+          return null;
+        });
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            ExportTracing.trace(
+                "convert section",
+                span -> {
+                  throw new IllegalStateException("Broken");
+                }));
+    ExportTracing.shutdown();
+    assertFalse(ExportTracing.isEnabled());
+
+    Map<String, JsonNode> spans = readSpans(file);
+    JsonNode export = spans.get("export");
+    JsonNode task = spans.get("render Context");
+    assertEquals("42", attribute(export, "workspace.id"));
+    assertFalse(export.has("parentSpanId"));
+    assertEquals(export.get("spanId").asText(), task.get("parentSpanId").asText());
+    assertEquals(export.get("traceId").asText(), task.get("traceId").asText());
+    assertEquals("RENDER_VIEW", attribute(task, "export.task.type"));
+    assertEquals(1, task.get("kind").asInt());
+
+    JsonNode failed = spans.get("convert section");
+    assertEquals(2, failed.get("status").get("code").asInt());
+    assertEquals("Broken", failed.get("status").get("message").asText());
+    assertEquals("exception", failed.get("events").get(0).get("name").asText());
+    logger.info("✅ Nested spans written as OTLP JSON");
+  }
+
+  @Test
+  void testDisabledTracingRecordsNothing() throws Exception {
+    assertFalse(ExportTracing.isEnabled());
+    List<Span> spans = new ArrayList<>();
+    String result =
+        ExportTracing.trace(
+            "export",
+            span -> {
+              spans.add(span);
+              return "done";
+            });
+
+    assertEquals("done", result);
+    assertFalse(spans.get(0).isRecording());
+    assertFalse(spans.get(0).getSpanContext().isValid());
+    ExportTracing.flush();
+    ExportTracing.shutdown();
+    logger.info("✅ Disabled tracing records nothing");
+  }
+
+  @Test
+  void testExportRequestsTraced(@TempDir Path tempDir) throws Exception {
+    Path file = tempDir.resolve("trace.jsonl");
+    int requestCount;
+    ExportTracing.enable(file);
+    try (FakeConfluenceServer server = new FakeConfluenceServer()) {
+      OfflineExport.run(server, tempDir, exporter -> {});
+      requestCount = server.getRequestCount();
+    } finally {
+      ExportTracing.shutdown();
+    }
+
+    List<JsonNode> spans = new ArrayList<>();
+    ObjectMapper objectMapper = new ObjectMapper();
+    for (String line : Files.readAllLines(file)) {
+      objectMapper.readTree(line).findValues("spans").forEach(scope -> scope.forEach(spans::add));
+    }
+    List<JsonNode> requests = spans.stream().filter(span -> span.get("kind").asInt() == 3).toList();
+    assertEquals(requestCount, requests.size(), "Every request traced");
+    assertTrue(spans.stream().anyMatch(span -> "export".equals(span.get("name").asText())));
+    assertTrue(spans.stream().anyMatch(span -> "publish page".equals(span.get("name").asText())));
+    assertTrue(
+        requests.stream().allMatch(span -> span.has("parentSpanId")),
+        "Requests traced below the export spans");
+    logger.info("✅ Export traced down to its Confluence requests");
+  }
+}
@@ -0,0 +1,75 @@
+package arnaudroubinet.structurizr.confluence.watch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the debounced file watcher of watch mode. */
+class FileChangeWatcherTest {
+  private static final Logger logger = LoggerFactory.getLogger(FileChangeWatcherTest.class);
+
+  @TempDir Path tempDir;
+
+  @Test
+  void testBurstOfSavesReportedOnce() throws Exception {
+    Path workspace = Files.writeString(tempDir.resolve("workspace.json"), "{}");
+    Path other = tempDir.resolve("notes.txt");
+
+    try (FileChangeWatcher watcher =
+        new FileChangeWatcher(List.of(workspace), Duration.ofMillis(300))) {
+      CompletableFuture<Set<Path>> changes =
+          CompletableFuture.supplyAsync(
+              () -> {
+                try {
+                  return watcher.awaitChanges();
+                } catch (InterruptedException e) {
+                  throw new IllegalStateException(e);
+                }
+              });
+
+      Files.writeString(other, "ignored");
+      for (int i = 0; i < 5; i++) {
+        Files.writeString(workspace, "{\"revision\": " + i + "}");
+        Thread.sleep(20);
+      }
+      Set<Path> changed = changes.get(10, TimeUnit.SECONDS);
+      assertEquals(Set.of(workspace.toAbsolutePath().normalize()), changed);
+    }
+
+    logger.info("✅ A burst of saves is reported once, other files ignored");
+  }
+
+  @Test
+  void testDirectoriesWatchedRecursively() throws Exception {
+    Path docs = Files.createDirectories(tempDir.resolve("docs"));
+    Path target = Files.createDirectories(docs.resolve("target"));
+    try (FileChangeWatcher watcher = new FileChangeWatcher(List.of(docs), Duration.ofMillis(100))) {
+      CompletableFuture<Set<Path>> changes =
+          CompletableFuture.supplyAsync(
+              () -> {
+                try {
+                  return watcher.awaitChanges();
+                } catch (InterruptedException e) {
+                  throw new IllegalStateException(e);
+                }
+              });
+      Files.writeString(target.resolve("export-manifest.json"), "{}");
+      Files.writeString(docs.resolve(".01-context.md.swp"), "swap");
+      Path section = Files.writeString(docs.resolve("01-context.md"), "## Context");
+
+      assertEquals(Set.of(section.toAbsolutePath().normalize()), changes.get(10, TimeUnit.SECONDS));
+    }
+
+    logger.info("✅ Files in watched directories reported, hidden and target files ignored");
+  }
+}
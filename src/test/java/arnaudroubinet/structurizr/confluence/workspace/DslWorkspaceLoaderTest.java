@@ -0,0 +1,94 @@
+package arnaudroubinet.structurizr.confluence.workspace;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.structurizr.Workspace;
+import com.structurizr.documentation.Decision;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for loading workspaces from Structurizr DSL files. */
+class DslWorkspaceLoaderTest {
+  private static final Logger logger = LoggerFactory.getLogger(DslWorkspaceLoaderTest.class);
+
+  @TempDir Path tempDir;
+
+  @Test
+  void testDslParsedWithDocumentationAndDecisions() throws Exception {
+    Path docs = Files.createDirectories(tempDir.resolve("docs"));
+    Files.writeString(docs.resolve("01-context.md"), "## Context\n\nL'équipe publie la doc.\n");
+    Path adrs = Files.createDirectories(tempDir.resolve("adrs"));
+    Files.writeString(
+        adrs.resolve("0001-record-architecture-decisions.md"),
+        """
+        # 1. Record architecture decisions
+
+        Date: 2024-01-15
+
+        ## Status
+
+        Accepted
+
+        ## Context
+
+        We need to record the architectural decisions made on this project.
+        """);
+    Path dsl =
+        Files.writeString(
+            tempDir.resolve("workspace.dsl"),
+            """
+            workspace "Shop" {
+              !docs docs
+              !adrs adrs
+
+              model {
+                customer = person "Customer"
+                shop = softwareSystem "Shop"
+                customer -> shop "Buys from"
+              }
+
+              views {
+                systemContext shop "Context" {
+                  include *
+                }
+              }
+            }
+            """);
+
+    Workspace workspace = DslWorkspaceLoader.load(dsl);
+
+    assertEquals("Shop", workspace.getName());
+    assertEquals(2, workspace.getModel().getElements().size());
+    assertNotNull(workspace.getViews().getViewWithKey("Context"));
+    assertEquals(1, workspace.getDocumentation().getSections().size());
+    assertTrue(
+        workspace
+            .getDocumentation()
+            .getSections()
+            .iterator()
+            .next()
+            .getContent()
+            .contains("équipe"),
+        "Documentation read as UTF-8");
+    Decision decision = workspace.getDocumentation().getDecisions().iterator().next();
+    assertEquals("1", decision.getId());
+    assertEquals("Accepted", decision.getStatus());
+
+    logger.info("✅ DSL workspace parsed locally with its !docs and !adrs");
+  }
+
+  @Test
+  void testInvalidDslReported() throws Exception {
+    Path dsl = Files.writeString(tempDir.resolve("workspace.dsl"), "workspace {\n  modle {\n}\n");
+
+    IOException error = assertThrows(IOException.class, () -> DslWorkspaceLoader.load(dsl));
+    assertTrue(error.getMessage().contains("workspace.dsl"));
+
+    logger.info("✅ DSL syntax errors reported as I/O errors");
+  }
+}
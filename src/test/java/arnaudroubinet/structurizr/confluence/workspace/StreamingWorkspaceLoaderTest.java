@@ -0,0 +1,99 @@
+package arnaudroubinet.structurizr.confluence.workspace;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.structurizr.Workspace;
+import com.structurizr.documentation.Decision;
+import com.structurizr.documentation.Format;
+import com.structurizr.documentation.Image;
+import com.structurizr.documentation.Section;
+import com.structurizr.model.SoftwareSystem;
+import com.structurizr.util.WorkspaceUtils;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the streaming workspace loader keeping documentation content in the file. */
+class StreamingWorkspaceLoaderTest {
+  private static final Logger logger = LoggerFactory.getLogger(StreamingWorkspaceLoaderTest.class);
+
+  private static final String SECTION = "## Overview\n\nQuotes \"here\", unicode é → ✓ and a\ttab.";
+
+  @TempDir Path tempDir;
+
+  @Test
+  void testDocumentationContentLeftInFile() throws Exception {
+    Workspace original = new Workspace("W", "Large workspace");
+    SoftwareSystem system = original.getModel().addSoftwareSystem("System", "");
+    original.getViews().createSystemContextView(system, "Context", "");
+    original.getDocumentation().addSection(new Section(Format.Markdown, SECTION));
+    Decision decision = new Decision("1");
+    decision.setTitle("Use streaming");
+    decision.setStatus("Accepted");
+    decision.setFormat(Format.AsciiDoc);
+    decision.setContent("== Context\n\nembed:Context[]");
+    original.getDocumentation().addDecision(decision);
+    original.getDocumentation().addImage(new Image("diagram.png", "image/png", "iVBORw0KGgo="));
+    system.getDocumentation().addSection(new Section(Format.Markdown, "System notes"));
+    Path file = tempDir.resolve("workspace.json");
+    WorkspaceUtils.saveWorkspaceToJson(original, file.toFile());
+
+    try (LazyWorkspace lazy = StreamingWorkspaceLoader.load(file)) {
+      Workspace workspace = lazy.getWorkspace();
+      assertEquals("W", workspace.getName());
+      assertEquals(1, workspace.getViews().getSystemContextViews().size());
+      assertEquals(4, lazy.getLazyContentCount(), "Sections, decision and image left in file");
+
+      Section section = workspace.getDocumentation().getSections().iterator().next();
+      assertTrue(section.getContent().startsWith(LazyWorkspace.PLACEHOLDER_PREFIX));
+      assertEquals(SECTION, lazy.of(section));
+      assertEquals(
+          "== Context\n\nembed:Context[]",
+          lazy.of(workspace.getDocumentation().getDecisions().iterator().next()));
+      assertTrue(
+          workspace
+              .getDocumentation()
+              .getImages()
+              .iterator()
+              .next()
+              .getContent()
+              .startsWith(LazyWorkspace.PLACEHOLDER_PREFIX));
+      SoftwareSystem loadedSystem = workspace.getModel().getSoftwareSystemWithName("System");
+      assertEquals(
+          "System notes", lazy.of(loadedSystem.getDocumentation().getSections().iterator().next()));
+      assertNotNull(lazy.fingerprint());
+    }
+
+    logger.info("✅ Documentation content read from its byte range on demand");
+  }
+
+  @Test
+  void testDemoWorkspaceMatchesFullLoad() throws Exception {
+    Path file = Paths.get("demo", "itms-workspace.json");
+    // Read as UTF-8, as the streaming loader does, whatever the platform charset
+    Workspace full = WorkspaceUtils.fromJson(Files.readString(file));
+
+    try (LazyWorkspace lazy = StreamingWorkspaceLoader.load(file)) {
+      Workspace workspace = lazy.getWorkspace();
+      assertEquals(full.getName(), workspace.getName());
+      assertEquals(full.getModel().getElements().size(), workspace.getModel().getElements().size());
+      assertEquals(full.getViews().getViews().size(), workspace.getViews().getViews().size());
+
+      List<String> expected = new ArrayList<>();
+      full.getDocumentation().getSections().forEach(section -> expected.add(section.getContent()));
+      List<String> actual = new ArrayList<>();
+      workspace.getDocumentation().getSections().forEach(section -> actual.add(lazy.of(section)));
+      assertEquals(expected, actual);
+      assertEquals(
+          DocumentationContents.INLINE.fingerprint(), null, "Inline content needs no fingerprint");
+    }
+
+    logger.info("✅ Streamed demo workspace matches the full load");
+  }
+}
@@ -0,0 +1,100 @@
+package arnaudroubinet.structurizr.confluence.workspace;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.structurizr.Workspace;
+import com.structurizr.documentation.Format;
+import com.structurizr.documentation.Section;
+import com.structurizr.util.WorkspaceUtils;
+import com.structurizr.view.View;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Tests for the synthetic workspace generator. */
+class SyntheticWorkspaceGeneratorTest {
+  private static final Logger logger =
+      LoggerFactory.getLogger(SyntheticWorkspaceGeneratorTest.class);
+
+  private static final Pattern EMBED = Pattern.compile("embed:([A-Za-z0-9_-]+)");
+
+  @Test
+  void testSameSeedGivesSameWorkspace() throws Exception {
+    String first =
+        WorkspaceUtils.toJson(SyntheticWorkspaceGenerator.preset("small").generate(), false);
+    String second =
+        WorkspaceUtils.toJson(SyntheticWorkspaceGenerator.preset("small").generate(), false);
+    assertEquals(first, second);
+
+    SyntheticWorkspaceGenerator other = SyntheticWorkspaceGenerator.preset("small");
+    other.setSeed(7);
+    assertNotEquals(first, WorkspaceUtils.toJson(other.generate(), false));
+
+    logger.info("✅ Generated workspaces depend only on the seed and settings");
+  }
+
+  @Test
+  void testSizesAndReferences() {
+    SyntheticWorkspaceGenerator generator = new SyntheticWorkspaceGenerator();
+    generator.setSections(30);
+    generator.setDecisions(40);
+    generator.setViews(15);
+    generator.setEmbedsPerSection(2);
+    generator.setExternalImagesPerSection(1);
+    generator.setFormatWeight(SyntheticWorkspaceGenerator.ContentFormat.HTML, 1);
+    Workspace workspace = generator.generate();
+
+    assertEquals(30, workspace.getDocumentation().getSections().size());
+    assertEquals(40, workspace.getDocumentation().getDecisions().size());
+    assertEquals(15, workspace.getViews().getViews().size());
+
+    Set<String> viewKeys =
+        workspace.getViews().getViews().stream().map(View::getKey).collect(Collectors.toSet());
+    int embeds = 0;
+    for (Section section : workspace.getDocumentation().getSections()) {
+      Matcher matcher = EMBED.matcher(section.getContent());
+      while (matcher.find()) {
+        assertTrue(viewKeys.contains(matcher.group(1)), "Unknown view " + matcher.group(1));
+        embeds++;
+      }
+    }
+    assertTrue(embeds > 0, "Sections embed diagrams");
+    assertTrue(
+        workspace.getDocumentation().getSections().stream()
+            .anyMatch(section -> section.getContent().contains("https://example.com/images/")));
+    assertTrue(
+        workspace.getDocumentation().getSections().stream()
+            .anyMatch(section -> section.getContent().contains("<table>")),
+        "HTML content generated");
+    assertTrue(
+        workspace.getDocumentation().getSections().stream()
+            .anyMatch(section -> section.getFormat() == Format.AsciiDoc));
+
+    logger.info("✅ Generated workspace has the requested sizes and valid embeds");
+  }
+
+  @Test
+  void testLongTailSizes() {
+    SyntheticWorkspaceGenerator generator = new SyntheticWorkspaceGenerator();
+    generator.setSections(200);
+    generator.setDecisions(0);
+    generator.setViews(1);
+    Workspace workspace = generator.generate();
+
+    int[] lengths =
+        workspace.getDocumentation().getSections().stream()
+            .mapToInt(section -> section.getContent().length())
+            .sorted()
+            .toArray();
+    assertTrue(
+        lengths[lengths.length - 1] > 5 * lengths[lengths.length / 2],
+        "A few sections are much larger than the median");
+
+    assertThrows(IllegalArgumentException.class, () -> SyntheticWorkspaceGenerator.preset("huge"));
+    logger.info("✅ Section sizes follow a long-tailed distribution");
+  }
+}